@@ -10,22 +10,30 @@ import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.TreePathScanner;
 import com.sun.tools.javac.tree.JCTree;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.afu.annotator.find.AnnotationInsertion;
@@ -69,6 +77,7 @@ import org.checkerframework.afu.scenelib.type.DeclaredType;
 import org.checkerframework.afu.scenelib.type.Type;
 import org.checkerframework.afu.scenelib.util.CommandLineUtils;
 import org.checkerframework.afu.scenelib.util.coll.VivifyingMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.objectweb.asm.TypePath;
 import org.plumelib.options.Option;
 import org.plumelib.options.OptionGroup;
@@ -119,6 +128,8 @@ import org.plumelib.util.IPair;
  *             insertions [default: false]
  *         <li id="option:convert-jaifs"><b>--convert-jaifs=</b><i>boolean</i>. Convert JAIFs to AST
  *             Path format, but do no insertion into source [default: false]
+ *         <li id="option:jobs"><b>-j</b> <b>--jobs=</b><i>int</i>. Number of Java files to process
+ *             in parallel [default: 1]
  *         <li id="option:help"><b>-h</b> <b>--help=</b><i>boolean</i>. Print usage information and
  *             exit [default: false]
  *       </ul>
@@ -177,6 +188,14 @@ public class Main {
   @Option("Convert JAIFs to AST Path format, but do no insertion into source")
   public static boolean convert_jaifs = false;
 
+  /**
+   * Number of Java files to process in parallel. Files that declare the same class are processed by
+   * the same thread. Progress output and output files are produced in command-line order, so they
+   * do not depend on this option. It is ignored with {@code --convert-jaifs}.
+   */
+  @Option("-j Number of Java files to process in parallel")
+  public static int jobs = 1;
+
   @Option("-h Print usage information and exit")
   public static boolean help = false;
 
@@ -540,6 +559,12 @@ public class Main {
       System.exit(1);
     }
 
+    if (jobs < 1) {
+      System.out.printf("--jobs must be positive, but is %d%n", jobs);
+      options.printUsage();
+      System.exit(1);
+    }
+
     if (file_args.length < 2) {
       System.out.printf("Supplied %d arguments, at least 2 needed%n", file_args.length);
       System.out.printf("Supplied arguments: %s%n", Arrays.toString(args));
@@ -567,7 +592,20 @@ public class Main {
       }
     }
 
-    computeConstructors(javafiles);
+    // Runs the per-file work when --jobs is greater than 1.  Its threads are daemon threads, so
+    // that they do not keep the JVM alive if this method exits early.
+    ExecutorService executor =
+        jobs > 1 && !convert_jaifs
+            ? Executors.newFixedThreadPool(
+                jobs,
+                runnable -> {
+                  Thread thread = new Thread(runnable, "insert-annotations-worker");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+
+    computeConstructors(javafiles, executor);
 
     // The insertions specified by the annotation files.
     Insertions insertions = new Insertions();
@@ -682,373 +720,623 @@ public class Main {
       }
     }
 
-    for (String javafilename : javafiles) {
-      verb.debug("Processing %s%n", javafilename);
+    if (executor == null) {
+      for (String javafilename : javafiles) {
+        AnnotatedFile annotated =
+            annotateFile(
+                javafilename,
+                insertions,
+                annotationImports,
+                insertionOrigins,
+                scenes,
+                insertionIndex,
+                dbug,
+                verb,
+                System.out);
+        if (annotated.src == null) {
+          return;
+        }
 
-      File javafile = new File(javafilename);
-      File unannotated = new File(javafilename + ".unannotated");
-      if (in_place) {
-        // It doesn't make sense to check timestamps;
-        // if the .java.unannotated file exists, then just use it.
-        // A user can rename that file back to just .java to cause the
-        // .java file to be read.
-        if (unannotated.exists()) {
-          verb.debug("Renaming %s to %s%n", unannotated, javafile);
-          boolean success = unannotated.renameTo(javafile);
-          if (!success) {
-            throw new Error(String.format("Failed renaming %s to %s", unannotated, javafile));
+        if (convert_jaifs) {
+          for (Map.Entry<String, AScene> entry : scenes.entrySet()) {
+            String filename = entry.getKey();
+            AScene scene = entry.getValue();
+            try {
+              IndexFileWriter.write(scene, filename + ".converted");
+            } catch (DefException e) {
+              System.err.println(filename + ": " + " format error in conversion");
+              if (print_error_stack) {
+                e.printStackTrace();
+              }
+            }
           }
+          return; // done with conversion
         }
-      }
 
-      Source src = fileToSource(javafilename);
-      if (src == null) {
-        return;
-      } else {
-        verb.debug("Parsed %s%n", javafilename);
+        writeFile(annotated);
       }
-      String fileLineSep;
-      try {
-        // fileLineSep is set here so that exceptions can be caught
-        fileLineSep = FilesPlume.inferLineSeparator(javafilename);
-      } catch (IOException e) {
-        throw new Error("Cannot read " + javafilename, e);
+    } else {
+      AnnotatedFile[] annotatedFiles = new AnnotatedFile[javafiles.size()];
+      List<List<AnnotatedFile>> unitResults =
+          mapInOrder(
+              workUnits(javafiles, insertions),
+              unit -> annotateWorkUnit(javafiles, unit, insertions, annotationImports),
+              executor);
+      executor.shutdown();
+      for (List<AnnotatedFile> unitResult : unitResults) {
+        for (AnnotatedFile annotated : unitResult) {
+          annotatedFiles[annotated.index] = annotated;
+        }
       }
+      // Print output and write files in command-line order, as if the files had been processed one
+      // at a time.
+      for (AnnotatedFile annotated : annotatedFiles) {
+        if (annotated == null) {
+          // An earlier file in the same work unit could not be parsed.
+          return;
+        }
+        System.out.print(annotated.output);
+        if (annotated.src == null) {
+          return;
+        }
+        writeFile(annotated);
+      }
+    }
+  }
 
-      // Imports required to resolve annotations (when abbreviate==true).
-      LinkedHashSet<String> imports = new LinkedHashSet<>();
-      int num_insertions = 0;
-      String pkg = "";
-
-      for (CompilationUnitTree cut : src.parse()) {
-        JCTree.JCCompilationUnit tree = (JCTree.JCCompilationUnit) cut;
-        ExpressionTree pkgExp = cut.getPackageName();
-        pkg = pkgExp == null ? "" : pkgExp.toString();
-
-        // Create a finder, and use it to get positions.
-        TreeFinder finder = new TreeFinder(tree);
-        SetMultimap<IPair<Integer, ASTPath>, Insertion> positions =
-            finder.getPositions(tree, insertions);
-        if (dbug.isEnabled()) {
-          dbug.debug("In org.checkerframework.afu.annotator.Main:%n");
-          dbug.debug("positions (for %d insertions) = %s%n", insertions.size(), positions);
+  /** The result of inserting annotations into one Java file, before the file is written. */
+  private static class AnnotatedFile {
+    /** The name of the Java file. */
+    final String javafilename;
+
+    /** The source code with annotations inserted, or null if the file could not be parsed. */
+    final @Nullable Source src;
+
+    /** The package of the Java file. */
+    final String pkg;
+
+    /** The position of the Java file on the command line; used only with {@code --jobs}. */
+    int index;
+
+    /** The output printed while annotating the file; used only with {@code --jobs}. */
+    String output = "";
+
+    /**
+     * Creates an AnnotatedFile.
+     *
+     * @param javafilename the name of the Java file
+     * @param src the source code with annotations inserted, or null if the file could not be parsed
+     * @param pkg the package of the Java file
+     */
+    AnnotatedFile(String javafilename, @Nullable Source src, String pkg) {
+      this.javafilename = javafilename;
+      this.src = src;
+      this.pkg = pkg;
+    }
+  }
+
+  /**
+   * Inserts annotations into the source code of one Java file, but does not write the file.
+   *
+   * @param javafilename the Java file
+   * @param insertions the insertions specified by the annotation files
+   * @param annotationImports the packages that each annotation needs to import
+   * @param insertionOrigins the annotation file of each insertion; used only with {@code
+   *     --convert-jaifs}
+   * @param scenes the scene of each annotation file; used only with {@code --convert-jaifs}
+   * @param insertionIndex the source of each insertion, per annotation file; used only with {@code
+   *     --convert-jaifs}
+   * @param dbug where to print debugging information
+   * @param verb where to print progress information
+   * @param out where to print the progress dots
+   * @return the annotated source code
+   */
+  @SuppressWarnings("EmptyCatch") // TODO
+  private static AnnotatedFile annotateFile(
+      String javafilename,
+      Insertions insertions,
+      Map<String, Set<String>> annotationImports,
+      Map<Insertion, String> insertionOrigins,
+      Map<String, AScene> scenes,
+      Map<String, Multimap<Insertion, Annotation>> insertionIndex,
+      DebugWriter dbug,
+      DebugWriter verb,
+      PrintStream out) {
+    verb.debug("Processing %s%n", javafilename);
+
+    File javafile = new File(javafilename);
+    File unannotated = new File(javafilename + ".unannotated");
+    if (in_place) {
+      // It doesn't make sense to check timestamps;
+      // if the .java.unannotated file exists, then just use it.
+      // A user can rename that file back to just .java to cause the
+      // .java file to be read.
+      if (unannotated.exists()) {
+        verb.debug("Renaming %s to %s%n", unannotated, javafile);
+        boolean success = unannotated.renameTo(javafile);
+        if (!success) {
+          throw new Error(String.format("Failed renaming %s to %s", unannotated, javafile));
         }
+      }
+    }
 
-        if (convert_jaifs) {
-          // With --convert-jaifs command-line option, the program is used only for JAIF conversion.
-          // Execute the following block and then skip the remainder of the loop.
-          Multimap<ASTRecord, Insertion> astInsertions = finder.getPaths();
-          for (Map.Entry<ASTRecord, Collection<Insertion>> entry :
-              astInsertions.asMap().entrySet()) {
-            ASTRecord rec = entry.getKey();
-            for (Insertion ins : entry.getValue()) {
-              if (ins.getCriteria().getASTPath() != null) {
-                continue;
-              }
-              String arg = insertionOrigins.get(ins);
-              AScene scene = scenes.get(arg);
-              Multimap<Insertion, Annotation> insertionSources = insertionIndex.get(arg);
-              // String text =
-              //  ins.getText(abbreviate, false, 0, '\0');
+    Source src = fileToSource(javafilename);
+    if (src == null) {
+      return new AnnotatedFile(javafilename, null, "");
+    } else {
+      verb.debug("Parsed %s%n", javafilename);
+    }
+    String fileLineSep;
+    try {
+      // fileLineSep is set here so that exceptions can be caught
+      fileLineSep = FilesPlume.inferLineSeparator(javafilename);
+    } catch (IOException e) {
+      throw new Error("Cannot read " + javafilename, e);
+    }
 
-              // TODO: adjust for missing end of path (?)
+    // Imports required to resolve annotations (when abbreviate==true).
+    LinkedHashSet<String> imports = new LinkedHashSet<>();
+    int num_insertions = 0;
+    String pkg = "";
 
-              if (insertionSources.containsKey(ins)) {
-                convertInsertion(pkg, tree, rec, ins, scene, insertionSources);
-              }
-            }
-          }
-          continue;
-        }
+    for (CompilationUnitTree cut : src.parse()) {
+      JCTree.JCCompilationUnit tree = (JCTree.JCCompilationUnit) cut;
+      ExpressionTree pkgExp = cut.getPackageName();
+      pkg = pkgExp == null ? "" : pkgExp.toString();
 
-        // Apply the positions to the source file.
-        verb.debug(
-            "getPositions returned %d positions in tree for %s%n", positions.size(), javafilename);
-
-        Set<IPair<Integer, ASTPath>> positionKeysUnsorted = positions.keySet();
-        Set<IPair<Integer, ASTPath>> positionKeysSorted =
-            new TreeSet<IPair<Integer, ASTPath>>(
-                new Comparator<IPair<Integer, ASTPath>>() {
-                  @Override
-                  public int compare(IPair<Integer, ASTPath> p1, IPair<Integer, ASTPath> p2) {
-                    int c = Integer.compare(p2.first, p1.first);
-                    if (c != 0) {
-                      return c;
-                    }
-                    return p2.second == null
-                        ? (p1.second == null ? 0 : -1)
-                        : (p1.second == null ? 1 : p2.second.compareTo(p1.second));
-                  }
-                });
-        positionKeysSorted.addAll(positionKeysUnsorted);
-        for (IPair<Integer, ASTPath> pair : positionKeysSorted) {
-          boolean receiverInserted = false;
-          boolean newInserted = false;
-          boolean constructorInserted = false;
-          Set<String> seen = new TreeSet<>();
-          List<Insertion> toInsertList = new ArrayList<>(positions.get(pair));
-          // The Multimap interface doesn't seem to have a way to specify the order of elements in
-          // the collection, so sort them here.
-          toInsertList.sort(insertionSorter);
-          dbug.debug("insertion pos: %d%n", pair.first);
-          dbug.debug("insertions sorted: %s%n", toInsertList);
-          assert pair.first >= 0
-              : "pos is negative: " + pair.first + " " + toInsertList.get(0) + " " + javafilename;
-          for (Insertion iToInsert : toInsertList) {
-            // Possibly add whitespace after the insertion
-            String trailingWhitespace = "";
-            boolean gotSeparateLine = false;
-            int pos = pair.first; // reset each iteration in case of dyn adjustment
-            if (iToInsert.isSeparateLine()) {
-              // System.out.printf("isSeparateLine=true for insertion at pos %d: %s%n", pos,
-              // iToInsert);
-
-              // If an annotation should have its own line, first check that the insertion location
-              // is the first non-whitespace on its line. If so, then the insertion content should
-              // be the annotation, followed, by a line break, followed by a copy of the indentation
-              // of the line being inserted onto. This puts the annotation on its own line aligned
-              // with the contents of the next line.
-
-              // Number of whitespace characters preceeding the insertion position on the same line
-              // (tabs count as one).
-              int indentation = 0;
-              while ((pos - indentation != 0)
-                  // horizontal whitespace
-                  && (src.charAt(pos - indentation - 1) == ' '
-                      || src.charAt(pos - indentation - 1) == '\t')) {
-                // System.out.printf("src.charAt(pos-indentation-1 == %d-%d-1)='%s'%n",
-                //                   pos, indentation, src.charAt(pos-indentation-1));
-                indentation++;
-              }
-              // Checks that insertion position is the first non-whitespace on the line it occurs
-              // on.
-              if ((pos - indentation == 0)
-                  || (src.charAt(pos - indentation - 1) == '\f'
-                      || src.charAt(pos - indentation - 1) == '\n'
-                      || src.charAt(pos - indentation - 1) == '\r')) {
-                trailingWhitespace = fileLineSep + src.substring(pos - indentation, pos);
-                gotSeparateLine = true;
-              }
+      // Create a finder, and use it to get positions.
+      TreeFinder finder = new TreeFinder(tree);
+      SetMultimap<IPair<Integer, ASTPath>, Insertion> positions =
+          finder.getPositions(tree, insertions);
+      if (dbug.isEnabled()) {
+        dbug.debug("In org.checkerframework.afu.annotator.Main:%n");
+        dbug.debug("positions (for %d insertions) = %s%n", insertions.size(), positions);
+      }
+
+      if (convert_jaifs) {
+        // With --convert-jaifs command-line option, the program is used only for JAIF conversion.
+        // Execute the following block and then skip the remainder of the loop.
+        Multimap<ASTRecord, Insertion> astInsertions = finder.getPaths();
+        for (Map.Entry<ASTRecord, Collection<Insertion>> entry :
+            astInsertions.asMap().entrySet()) {
+          ASTRecord rec = entry.getKey();
+          for (Insertion ins : entry.getValue()) {
+            if (ins.getCriteria().getASTPath() != null) {
+              continue;
             }
+            String arg = insertionOrigins.get(ins);
+            AScene scene = scenes.get(arg);
+            Multimap<Insertion, Annotation> insertionSources = insertionIndex.get(arg);
+            // String text =
+            //  ins.getText(abbreviate, false, 0, '\0');
 
-            char precedingChar;
-            if (pos != 0) {
-              precedingChar = src.charAt(pos - 1);
-            } else {
-              precedingChar = '\0';
+            // TODO: adjust for missing end of path (?)
+
+            if (insertionSources.containsKey(ins)) {
+              convertInsertion(pkg, tree, rec, ins, scene, insertionSources);
             }
+          }
+        }
+        continue;
+      }
 
-            if (iToInsert.getKind() == Insertion.Kind.ANNOTATION) {
-              AnnotationInsertion ai = (AnnotationInsertion) iToInsert;
-              if (ai.isGenerateBound()) { // avoid multiple ampersands
-                try {
-                  String s = src.substring(pos, pos + 9);
-                  if ("Object & ".equals(s)) {
-                    ai.setGenerateBound(false);
-                    precedingChar = '.'; // suppress leading space
-                  }
-                } catch (StringIndexOutOfBoundsException e) {
-                }
-              }
-              if (ai.isGenerateExtends()) { // avoid multiple "extends"
-                try {
-                  String s = src.substring(pos, pos + 9);
-                  if (" extends ".equals(s)) {
-                    ai.setGenerateExtends(false);
-                    pos += 8;
+      // Apply the positions to the source file.
+      verb.debug(
+          "getPositions returned %d positions in tree for %s%n", positions.size(), javafilename);
+
+      Set<IPair<Integer, ASTPath>> positionKeysUnsorted = positions.keySet();
+      Set<IPair<Integer, ASTPath>> positionKeysSorted =
+          new TreeSet<IPair<Integer, ASTPath>>(
+              new Comparator<IPair<Integer, ASTPath>>() {
+                @Override
+                public int compare(IPair<Integer, ASTPath> p1, IPair<Integer, ASTPath> p2) {
+                  int c = Integer.compare(p2.first, p1.first);
+                  if (c != 0) {
+                    return c;
                   }
-                } catch (StringIndexOutOfBoundsException e) {
+                  return p2.second == null
+                      ? (p1.second == null ? 0 : -1)
+                      : (p1.second == null ? 1 : p2.second.compareTo(p1.second));
                 }
-              }
-            } else if (iToInsert.getKind() == Insertion.Kind.CAST) {
-              ((CastInsertion) iToInsert).setOnArrayLiteral(src.charAt(pos) == '{');
-            } else if (iToInsert.getKind() == Insertion.Kind.RECEIVER) {
-              ReceiverInsertion ri = (ReceiverInsertion) iToInsert;
-              ri.setAnnotationsOnly(receiverInserted);
-              receiverInserted = true;
-            } else if (iToInsert.getKind() == Insertion.Kind.NEW) {
-              NewInsertion ni = (NewInsertion) iToInsert;
-              ni.setAnnotationsOnly(newInserted);
-              newInserted = true;
-            } else if (iToInsert.getKind() == Insertion.Kind.CONSTRUCTOR) {
-              ConstructorInsertion ci = (ConstructorInsertion) iToInsert;
-              if (constructorInserted) {
-                ci.setAnnotationsOnly(true);
-              }
-              constructorInserted = true;
+              });
+      positionKeysSorted.addAll(positionKeysUnsorted);
+      for (IPair<Integer, ASTPath> pair : positionKeysSorted) {
+        boolean receiverInserted = false;
+        boolean newInserted = false;
+        boolean constructorInserted = false;
+        Set<String> seen = new TreeSet<>();
+        List<Insertion> toInsertList = new ArrayList<>(positions.get(pair));
+        // The Multimap interface doesn't seem to have a way to specify the order of elements in
+        // the collection, so sort them here.
+        toInsertList.sort(insertionSorter);
+        dbug.debug("insertion pos: %d%n", pair.first);
+        dbug.debug("insertions sorted: %s%n", toInsertList);
+        assert pair.first >= 0
+            : "pos is negative: " + pair.first + " " + toInsertList.get(0) + " " + javafilename;
+        for (Insertion iToInsert : toInsertList) {
+          // Possibly add whitespace after the insertion
+          String trailingWhitespace = "";
+          boolean gotSeparateLine = false;
+          int pos = pair.first; // reset each iteration in case of dyn adjustment
+          if (iToInsert.isSeparateLine()) {
+            // System.out.printf("isSeparateLine=true for insertion at pos %d: %s%n", pos,
+            // iToInsert);
+
+            // If an annotation should have its own line, first check that the insertion location
+            // is the first non-whitespace on its line. If so, then the insertion content should
+            // be the annotation, followed, by a line break, followed by a copy of the indentation
+            // of the line being inserted onto. This puts the annotation on its own line aligned
+            // with the contents of the next line.
+
+            // Number of whitespace characters preceeding the insertion position on the same line
+            // (tabs count as one).
+            int indentation = 0;
+            while ((pos - indentation != 0)
+                // horizontal whitespace
+                && (src.charAt(pos - indentation - 1) == ' '
+                    || src.charAt(pos - indentation - 1) == '\t')) {
+              // System.out.printf("src.charAt(pos-indentation-1 == %d-%d-1)='%s'%n",
+              //                   pos, indentation, src.charAt(pos-indentation-1));
+              indentation++;
             }
-
-            String toInsert =
-                iToInsert.getText(abbreviate, gotSeparateLine, pos, precedingChar)
-                    + trailingWhitespace;
-            // eliminate duplicates
-            if (seen.contains(toInsert)) {
-              continue;
+            // Checks that insertion position is the first non-whitespace on the line it occurs
+            // on.
+            if ((pos - indentation == 0)
+                || (src.charAt(pos - indentation - 1) == '\f'
+                    || src.charAt(pos - indentation - 1) == '\n'
+                    || src.charAt(pos - indentation - 1) == '\r')) {
+              trailingWhitespace = fileLineSep + src.substring(pos - indentation, pos);
+              gotSeparateLine = true;
             }
-            seen.add(toInsert);
-
-            // If it's an annotation and already there, don't re-insert.  This is a hack!
-            // Also, I think this is already checked when constructing the
-            // insertions.
-            if (toInsert.startsWith("@")) {
-              int precedingTextPos = pos - toInsert.length() - 1;
-              if (precedingTextPos >= 0) {
-                String precedingTextPlusChar = src.getString().substring(precedingTextPos, pos);
-                if (toInsert.equals(precedingTextPlusChar.substring(0, toInsert.length()))
-                    || toInsert.equals(precedingTextPlusChar.substring(1))) {
-                  dbug.debug(
-                      "Inserting '%s' at %d in code of length %d with preceding text '%s'%n",
-                      toInsert, pos, src.getString().length(), precedingTextPlusChar);
-                  dbug.debug("Already present, skipping%n");
-                  continue;
+          }
+
+          char precedingChar;
+          if (pos != 0) {
+            precedingChar = src.charAt(pos - 1);
+          } else {
+            precedingChar = '\0';
+          }
+
+          if (iToInsert.getKind() == Insertion.Kind.ANNOTATION) {
+            AnnotationInsertion ai = (AnnotationInsertion) iToInsert;
+            if (ai.isGenerateBound()) { // avoid multiple ampersands
+              try {
+                String s = src.substring(pos, pos + 9);
+                if ("Object & ".equals(s)) {
+                  ai.setGenerateBound(false);
+                  precedingChar = '.'; // suppress leading space
                 }
+              } catch (StringIndexOutOfBoundsException e) {
               }
-              int followingTextEndPos = pos + toInsert.length();
-              if (followingTextEndPos < src.getString().length()) {
-                String followingText = src.getString().substring(pos, followingTextEndPos);
-                dbug.debug("followingText=\"%s\"%n", followingText);
-                dbug.debug("toInsert=\"%s\"%n", toInsert);
-                // toInsertNoWs does not contain the trailing whitespace.
-                String toInsertNoWs = toInsert.substring(0, toInsert.length() - 1);
-                if (followingText.equals(toInsert)
-                    || (followingText.substring(0, followingText.length() - 1).equals(toInsertNoWs)
-                        // Untested.  Is there an off-by-one error here?
-                        && Character.isWhitespace(src.getString().charAt(followingTextEndPos)))) {
-                  dbug.debug("Already present, skipping %s%n", toInsertNoWs);
-                  continue;
+            }
+            if (ai.isGenerateExtends()) { // avoid multiple "extends"
+              try {
+                String s = src.substring(pos, pos + 9);
+                if (" extends ".equals(s)) {
+                  ai.setGenerateExtends(false);
+                  pos += 8;
                 }
+              } catch (StringIndexOutOfBoundsException e) {
               }
             }
+          } else if (iToInsert.getKind() == Insertion.Kind.CAST) {
+            ((CastInsertion) iToInsert).setOnArrayLiteral(src.charAt(pos) == '{');
+          } else if (iToInsert.getKind() == Insertion.Kind.RECEIVER) {
+            ReceiverInsertion ri = (ReceiverInsertion) iToInsert;
+            ri.setAnnotationsOnly(receiverInserted);
+            receiverInserted = true;
+          } else if (iToInsert.getKind() == Insertion.Kind.NEW) {
+            NewInsertion ni = (NewInsertion) iToInsert;
+            ni.setAnnotationsOnly(newInserted);
+            newInserted = true;
+          } else if (iToInsert.getKind() == Insertion.Kind.CONSTRUCTOR) {
+            ConstructorInsertion ci = (ConstructorInsertion) iToInsert;
+            if (constructorInserted) {
+              ci.setAnnotationsOnly(true);
+            }
+            constructorInserted = true;
+          }
 
-            // TODO: Neither the above hack nor this check should be
-            // necessary.  Find out why re-insertions still occur and
-            // fix properly.
-            if (iToInsert.isInserted()) {
-              continue;
+          String toInsert =
+              iToInsert.getText(abbreviate, gotSeparateLine, pos, precedingChar)
+                  + trailingWhitespace;
+          // eliminate duplicates
+          if (seen.contains(toInsert)) {
+            continue;
+          }
+          seen.add(toInsert);
+
+          // If it's an annotation and already there, don't re-insert.  This is a hack!
+          // Also, I think this is already checked when constructing the
+          // insertions.
+          if (toInsert.startsWith("@")) {
+            int precedingTextPos = pos - toInsert.length() - 1;
+            if (precedingTextPos >= 0) {
+              String precedingTextPlusChar = src.getString().substring(precedingTextPos, pos);
+              if (toInsert.equals(precedingTextPlusChar.substring(0, toInsert.length()))
+                  || toInsert.equals(precedingTextPlusChar.substring(1))) {
+                dbug.debug(
+                    "Inserting '%s' at %d in code of length %d with preceding text '%s'%n",
+                    toInsert, pos, src.getString().length(), precedingTextPlusChar);
+                dbug.debug("Already present, skipping%n");
+                continue;
+              }
             }
-            src.insert(pos, toInsert);
-            if (verbose && !debug) {
-              System.out.print(".");
-              num_insertions++;
-              if ((num_insertions % 50) == 0) {
-                System.out.println(); // terminate the line that contains dots
+            int followingTextEndPos = pos + toInsert.length();
+            if (followingTextEndPos < src.getString().length()) {
+              String followingText = src.getString().substring(pos, followingTextEndPos);
+              dbug.debug("followingText=\"%s\"%n", followingText);
+              dbug.debug("toInsert=\"%s\"%n", toInsert);
+              // toInsertNoWs does not contain the trailing whitespace.
+              String toInsertNoWs = toInsert.substring(0, toInsert.length() - 1);
+              if (followingText.equals(toInsert)
+                  || (followingText.substring(0, followingText.length() - 1).equals(toInsertNoWs)
+                      // Untested.  Is there an off-by-one error here?
+                      && Character.isWhitespace(src.getString().charAt(followingTextEndPos)))) {
+                dbug.debug("Already present, skipping %s%n", toInsertNoWs);
+                continue;
               }
             }
-            dbug.debug("Post-insertion source: %s%n", src.getString());
+          }
 
-            Collection<String> packageNames = nonJavaLangClasses(iToInsert.getPackageNames());
-            if (!packageNames.isEmpty()) {
-              dbug.debug("Need import %s%n  due to insertion %s%n", packageNames, toInsert);
-              imports.addAll(packageNames);
-            }
-            if (iToInsert instanceof AnnotationInsertion) {
-              AnnotationInsertion annoToInsert = (AnnotationInsertion) iToInsert;
-              Set<String> annoImports =
-                  annotationImports.get(annoToInsert.getAnnotationFullyQualifiedName());
-              if (annoImports != null) {
-                imports.addAll(annoImports);
-              }
+          // TODO: Neither the above hack nor this check should be
+          // necessary.  Find out why re-insertions still occur and
+          // fix properly.
+          if (iToInsert.isInserted()) {
+            continue;
+          }
+          src.insert(pos, toInsert);
+          if (verbose && !debug) {
+            out.print(".");
+            num_insertions++;
+            if ((num_insertions % 50) == 0) {
+              out.println(); // terminate the line that contains dots
             }
           }
-        }
-      }
+          dbug.debug("Post-insertion source: %s%n", src.getString());
 
-      if (convert_jaifs) {
-        for (Map.Entry<String, AScene> entry : scenes.entrySet()) {
-          String filename = entry.getKey();
-          AScene scene = entry.getValue();
-          try {
-            IndexFileWriter.write(scene, filename + ".converted");
-          } catch (DefException e) {
-            System.err.println(filename + ": " + " format error in conversion");
-            if (print_error_stack) {
-              e.printStackTrace();
+          Collection<String> packageNames = nonJavaLangClasses(iToInsert.getPackageNames());
+          if (!packageNames.isEmpty()) {
+            dbug.debug("Need import %s%n  due to insertion %s%n", packageNames, toInsert);
+            imports.addAll(packageNames);
+          }
+          if (iToInsert instanceof AnnotationInsertion) {
+            AnnotationInsertion annoToInsert = (AnnotationInsertion) iToInsert;
+            Set<String> annoImports =
+                annotationImports.get(annoToInsert.getAnnotationFullyQualifiedName());
+            if (annoImports != null) {
+              imports.addAll(annoImports);
             }
           }
         }
-        return; // done with conversion
       }
+    }
 
-      if (dbug.isEnabled()) {
-        dbug.debug("%d imports to insert%n", imports.size());
-        for (String classname : imports) {
-          dbug.debug("  %s%n", classname);
-        }
+    if (convert_jaifs) {
+      return new AnnotatedFile(javafilename, src, pkg);
+    }
+
+    if (dbug.isEnabled()) {
+      dbug.debug("%d imports to insert%n", imports.size());
+      for (String classname : imports) {
+        dbug.debug("  %s%n", classname);
       }
+    }
 
-      // insert import statements
-      {
-        Pattern importPattern = Pattern.compile("(?m)^import\\b");
-        Pattern packagePattern = Pattern.compile("(?m)^package\\b.*;(\\n|\\r\\n?)");
-        int importIndex = 0; // default: beginning of file
-        String srcString = src.getString();
-        Matcher m = importPattern.matcher(srcString);
-        Set<String> inSource = new TreeSet<>();
-        if (m.find()) {
-          importIndex = m.start();
-          do {
-            int i = m.start();
-            int j = srcString.indexOf(System.lineSeparator(), i) + 1;
-            if (j <= 0) {
-              j = srcString.length();
-            }
-            String s = srcString.substring(i, j);
-            inSource.add(s);
-          } while (m.find());
-        } else {
-          // Debug.info("Didn't find import in " + srcString);
-          m = packagePattern.matcher(srcString);
-          if (m.find()) {
-            importIndex = m.end();
+    // insert import statements
+    {
+      Pattern importPattern = Pattern.compile("(?m)^import\\b");
+      Pattern packagePattern = Pattern.compile("(?m)^package\\b.*;(\\n|\\r\\n?)");
+      int importIndex = 0; // default: beginning of file
+      String srcString = src.getString();
+      Matcher m = importPattern.matcher(srcString);
+      Set<String> inSource = new TreeSet<>();
+      if (m.find()) {
+        importIndex = m.start();
+        do {
+          int i = m.start();
+          int j = srcString.indexOf(System.lineSeparator(), i) + 1;
+          if (j <= 0) {
+            j = srcString.length();
           }
+          String s = srcString.substring(i, j);
+          inSource.add(s);
+        } while (m.find());
+      } else {
+        // Debug.info("Didn't find import in " + srcString);
+        m = packagePattern.matcher(srcString);
+        if (m.find()) {
+          importIndex = m.end();
         }
-        for (String classname : imports) {
-          String toInsert = "import " + classname + ";" + fileLineSep;
-          if (!inSource.contains(toInsert)) {
-            inSource.add(toInsert);
-            src.insert(importIndex, toInsert);
-            importIndex += toInsert.length();
-          }
+      }
+      for (String classname : imports) {
+        String toInsert = "import " + classname + ";" + fileLineSep;
+        if (!inSource.contains(toInsert)) {
+          inSource.add(toInsert);
+          src.insert(importIndex, toInsert);
+          importIndex += toInsert.length();
         }
       }
+    }
+
+    return new AnnotatedFile(javafilename, src, pkg);
+  }
 
-      // Write the source file.
-      File outfile = null;
+  /**
+   * Inserts annotations into the Java files of one work unit, buffering the output for each file.
+   * Stops at the first file that cannot be parsed.
+   *
+   * @param javafiles the Java files that were passed on the command line
+   * @param unit the indices, in {@code javafiles}, of the files in the work unit
+   * @param insertions the insertions specified by the annotation files
+   * @param annotationImports the packages that each annotation needs to import
+   * @return the annotated source code of the files in the work unit
+   */
+  private static List<AnnotatedFile> annotateWorkUnit(
+      List<String> javafiles,
+      List<Integer> unit,
+      Insertions insertions,
+      Map<String, Set<String>> annotationImports) {
+    List<AnnotatedFile> result = new ArrayList<>(unit.size());
+    for (int index : unit) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      PrintStream out = new PrintStream(buffer, true);
+      AnnotatedFile annotated =
+          annotateFile(
+              javafiles.get(index),
+              insertions,
+              annotationImports,
+              Collections.emptyMap(),
+              Collections.emptyMap(),
+              Collections.emptyMap(),
+              new DebugWriter(debug, out),
+              new DebugWriter(verbose, out),
+              out);
+      annotated.index = index;
+      annotated.output = buffer.toString();
+      result.add(annotated);
+      if (annotated.src == null) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Partitions the Java files into work units that can be processed concurrently. Inserting an
+   * {@link Insertion} side-effects it, so files that are candidates for the same insertions are put
+   * in the same work unit. Those are the files that declare the same outer class, or all the files
+   * if some insertion is not restricted to a class.
+   *
+   * @param javafiles the Java files that were passed on the command line
+   * @param insertions the insertions specified by the annotation files
+   * @return the work units, each a list of indices into {@code javafiles} in increasing order
+   */
+  private static List<List<Integer>> workUnits(List<String> javafiles, Insertions insertions) {
+    boolean oneUnit = insertions.hasInsertionsOutsideClasses();
+    // A union-find structure over the indices of javafiles.
+    int[] parent = new int[javafiles.size()];
+    Map<String, Integer> declarer = new HashMap<>();
+    for (int i = 0; i < parent.length; i++) {
+      parent[i] = oneUnit ? 0 : i;
+      Set<String> declared = outerClasses.getOrDefault(javafiles.get(i), Collections.emptySet());
+      for (String outerClass : declared) {
+        Integer other = declarer.putIfAbsent(outerClass, i);
+        if (other != null) {
+          parent[findRoot(parent, i)] = findRoot(parent, other);
+        }
+      }
+    }
+    Map<Integer, List<Integer>> units = new LinkedHashMap<>();
+    for (int i = 0; i < parent.length; i++) {
+      units.computeIfAbsent(findRoot(parent, i), root -> new ArrayList<>()).add(i);
+    }
+    return new ArrayList<>(units.values());
+  }
+
+  /**
+   * Returns the representative of the set that contains {@code i} in a union-find structure.
+   *
+   * @param parent the union-find structure, which this method compresses
+   * @param i an element
+   * @return the representative of the set that contains {@code i}
+   */
+  private static int findRoot(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Applies a function to each element of a list, concurrently if an executor is given.
+   *
+   * @param <T> the type of the inputs
+   * @param <R> the type of the results
+   * @param inputs the inputs
+   * @param function the function to apply
+   * @param executor the executor that applies the function, or null to apply it in this thread
+   * @return the results, in the same order as the inputs
+   */
+  private static <T, R> List<R> mapInOrder(
+      List<T> inputs, Function<T, R> function, @Nullable ExecutorService executor) {
+    List<R> results = new ArrayList<>(inputs.size());
+    if (executor == null) {
+      for (T input : inputs) {
+        results.add(function.apply(input));
+      }
+      return results;
+    }
+    List<Future<R>> futures = new ArrayList<>(inputs.size());
+    for (T input : inputs) {
+      futures.add(executor.submit(() -> function.apply(input)));
+    }
+    for (Future<R> future : futures) {
       try {
-        if (in_place) {
-          outfile = javafile;
-          if (verbose) {
-            System.out.printf("Renaming %s to %s%n", javafile, unannotated);
-          }
-          boolean success = javafile.renameTo(unannotated);
-          if (!success) {
-            throw new Error(String.format("Failed renaming %s to %s", javafile, unannotated));
-          }
+        results.add(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new Error(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new Error(cause);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Writes the annotated source code of a Java file, to the output directory or in place.
+   *
+   * @param annotated the annotated source code
+   */
+  private static void writeFile(AnnotatedFile annotated) {
+    String javafilename = annotated.javafilename;
+    File javafile = new File(javafilename);
+    File unannotated = new File(javafilename + ".unannotated");
+    String pkg = annotated.pkg;
+    Source src = annotated.src;
+    File outfile = null;
+    try {
+      if (in_place) {
+        outfile = javafile;
+        if (verbose) {
+          System.out.printf("Renaming %s to %s%n", javafile, unannotated);
+        }
+        boolean success = javafile.renameTo(unannotated);
+        if (!success) {
+          throw new Error(String.format("Failed renaming %s to %s", javafile, unannotated));
+        }
+      } else {
+        if (pkg.isEmpty()) {
+          outfile = new File(outdir, javafile.getName());
         } else {
-          if (pkg.isEmpty()) {
-            outfile = new File(outdir, javafile.getName());
-          } else {
-            @SuppressWarnings("StringSplitter") // false positive because pkg is non-empty
-            String[] pkgPath = pkg.split("\\.");
-            StringBuilder sb = new StringBuilder(outdir);
-            for (int i = 0; i < pkgPath.length; i++) {
-              sb.append(File.separator).append(pkgPath[i]);
-            }
-            outfile = new File(sb.toString(), javafile.getName());
+          @SuppressWarnings("StringSplitter") // false positive because pkg is non-empty
+          String[] pkgPath = pkg.split("\\.");
+          StringBuilder sb = new StringBuilder(outdir);
+          for (int i = 0; i < pkgPath.length; i++) {
+            sb.append(File.separator).append(pkgPath[i]);
           }
-          outfile.getParentFile().mkdirs();
+          outfile = new File(sb.toString(), javafile.getName());
         }
-        try (OutputStream output = new FileOutputStream(outfile)) {
-          if (verbose) {
-            System.out.printf("Writing %s%n", outfile);
-          }
-          src.write(output);
+        outfile.getParentFile().mkdirs();
+      }
+      try (OutputStream output = new FileOutputStream(outfile)) {
+        if (verbose) {
+          System.out.printf("Writing %s%n", outfile);
         }
-      } catch (IOException e) {
-        System.err.println("Problem while writing file " + outfile);
-        e.printStackTrace();
-        System.exit(1);
+        src.write(output);
       }
+    } catch (IOException e) {
+      System.err.println("Problem while writing file " + outfile);
+      e.printStackTrace();
+      System.exit(1);
     }
   }
 
@@ -1100,29 +1388,57 @@ public class Main {
   public static Map<String, Boolean> hasExplicitConstructor = new HashMap<>();
 
   /**
-   * Fills in the {@link hasExplicitConstructor} map.
+   * Maps from Java file name to the outer classes that the file declares, as computed by {@link
+   * Insertions#outerClassName}.
+   */
+  private static Map<String, Set<String>> outerClasses = new HashMap<>();
+
+  /**
+   * Fills in the {@link hasExplicitConstructor} and {@link outerClasses} maps.
    *
    * @param javaFiles the Java files that were passed on the command line
+   * @param executor the executor that parses the files, or null to parse them in this thread
    */
-  static void computeConstructors(List<String> javaFiles) {
-    for (String javaFile : javaFiles) {
-      Source src = fileToSource(javaFile);
-      if (src == null) {
-        continue;
-      }
-      for (CompilationUnitTree cut : src.parse()) {
-        TreePathScanner<Void, Void> constructorsScanner =
-            new TreePathScanner<Void, Void>() {
-              @Override
-              public Void visitClass(ClassTree ct, Void p) {
-                String className = TreePathUtil.getBinaryName(getCurrentPath());
-                hasExplicitConstructor.put(className, TreePathUtil.hasConstructor(ct));
-                return super.visitClass(ct, null);
-              }
-            };
-        constructorsScanner.scan(cut, null);
+  static void computeConstructors(List<String> javaFiles, @Nullable ExecutorService executor) {
+    List<Map<String, Boolean>> perFile =
+        mapInOrder(javaFiles, Main::explicitConstructors, executor);
+    for (int i = 0; i < javaFiles.size(); i++) {
+      Map<String, Boolean> constructors = perFile.get(i);
+      hasExplicitConstructor.putAll(constructors);
+      Set<String> declared = new TreeSet<>();
+      for (String className : constructors.keySet()) {
+        declared.add(Insertions.outerClassName(className));
       }
+      outerClasses.put(javaFiles.get(i), declared);
+    }
+  }
+
+  /**
+   * Returns a map from the binary name of each class in a Java file to whether the class has any
+   * explicit constructor.
+   *
+   * @param javaFile a Java file
+   * @return a map from class name to whether the class has any explicit constructor
+   */
+  private static Map<String, Boolean> explicitConstructors(String javaFile) {
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    Source src = fileToSource(javaFile);
+    if (src == null) {
+      return result;
     }
+    for (CompilationUnitTree cut : src.parse()) {
+      TreePathScanner<Void, Void> constructorsScanner =
+          new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitClass(ClassTree ct, Void p) {
+              String className = TreePathUtil.getBinaryName(getCurrentPath());
+              result.put(className, TreePathUtil.hasConstructor(ct));
+              return super.visitClass(ct, null);
+            }
+          };
+      constructorsScanner.scan(cut, null);
+    }
+    return result;
   }
 
   /** A regular expression for classes in the java.lang package. */
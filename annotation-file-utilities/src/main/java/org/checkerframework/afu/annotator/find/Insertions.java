@@ -140,6 +140,17 @@ public class Insertions implements Iterable<Insertion> {
     }
   }
 
+  /**
+   * Returns true if some {@link Insertion} in this collection has no {@link InClassCriterion}.
+   * Such insertions are candidates for every compilation unit.
+   *
+   * @return true if some insertion is not restricted to a class
+   */
+  public boolean hasInsertionsOutsideClasses() {
+    Map<String, Set<Insertion>> map = store.get("");
+    return map != null && !map.isEmpty();
+  }
+
   /** Add an {@link Insertion} to this collection. */
   public void add(Insertion ins) {
     InClassCriterion icc = ins.getCriteria().getInClass();
@@ -1104,7 +1115,7 @@ public class Insertions implements Iterable<Insertion> {
    * Returns the outer class part of the argument; that is, the part before '$'. Return the argument
    * if it contains no '$'.
    */
-  private static String outerClassName(String className) {
+  public static String outerClassName(String className) {
     int i = className.indexOf('$'); // FIXME: don't split on '$' in source
     if (i == -1) {
       return className;
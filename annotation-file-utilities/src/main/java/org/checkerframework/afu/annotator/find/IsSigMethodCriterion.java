@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.checkerframework.afu.annotator.Main;
 import org.checkerframework.checker.interning.qual.FindDistinct;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -43,7 +44,8 @@ public class IsSigMethodCriterion implements Criterion {
   }
 
   /** Map from compilation unit to Context. */
-  private static final Map<CompilationUnitTree, Context> contextCache = new HashMap<>();
+  private static final Map<CompilationUnitTree, Context> contextCache =
+      new ConcurrentHashMap<>();
 
   /**
    * The JVML signature, without return type. This field is used only for diagnostics. Its
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.plumelib.util.IPair;
 
 /**
@@ -17,7 +18,7 @@ import org.plumelib.util.IPair;
 public class NewScanner extends CommonScanner {
   private static boolean debug = false;
 
-  static Map<IPair<TreePath, Tree>, Integer> cache = new HashMap<>();
+  static Map<IPair<TreePath, Tree>, Integer> cache = new ConcurrentHashMap<>();
 
   /**
    * Computes the index of the given new tree amongst all new trees inside its method, using 0-based
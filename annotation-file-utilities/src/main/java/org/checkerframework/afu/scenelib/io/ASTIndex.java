@@ -66,9 +66,12 @@ import org.checkerframework.afu.scenelib.util.coll.WrapperMap;
 
 /** Cache of {@code ASTPath} data for the nodes of a compilation unit tree. */
 public class ASTIndex extends WrapperMap<Tree, ASTRecord> {
-  // single-item cache
-  private static Tree cachedRoot = null;
-  private static Map<Tree, ASTRecord> cachedIndex = null;
+  /**
+   * Single-item cache of the most recently indexed compilation unit. It is per-thread so that
+   * several compilation units can be processed concurrently.
+   */
+  private static final ThreadLocal<ASTIndex> cachedIndex = new ThreadLocal<>();
+
   private static final int EXPECTED_SIZE = 128;
 
   private final CompilationUnitTree cut;
@@ -81,11 +84,12 @@ public class ASTIndex extends WrapperMap<Tree, ASTRecord> {
    * @return map of trees in compilation unit to AST paths
    */
   public static Map<Tree, ASTRecord> indexOf(CompilationUnitTree root) {
-    if (cachedRoot == null || !cachedRoot.equals(root)) {
-      cachedRoot = root;
-      cachedIndex = new ASTIndex(root);
+    ASTIndex index = cachedIndex.get();
+    if (index == null || !index.cut.equals(root)) {
+      index = new ASTIndex(root);
+      cachedIndex.set(index);
     }
-    return cachedIndex;
+    return index;
   }
 
   private ASTIndex(CompilationUnitTree root) {
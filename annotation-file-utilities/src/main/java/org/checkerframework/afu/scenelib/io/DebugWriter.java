@@ -1,20 +1,19 @@
 package org.checkerframework.afu.scenelib.io;
 
 import java.io.BufferedWriter;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import org.checkerframework.checker.formatter.qual.FormatMethod;
 
 /**
- * Performs output to System.out. Has a flag {@code enabled} that controls whether output is
- * performed.
+ * Performs output to System.out, or to another stream. Has a flag {@code enabled} that controls
+ * whether output is performed.
  */
 public class DebugWriter {
-  /** A PrintWriter for System.out. */
-  private PrintWriter out =
-      new PrintWriter(
-          new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+  /** A PrintWriter for System.out or for the stream passed to the constructor. */
+  private final PrintWriter out;
 
   /** True if this DebugWriter is enabled. */
   private boolean enabled;
@@ -25,7 +24,19 @@ public class DebugWriter {
    * @param enabled true if this DebugWriter is enabled
    */
   public DebugWriter(boolean enabled) {
+    this(enabled, System.out);
+  }
+
+  /**
+   * Creates a new DebugWriter that writes to the given stream.
+   *
+   * @param enabled true if this DebugWriter is enabled
+   * @param stream where to write output
+   */
+  public DebugWriter(boolean enabled, OutputStream stream) {
     this.enabled = enabled;
+    this.out =
+        new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
   }
 
   /**
@@ -47,7 +58,7 @@ public class DebugWriter {
   }
 
   /**
-   * Print to System.out if this DebugWriter is enabled.
+   * Print to this DebugWriter's stream if it is enabled.
    *
    * @param format a format string
    * @param args the format string arguments
@@ -0,0 +1,22 @@
+package jobs;
+
+import java.util.List;
+
+public class Gamma {
+
+  Object field;
+
+  public Gamma() {}
+
+  public String m1(String arg) {
+    return arg;
+  }
+
+  public List<String> m2(List<String> list) {
+    return list;
+  }
+
+  class Inner {
+    Object innerField;
+  }
+}
@@ -6,10 +6,12 @@ import java.util.IllegalFormatConversionException;
 import java.util.IllegalFormatException;
 import java.util.Map;
 import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.formatter.qual.ConversionCategory;
 import org.checkerframework.checker.formatter.qual.ReturnsFormat;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.regex.qual.Regex;
 import org.checkerframework.framework.qual.AnnotatedFor;
 
@@ -72,7 +74,7 @@ public class FormatUtil {
   @ReturnsFormat
   public static String asFormat(String format, ConversionCategory... cc)
       throws IllegalFormatException {
-    ConversionCategory[] fcc = formatParameterCategories(format);
+    ConversionCategory[] fcc = parameterCategories(format);
     if (fcc.length != cc.length) {
       throw new ExcessiveOrMissingFormatArgumentException(cc.length, fcc.length);
     }
@@ -115,6 +117,53 @@ public class FormatUtil {
    */
   public static ConversionCategory[] formatParameterCategories(String format)
       throws IllegalFormatException {
+    return parameterCategories(format).clone();
+  }
+
+  /**
+   * The maximum number of entries in {@link #categoriesCache}. When the cache is full, it is
+   * cleared.
+   */
+  private static final int CATEGORIES_CACHE_SIZE = 1024;
+
+  /**
+   * Maps a valid format string to the result of {@link #computeParameterCategories} on it. The
+   * arrays are never exposed to clients, which might side-effect them.
+   */
+  private static final ConcurrentHashMap<String, ConversionCategory[]> categoriesCache =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Like {@link #formatParameterCategories}, but uses {@link #categoriesCache}. The caller must not
+   * side-effect the result.
+   *
+   * @param format a format string
+   * @return a {@link ConversionCategory} for every conversion found in the format string
+   * @throws IllegalFormatException if the format string is invalid
+   */
+  private static ConversionCategory[] parameterCategories(String format)
+      throws IllegalFormatException {
+    ConversionCategory @Nullable [] result = categoriesCache.get(format);
+    if (result == null) {
+      result = computeParameterCategories(format);
+      if (categoriesCache.size() >= CATEGORIES_CACHE_SIZE) {
+        categoriesCache.clear();
+      }
+      categoriesCache.put(format, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a {@link ConversionCategory} for every conversion found in the format string, without
+   * using the cache.
+   *
+   * @param format a format string
+   * @return a {@link ConversionCategory} for every conversion found in the format string
+   * @throws IllegalFormatException if the format string is invalid
+   */
+  private static ConversionCategory[] computeParameterCategories(String format)
+      throws IllegalFormatException {
     tryFormatSatisfiability(format);
 
     int last = -1; // index of last argument referenced
@@ -250,6 +299,121 @@ public class FormatUtil {
    * @return the list of Conversions from the format specifiers in the format string
    */
   private static Conversion[] parse(String format) {
+    ArrayList<Conversion> cs = new ArrayList<>();
+    int i = format.indexOf('%');
+    while (i != -1) {
+      int end = parseSpecifier(format, i, cs);
+      if (end == -1) {
+        // The specifier is one that the scanner does not handle; let the regex decide.
+        return parseWithRegex(format);
+      }
+      i = format.indexOf('%', end);
+    }
+    return cs.toArray(new Conversion[0]);
+  }
+
+  /**
+   * Scans the format specifier that starts at the given {@code %} character, without using a
+   * regular expression. The scan follows {@link #formatSpecifier}: each optional part is matched if
+   * possible, and the scan fails rather than backtracks if the conversion character is missing.
+   *
+   * @param format a format string
+   * @param start the index of a {@code %} character in {@code format}
+   * @param cs the list to which to add the Conversion for the specifier, if it takes an argument
+   * @return the index after the specifier, or -1 if the scan failed
+   */
+  private static int parseSpecifier(String format, int start, ArrayList<Conversion> cs) {
+    int length = format.length();
+    int i = start + 1;
+
+    // [argument_index$]; see indexFromFormat for the meaning of index
+    int index = 0;
+    boolean explicit = false;
+    int digitsEnd = skipDigits(format, i);
+    if (digitsEnd > i && digitsEnd < length && format.charAt(digitsEnd) == '$') {
+      try {
+        index = Integer.parseInt(format.substring(i, digitsEnd));
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+      explicit = true;
+      i = digitsEnd + 1;
+    }
+
+    // [flags]
+    boolean relative = false;
+    while (i < length && "-#+ 0,(<".indexOf(format.charAt(i)) != -1) {
+      relative |= format.charAt(i) == '<';
+      i++;
+    }
+
+    // [width]
+    i = skipDigits(format, i);
+
+    // [.precision]
+    if (i < length && format.charAt(i) == '.') {
+      int precisionEnd = skipDigits(format, i + 1);
+      if (precisionEnd == i + 1) {
+        return -1;
+      }
+      i = precisionEnd;
+    }
+
+    // [t]conversion
+    if (i >= length) {
+      return -1;
+    }
+    char c = format.charAt(i);
+    if (c == 't' || c == 'T') {
+      if (i + 1 >= length || !isConversionChar(format.charAt(i + 1))) {
+        return -1;
+      }
+      i++;
+    } else if (!isConversionChar(c)) {
+      return -1;
+    }
+    i++;
+
+    if (c != '%' && c != 'n') {
+      cs.add(new Conversion(c, !explicit && relative ? -1 : index));
+    }
+    return i;
+  }
+
+  /**
+   * Returns the index of the first non-digit character at or after {@code i}.
+   *
+   * @param s a string
+   * @param i an index into {@code s}, or its length
+   * @return the index of the first non-digit character at or after {@code i}, or the length of
+   *     {@code s}
+   */
+  private static int skipDigits(String s, int i) {
+    while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Returns true if the argument matches {@code [a-zA-Z%]}, the last part of {@link
+   * #formatSpecifier}.
+   *
+   * @param c a character
+   * @return true if the argument can end a format specifier
+   */
+  private static boolean isConversionChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '%';
+  }
+
+  /**
+   * Parse the given format string using {@link #fsPattern}, return information about its format
+   * specifiers.
+   *
+   * @param format a format string
+   * @return the list of Conversions from the format specifiers in the format string
+   */
+  private static Conversion[] parseWithRegex(String format) {
     ArrayList<Conversion> cs = new ArrayList<>();
     @Regex(7) Matcher m = fsPattern.matcher(format);
     while (m.find()) {
@@ -11,14 +11,12 @@ import java.util.IllegalFormatException;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.checkerframework.checker.i18nformatter.qual.I18nChecksFormat;
 import org.checkerframework.checker.i18nformatter.qual.I18nConversionCategory;
 import org.checkerframework.checker.i18nformatter.qual.I18nValidFormat;
 import org.checkerframework.checker.interning.qual.InternedDistinct;
-import org.checkerframework.checker.nullness.qual.EnsuresNonNull;
-import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 import org.checkerframework.framework.qual.AnnotatedFor;
 
 /**
@@ -48,8 +46,55 @@ public class I18nFormatUtil {
    */
   public static I18nConversionCategory[] formatParameterCategories(String format)
       throws IllegalFormatException {
+    return parameterCategories(format).clone();
+  }
+
+  /**
+   * The maximum number of entries in {@link #categoriesCache}. When the cache is full, it is
+   * cleared.
+   */
+  private static final int CATEGORIES_CACHE_SIZE = 1024;
+
+  /**
+   * Maps a valid format string to the result of {@link #computeParameterCategories} on it. The
+   * arrays are never exposed to clients, which might side-effect them.
+   */
+  private static final ConcurrentHashMap<String, I18nConversionCategory[]> categoriesCache =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Like {@link #formatParameterCategories}, but uses {@link #categoriesCache}. The caller must not
+   * side-effect the result.
+   *
+   * @param format the format string to parse
+   * @return an {@link I18nConversionCategory} for every conversion found in the format string
+   * @throws IllegalFormatException if the format is not syntactically valid
+   */
+  private static I18nConversionCategory[] parameterCategories(String format)
+      throws IllegalFormatException {
+    I18nConversionCategory @Nullable [] result = categoriesCache.get(format);
+    if (result == null) {
+      result = computeParameterCategories(format);
+      if (categoriesCache.size() >= CATEGORIES_CACHE_SIZE) {
+        categoriesCache.clear();
+      }
+      categoriesCache.put(format, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns an {@link I18nConversionCategory} for every conversion found in the format string,
+   * without using the cache.
+   *
+   * @param format the format string to parse
+   * @return an {@link I18nConversionCategory} for every conversion found in the format string
+   * @throws IllegalFormatException if the format is not syntactically valid
+   */
+  private static I18nConversionCategory[] computeParameterCategories(String format)
+      throws IllegalFormatException {
     tryFormatSatisfiability(format);
-    I18nConversion[] cs = MessageFormatParser.parse(format);
+    I18nConversion[] cs = new MessageFormatParser().parse(format);
 
     int maxIndex = -1;
     Map<Integer, I18nConversionCategory> conv = new HashMap<>(cs.length);
@@ -84,7 +129,7 @@ public class I18nFormatUtil {
   // TODO introduce more such functions, see RegexUtil for examples
   @I18nChecksFormat
   public static boolean hasFormat(String format, I18nConversionCategory... cc) {
-    I18nConversionCategory[] fcc = formatParameterCategories(format);
+    I18nConversionCategory[] fcc = parameterCategories(format);
     if (fcc.length != cc.length) {
       return false;
     }
@@ -100,7 +145,7 @@ public class I18nFormatUtil {
   @I18nValidFormat
   public static boolean isFormat(String format) {
     try {
-      formatParameterCategories(format);
+      parameterCategories(format);
     } catch (Exception e) {
       return false;
     }
@@ -132,26 +177,29 @@ public class I18nFormatUtil {
     }
   }
 
+  /**
+   * A parser for one format string. Each call to {@link I18nFormatUtil#formatParameterCategories}
+   * uses a new parser, so that concurrent calls do not interfere.
+   */
   private static class MessageFormatParser {
 
-    public static int maxOffset;
+    public int maxOffset;
 
-    /** The locale to use for formatting numbers and dates. Is set in {@link #parse}. */
-    private static @MonotonicNonNull Locale locale;
+    /** The locale to use for formatting numbers and dates. */
+    private final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
 
-    /** An array of formatters, which are used to format the arguments. Is set in {@link #parse}. */
-    private static @MonotonicNonNull List<I18nConversionCategory> categories;
+    /** An array of formatters, which are used to format the arguments. */
+    private final List<I18nConversionCategory> categories = new ArrayList<>();
 
     /**
      * The argument numbers corresponding to each formatter. (The formatters are stored in the order
-     * they occur in the pattern, not in the order in which the arguments are specified.) Is set in
-     * {@link #parse}.
+     * they occur in the pattern, not in the order in which the arguments are specified.)
      */
-    private static @MonotonicNonNull List<Integer> argumentIndices;
+    private final List<Integer> argumentIndices = new ArrayList<>();
 
     // I think this means the number of format specifiers in the format string.
     /** The number of subformats. */
-    private static int numFormat;
+    private int numFormat;
 
     // Indices for segments
     private static final int SEG_RAW = 0;
@@ -180,30 +228,25 @@ public class I18nFormatUtil {
       "", "short", "medium", "long", "full"
     };
 
-    @EnsuresNonNull({"categories", "argumentIndices", "locale"})
-    public static I18nConversion[] parse(String pattern) {
-      MessageFormatParser.categories = new ArrayList<>();
-      MessageFormatParser.argumentIndices = new ArrayList<>();
-      MessageFormatParser.locale = Locale.getDefault(Locale.Category.FORMAT);
+    public I18nConversion[] parse(String pattern) {
       applyPattern(pattern);
 
-      I18nConversion[] ret = new I18nConversion[MessageFormatParser.numFormat];
-      for (int i = 0; i < MessageFormatParser.numFormat; i++) {
+      I18nConversion[] ret = new I18nConversion[numFormat];
+      for (int i = 0; i < numFormat; i++) {
         ret[i] = new I18nConversion(argumentIndices.get(i), categories.get(i));
       }
       return ret;
     }
 
     @SuppressWarnings("nullness:dereference.of.nullable") // complex rules for segments[i]
-    @RequiresNonNull({"argumentIndices", "categories", "locale"})
-    private static void applyPattern(String pattern) {
+    private void applyPattern(String pattern) {
       @Nullable StringBuilder[] segments = new StringBuilder[4];
       // Allocate only segments[SEG_RAW] here. The rest are
       // allocated on demand.
       segments[SEG_RAW] = new StringBuilder();
 
       int part = SEG_RAW;
-      MessageFormatParser.numFormat = 0;
+      numFormat = 0;
       boolean inQuote = false;
       int braceStack = 0;
       maxOffset = -1;
@@ -284,8 +327,7 @@ public class I18nFormatUtil {
     }
 
     /** Side-effects {@code categories} field, adding to it an I18nConversionCategory. */
-    @RequiresNonNull({"argumentIndices", "categories", "locale"})
-    private static void makeFormat(int offsetNumber, @Nullable StringBuilder[] textSegments) {
+    private void makeFormat(int offsetNumber, @Nullable StringBuilder[] textSegments) {
       String[] segments = new String[textSegments.length];
       for (int i = 0; i < textSegments.length; i++) {
         StringBuilder oneseg = textSegments[i];
@@ -5,12 +5,16 @@ package org.checkerframework.checker.regex.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.RandomAccess;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import org.checkerframework.checker.index.qual.GTENegativeOne;
+import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.lock.qual.GuardSatisfied;
 import org.checkerframework.checker.mustcall.qual.MustCallUnknown;
 import org.checkerframework.checker.nullness.qual.KeyForBottom;
@@ -169,13 +173,13 @@ public final class RegexUtil {
   // in RegexTransfer.
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = Regex.class)
   public static boolean isRegex(String s, int groups) {
-    Pattern p;
+    CompiledRegex compiled;
     try {
-      p = Pattern.compile(s);
+      compiled = compile(s);
     } catch (PatternSyntaxException e) {
       return false;
     }
-    return getGroupCount(p) >= groups;
+    return compiled.groups >= groups;
   }
 
   /**
@@ -224,13 +228,44 @@ public final class RegexUtil {
   // The return type annotation is irrelevant; this method is special-cased by
   // RegexAnnotatedTypeFactory.
   public static @Regex String asRegex(String s, int groups) {
+    asPattern(s, groups);
+    return s;
+  }
+
+  /**
+   * Returns the compiled argument if it is a regex, otherwise throws an error. This is like {@link
+   * #asRegex(String)} followed by {@link Pattern#compile(String)}, but compiles the regex only
+   * once, or not at all if it is in the pattern cache (see {@link #setPatternCacheSize}).
+   *
+   * @param s string to check for being a regular expression
+   * @return the compiled regular expression
+   * @throws Error if argument is not a regex
+   */
+  @SideEffectFree
+  public static Pattern asPattern(String s) {
+    return asPattern(s, 0);
+  }
+
+  /**
+   * Returns the compiled argument if it is a regex with at least the given number of groups,
+   * otherwise throws an error. This is like {@link #asRegex(String, int)} followed by {@link
+   * Pattern#compile(String)}, but compiles the regex only once, or not at all if it is in the
+   * pattern cache (see {@link #setPatternCacheSize}).
+   *
+   * @param s string to check for being a regular expression
+   * @param groups number of groups expected
+   * @return the compiled regular expression
+   * @throws Error if argument is not a regex
+   */
+  @SuppressWarnings("regex") // RegexUtil
+  @SideEffectFree
+  public static Pattern asPattern(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
-      if (actualGroups < groups) {
-        throw new Error(regexErrorMessage(s, groups, actualGroups));
+      CompiledRegex compiled = compile(s);
+      if (compiled.groups < groups) {
+        throw new Error(regexErrorMessage(s, groups, compiled.groups));
       }
-      return s;
+      return compiled.pattern;
     } catch (PatternSyntaxException e) {
       throw new Error(e);
     }
@@ -260,8 +295,7 @@ public final class RegexUtil {
   @SideEffectFree
   public static @Nullable String regexError(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
+      int actualGroups = compile(s).groups;
       if (actualGroups < groups) {
         return regexErrorMessage(s, groups, actualGroups);
       }
@@ -296,8 +330,7 @@ public final class RegexUtil {
   @SideEffectFree
   public static @Nullable PatternSyntaxException regexException(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
+      int actualGroups = compile(s).groups;
       if (actualGroups < groups) {
         return new PatternSyntaxException(regexErrorMessage(s, groups, actualGroups), s, -1);
       }
@@ -339,6 +372,103 @@ public final class RegexUtil {
     return p.matcher("").groupCount();
   }
 
+  //
+  // Pattern cache
+  //
+
+  /** A compiled regular expression and its number of groups. */
+  private static final class CompiledRegex {
+    /** The compiled regular expression. */
+    final Pattern pattern;
+
+    /** The number of groups in {@link #pattern}. */
+    final int groups;
+
+    /**
+     * Creates a CompiledRegex.
+     *
+     * @param pattern the compiled regular expression
+     */
+    CompiledRegex(Pattern pattern) {
+      this.pattern = pattern;
+      this.groups = getGroupCount(pattern);
+    }
+  }
+
+  /** The maximum number of entries in {@link #patternCache}. If 0, there is no caching. */
+  private static volatile @NonNegative int patternCacheSize = 0;
+
+  /**
+   * Maps a regular expression to its compilation, for the {@link #patternCacheSize} most recently
+   * used regular expressions. Invalid regular expressions are not cached. Accesses are synchronized
+   * on this map.
+   */
+  private static final LinkedHashMap<String, CompiledRegex> patternCache =
+      new LinkedHashMap<String, CompiledRegex>(16, 0.75f, true) {
+        /** Unique identifier for serialization. If you add or remove fields, change this number. */
+        private static final long serialVersionUID = 20250801L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledRegex> eldest) {
+          return size() > patternCacheSize;
+        }
+      };
+
+  /**
+   * Sets the maximum number of compiled regular expressions that this class caches. By default, the
+   * size is 0 and there is no caching, so every call to a method of this class compiles its
+   * argument. A program that checks the same strings repeatedly, for example with {@link
+   * #isRegex(String)} followed by {@link #asPattern(String)}, can set a positive size so that each
+   * string is compiled only once. The cache is thread-safe and holds the most recently used
+   * regular expressions.
+   *
+   * @param size the maximum number of compiled regular expressions to cache; 0 disables caching
+   */
+  public static void setPatternCacheSize(@NonNegative int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("negative pattern cache size: " + size);
+    }
+    synchronized (patternCache) {
+      patternCacheSize = size;
+      Iterator<String> eldestFirst = patternCache.keySet().iterator();
+      for (int excess = patternCache.size() - size; excess > 0; excess--) {
+        eldestFirst.next();
+        eldestFirst.remove();
+      }
+    }
+  }
+
+  /**
+   * Compiles the argument, using the pattern cache if it is enabled.
+   *
+   * @param s string to compile as a regular expression
+   * @return the compiled regular expression
+   * @throws PatternSyntaxException if the argument is not a regular expression
+   */
+  @SuppressWarnings({
+    "regex", // RegexUtil
+    "purity", // the cache is not observable, except via the identity of the result
+    "lock" // the cache is accessed only while holding its lock
+  })
+  @Pure
+  private static CompiledRegex compile(String s) {
+    if (patternCacheSize == 0) {
+      return new CompiledRegex(Pattern.compile(s));
+    }
+    @Nullable CompiledRegex result;
+    synchronized (patternCache) {
+      result = patternCache.get(s);
+    }
+    if (result == null) {
+      // Compile outside the lock; a race at worst compiles the same string twice.
+      result = new CompiledRegex(Pattern.compile(s));
+      synchronized (patternCache) {
+        patternCache.put(s, result);
+      }
+    }
+    return result;
+  }
+
   /**
    * Returns the strings such that any one of the regexes matches it.
    *
@@ -56,6 +56,41 @@ public final class RegexUtilTest {
     Assert.assertThrows(Error.class, () -> RegexUtil.asRegex(s4, 2));
   }
 
+  @Test
+  public void test_asPattern_and_patternCache() {
+    String s1 = "colo(u?)r";
+    String s4 = "1) first point";
+
+    Assert.assertEquals(s1, RegexUtil.asPattern(s1).pattern());
+    Assert.assertTrue(RegexUtil.asPattern(s1, 1).matcher("color").matches());
+    Assert.assertThrows(Error.class, () -> RegexUtil.asPattern(s1, 2));
+    Assert.assertThrows(Error.class, () -> RegexUtil.asPattern(s4));
+    Assert.assertNotSame(RegexUtil.asPattern(s1), RegexUtil.asPattern(s1));
+
+    try {
+      RegexUtil.setPatternCacheSize(2);
+      Assert.assertSame(RegexUtil.asPattern(s1), RegexUtil.asPattern(s1, 1));
+      Assert.assertTrue(RegexUtil.isRegex(s1, 1));
+      Assert.assertFalse(RegexUtil.isRegex(s1, 2));
+      Assert.assertNotNull(RegexUtil.regexError(s1, 2));
+      Assert.assertNotNull(RegexUtil.regexException(s1, 2));
+      Assert.assertFalse(RegexUtil.isRegex(s4));
+      Assert.assertThrows(Error.class, () -> RegexUtil.asPattern(s4));
+
+      // Using two other regexes evicts s1.
+      Object cached = RegexUtil.asPattern(s1);
+      RegexUtil.asPattern("a");
+      RegexUtil.asPattern("b");
+      Assert.assertNotSame(cached, RegexUtil.asPattern(s1));
+
+      cached = RegexUtil.asPattern(s1);
+      RegexUtil.setPatternCacheSize(0);
+      Assert.assertNotSame(cached, RegexUtil.asPattern(s1));
+    } finally {
+      RegexUtil.setPatternCacheSize(0);
+    }
+  }
+
   List<String> s1 = Arrays.asList(new String[] {"a", "b", "c"});
   List<String> s2 = Arrays.asList(new String[] {"a", "b", "c", "d"});
   List<String> s3 = Arrays.asList(new String[] {"aa", "bb", "cc"});
@@ -3,6 +3,7 @@ package org.checkerframework.checker.index.upperbound;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -17,13 +18,16 @@ import org.checkerframework.dataflow.expression.Unknown;
 import org.checkerframework.framework.util.dependenttypes.DependentTypesError;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.TreeUtils;
+import org.plumelib.util.CollectionsPlume;
 
 /**
  * An offset equation is 2 sets of Java expression strings, one set of added terms and one set of
  * subtracted terms, and a single integer constant. The Java expression strings have been
  * standardized and viewpoint-adapted.
  *
- * <p>An OffsetEquation is mutable.
+ * <p>An OffsetEquation is mutable only while it is being created; the public methods that compute
+ * a new equation return a modified copy. Therefore, equations may be shared, and {@link
+ * #createOffsetFromJavaExpression} interns its results.
  */
 public class OffsetEquation {
   /** The equation for 0 (zero). */
@@ -35,6 +39,13 @@ public class OffsetEquation {
   /** The equation for 1. */
   public static final OffsetEquation ONE = createOffsetForInt(1);
 
+  /** The maximum number of entries in {@link #expressionCache}. */
+  private static final int EXPRESSION_CACHE_SIZE = 500;
+
+  /** Maps an expression string to the result of {@link #createOffsetFromJavaExpression}. */
+  private static final Map<String, OffsetEquation> expressionCache =
+      Collections.synchronizedMap(CollectionsPlume.createLruCache(EXPRESSION_CACHE_SIZE));
+
   /** Mutable list of terms that have been added to this. */
   private final List<String> addedTerms;
 
@@ -339,6 +350,22 @@ public class OffsetEquation {
    * @return an offset equation created from expressionEquation
    */
   public static OffsetEquation createOffsetFromJavaExpression(String expressionEquation) {
+    OffsetEquation result = expressionCache.get(expressionEquation);
+    if (result == null) {
+      result = parseJavaExpression(expressionEquation);
+      expressionCache.put(expressionEquation, result);
+    }
+    return result;
+  }
+
+  /**
+   * Creates an offset equation from the expressionEquation; does the work of {@link
+   * #createOffsetFromJavaExpression}, which caches the results of this method.
+   *
+   * @param expressionEquation a Java expression made up of sums and differences
+   * @return an offset equation created from expressionEquation
+   */
+  private static OffsetEquation parseJavaExpression(String expressionEquation) {
     expressionEquation = expressionEquation.trim();
     OffsetEquation equation = new OffsetEquation();
     if (expressionEquation.isEmpty()) {
@@ -33,18 +33,29 @@ import org.plumelib.util.IPair;
  * <p>{@link LTLengthOf} is modeled by {@link LessThanLengthOf}. {@link LTEqLengthOf} is equivalent
  * to @{@link LessThanLengthOf} with an offset of -1. {@link LTOMLengthOf} is equivalent to @{@link
  * LessThanLengthOf} with an offset of 1.
+ *
+ * <p>UBQualifier objects are immutable, so a UBQualifier decoded from an annotation can be reused
+ * wherever the same annotation is seen again; see {@link #createUBQualifier(AnnotationMirror,
+ * UpperBoundChecker)}.
  */
 public abstract class UBQualifier {
 
   /**
-   * Create a UBQualifier from the given annotation.
+   * Create a UBQualifier from the given annotation. The result is cached by {@code ubChecker}, so
+   * decoding the same annotation again is cheap.
    *
    * @param am the annotation to turn into a UBQualifier
    * @param ubChecker used to obtain the fields of {@code am}
    * @return a UBQualifier that represents the same information as the given annotation
    */
   public static UBQualifier createUBQualifier(AnnotationMirror am, UpperBoundChecker ubChecker) {
-    return createUBQualifier(am, null, ubChecker);
+    UBQualifier cached = ubChecker.getCachedQualifier(am);
+    if (cached != null) {
+      return cached;
+    }
+    UBQualifier result = createUBQualifier(am, null, ubChecker);
+    ubChecker.cacheQualifier(am, result);
+    return result;
   }
 
   /**
@@ -406,9 +417,18 @@ public abstract class UBQualifier {
     //   { "a" : {"-1", "y"}, "b" : {"x"}, "c" : {"0"} }
     // Code in this class transforms from one representation to the other.
 
-    /** Maps from sequence name to offset. */
+    /** Maps from sequence name to offset. Neither the map nor its values are side-effected. */
     private final Map<String, Set<OffsetEquation>> map;
 
+    /** The result of {@link #convertToAnnotation(ProcessingEnvironment)}, or null if not built. */
+    private volatile @Nullable AnnotationMirror annotation;
+
+    /**
+     * The result of {@link #convertToSubstringIndexAnnotation(ProcessingEnvironment)}, or null if
+     * not built.
+     */
+    private volatile @Nullable AnnotationMirror substringIndexAnnotation;
+
     /**
      * Returns a copy of the map.
      *
@@ -464,7 +484,6 @@ public abstract class UBQualifier {
       Map<String, Set<OffsetEquation>> map = new HashMap<>(CollectionsPlume.mapCapacity(sequences));
       if (offsets.isEmpty()) {
         for (String sequence : sequences) {
-          // Not `Collections.singleton(extraEq)` because the values get modified
           Set<OffsetEquation> thisSet = new HashSet<>(1);
           thisSet.add(extraEq);
           map.put(sequence, thisSet);
@@ -662,7 +681,12 @@ public abstract class UBQualifier {
      * @return the AnnotationMirror that represents this qualifier
      */
     public AnnotationMirror convertToAnnotation(ProcessingEnvironment env) {
-      return convertToAnnotation(env, false);
+      AnnotationMirror result = annotation;
+      if (result == null) {
+        result = convertToAnnotation(env, false);
+        annotation = result;
+      }
+      return result;
     }
 
     /**
@@ -676,7 +700,12 @@ public abstract class UBQualifier {
      *     upper bounds as this qualifier
      */
     public AnnotationMirror convertToSubstringIndexAnnotation(ProcessingEnvironment env) {
-      return convertToAnnotation(env, true);
+      AnnotationMirror result = substringIndexAnnotation;
+      if (result == null) {
+        result = convertToAnnotation(env, true);
+        substringIndexAnnotation = result;
+      }
+      return result;
     }
 
     /**
@@ -869,6 +898,7 @@ public abstract class UBQualifier {
       if (!lub.isLessThanLengthQualifier() || !obj.isLessThanLengthQualifier()) {
         return lub;
       }
+      // `lub` was freshly created by the call to lub() above, so its map may be side-effected.
       Map<String, Set<OffsetEquation>> lubMap = ((LessThanLengthOf) lub).map;
       widenLub((LessThanLengthOf) obj, lubMap);
       if (lubMap.isEmpty()) {
@@ -964,6 +994,8 @@ public abstract class UBQualifier {
         if (glb == null) {
           glb = otherglb;
         } else if (otherglb != null) {
+          // Don't side-effect this.map, which may be shared.
+          glb = new HashSet<>(glb);
           glb.addAll(otherglb);
         }
         glbMap.put(sequence, removeSmallerInts(glb));
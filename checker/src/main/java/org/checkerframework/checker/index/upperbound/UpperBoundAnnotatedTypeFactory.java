@@ -938,7 +938,9 @@ public class UpperBoundAnnotatedTypeFactory extends BaseAnnotatedTypeFactoryForI
     }
 
     LessThanLengthOf ltlQualifier = (LessThanLengthOf) qualifier;
-    return ltlQualifier.convertToAnnotation(processingEnv);
+    AnnotationMirror result = ltlQualifier.convertToAnnotation(processingEnv);
+    ((UpperBoundChecker) checker).cacheQualifier(result, ltlQualifier);
+    return result;
   }
 
   @Nullable UBQualifier fromLessThan(ExpressionTree tree, TreePath treePath) {
@@ -1,7 +1,10 @@
 package org.checkerframework.checker.index.upperbound;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ExecutableElement;
 import org.checkerframework.checker.index.growonly.GrowOnlyChecker;
 import org.checkerframework.checker.index.inequality.LessThanChecker;
@@ -15,6 +18,7 @@ import org.checkerframework.checker.index.samelen.SameLenChecker;
 import org.checkerframework.checker.index.searchindex.SearchIndexChecker;
 import org.checkerframework.checker.index.substringindex.SubstringIndexChecker;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.value.ValueChecker;
@@ -23,6 +27,7 @@ import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.source.SupportedOptions;
 import org.checkerframework.framework.source.SuppressWarningsPrefix;
 import org.checkerframework.javacutil.TreeUtils;
+import org.plumelib.util.CollectionsPlume;
 
 /**
  * A type-checker for preventing arrays from being accessed with values that are too high.
@@ -71,6 +76,18 @@ public class UpperBoundChecker extends BaseTypeChecker {
    */
   private final HashSet<String> collectionBaseTypeNames;
 
+  /** The maximum number of entries in {@link #qualifierCache}. */
+  private static final int QUALIFIER_CACHE_SIZE = 500;
+
+  /**
+   * Maps an upper bound annotation to the {@link UBQualifier} that it represents. Annotations that
+   * were built from a UBQualifier are entered too, so converting a qualifier to an annotation and
+   * back does not decode the annotation. AnnotationMirror implementations use reference equality,
+   * so lookups are by identity. Synchronized because the Index Checker's subcheckers share it.
+   */
+  private final Map<AnnotationMirror, UBQualifier> qualifierCache =
+      Collections.synchronizedMap(CollectionsPlume.createLruCache(QUALIFIER_CACHE_SIZE));
+
   /** Create a new UpperBoundChecker. */
   public UpperBoundChecker() {
     // These classes are bases for both mutable and immutable sequence collections, which
@@ -98,6 +115,27 @@ public class UpperBoundChecker extends BaseTypeChecker {
         TreeUtils.getMethod(UpperBoundLiteral.class, "value", 0, processingEnv);
   }
 
+  /**
+   * Returns the UBQualifier that {@code anno} was decoded to or built from, or null if none is
+   * cached.
+   *
+   * @param anno an upper bound annotation
+   * @return the cached UBQualifier for {@code anno}, or null
+   */
+  /*package-private*/ @Nullable UBQualifier getCachedQualifier(AnnotationMirror anno) {
+    return qualifierCache.get(anno);
+  }
+
+  /**
+   * Records that {@code anno} represents {@code qualifier}.
+   *
+   * @param anno an upper bound annotation
+   * @param qualifier the UBQualifier that {@code anno} represents
+   */
+  /*package-private*/ void cacheQualifier(AnnotationMirror anno, UBQualifier qualifier) {
+    qualifierCache.put(anno, qualifier);
+  }
+
   @Override
   public boolean shouldSkipUses(@FullyQualifiedName String typeName) {
     if (collectionBaseTypeNames.contains(typeName)) {
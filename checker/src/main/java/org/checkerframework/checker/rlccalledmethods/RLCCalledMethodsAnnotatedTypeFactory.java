@@ -142,6 +142,17 @@ public class RLCCalledMethodsAnnotatedTypeFactory extends CalledMethodsAnnotated
     return createAccumulatorAnnotation(Arrays.asList(val));
   }
 
+  /**
+   * Returns false, because {@link #postAnalyze} checks every method for resource leaks, even if no
+   * result of the flow analysis of the method is ever requested.
+   *
+   * @return false
+   */
+  @Override
+  protected boolean shouldAnalyzeMethodsLazily() {
+    return false;
+  }
+
   @Override
   public void postAnalyze(ControlFlowGraph cfg) {
     rlc.setRoot(root);
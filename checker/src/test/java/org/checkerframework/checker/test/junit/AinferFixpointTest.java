@@ -0,0 +1,175 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.testchecker.ainfer.AinferTestChecker;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceJavaParserStorage;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.CompilationResult;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests the {@code -AinferFixpoint} command-line option, which repeats whole-program inference
+ * within one compilation. Checks that the expected diagnostics are issued at the fixpoint, and that
+ * the diagnostics and the ajava files are the same as those of the last run of a loop that runs
+ * javac repeatedly, each time with the ajava files of the previous run, as the {@code wpi.sh}
+ * script does. Each run of that loop type-checks every class, whereas {@code -AinferFixpoint}
+ * re-checks only the classes that depend on changed inferred annotations.
+ */
+public class AinferFixpointTest extends CheckerFrameworkPerDirectoryTest {
+
+  /** The option that makes the checker repeat inference until it reaches a fixpoint. */
+  private static final String FIXPOINT_OPTION = "-AinferFixpoint";
+
+  /** The maximum number of runs of the loop. */
+  private static final int MAX_RUNS = 10;
+
+  /**
+   * Create an AinferFixpointTest.
+   *
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public AinferFixpointTest(List<File> testFiles) {
+    super(
+        testFiles,
+        AinferTestChecker.class,
+        "ainfer-fixpoint",
+        "-Ainfer=ajava",
+        FIXPOINT_OPTION,
+        "-Awarns");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"ainfer-fixpoint", "ainfer-fixpoint-spread"};
+  }
+
+  /**
+   * Checks that {@code -AinferFixpoint} issues the same diagnostics and writes the same ajava files
+   * as the last run of the {@code wpi.sh} loop.
+   */
+  @Test
+  public void fixpointIsSameAsRepeatedRuns() throws IOException {
+    if (testFiles.isEmpty()) {
+      return;
+    }
+    Path output = WholeProgramInferenceJavaParserStorage.AJAVA_FILES_PATH.toPath();
+    Path previous = Files.createTempDirectory("ainfer-fixpoint");
+    try {
+      List<String> loopOptions = new ArrayList<>(checkerOptions);
+      loopOptions.remove(FIXPOINT_OPTION);
+      deleteRecursively(output);
+      List<String> loopOutput = compileAndGetOutput(loopOptions);
+      Map<String, String> loopAjava = readAjavaFiles(output);
+      Map<String, String> previousAjava;
+      int runs = 1;
+      do {
+        Assert.assertTrue(
+            "The loop did not reach a fixpoint in " + MAX_RUNS + " runs", runs < MAX_RUNS);
+        deleteRecursively(previous);
+        Files.move(output, previous);
+        List<String> runOptions = new ArrayList<>(loopOptions);
+        runOptions.add("-Aajava=" + previous);
+        loopOutput = compileAndGetOutput(runOptions);
+        previousAjava = loopAjava;
+        loopAjava = readAjavaFiles(output);
+        runs++;
+      } while (!loopAjava.equals(previousAjava));
+      // Otherwise, the test data does not exercise repeated inference.
+      Assert.assertTrue("The loop reached a fixpoint after only " + runs + " runs", runs >= 3);
+
+      deleteRecursively(output);
+      List<String> fixpointOutput = compileAndGetOutput(checkerOptions);
+      Assert.assertEquals(loopOutput, fixpointOutput);
+      Assert.assertEquals(loopAjava, readAjavaFiles(output));
+    } finally {
+      deleteRecursively(previous);
+    }
+  }
+
+  /**
+   * Returns the contents of the ajava files under the given directory.
+   *
+   * @param dir a directory
+   * @return a map from the path of each ajava file, relative to {@code dir}, to its contents
+   */
+  private static Map<String, String> readAjavaFiles(Path dir) throws IOException {
+    Map<String, String> result = new TreeMap<>();
+    if (!Files.isDirectory(dir)) {
+      return result;
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      files
+          .filter(file -> file.toString().endsWith(".ajava"))
+          .forEach(
+              file -> {
+                try {
+                  result.put(
+                      dir.relativize(file).toString(),
+                      new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    }
+    return result;
+  }
+
+  /**
+   * Deletes the given file or directory and everything under it, if it exists.
+   *
+   * @param path a file or directory
+   */
+  private static void deleteRecursively(Path path) throws IOException {
+    if (Files.isDirectory(path)) {
+      try (Stream<Path> children = Files.list(path)) {
+        for (Path child : (Iterable<Path>) children::iterator) {
+          deleteRecursively(child);
+        }
+      }
+    }
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Type-checks {@link #testFiles} with the given options, and returns what the compiler output.
+   *
+   * @param options the options to pass to the compiler
+   * @return the diagnostics, in the order that javac issued them, followed by everything else that
+   *     javac printed
+   */
+  private List<String> compileAndGetOutput(List<String> options) {
+    TestConfiguration config =
+        TestConfigurationBuilder.buildDefaultConfiguration(
+            new File(resolveTestDirectory(), testDir).getPath(),
+            testFiles,
+            classpathExtra,
+            checkerNames,
+            options,
+            TestUtilities.getShouldEmitDebugInfo());
+    CompilationResult result = new TypecheckExecutor().compile(config);
+    List<String> output = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : result.getDiagnostics()) {
+      output.add(diagnostic.toString());
+    }
+    output.add(result.getJavacOutput());
+    return output;
+  }
+}
@@ -1,5 +1,7 @@
 package org.checkerframework.checker.test.junit;
 
+import java.util.IllegalFormatException;
+import org.checkerframework.checker.formatter.qual.ConversionCategory;
 import org.checkerframework.checker.formatter.util.FormatUtil;
 import org.junit.Assert;
 import org.junit.Test;
@@ -42,4 +44,32 @@ public class FormatterUnitTest {
     Assert.assertEquals('t', FormatUtil.conversionCharFromFormat("%tY"));
     Assert.assertEquals('t', FormatUtil.conversionCharFromFormat("%tZ"));
   }
+
+  @Test
+  public void testFormatParameterCategories() {
+    ConversionCategory[] expected = {
+      ConversionCategory.GENERAL,
+      ConversionCategory.INT,
+      ConversionCategory.FLOAT,
+      ConversionCategory.UNUSED,
+      ConversionCategory.TIME
+    };
+    String format = "%s %d%% %<x %3$.2f %n %5$tY";
+    Assert.assertArrayEquals(expected, FormatUtil.formatParameterCategories(format));
+
+    // The result is a fresh array each time, even though it is cached.
+    FormatUtil.formatParameterCategories(format)[0] = ConversionCategory.NULL;
+    Assert.assertArrayEquals(expected, FormatUtil.formatParameterCategories(format));
+    Assert.assertEquals(format, FormatUtil.asFormat(format, expected));
+
+    Assert.assertArrayEquals(
+        new ConversionCategory[] {ConversionCategory.INT, ConversionCategory.GENERAL},
+        FormatUtil.formatParameterCategories("%05d %-10s %<S"));
+    Assert.assertArrayEquals(
+        new ConversionCategory[0], FormatUtil.formatParameterCategories("100%% done%n"));
+    Assert.assertThrows(
+        IllegalFormatException.class, () -> FormatUtil.formatParameterCategories("%y"));
+    Assert.assertThrows(
+        IllegalFormatException.class, () -> FormatUtil.asFormat("%d", ConversionCategory.FLOAT));
+  }
 }
@@ -138,4 +138,18 @@ public class I18nFormatterUnitTest {
     Assert.assertFalse(
         I18nFormatUtil.hasFormat("{0, date} {1, date}", I18nConversionCategory.DATE));
   }
+
+  @Test
+  public void formatParameterCategoriesTest() {
+    I18nConversionCategory[] expected = {
+      I18nConversionCategory.GENERAL, I18nConversionCategory.UNUSED, I18nConversionCategory.NUMBER
+    };
+    String format = "{0} '{1}' {2, number, integer}";
+    Assert.assertArrayEquals(expected, I18nFormatUtil.formatParameterCategories(format));
+
+    // The result is a fresh array each time, even though it is cached.
+    I18nFormatUtil.formatParameterCategories(format)[0] = I18nConversionCategory.DATE;
+    Assert.assertArrayEquals(expected, I18nFormatUtil.formatParameterCategories(format));
+    Assert.assertFalse(I18nFormatUtil.isFormat("{0"));
+  }
 }
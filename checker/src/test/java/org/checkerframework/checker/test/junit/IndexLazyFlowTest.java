@@ -0,0 +1,32 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the same tests as {@link IndexTest}, but with {@code -AlazyFlow}, to check that analyzing
+ * each method on demand, and discarding the results of the checker and of its subcheckers once the
+ * checker has type-checked the method, yields the same results as analyzing all methods up front.
+ */
+public class IndexLazyFlowTest extends CheckerFrameworkPerDirectoryTest {
+
+  /**
+   * Create an IndexLazyFlowTest.
+   *
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public IndexLazyFlowTest(List<File> testFiles) {
+    super(
+        testFiles,
+        org.checkerframework.checker.index.IndexChecker.class,
+        "index",
+        "-AlazyFlow");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"index", "all-systems"};
+  }
+}
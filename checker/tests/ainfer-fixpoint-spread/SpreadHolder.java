@@ -0,0 +1,3 @@
+public class SpreadHolder {
+  int field;
+}
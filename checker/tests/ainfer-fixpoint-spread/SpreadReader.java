@@ -0,0 +1,5 @@
+public class SpreadReader {
+  static int read(SpreadHolder holder) {
+    return holder.field;
+  }
+}
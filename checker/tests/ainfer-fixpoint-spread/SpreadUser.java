@@ -0,0 +1,8 @@
+import org.checkerframework.checker.testchecker.ainfer.qual.AinferSibling1;
+
+public class SpreadUser {
+  void use(SpreadHolder holder) {
+    // Only type-checks once the return type of SpreadReader.read has been inferred.
+    @AinferSibling1 int x = SpreadReader.read(holder);
+  }
+}
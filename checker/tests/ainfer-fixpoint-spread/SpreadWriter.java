@@ -0,0 +1,10 @@
+import org.checkerframework.checker.testchecker.ainfer.qual.AinferSibling1;
+
+// The @AinferSibling1 annotation spreads from this file to two others: the first round infers the
+// type of SpreadHolder.field, the second round infers the return type of SpreadReader.read, and the
+// third round type-checks SpreadUser.use without a warning.
+public class SpreadWriter {
+  void write(SpreadHolder holder) {
+    holder.field = (@AinferSibling1 int) 0;
+  }
+}
@@ -0,0 +1,5 @@
+public class FixpointMiddle {
+  static void middle(int y) {
+    FixpointSink.sink(y);
+  }
+}
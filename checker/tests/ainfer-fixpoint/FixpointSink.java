@@ -0,0 +1,8 @@
+import org.checkerframework.checker.testchecker.ainfer.qual.AinferSibling1;
+
+public class FixpointSink {
+  static void sink(int z) {
+    // Only type-checks once the parameter type has been inferred to be @AinferSibling1.
+    @AinferSibling1 int w = z;
+  }
+}
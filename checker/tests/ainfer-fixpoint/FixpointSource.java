@@ -0,0 +1,11 @@
+import org.checkerframework.checker.testchecker.ainfer.qual.AinferSibling1;
+
+// The @AinferSibling1 annotation on x reaches FixpointSink.sink only after two rounds of
+// inference: the first round infers the parameter of FixpointMiddle.middle, and the second round
+// infers the parameter of FixpointSink.sink.
+public class FixpointSource {
+  void source() {
+    @AinferSibling1 int x = (@AinferSibling1 int) 0;
+    FixpointMiddle.middle(x);
+  }
+}
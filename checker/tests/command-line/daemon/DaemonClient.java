@@ -0,0 +1,9 @@
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+public class DaemonClient {
+
+  void client(@Nullable Object o) {
+    // :: error: (dereference.of.nullable)
+    o.toString();
+  }
+}
@@ -0,0 +1,154 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.dataflow.busyexpr.BusyExprStore;
+import org.checkerframework.dataflow.busyexpr.BusyExprTransfer;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.visualize.CFGVisualizeLauncher;
+import org.checkerframework.dataflow.constantpropagation.Constant;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationStore;
+import org.checkerframework.dataflow.constantpropagation.ConstantPropagationTransfer;
+import org.checkerframework.dataflow.livevariable.LiveVarStore;
+import org.checkerframework.dataflow.livevariable.LiveVarTransfer;
+import org.checkerframework.dataflow.reachingdef.ReachingDefinitionStore;
+import org.checkerframework.dataflow.reachingdef.ReachingDefinitionTransfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the time to run forward and backward analyses over the CFG of one method. The CFG is
+ * built once, in {@link #setup}; each benchmark runs a new analysis over it.
+ *
+ * <p>The method is generated: it declares {@link #variables} local variables, then loops over a
+ * sequence of branches that each read one variable and assign the next, so that the dataflow facts
+ * change for several iterations of the loop before reaching a fixed point.
+ *
+ * <p>Run with {@code ./gradlew :dataflow:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalysisBenchmark {
+
+  /** The number of local variables, and of branches in the loop, of the generated method. */
+  @Param({"10", "100"})
+  public int variables;
+
+  /** The CFG of the generated method. */
+  private ControlFlowGraph cfg;
+
+  /**
+   * Generates the method and builds its CFG.
+   *
+   * @throws IOException if the generated source file cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    Path dir = Files.createTempDirectory("dataflow-benchmark");
+    Path file = dir.resolve("Bench.java");
+    Files.write(file, source(variables).getBytes(StandardCharsets.UTF_8));
+    try {
+      cfg = CFGVisualizeLauncher.generateMethodCFG(file.toString(), "Bench", "test");
+    } finally {
+      // javac writes Bench.class next to Bench.java.
+      Files.deleteIfExists(dir.resolve("Bench.class"));
+      Files.delete(file);
+      Files.delete(dir);
+    }
+  }
+
+  /**
+   * Returns the source code of class {@code Bench}, whose method {@code test} is analyzed.
+   *
+   * @param n the number of local variables and of branches in the loop
+   * @return the source code of class {@code Bench}
+   */
+  private static String source(int n) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class Bench {\n");
+    sb.append("  int test(int p) {\n");
+    for (int k = 0; k < n; k++) {
+      sb.append(String.format("    int v%d = %d;%n", k, k));
+    }
+    sb.append("    for (int i = 0; i < p; i++) {\n");
+    for (int k = 0; k < n; k++) {
+      int next = (k + 1) % n;
+      sb.append(String.format("      if (v%d < p) {%n", k));
+      sb.append(String.format("        v%d = v%d + i;%n", next, k));
+      sb.append("      } else {\n");
+      sb.append(String.format("        v%d = %d;%n", k, k));
+      sb.append("      }\n");
+    }
+    sb.append("    }\n");
+    sb.append("    return v0");
+    for (int k = 1; k < n; k++) {
+      sb.append(" + v").append(k);
+    }
+    sb.append(";\n");
+    sb.append("  }\n");
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  /**
+   * Runs the reaching definitions analysis, a forward analysis.
+   *
+   * @return the result of the analysis
+   */
+  @Benchmark
+  public AnalysisResult<UnusedAbstractValue, ReachingDefinitionStore> reachingDefinitions() {
+    ForwardAnalysis<UnusedAbstractValue, ReachingDefinitionStore, ReachingDefinitionTransfer>
+        analysis = new ForwardAnalysisImpl<>(new ReachingDefinitionTransfer());
+    analysis.performAnalysis(cfg);
+    return analysis.getResult();
+  }
+
+  /**
+   * Runs the constant propagation analysis, a forward analysis.
+   *
+   * @return the result of the analysis
+   */
+  @Benchmark
+  public AnalysisResult<Constant, ConstantPropagationStore> constantPropagation() {
+    ForwardAnalysis<Constant, ConstantPropagationStore, ConstantPropagationTransfer> analysis =
+        new ForwardAnalysisImpl<>(new ConstantPropagationTransfer());
+    analysis.performAnalysis(cfg);
+    return analysis.getResult();
+  }
+
+  /**
+   * Runs the live variables analysis, a backward analysis.
+   *
+   * @return the result of the analysis
+   */
+  @Benchmark
+  public AnalysisResult<UnusedAbstractValue, LiveVarStore> liveVariables() {
+    BackwardAnalysis<UnusedAbstractValue, LiveVarStore, LiveVarTransfer> analysis =
+        new BackwardAnalysisImpl<>(new LiveVarTransfer());
+    analysis.performAnalysis(cfg);
+    return analysis.getResult();
+  }
+
+  /**
+   * Runs the busy expressions analysis, a backward analysis.
+   *
+   * @return the result of the analysis
+   */
+  @Benchmark
+  public AnalysisResult<UnusedAbstractValue, BusyExprStore> busyExpressions() {
+    BackwardAnalysis<UnusedAbstractValue, BusyExprStore, BusyExprTransfer> analysis =
+        new BackwardAnalysisImpl<>(new BusyExprTransfer());
+    analysis.performAnalysis(cfg);
+    return analysis.getResult();
+  }
+}
@@ -3,13 +3,12 @@ package org.checkerframework.dataflow.analysis;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.StringJoiner;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import org.checkerframework.checker.interning.qual.FindDistinct;
@@ -91,6 +90,15 @@ public abstract class AbstractAnalysis<
   /** The current transfer input when the analysis is running. */
   protected @Nullable TransferInput<V, S> currentInput;
 
+  /**
+   * Which transfer results {@code runAnalysisFor} saves in its cache, when it is given one: the
+   * result for every {@code checkpointInterval}th node of a block, and the result for the node
+   * that was queried. A later query replays the transfer function only from the closest saved
+   * result before the queried node. 1 saves every node; 0 saves only the queried nodes. A larger
+   * value uses less memory but replays more transfer functions per query.
+   */
+  protected int checkpointInterval = 1;
+
   /**
    * Returns the tree that is currently being looked at. The transfer function can set this tree to
    * make sure that calls to {@code getValue} will not return information for this given tree.
@@ -119,6 +127,31 @@ public abstract class AbstractAnalysis<
     this.currentNode = currentNode;
   }
 
+  /**
+   * Sets which transfer results {@code runAnalysisFor} saves in its cache; see {@link
+   * #checkpointInterval}.
+   *
+   * @param checkpointInterval save the result for every {@code checkpointInterval}th node of a
+   *     block; 0 to save only the results for queried nodes
+   */
+  public void setCheckpointInterval(int checkpointInterval) {
+    if (checkpointInterval < 0) {
+      throw new BugInCF("negative checkpoint interval: " + checkpointInterval);
+    }
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  /**
+   * Returns true if {@code runAnalysisFor} should save the transfer result for the node at the
+   * given index of its block, even if that node was not queried.
+   *
+   * @param index the index of a node in its block
+   * @return true if the transfer result for the node at {@code index} is a checkpoint
+   */
+  protected boolean isCheckpoint(int index) {
+    return checkpointInterval != 0 && (index + 1) % checkpointInterval == 0;
+  }
+
   /**
    * Implementation of common features for {@link BackwardAnalysisImpl} and {@link
    * ForwardAnalysisImpl}.
@@ -475,11 +508,6 @@ public abstract class AbstractAnalysis<
    * @param b the block to add to {@link #worklist}
    */
   protected void addToWorklist(Block b) {
-    // TODO: This costs linear (!) time.  Use a more efficient way to check if b is already
-    // present.
-    // Two possibilities:
-    //  * add unconditionally, and detect duplicates when removing from the queue.
-    //  * maintain a HashSet of the elements that are already in the queue.
     if (!worklist.contains(b)) {
       worklist.add(b);
     }
@@ -488,47 +516,22 @@ public abstract class AbstractAnalysis<
   /**
    * A worklist is a priority queue of blocks in which the order is given by depth-first ordering to
    * place non-loop predecessors ahead of successors.
+   *
+   * <p>The worklist is a bit set of the dense numbers of the blocks (see {@link
+   * ControlFlowGraph#numberBlocksDensely()}), which are assigned in reversed depth-first postorder.
+   * A forward analysis takes the block with the smallest number first, and a backward analysis the
+   * block with the largest number.
    */
   protected static class Worklist {
 
-    /** Map all blocks in the CFG to their depth-first order. */
-    protected final IdentityHashMap<Block, Integer> depthFirstOrder = new IdentityHashMap<>();
+    /** The direction of the analysis. */
+    protected final Direction direction;
 
-    /**
-     * Comparators to allow priority queue to order blocks by their depth-first order, using by
-     * forward analysis.
-     */
-    public class ForwardDfoComparator implements Comparator<Block> {
-      /** Creates a new ForwardDfoComparator. */
-      public ForwardDfoComparator() {}
-
-      @SuppressWarnings("nullness:unboxing.of.nullable")
-      @Override
-      public int compare(Block b1, Block b2) {
-        return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
-      }
-    }
+    /** The blocks of the CFG, indexed by their dense number. */
+    protected Block[] blocks = new Block[0];
 
-    /**
-     * Comparators to allow priority queue to order blocks by their depth-first order, using by
-     * backward analysis.
-     */
-    public class BackwardDfoComparator implements Comparator<Block> {
-      /** Creates a new BackwardDfoComparator. */
-      public BackwardDfoComparator() {}
-
-      @SuppressWarnings("nullness:unboxing.of.nullable")
-      @Override
-      public int compare(Block b1, Block b2) {
-        return depthFirstOrder.get(b2) - depthFirstOrder.get(b1);
-      }
-    }
-
-    /** The backing priority queue. */
-    protected final PriorityQueue<Block> queue;
-
-    /** Contains the same elements as {@link #queue}, for faster lookup. */
-    protected final Set<Block> queueSet;
+    /** The dense numbers of the blocks in the worklist. */
+    protected final BitSet queue = new BitSet();
 
     /**
      * Create a Worklist.
@@ -536,89 +539,95 @@ public abstract class AbstractAnalysis<
      * @param direction the direction (forward or backward)
      */
     public Worklist(Direction direction) {
-      if (direction == Direction.FORWARD) {
-        queue = new PriorityQueue<>(new ForwardDfoComparator());
-        queueSet = new HashSet<>();
-      } else if (direction == Direction.BACKWARD) {
-        queue = new PriorityQueue<>(new BackwardDfoComparator());
-        queueSet = new HashSet<>();
-      } else {
+      if (direction != Direction.FORWARD && direction != Direction.BACKWARD) {
         throw new BugInCF("Unexpected Direction: " + direction.name());
       }
+      this.direction = direction;
     }
 
     /**
      * Process the control flow graph.
      *
-     * <p>This implementation sets the depth-first order for each block, by adding the blocks to
-     * {@link #depthFirstOrder}.
+     * <p>This implementation numbers the blocks of the CFG and empties the worklist.
      *
      * @param cfg the control flow graph to process
      */
     public void process(ControlFlowGraph cfg) {
-      depthFirstOrder.clear();
-      int count = 1;
-      for (Block b : cfg.getDepthFirstOrderedBlocks()) {
-        depthFirstOrder.put(b, count++);
-      }
-
+      blocks = cfg.numberBlocksDensely().toArray(new Block[0]);
       queue.clear();
-      queueSet.clear();
     }
 
     /**
-     * See {@link PriorityQueue#isEmpty}.
+     * Returns true if {@code block} is a block of the CFG that was last passed to {@link #process}
+     * and is reachable from its entry block.
      *
-     * @see PriorityQueue#isEmpty
-     * @return true if {@link #queue} is empty else false
+     * @param block a block
+     * @return true if {@code block} is a reachable block of the current CFG
+     */
+    @SuppressWarnings("interning:not.interned") // Checking for the exact block.
+    public boolean isReachable(Block block) {
+      int id = block.getDenseId();
+      return id >= 0 && id < blocks.length && blocks[id] == block;
+    }
+
+    /**
+     * Returns true if the worklist is empty.
+     *
+     * @return true if the worklist is empty else false
      */
     @Pure
     @EnsuresNonNullIf(result = false, expression = "poll()")
     @SuppressWarnings("nullness:contracts.conditional.postcondition") // forwarded
     public boolean isEmpty() {
-      assert queue.isEmpty() == queueSet.isEmpty();
       return queue.isEmpty();
     }
 
     /**
-     * Check if {@link #queue} contains the block which is passed as the argument.
+     * Check if the worklist contains the block which is passed as the argument.
      *
      * @param block the given block to check
-     * @return true if {@link #queue} contains the given block
+     * @return true if the worklist contains the given block
      */
     public boolean contains(Block block) {
-      return queueSet.contains(block);
+      int id = block.getDenseId();
+      return id >= 0 && queue.get(id);
     }
 
     /**
-     * Add the given block to {@link #queue}. Adds unconditionally: does not check containment
-     * first.
+     * Add the given block to the worklist. Adds unconditionally: does not check containment first.
      *
-     * @param block the block to add to {@link #queue}
+     * @param block the block to add to the worklist
      */
     public void add(Block block) {
-      queue.add(block);
-      queueSet.add(block);
+      if (!isReachable(block)) {
+        throw new BugInCF("Block is not a reachable block of the current CFG: " + block);
+      }
+      queue.set(block.getDenseId());
     }
 
     /**
-     * See {@link PriorityQueue#poll}.
+     * Removes and returns the first block of the worklist: the one with the smallest dense number
+     * for a forward analysis, and the one with the largest for a backward analysis.
      *
-     * @see PriorityQueue#poll
-     * @return the head of {@link #queue}
+     * @return the first block of the worklist, or null if it is empty
      */
     @Pure
     public @Nullable Block poll() {
-      Block result = queue.poll();
-      if (result != null) {
-        queueSet.remove(result);
+      int id = direction == Direction.FORWARD ? queue.nextSetBit(0) : queue.length() - 1;
+      if (id < 0) {
+        return null;
       }
-      return result;
+      queue.clear(id);
+      return blocks[id];
     }
 
     @Override
     public String toString() {
-      return "Worklist(" + queue + ")";
+      StringJoiner result = new StringJoiner(", ", "Worklist(", ")");
+      for (int id = queue.nextSetBit(0); id >= 0; id = queue.nextSetBit(id + 1)) {
+        result.add(blocks[id].toString());
+      }
+      return result.toString();
     }
   }
 }
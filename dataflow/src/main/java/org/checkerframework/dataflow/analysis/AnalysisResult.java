@@ -156,6 +156,33 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
     finalLocalValues.putAll(other.finalLocalValues);
   }
 
+  /**
+   * Remove the results of another analysis result, which was previously passed to {@link
+   * #combine}. Also removes the cached transfer results for its blocks. This releases the memory
+   * held by results that are no longer needed.
+   *
+   * @param other an analysis result that was combined with this
+   */
+  public void remove(AnalysisResult<V, S> other) {
+    copyMapsIfNeeded();
+    for (Node node : other.nodeValues.keySet()) {
+      nodeValues.remove(node);
+    }
+    for (Tree tree : other.treeLookup.keySet()) {
+      treeLookup.remove(tree);
+    }
+    for (UnaryTree tree : other.postfixLookup.keySet()) {
+      postfixLookup.remove(tree);
+    }
+    for (Map.Entry<Block, TransferInput<V, S>> entry : other.inputs.entrySet()) {
+      inputs.remove(entry.getKey());
+      analysisCaches.remove(entry.getValue());
+    }
+    for (VariableElement var : other.finalLocalValues.keySet()) {
+      finalLocalValues.remove(var);
+    }
+  }
+
   /** Make copies of certain internal IdentityHashMaps, if they have not been copied already. */
   private void copyMapsIfNeeded() {
     if (!mapsCopied) {
@@ -40,11 +40,14 @@ public class ForwardAnalysisImpl<
         V extends AbstractValue<V>, S extends Store<S>, T extends ForwardTransferFunction<V, S>>
     extends AbstractAnalysis<V, S, T> implements ForwardAnalysis<V, S, T> {
 
+  // The per-block state is indexed by the dense number of the block; see
+  // ControlFlowGraph.numberBlocksDensely().
+
   /**
    * Number of times each block has been analyzed since the last time widening was applied. Null if
    * maxCountBeforeWidening is -1, which implies widening isn't used for this analysis.
    */
-  protected final @Nullable IdentityHashMap<Block, Integer> blockCount;
+  protected int @Nullable [] blockCount;
 
   /**
    * Number of times a block can be analyzed before widening. -1 implies that widening shouldn't be
@@ -52,11 +55,11 @@ public class ForwardAnalysisImpl<
    */
   protected final int maxCountBeforeWidening;
 
-  /** Then stores before every basic block (assumed to be 'no information' if not present). */
-  protected final IdentityHashMap<Block, S> thenStores;
+  /** Then stores before every basic block (assumed to be 'no information' if null). */
+  protected @Nullable S[] thenStores;
 
-  /** Else stores before every basic block (assumed to be 'no information' if not present). */
-  protected final IdentityHashMap<Block, S> elseStores;
+  /** Else stores before every basic block (assumed to be 'no information' if null). */
+  protected @Nullable S[] elseStores;
 
   /** The stores after every return statement. */
   protected final IdentityHashMap<ReturnNode, TransferResult<V, S>> storesAtReturnStatements;
@@ -72,9 +75,9 @@ public class ForwardAnalysisImpl<
   public ForwardAnalysisImpl(int maxCountBeforeWidening) {
     super(Direction.FORWARD);
     this.maxCountBeforeWidening = maxCountBeforeWidening;
-    this.blockCount = maxCountBeforeWidening == -1 ? null : new IdentityHashMap<>();
-    this.thenStores = new IdentityHashMap<>();
-    this.elseStores = new IdentityHashMap<>();
+    this.blockCount = maxCountBeforeWidening == -1 ? null : new int[0];
+    this.thenStores = newStoreArray(0);
+    this.elseStores = newStoreArray(0);
     this.storesAtReturnStatements = new IdentityHashMap<>();
   }
 
@@ -258,31 +261,49 @@ public class ForwardAnalysisImpl<
         case REGULAR_BLOCK:
           {
             RegularBlock rb = (RegularBlock) block;
-            // Apply transfer function to contents until we found the node we are
-            // looking for.
+            List<Node> nodes = rb.getNodes();
+            int index = indexOfNode(nodes, node);
+            if (index == -1) {
+              throw new BugInCF("node %s is not in node.getBlock()=%s", node, block);
+            }
+            // The index of the last node whose transfer function must be applied.
+            int last = preOrPost == Analysis.BeforeOrAfter.BEFORE ? index - 1 : index;
+
+            // Start from the closest cached result, if any.
             TransferInput<V, S> store = blockTransferInput;
-            TransferResult<V, S> transferResult;
-            for (Node n : rb.getNodes()) {
-              setCurrentNode(n);
-              if (n == node && preOrPost == Analysis.BeforeOrAfter.BEFORE) {
-                return store.getRegularStore();
-              }
-              if (cache != null && cache.containsKey(n)) {
-                transferResult = cache.get(n);
-              } else {
-                // Copy the store to avoid changing other blocks' transfer inputs in
-                // {@link #inputs}
-                transferResult = callTransferFunction(n, store.copy());
-                if (cache != null) {
-                  cache.put(n, transferResult);
+            TransferResult<V, S> transferResult = null;
+            int start = 0;
+            if (cache != null) {
+              for (int i = last; i >= 0; i--) {
+                TransferResult<V, S> cached = cache.get(nodes.get(i));
+                if (cached != null) {
+                  transferResult = cached;
+                  store = new TransferInput<>(nodes.get(i), this, cached);
+                  start = i + 1;
+                  break;
                 }
               }
-              if (n == node) {
-                return transferResult.getRegularStore();
+            }
+
+            // Apply transfer function to contents until we found the node we are
+            // looking for.
+            for (int i = start; i <= last; i++) {
+              Node n = nodes.get(i);
+              setCurrentNode(n);
+              // Copy the store to avoid changing other blocks' transfer inputs in
+              // {@link #inputs}
+              transferResult = callTransferFunction(n, store.copy());
+              if (cache != null && (i == last || isCheckpoint(i))) {
+                cache.put(n, transferResult);
               }
               store = new TransferInput<>(n, this, transferResult);
             }
-            throw new BugInCF("node %s is not in node.getBlock()=%s", node, block);
+
+            if (preOrPost == Analysis.BeforeOrAfter.BEFORE) {
+              return store.getRegularStore();
+            }
+            assert transferResult != null : "@AssumeAssertion(nullness): index <= last";
+            return transferResult.getRegularStore();
           }
         case EXCEPTION_BLOCK:
           {
@@ -324,21 +345,49 @@ public class ForwardAnalysisImpl<
     }
   }
 
+  /**
+   * Returns the index of {@code node} in {@code nodes}, comparing by identity.
+   *
+   * @param nodes the nodes of a block
+   * @param node a node
+   * @return the index of {@code node} in {@code nodes}, or -1 if it does not appear
+   */
+  private static int indexOfNode(List<Node> nodes, @FindDistinct Node node) {
+    for (int i = 0; i < nodes.size(); i++) {
+      if (nodes.get(i) == node) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Override
   protected void initFields(ControlFlowGraph cfg) {
-    thenStores.clear();
-    elseStores.clear();
-    if (blockCount != null) {
-      blockCount.clear();
-    }
     storesAtReturnStatements.clear();
     super.initFields(cfg);
   }
 
+  /**
+   * Returns a new array of stores.
+   *
+   * @param length the length of the array
+   * @return a new array of stores, all null
+   */
+  @SuppressWarnings("unchecked") // S extends Store<S>, whose erasure is Store.
+  private @Nullable S[] newStoreArray(int length) {
+    return (@Nullable S[]) new Store<?>[length];
+  }
+
   @Override
   @RequiresNonNull("cfg")
   protected void initInitialInputs() {
     worklist.process(cfg);
+    int numBlocks = worklist.blocks.length;
+    thenStores = newStoreArray(numBlocks);
+    elseStores = newStoreArray(numBlocks);
+    if (blockCount != null) {
+      blockCount = new int[numBlocks];
+    }
     Block entry = cfg.getEntryBlock();
     worklist.add(entry);
     UnderlyingAST underlyingAST = cfg.getUnderlyingAST();
@@ -351,8 +400,8 @@ public class ForwardAnalysisImpl<
       throw new BugInCF(
           "Problem with initial store for " + underlyingAST + ", parameters=" + parameters);
     }
-    thenStores.put(entry, initialStore);
-    elseStores.put(entry, initialStore);
+    thenStores[entry.getDenseId()] = initialStore;
+    elseStores[entry.getDenseId()] = initialStore;
     inputs.put(entry, new TransferInput<>(null, this, initialStore));
   }
 
@@ -444,13 +493,14 @@ public class ForwardAnalysisImpl<
     S thenStore = getStoreBefore(b, Store.Kind.THEN);
     S elseStore = getStoreBefore(b, Store.Kind.ELSE);
     boolean shouldWiden = false;
+    int id = b.getDenseId();
     if (blockCount != null) {
-      Integer count = blockCount.getOrDefault(b, 0);
+      int count = blockCount[id];
       shouldWiden = count >= maxCountBeforeWidening;
       if (shouldWiden) {
-        blockCount.put(b, 0);
+        blockCount[id] = 0;
       } else {
-        blockCount.put(b, count + 1);
+        blockCount[id] = count + 1;
       }
     }
     switch (kind) {
@@ -459,7 +509,7 @@ public class ForwardAnalysisImpl<
           // Update the then store
           S newThenStore = mergeStores(s, thenStore, shouldWiden);
           if (!newThenStore.equals(thenStore)) {
-            thenStores.put(b, newThenStore);
+            thenStores[id] = newThenStore;
             if (elseStore != null) {
               inputs.put(b, new TransferInput<>(node, this, newThenStore, elseStore));
               addBlockToWorklist = true;
@@ -472,7 +522,7 @@ public class ForwardAnalysisImpl<
           // Update the else store
           S newElseStore = mergeStores(s, elseStore, shouldWiden);
           if (!newElseStore.equals(elseStore)) {
-            elseStores.put(b, newElseStore);
+            elseStores[id] = newElseStore;
             if (thenStore != null) {
               inputs.put(b, new TransferInput<>(node, this, thenStore, newElseStore));
               addBlockToWorklist = true;
@@ -487,8 +537,8 @@ public class ForwardAnalysisImpl<
           // Currently there is only one regular store
           S newStore = mergeStores(s, thenStore, shouldWiden);
           if (!newStore.equals(thenStore)) {
-            thenStores.put(b, newStore);
-            elseStores.put(b, newStore);
+            thenStores[id] = newStore;
+            elseStores[id] = newStore;
             inputs.put(b, new TransferInput<>(node, this, newStore));
             addBlockToWorklist = true;
           }
@@ -496,12 +546,12 @@ public class ForwardAnalysisImpl<
           boolean storeChanged = false;
           S newThenStore = mergeStores(s, thenStore, shouldWiden);
           if (!newThenStore.equals(thenStore)) {
-            thenStores.put(b, newThenStore);
+            thenStores[id] = newThenStore;
             storeChanged = true;
           }
           S newElseStore = mergeStores(s, elseStore, shouldWiden);
           if (!newElseStore.equals(elseStore)) {
-            elseStores.put(b, newElseStore);
+            elseStores[id] = newElseStore;
             storeChanged = true;
           }
           if (storeChanged) {
@@ -541,11 +591,15 @@ public class ForwardAnalysisImpl<
    * @return the store corresponding to the location right before the basic block {@code b}
    */
   protected @Nullable S getStoreBefore(Block b, Store.Kind kind) {
+    if (!worklist.isReachable(b)) {
+      return null;
+    }
+    int id = b.getDenseId();
     switch (kind) {
       case THEN:
-        return thenStores.get(b);
+        return thenStores[id];
       case ELSE:
-        return elseStores.get(b);
+        return elseStores[id];
       default:
         throw new BugInCF("Unexpected Store.Kind: " + kind);
     }
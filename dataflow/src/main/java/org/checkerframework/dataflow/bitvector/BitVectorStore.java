@@ -0,0 +1,356 @@
+package org.checkerframework.dataflow.bitvector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
+import org.checkerframework.dataflow.expression.JavaExpression;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A store for a gen/kill dataflow analysis, whose abstract state is a set of facts. The set is
+ * represented as a bit vector over the facts numbered by a {@link FactIndex}, so testing whether a
+ * store contains a fact, and comparing two stores, is a loop over a {@code long[]} rather than
+ * over a hash set.
+ *
+ * <p>A store also remembers the order in which its facts were added, like a {@link
+ * java.util.LinkedHashSet}, and {@link #getFacts}, {@link #toString}, and the visualization list
+ * the facts in that order.
+ *
+ * <p>A transfer function generates facts with {@link #gen} and kills them with {@link #kill} or
+ * {@link #killIf}. A subclass defines {@link #leastUpperBound} as {@link #union} for a "may"
+ * analysis or as {@link #intersection} for a "must" analysis.
+ *
+ * <p>Stores that use different FactIndexes can be combined and compared, but more slowly. All the
+ * stores of one analysis run should use the same FactIndex.
+ *
+ * @param <F> the type of facts
+ * @param <S> the type of the store
+ */
+public abstract class BitVectorStore<F, S extends BitVectorStore<F, S>> implements Store<S> {
+
+  /** An empty array, shared by all stores that have never contained a fact. */
+  private static final long[] NO_BITS = new long[0];
+
+  /** An empty array, shared by all stores that have never contained a fact. */
+  private static final int[] NO_INDEXES = new int[0];
+
+  /** The numbering of the facts in this store. */
+  protected final FactIndex<F> factIndex;
+
+  /**
+   * The set of facts: bit {@code i} is set if the fact with index {@code i} is in this store. May
+   * be shorter than needed to hold all the facts in {@link #factIndex}; missing bits are 0.
+   */
+  private long[] bits = NO_BITS;
+
+  /**
+   * The indexes of the facts in this store, in the order in which they were added, in indices 0
+   * (inclusive) to {@link #size} (exclusive).
+   */
+  private int[] order = NO_INDEXES;
+
+  /** The number of facts in this store. */
+  private int size = 0;
+
+  /**
+   * Creates a new, empty BitVectorStore.
+   *
+   * @param factIndex the numbering of the facts
+   */
+  protected BitVectorStore(FactIndex<F> factIndex) {
+    this.factIndex = factIndex;
+  }
+
+  /**
+   * Creates a new BitVectorStore that contains the given facts.
+   *
+   * @param factIndex the numbering of the facts
+   * @param facts the facts in the new store
+   */
+  protected BitVectorStore(FactIndex<F> factIndex, Collection<? extends F> facts) {
+    this.factIndex = factIndex;
+    for (F fact : facts) {
+      gen(fact);
+    }
+  }
+
+  /**
+   * Creates an empty store of the same class as this one.
+   *
+   * @param factIndex the numbering of the facts
+   * @return a new, empty store
+   */
+  protected abstract S create(FactIndex<F> factIndex);
+
+  /**
+   * Creates a store of the same class as this one, with the given contents.
+   *
+   * @param bits the set of facts. The parameter is captured and the caller should not retain an
+   *     alias.
+   * @param order the indexes of the facts, in the order in which they were added. The parameter is
+   *     captured and the caller should not retain an alias.
+   * @param size the number of facts
+   * @return a new store
+   */
+  private S create(long[] bits, int[] order, int size) {
+    S result = create(factIndex);
+    BitVectorStore<F, S> store = result;
+    store.bits = bits;
+    store.order = order;
+    store.size = size;
+    return result;
+  }
+
+  /**
+   * Returns the numbering of the facts in this store.
+   *
+   * @return the numbering of the facts in this store
+   */
+  public FactIndex<F> getFactIndex() {
+    return factIndex;
+  }
+
+  /**
+   * Adds a fact to this store.
+   *
+   * @param fact the fact to add
+   */
+  public void gen(F fact) {
+    int index = factIndex.indexOf(fact);
+    if (hasBit(bits, index)) {
+      return;
+    }
+    int word = index >>> 6;
+    if (word >= bits.length) {
+      bits = Arrays.copyOf(bits, Math.max(word + 1, (factIndex.size() + 63) >>> 6));
+    }
+    bits[word] |= 1L << index;
+    if (size == order.length) {
+      order = Arrays.copyOf(order, Math.max(4, size * 2));
+    }
+    order[size++] = index;
+  }
+
+  /**
+   * Returns true if the given bit is set in a bit vector.
+   *
+   * @param bits a bit vector
+   * @param index the index of a bit
+   * @return true if bit {@code index} of {@code bits} is set
+   */
+  private static boolean hasBit(long[] bits, int index) {
+    return (index >>> 6) < bits.length && (bits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Removes a fact from this store.
+   *
+   * @param fact the fact to remove
+   */
+  public void kill(F fact) {
+    int index = factIndex.lookup(fact);
+    if (index == -1 || !hasBit(bits, index)) {
+      return;
+    }
+    bits[index >>> 6] &= ~(1L << index);
+    for (int i = 0; i < size; i++) {
+      if (order[i] == index) {
+        System.arraycopy(order, i + 1, order, i, size - i - 1);
+        size--;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Removes from this store each fact that satisfies the given predicate.
+   *
+   * @param predicate which facts to remove
+   */
+  public void killIf(Predicate<? super F> predicate) {
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      int index = order[i];
+      if (predicate.test(factIndex.get(index))) {
+        bits[index >>> 6] &= ~(1L << index);
+      } else {
+        order[newSize++] = index;
+      }
+    }
+    size = newSize;
+  }
+
+  /**
+   * Returns true if this store contains the given fact.
+   *
+   * @param fact a fact
+   * @return true if this store contains {@code fact}
+   */
+  public boolean contains(F fact) {
+    int index = factIndex.lookup(fact);
+    return index != -1 && hasBit(bits, index);
+  }
+
+  /**
+   * Returns true if this store contains no facts.
+   *
+   * @return true if this store contains no facts
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the facts in this store, in the order in which they were added.
+   *
+   * @return the facts in this store
+   */
+  public List<F> getFacts() {
+    List<F> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(factIndex.get(order[i]));
+    }
+    return result;
+  }
+
+  @Override
+  public S copy() {
+    return create(bits.clone(), Arrays.copyOf(order, size), size);
+  }
+
+  /**
+   * Returns a new store that contains the facts in this store or in {@code other}. The facts of
+   * this store come first, followed by those of {@code other} that are not in this store.
+   *
+   * @param other another store
+   * @return the union of this store and {@code other}
+   */
+  protected S union(S other) {
+    BitVectorStore<F, S> that = inThisIndex(other);
+    long[] longer = bits.length >= that.bits.length ? bits : that.bits;
+    long[] shorter = bits.length >= that.bits.length ? that.bits : bits;
+    long[] resultBits = longer.clone();
+    for (int w = 0; w < shorter.length; w++) {
+      resultBits[w] |= shorter[w];
+    }
+    int[] resultOrder = Arrays.copyOf(order, size + that.size);
+    int resultSize = size;
+    for (int i = 0; i < that.size; i++) {
+      if (!hasBit(bits, that.order[i])) {
+        resultOrder[resultSize++] = that.order[i];
+      }
+    }
+    return create(resultBits, resultOrder, resultSize);
+  }
+
+  /**
+   * Returns a new store that contains the facts in both this store and {@code other}, in the order
+   * of this store.
+   *
+   * @param other another store
+   * @return the intersection of this store and {@code other}
+   */
+  protected S intersection(S other) {
+    BitVectorStore<F, S> that = inThisIndex(other);
+    long[] resultBits = new long[Math.min(bits.length, that.bits.length)];
+    for (int w = 0; w < resultBits.length; w++) {
+      resultBits[w] = bits[w] & that.bits[w];
+    }
+    int[] resultOrder = new int[size];
+    int resultSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (hasBit(resultBits, order[i])) {
+        resultOrder[resultSize++] = order[i];
+      }
+    }
+    return create(resultBits, resultOrder, resultSize);
+  }
+
+  /**
+   * Returns {@code other}, or a store with the same facts in the same order that uses this store's
+   * FactIndex.
+   *
+   * @param other another store
+   * @return a store with the same facts as {@code other}, numbered by {@link #factIndex}
+   */
+  private BitVectorStore<F, S> inThisIndex(BitVectorStore<F, S> other) {
+    if (other.factIndex == factIndex) {
+      return other;
+    }
+    BitVectorStore<F, S> renumbered = create(factIndex);
+    for (F fact : other.getFacts()) {
+      renumbered.gen(fact);
+    }
+    return renumbered;
+  }
+
+  @Override
+  public S widenedUpperBound(S previous) {
+    throw new BugInCF(getClass().getSimpleName() + ".widenedUpperBound was called!");
+  }
+
+  @Override
+  public boolean canAlias(JavaExpression a, JavaExpression b) {
+    return true;
+  }
+
+  /**
+   * Visualizes the facts in this store, in the order in which they were added.
+   *
+   * @param viz the visualizer
+   * @param key the name of the facts
+   * @param joiner the separator, prefix, and suffix to use for a non-empty store
+   * @return the visualization of this store
+   */
+  protected String visualizeFacts(CFGVisualizer<?, S, ?> viz, String key, StringJoiner joiner) {
+    if (isEmpty()) {
+      return viz.visualizeStoreKeyVal(key, "none");
+    }
+    for (F fact : getFacts()) {
+      joiner.add(fact.toString());
+    }
+    return viz.visualizeStoreKeyVal(key, joiner.toString());
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (obj == null || obj.getClass() != getClass()) {
+      return false;
+    }
+    @SuppressWarnings("unchecked") // same class as this
+    BitVectorStore<F, S> other = (BitVectorStore<F, S>) obj;
+    if (other.factIndex != factIndex) {
+      return new HashSet<>(getFacts()).equals(new HashSet<>(other.getFacts()));
+    }
+    long[] longer = bits.length >= other.bits.length ? bits : other.bits;
+    long[] shorter = bits.length >= other.bits.length ? other.bits : bits;
+    for (int w = 0; w < longer.length; w++) {
+      if (longer[w] != (w < shorter.length ? shorter[w] : 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    // Like Set.hashCode(), so that equal stores with different FactIndexes have the same hash code.
+    int result = 0;
+    for (int i = 0; i < size; i++) {
+      result += factIndex.get(order[i]).hashCode();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return getFacts().toString();
+  }
+}
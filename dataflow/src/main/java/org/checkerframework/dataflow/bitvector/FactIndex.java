@@ -0,0 +1,74 @@
+package org.checkerframework.dataflow.bitvector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the facts of a bit-vector dataflow analysis, so that a {@link BitVectorStore} can
+ * represent a set of facts as a bit vector. Facts are compared with {@code equals}, just as they
+ * would be in a {@code HashSet}. A fact receives the next free index the first time it is seen.
+ *
+ * <p>All stores of one analysis run share one FactIndex. A transfer function creates a new one
+ * when the analysis of a control flow graph starts, that is, in its {@code initialStore} method.
+ *
+ * @param <F> the type of facts
+ */
+public class FactIndex<F> {
+
+  /** Maps each fact to its index. */
+  private final Map<F, Integer> indexes = new HashMap<>();
+
+  /** The facts, in the order of their indexes. */
+  private final List<F> facts = new ArrayList<>();
+
+  /** Creates an empty FactIndex. */
+  public FactIndex() {}
+
+  /**
+   * Returns the index of the given fact, numbering it if it has not been seen before.
+   *
+   * @param fact a fact
+   * @return the index of {@code fact}
+   */
+  public int indexOf(F fact) {
+    Integer index = indexes.get(fact);
+    if (index == null) {
+      index = facts.size();
+      indexes.put(fact, index);
+      facts.add(fact);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index of the given fact, or -1 if it has not been numbered.
+   *
+   * @param fact a fact
+   * @return the index of {@code fact}, or -1
+   */
+  public int lookup(F fact) {
+    Integer index = indexes.get(fact);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the fact with the given index.
+   *
+   * @param index the index of a fact
+   * @return the fact with index {@code index}
+   */
+  public F get(int index) {
+    return facts.get(index);
+  }
+
+  /**
+   * Returns the number of facts that have been numbered.
+   *
+   * @return the number of facts that have been numbered
+   */
+  public int size() {
+    return facts.size();
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * Classes for gen/kill dataflow analyses whose stores are bit vectors over the facts of one
+ * control flow graph. The live variable, busy expression, and reaching definition analyses use
+ * them.
+ *
+ * @see <a
+ *     href="https://en.wikipedia.org/wiki/Data-flow_analysis#Bit_vector_problems">https://en.wikipedia.org/wiki/Data-flow_analysis#Bit_vector_problems</a>
+ */
+package org.checkerframework.dataflow.bitvector;
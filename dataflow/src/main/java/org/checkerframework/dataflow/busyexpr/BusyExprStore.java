@@ -1,35 +1,45 @@
 package org.checkerframework.dataflow.busyexpr;
 
-import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.bitvector.BitVectorStore;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.node.BinaryOperationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
 
-/** A busy expression store contains a set of busy expressions represented by nodes. */
-public class BusyExprStore implements Store<BusyExprStore> {
-
-  /** A set of busy expression abstract values. */
-  private final Set<BusyExprValue> busyExprValueSet;
+/**
+ * A busy expression store contains a set of busy expressions represented by nodes. The set is a
+ * bit vector over the busy expressions of the control flow graph being analyzed.
+ */
+public class BusyExprStore extends BitVectorStore<BusyExprValue, BusyExprStore> {
 
   /**
    * Create a new BusyExprStore.
    *
-   * @param busyExprValueSet a set of busy expression abstract values. The parameter is captured and
-   *     the caller should not retain an alias.
+   * @param busyExprValueSet a set of busy expression abstract values
    */
   public BusyExprStore(Set<BusyExprValue> busyExprValueSet) {
-    this.busyExprValueSet = busyExprValueSet;
+    super(new FactIndex<>(), busyExprValueSet);
   }
 
   /** Create a new BusyExprStore. */
   public BusyExprStore() {
-    busyExprValueSet = new LinkedHashSet<>();
+    this(new FactIndex<>());
+  }
+
+  /**
+   * Create a new, empty BusyExprStore that numbers busy expressions with the given index.
+   *
+   * @param factIndex the numbering of the busy expressions, shared by all stores of one analysis
+   */
+  public BusyExprStore(FactIndex<BusyExprValue> factIndex) {
+    super(factIndex);
+  }
+
+  @Override
+  protected BusyExprStore create(FactIndex<BusyExprValue> factIndex) {
+    return new BusyExprStore(factIndex);
   }
 
   /**
@@ -38,8 +48,7 @@ public class BusyExprStore implements Store<BusyExprStore> {
    * @param var a variable
    */
   public void killBusyExpr(Node var) {
-    busyExprValueSet.removeIf(
-        busyExprValue -> exprContainsVariable(busyExprValue.busyExpression, var));
+    killIf(busyExprValue -> exprContainsVariable(busyExprValue.busyExpression, var));
   }
 
   /**
@@ -67,7 +76,7 @@ public class BusyExprStore implements Store<BusyExprStore> {
    * @param e the busy expression to be added
    */
   public void putBusyExpr(BusyExprValue e) {
-    busyExprValueSet.add(e);
+    gen(e);
   }
 
   /**
@@ -85,58 +94,13 @@ public class BusyExprStore implements Store<BusyExprStore> {
     }
   }
 
-  @Override
-  public BusyExprStore copy() {
-    return new BusyExprStore(new LinkedHashSet<>(busyExprValueSet));
-  }
-
   @Override
   public BusyExprStore leastUpperBound(BusyExprStore other) {
-    Set<BusyExprValue> busyExprValueSetLub = new LinkedHashSet<>(this.busyExprValueSet);
-    busyExprValueSetLub.retainAll(other.busyExprValueSet);
-
-    return new BusyExprStore(busyExprValueSetLub);
-  }
-
-  @Override
-  public BusyExprStore widenedUpperBound(BusyExprStore previous) {
-    throw new BugInCF("BusyExprStore.widenedUpperBound was called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return intersection(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, BusyExprStore, ?> viz) {
-    String key = "busy expressions";
-    if (busyExprValueSet.isEmpty()) {
-      return viz.visualizeStoreKeyVal(key, "none");
-    }
-    StringJoiner sjStoreVal = new StringJoiner(", ");
-    for (BusyExprValue busyExprValue : busyExprValueSet) {
-      sjStoreVal.add(busyExprValue.toString());
-    }
-    return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
-  }
-
-  @Override
-  public String toString() {
-    return busyExprValueSet.toString();
-  }
-
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof BusyExprStore)) {
-      return false;
-    }
-    BusyExprStore other = (BusyExprStore) obj;
-    return other.busyExprValueSet.equals(this.busyExprValueSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.busyExprValueSet.hashCode();
+    return visualizeFacts(viz, "busy expressions", new StringJoiner(", "));
   }
 }
@@ -1,11 +1,13 @@
 package org.checkerframework.dataflow.busyexpr;
 
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.BackwardTransferFunction;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.analysis.UnusedAbstractValue;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.node.AbstractNodeVisitor;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
@@ -21,15 +23,38 @@ public class BusyExprTransfer
         TransferInput<UnusedAbstractValue, BusyExprStore>>
     implements BackwardTransferFunction<UnusedAbstractValue, BusyExprStore> {
 
+  /** The numbering of the busy expressions of the control flow graph being analyzed. */
+  private FactIndex<BusyExprValue> factIndex = new FactIndex<>();
+
+  /** The underlying AST of the control flow graph that {@link #factIndex} belongs to. */
+  private @Nullable UnderlyingAST factIndexAST = null;
+
   @Override
   public BusyExprStore initialNormalExitStore(
       UnderlyingAST underlyingAST, List<ReturnNode> returnNodes) {
-    return new BusyExprStore();
+    return new BusyExprStore(getFactIndex(underlyingAST));
   }
 
   @Override
   public BusyExprStore initialExceptionalExitStore(UnderlyingAST underlyingAST) {
-    return new BusyExprStore();
+    return new BusyExprStore(getFactIndex(underlyingAST));
+  }
+
+  /**
+   * Returns the numbering of the busy expressions of the control flow graph for the given AST, so
+   * that all stores of one analysis run share it.
+   *
+   * @param underlyingAST the underlying AST of the control flow graph being analyzed
+   * @return the numbering of the busy expressions of the control flow graph
+   */
+  @SuppressWarnings("interning:not.interned") // Checking for exact object.
+  private FactIndex<BusyExprValue> getFactIndex(UnderlyingAST underlyingAST) {
+    // A benevolent side effect: the numbering is not observable in the analysis results.
+    if (underlyingAST != factIndexAST) {
+      factIndex = new FactIndex<>();
+      factIndexAST = underlyingAST;
+    }
+    return factIndex;
   }
 
   @Override
@@ -26,6 +26,7 @@ import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.AnalysisResult;
 import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
 import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
 import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.block.RegularBlock;
@@ -380,6 +381,31 @@ public class ControlFlowGraph implements UniqueId {
     return dfsOrderResult;
   }
 
+  /**
+   * Numbers the basic blocks of this control flow graph densely, in reversed depth-first postorder:
+   * the {@link Block#getDenseId()} of element i of the result is i. Unlike {@link
+   * #getDepthFirstOrderedBlocks()}, the result contains each block once, at the position of its
+   * last occurrence in that sequence.
+   *
+   * @return the basic blocks of this control flow graph, indexed by their dense number
+   */
+  public List<Block> numberBlocksDensely() {
+    List<Block> dfsOrder = getDepthFirstOrderedBlocks();
+    Set<Block> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Block> result = new ArrayList<>(dfsOrder.size());
+    for (int i = dfsOrder.size() - 1; i >= 0; i--) {
+      Block b = dfsOrder.get(i);
+      if (seen.add(b)) {
+        result.add(b);
+      }
+    }
+    Collections.reverse(result);
+    for (int i = 0; i < result.size(); i++) {
+      ((BlockImpl) result.get(i)).setDenseId(i);
+    }
+    return result;
+  }
+
   /**
    * Returns an unmodifiable view of the tree-lookup map. Ignores convertedTreeLookup, though {@link
    * #getNodesCorrespondingToTree} uses that field.
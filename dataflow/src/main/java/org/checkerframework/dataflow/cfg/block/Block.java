@@ -67,4 +67,14 @@ public interface Block extends UniqueId {
    * @return the last node of this block or {@code null}
    */
   @Nullable Node getLastNode();
+
+  /**
+   * Returns the position of this block in the result of the last call to {@link
+   * org.checkerframework.dataflow.cfg.ControlFlowGraph#numberBlocksDensely()} on the control flow
+   * graph that contains it, or -1 if its blocks have not been numbered. Dataflow analyses use the
+   * number to index per-block state.
+   *
+   * @return the dense number of this block, or -1
+   */
+  int getDenseId();
 }
@@ -25,6 +25,9 @@ public abstract class BlockImpl implements Block {
     return uid;
   }
 
+  /** The dense number of this block, or -1; see {@link #getDenseId()}. */
+  private int denseId = -1;
+
   /**
    * Create a new BlockImpl.
    *
@@ -55,4 +58,19 @@ public abstract class BlockImpl implements Block {
   public void removePredecessor(BlockImpl pred) {
     predecessors.remove(pred);
   }
+
+  @Override
+  public int getDenseId() {
+    return denseId;
+  }
+
+  /**
+   * Sets the dense number of this block. Only {@link
+   * org.checkerframework.dataflow.cfg.ControlFlowGraph#numberBlocksDensely()} should call this.
+   *
+   * @param denseId the dense number of this block
+   */
+  public void setDenseId(int denseId) {
+    this.denseId = denseId;
+  }
 }
@@ -2,7 +2,10 @@ package org.checkerframework.dataflow.expression;
 
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.util.TreePath;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -11,6 +14,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.javacutil.javacparse.JavacParse;
 import org.checkerframework.javacutil.javacparse.JavacParseResult;
+import org.plumelib.util.CollectionsPlume;
 import org.plumelib.util.StringsPlume;
 
 /**
@@ -46,6 +50,12 @@ public class JavaExpressionParseUtil {
   /** The replacement for a formal parameter in "#2" syntax. */
   static final String PARAMETER_REPLACEMENT = PARAMETER_PREFIX + "$1";
 
+  /** The maximum number of entries in a {@link ParseCache}. */
+  private static final int PARSE_CACHE_SIZE = 100;
+
+  /** The key of the {@link ParseCache} of a compilation in javac's context. */
+  private static final Context.Key<ParseCache> parseCacheKey = new Context.Key<>();
+
   /**
    * Parses a string to a {@link JavaExpression}.
    *
@@ -75,19 +85,11 @@ public class JavaExpressionParseUtil {
 
     String expressionWithParameterNames =
         StringsPlume.replaceAll(expression, PARAMETER_PATTERN, PARAMETER_REPLACEMENT);
-    ExpressionTree exprTree;
-    try {
-      JavacParseResult<ExpressionTree> jpr =
-          JavacParse.parseExpression(expressionWithParameterNames);
-      if (jpr.hasParseError()) {
-        throw JavaExpressionParseException.construct(expression, jpr.getParseErrorMessages());
-      }
-      exprTree = jpr.getTree();
-    } catch (IllegalArgumentException e) {
-      @SuppressWarnings("nullness:assignment") // presently always non-null; could change in future
-      @NonNull String msg = e.getMessage();
-      throw JavaExpressionParseException.construct(expression, msg);
+    Object parsed = getParseCache(env).get(expressionWithParameterNames);
+    if (parsed instanceof String) {
+      throw JavaExpressionParseException.construct(expression, (String) parsed);
     }
+    ExpressionTree exprTree = (ExpressionTree) parsed;
 
     JavaExpression result =
         ExpressionTreeToJavaExpressionVisitor.convert(
@@ -109,6 +111,112 @@ public class JavaExpressionParseUtil {
     return result;
   }
 
+  /**
+   * Returns the cache of parsed expression strings of the current compilation.
+   *
+   * @param env the processing environment
+   * @return the cache of parsed expression strings of the current compilation
+   */
+  private static ParseCache getParseCache(ProcessingEnvironment env) {
+    Context context = ((JavacProcessingEnvironment) env).getContext();
+    synchronized (parseCacheKey) {
+      ParseCache cache = context.get(parseCacheKey);
+      if (cache == null) {
+        cache = new ParseCache();
+        context.put(parseCacheKey, cache);
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Parses a string to an {@link ExpressionTree}, without resolving any names.
+   *
+   * @param expression an expression string, in which formal parameters have been renamed
+   * @return the parsed expression, or the error message if the string cannot be parsed
+   */
+  private static Object parseExpressionTree(String expression) {
+    try {
+      JavacParseResult<ExpressionTree> jpr = JavacParse.parseExpression(expression);
+      if (jpr.hasParseError()) {
+        return jpr.getParseErrorMessages();
+      }
+      return jpr.getTree();
+    } catch (IllegalArgumentException e) {
+      @SuppressWarnings("nullness:assignment") // presently always non-null; could change in future
+      @NonNull String msg = e.getMessage();
+      return msg;
+    }
+  }
+
+  /**
+   * Returns a human-readable summary of the use of the cache of parsed expression strings of the
+   * current compilation.
+   *
+   * @param env the processing environment
+   * @return a summary of the use of the cache of parsed expression strings
+   */
+  public static String getParseCacheStatistics(ProcessingEnvironment env) {
+    return getParseCache(env).getStatistics();
+  }
+
+  /**
+   * The results of parsing expression strings with javac, for one compilation. Parsing does not
+   * depend on where the expression is written, so the cache is shared by all type factories.
+   *
+   * <p>Each result comes from a separate javac parse, and its names refer to the name table of that
+   * parse, which takes hundreds of kilobytes. Therefore the cache is small, and it is stored in the
+   * compilation's javac context so that it does not outlive the compilation.
+   */
+  private static final class ParseCache {
+
+    /**
+     * Maps an expression string, with formal parameters already renamed, to the result of parsing
+     * it: either an {@link ExpressionTree} or the error message of a parse error. The trees are
+     * never modified.
+     */
+    private final Map<String, Object> results = CollectionsPlume.createLruCache(PARSE_CACHE_SIZE);
+
+    /** The number of lookups that found an entry. */
+    private long hits = 0;
+
+    /** The number of lookups that had to parse the expression. */
+    private long misses = 0;
+
+    /**
+     * Returns the result of parsing the given expression string, parsing it if it is not in the
+     * cache.
+     *
+     * @param expression an expression string, in which formal parameters have been renamed
+     * @return the parsed expression, or the error message if the string cannot be parsed
+     */
+    Object get(String expression) {
+      synchronized (this) {
+        Object parsed = results.get(expression);
+        if (parsed != null) {
+          hits++;
+          return parsed;
+        }
+        misses++;
+      }
+      // Parse without holding the lock.
+      Object parsed = parseExpressionTree(expression);
+      synchronized (this) {
+        results.put(expression, parsed);
+      }
+      return parsed;
+    }
+
+    /**
+     * Returns a human-readable summary of the use of this cache.
+     *
+     * @return a summary of the use of this cache
+     */
+    synchronized String getStatistics() {
+      return String.format("Java expression parse cache: %d hits, %d misses", hits, misses);
+    }
+  }
+
   /**
    * If {@code s} is exactly a formal parameter, return its 1-based index. Returns -1 otherwise.
    *
@@ -1,11 +1,9 @@
 package org.checkerframework.dataflow.livevariable;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.bitvector.BitVectorStore;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.node.BinaryOperationNode;
 import org.checkerframework.dataflow.cfg.node.FieldAccessNode;
 import org.checkerframework.dataflow.cfg.node.InstanceOfNode;
@@ -15,29 +13,39 @@ import org.checkerframework.dataflow.cfg.node.TernaryExpressionNode;
 import org.checkerframework.dataflow.cfg.node.TypeCastNode;
 import org.checkerframework.dataflow.cfg.node.UnaryOperationNode;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
-import org.plumelib.util.ArraySet;
 
-/** A live variable store contains a set of live variables represented by nodes. */
-public class LiveVarStore implements Store<LiveVarStore> {
-
-  /** The set of live variables in this store. */
-  private final Set<LiveVarNode> liveVarNodeSet;
+/**
+ * A live variable store contains a set of live variables represented by nodes. The set is a bit
+ * vector over the live variables of the control flow graph being analyzed.
+ */
+public class LiveVarStore extends BitVectorStore<LiveVarNode, LiveVarStore> {
 
   /** Create a new LiveVarStore. */
   public LiveVarStore() {
-    liveVarNodeSet = new LinkedHashSet<>();
+    this(new FactIndex<>());
+  }
+
+  /**
+   * Create a new, empty LiveVarStore that numbers live variables with the given index.
+   *
+   * @param factIndex the numbering of the live variables, shared by all stores of one analysis
+   */
+  public LiveVarStore(FactIndex<LiveVarNode> factIndex) {
+    super(factIndex);
   }
 
   /**
    * Create a new LiveVarStore.
    *
-   * @param liveVarNodeSet the set of live variable nodes. The parameter is captured and the caller
-   *     should not retain an alias.
+   * @param liveVarNodeSet the set of live variable nodes
    */
   public LiveVarStore(Set<LiveVarNode> liveVarNodeSet) {
-    this.liveVarNodeSet = liveVarNodeSet;
+    super(new FactIndex<>(), liveVarNodeSet);
+  }
+
+  @Override
+  protected LiveVarStore create(FactIndex<LiveVarNode> factIndex) {
+    return new LiveVarStore(factIndex);
   }
 
   /**
@@ -46,7 +54,7 @@ public class LiveVarStore implements Store<LiveVarStore> {
    * @param variable a live variable
    */
   public void putLiveVar(LiveVarNode variable) {
-    liveVarNodeSet.add(variable);
+    gen(variable);
   }
 
   /**
@@ -55,7 +63,7 @@ public class LiveVarStore implements Store<LiveVarStore> {
    * @param variable a live variable
    */
   public void killLiveVar(LiveVarNode variable) {
-    liveVarNodeSet.remove(variable);
+    kill(variable);
   }
 
   /**
@@ -89,61 +97,13 @@ public class LiveVarStore implements Store<LiveVarStore> {
     }
   }
 
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof LiveVarStore)) {
-      return false;
-    }
-    LiveVarStore other = (LiveVarStore) obj;
-    return other.liveVarNodeSet.equals(this.liveVarNodeSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.liveVarNodeSet.hashCode();
-  }
-
-  @Override
-  public LiveVarStore copy() {
-    return new LiveVarStore(new HashSet<>(liveVarNodeSet));
-  }
-
   @Override
   public LiveVarStore leastUpperBound(LiveVarStore other) {
-    Set<LiveVarNode> liveVarNodeSetLub =
-        ArraySet.newArraySetOrLinkedHashSet(
-            this.liveVarNodeSet.size() + other.liveVarNodeSet.size());
-    liveVarNodeSetLub.addAll(this.liveVarNodeSet);
-    liveVarNodeSetLub.addAll(other.liveVarNodeSet);
-    return new LiveVarStore(liveVarNodeSetLub);
-  }
-
-  /** It should not be called since it is not used by the backward analysis. */
-  @Override
-  public LiveVarStore widenedUpperBound(LiveVarStore previous) {
-    throw new BugInCF("wub of LiveVarStore get called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return union(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, LiveVarStore, ?> viz) {
-    String key = "live variables";
-    if (liveVarNodeSet.isEmpty()) {
-      return viz.visualizeStoreKeyVal(key, "none");
-    }
-    StringJoiner sjStoreVal = new StringJoiner(", ");
-    for (LiveVarNode liveVar : liveVarNodeSet) {
-      sjStoreVal.add(liveVar.toString());
-    }
-    return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
-  }
-
-  @Override
-  public String toString() {
-    return liveVarNodeSet.toString();
+    return visualizeFacts(viz, "live variables", new StringJoiner(", "));
   }
 }
@@ -1,11 +1,13 @@
 package org.checkerframework.dataflow.livevariable;
 
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.BackwardTransferFunction;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.analysis.UnusedAbstractValue;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.node.AbstractNodeVisitor;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
@@ -13,7 +15,6 @@ import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.node.ObjectCreationNode;
 import org.checkerframework.dataflow.cfg.node.ReturnNode;
-import org.checkerframework.dataflow.qual.SideEffectFree;
 
 /** A live variable transfer function. */
 public class LiveVarTransfer
@@ -22,19 +23,41 @@ public class LiveVarTransfer
         TransferInput<UnusedAbstractValue, LiveVarStore>>
     implements BackwardTransferFunction<UnusedAbstractValue, LiveVarStore> {
 
+  /** The numbering of the live variables of the control flow graph being analyzed. */
+  private FactIndex<LiveVarNode> factIndex = new FactIndex<>();
+
+  /** The underlying AST of the control flow graph that {@link #factIndex} belongs to. */
+  private @Nullable UnderlyingAST factIndexAST = null;
+
   /** Creates a new LiveVarTransfer. */
   public LiveVarTransfer() {}
 
   @Override
-  @SideEffectFree
   public LiveVarStore initialNormalExitStore(
       UnderlyingAST underlyingAST, List<ReturnNode> returnNodes) {
-    return new LiveVarStore();
+    return new LiveVarStore(getFactIndex(underlyingAST));
   }
 
   @Override
   public LiveVarStore initialExceptionalExitStore(UnderlyingAST underlyingAST) {
-    return new LiveVarStore();
+    return new LiveVarStore(getFactIndex(underlyingAST));
+  }
+
+  /**
+   * Returns the numbering of the live variables of the control flow graph for the given AST, so
+   * that all stores of one analysis run share it.
+   *
+   * @param underlyingAST the underlying AST of the control flow graph being analyzed
+   * @return the numbering of the live variables of the control flow graph
+   */
+  @SuppressWarnings("interning:not.interned") // Checking for exact object.
+  private FactIndex<LiveVarNode> getFactIndex(UnderlyingAST underlyingAST) {
+    // A benevolent side effect: the numbering is not observable in the analysis results.
+    if (underlyingAST != factIndexAST) {
+      factIndex = new FactIndex<>();
+      factIndexAST = underlyingAST;
+    }
+    return factIndex;
   }
 
   @Override
@@ -1,38 +1,46 @@
 package org.checkerframework.dataflow.reachingdef;
 
-import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.bitvector.BitVectorStore;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
 
 /**
  * A reaching definition store contains a set of reaching definitions represented by
- * ReachingDefinitionNode
+ * ReachingDefinitionNode. The set is a bit vector over the definitions of the control flow graph
+ * being analyzed.
  */
-public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
-
-  /** The set of reaching definitions in this store. */
-  private final Set<ReachingDefinitionNode> reachingDefSet;
+public class ReachingDefinitionStore
+    extends BitVectorStore<ReachingDefinitionNode, ReachingDefinitionStore> {
 
   /** Create a new ReachDefinitionStore. */
   public ReachingDefinitionStore() {
-    reachingDefSet = new LinkedHashSet<>();
+    this(new FactIndex<>());
+  }
+
+  /**
+   * Create a new, empty ReachDefinitionStore that numbers definitions with the given index.
+   *
+   * @param factIndex the numbering of the definitions, shared by all stores of one analysis
+   */
+  public ReachingDefinitionStore(FactIndex<ReachingDefinitionNode> factIndex) {
+    super(factIndex);
   }
 
   /**
    * Create a new ReachDefinitionStore.
    *
-   * @param reachingDefSet a set of reaching definition nodes. The parameter is captured and the
-   *     caller should not retain an alias.
+   * @param reachingDefSet a set of reaching definition nodes
    */
   public ReachingDefinitionStore(Set<ReachingDefinitionNode> reachingDefSet) {
-    this.reachingDefSet = reachingDefSet;
+    super(new FactIndex<>(), reachingDefSet);
+  }
+
+  @Override
+  protected ReachingDefinitionStore create(FactIndex<ReachingDefinitionNode> factIndex) {
+    return new ReachingDefinitionStore(factIndex);
   }
 
   /**
@@ -41,17 +49,11 @@ public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
    * @param defTarget target of a reaching definition
    */
   public void killDef(Node defTarget) {
-    Iterator<ReachingDefinitionNode> it = reachingDefSet.iterator();
-    while (it.hasNext()) {
-      // We use `.equals` instead of `==` here to compare value equality
-      // rather than reference equality, because if two left-hand side node
-      // have same values, we need to kill the old one and replace with the
-      // new one.
-      ReachingDefinitionNode generatedDefNode = it.next();
-      if (generatedDefNode.def.getTarget().equals(defTarget)) {
-        it.remove();
-      }
-    }
+    // We use `.equals` instead of `==` here to compare value equality
+    // rather than reference equality, because if two left-hand side node
+    // have same values, we need to kill the old one and replace with the
+    // new one.
+    killIf(generatedDefNode -> generatedDefNode.def.getTarget().equals(defTarget));
   }
 
   /**
@@ -60,62 +62,21 @@ public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
    * @param def a reaching definition
    */
   public void putDef(ReachingDefinitionNode def) {
-    reachingDefSet.add(def);
-  }
-
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof ReachingDefinitionStore)) {
-      return false;
-    }
-    ReachingDefinitionStore other = (ReachingDefinitionStore) obj;
-    return other.reachingDefSet.equals(this.reachingDefSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.reachingDefSet.hashCode();
-  }
-
-  @Override
-  public ReachingDefinitionStore copy() {
-    return new ReachingDefinitionStore(new LinkedHashSet<>(reachingDefSet));
+    gen(def);
   }
 
   @Override
   public ReachingDefinitionStore leastUpperBound(ReachingDefinitionStore other) {
-    LinkedHashSet<ReachingDefinitionNode> reachingDefSetLub =
-        new LinkedHashSet<>(this.reachingDefSet.size() + other.reachingDefSet.size());
-    reachingDefSetLub.addAll(this.reachingDefSet);
-    reachingDefSetLub.addAll(other.reachingDefSet);
-    return new ReachingDefinitionStore(reachingDefSetLub);
-  }
-
-  @Override
-  public ReachingDefinitionStore widenedUpperBound(ReachingDefinitionStore previous) {
-    throw new BugInCF("ReachingDefinitionStore.widenedUpperBound was called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return union(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, ReachingDefinitionStore, ?> viz) {
-    String key = "reaching definitions";
-    if (reachingDefSet.isEmpty()) {
-      return viz.visualizeStoreKeyVal(key, "none");
-    }
-    StringJoiner sjStoreVal = new StringJoiner(", ", "{ ", " }");
-    for (ReachingDefinitionNode reachDefNode : reachingDefSet) {
-      sjStoreVal.add(reachDefNode.toString());
-    }
-    return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
+    return visualizeFacts(viz, "reaching definitions", new StringJoiner(", ", "{ ", " }"));
   }
 
   @Override
   public String toString() {
-    return "ReachingDefinitionStore: " + reachingDefSet.toString();
+    return "ReachingDefinitionStore: " + super.toString();
   }
 }
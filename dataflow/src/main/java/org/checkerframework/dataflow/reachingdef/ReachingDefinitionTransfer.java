@@ -7,6 +7,7 @@ import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.analysis.UnusedAbstractValue;
+import org.checkerframework.dataflow.bitvector.FactIndex;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.node.AbstractNodeVisitor;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
@@ -30,7 +31,8 @@ public class ReachingDefinitionTransfer
   @Override
   public ReachingDefinitionStore initialStore(
       UnderlyingAST underlyingAST, @Nullable List<LocalVariableNode> parameters) {
-    return new ReachingDefinitionStore();
+    // Each analysis run numbers the definitions of its control flow graph afresh.
+    return new ReachingDefinitionStore(new FactIndex<>());
   }
 
   @Override
@@ -2,10 +2,15 @@ package org.checkerframework.common.basetype;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.ClassGetName;
@@ -13,12 +18,15 @@ import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
 import org.checkerframework.framework.qual.SubtypeOf;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
 import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.TypeHierarchy;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.TypeSystemError;
 import org.checkerframework.javacutil.UserError;
 import org.plumelib.util.CollectionsPlume;
@@ -140,6 +148,37 @@ public abstract class BaseTypeChecker extends SourceChecker {
     return getTypeFactory();
   }
 
+  @Override
+  protected String getSignatureFingerprint(Element elt) {
+    AnnotatedTypeFactory atypeFactory = getTypeFactory();
+    String fingerprint =
+        atypeFactory.fromElement(elt).toString(true) + " " + atypeFactory.getDeclAnnotations(elt);
+    if (elt instanceof VariableElement) {
+      // The value of a compile-time constant may affect dataflow refinement.
+      fingerprint += " = " + ((VariableElement) elt).getConstantValue();
+    } else if (elt instanceof TypeElement) {
+      // Whether a type is a subtype of another depends on the annotated supertypes of every class
+      // above it in the class hierarchy, which may be declared in other compilation units.
+      TypeElement typeElt = (TypeElement) elt;
+      List<TypeElement> hierarchy = new ArrayList<>();
+      hierarchy.add(typeElt);
+      hierarchy.addAll(ElementUtils.getSuperTypes(typeElt, getElementUtils()));
+      StringBuilder supertypes = new StringBuilder(fingerprint);
+      for (TypeElement type : hierarchy) {
+        supertypes.append(" ").append(type.getQualifiedName()).append(" <:");
+        AnnotatedTypeMirror atype = atypeFactory.fromElement(type);
+        if (atype instanceof AnnotatedDeclaredType) {
+          AnnotatedDeclaredType declaredType = (AnnotatedDeclaredType) atype;
+          for (AnnotatedDeclaredType supertype : declaredType.directSupertypes()) {
+            supertypes.append(" ").append(supertype.toString(true));
+          }
+        }
+      }
+      fingerprint = supertypes.toString();
+    }
+    return fingerprint;
+  }
+
   /**
    * Returns the type factory used by a subchecker. Returns null if no matching subchecker was found
    * or if the type factory is null. The caller must know the exact checker class to request.
@@ -205,6 +244,32 @@ public abstract class BaseTypeChecker extends SourceChecker {
     }
   }
 
+  @Override
+  protected void startInferenceRound() {
+    getTypeFactory().wpiStartFixpointRound();
+    super.startInferenceRound();
+  }
+
+  @Override
+  protected Set<String> finishInferenceRound() {
+    return getTypeFactory().wpiFinishFixpointRound();
+  }
+
+  @Override
+  protected Set<String> finishInferenceClass() {
+    return getTypeFactory().wpiTakeAccessedFiles();
+  }
+
+  @Override
+  protected void discardInferences(Set<String> paths) {
+    getTypeFactory().wpiDiscardInferredAnnotations(paths);
+  }
+
+  @Override
+  protected void finishInferenceFixpoint() {
+    getTypeFactory().wpiWriteFixpointResults();
+  }
+
   @Override
   protected Set<String> createSupportedLintOptions() {
     Set<String> lintSet = super.createSupportedLintOptions();
@@ -105,6 +105,7 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 import org.checkerframework.framework.qual.HasQualifierParameter;
 import org.checkerframework.framework.qual.Unused;
 import org.checkerframework.framework.source.DiagMessage;
+import org.checkerframework.framework.source.PhaseStatistics;
 import org.checkerframework.framework.source.SourceVisitor;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeFactory.ParameterizedExecutableType;
@@ -1008,6 +1009,7 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
       return null;
     }
     processMethodTree("<unknown from visitMethod>", tree);
+    atypeFactory.releaseFlowResults(tree);
     return null;
   }
 
@@ -1023,6 +1025,8 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
     // boilerplate
     long startMillis = System.currentTimeMillis();
     Tree startSlowTypeCheckingTree = slowTypecheckingTree;
+    PhaseStatistics phaseStatistics = checker.getPhaseStatistics();
+    long startNanos = phaseStatistics == null ? 0 : System.nanoTime();
 
     // We copy the result from getAnnotatedType to ensure that circular types (e.g. K extends
     // Comparable<K>) are represented by circular AnnotatedTypeMirrors, which avoids problems
@@ -1122,6 +1126,15 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
     }
 
     checkSlowTypechecking(tree, startSlowTypeCheckingTree, startMillis);
+    if (phaseStatistics != null) {
+      long pos = positions.getStartPosition(root, tree);
+      LineMap lineMap = root.getLineMap();
+      phaseStatistics.recordMethod(
+          ElementUtils.getQualifiedName(methodElement),
+          root.getSourceFile().getName(),
+          pos != -1 && lineMap != null ? lineMap.getLineNumber(pos) : -1,
+          System.nanoTime() - startNanos);
+    }
   }
 
   /**
@@ -1,6 +1,9 @@
 package org.checkerframework.common.subtyping;
 
 import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.util.Set;
+import org.checkerframework.checker.signature.qual.BinaryName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.subtyping.qual.Unqualified;
 import org.checkerframework.framework.type.AnnotationClassLoader;
@@ -18,4 +21,11 @@ public class SubtypingAnnotationClassLoader extends AnnotationClassLoader {
   protected boolean hasWellDefinedTargetMetaAnnotation(Class<? extends Annotation> annoClass) {
     return super.hasWellDefinedTargetMetaAnnotation(annoClass) || annoClass == Unqualified.class;
   }
+
+  @Override
+  protected boolean mayHaveWellDefinedTargetMetaAnnotation(
+      @BinaryName String className, Set<ElementType> targets) {
+    return super.mayHaveWellDefinedTargetMetaAnnotation(className, targets)
+        || className.equals(Unqualified.class.getName());
+  }
 }
@@ -62,4 +62,9 @@ public final class SubtypingChecker extends BaseTypeChecker {
   public NavigableSet<String> getSuppressWarningsPrefixes() {
     return getSuppressWarningsPrefixes(this.visitor, super.getSuppressWarningsPrefixes());
   }
+
+  @Override
+  protected boolean isIncrementalTypecheckSafe() {
+    return true;
+  }
 }
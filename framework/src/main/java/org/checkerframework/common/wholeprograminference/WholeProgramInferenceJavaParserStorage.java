@@ -143,6 +143,13 @@ public class WholeProgramInferenceJavaParserStorage
   /** Maps from binary class name to the source file that contains it. */
   private Map<String, String> classToSource = new HashMap<>();
 
+  /**
+   * Source files whose inferred annotations have been read or updated since the last call to {@link
+   * #takeAccessedFiles}. Used by the {@code -AinferFixpoint} command-line option. Without that
+   * option, this set is never cleared, but it contains at most every source file.
+   */
+  private Set<String> accessedFiles = new HashSet<>();
+
   /** True if the {@code -AinferOutputOriginal} option was supplied to the checker. */
   private final boolean inferOutputOriginal;
 
@@ -188,7 +195,44 @@ public class WholeProgramInferenceJavaParserStorage
 
   @Override
   public String getFileForElement(Element elt) {
-    return addClassesForElement(elt);
+    String path = addClassesForElement(elt);
+    accessedFiles.add(path);
+    return path;
+  }
+
+  /**
+   * Returns the source files whose inferred annotations have been read or updated since the last
+   * call to this method. Every read or update of an inferred annotation calls {@link
+   * #getFileForElement}, which records the file.
+   *
+   * @return the source files whose inferred annotations have been read or updated since the last
+   *     call to this method
+   */
+  public Set<String> takeAccessedFiles() {
+    Set<String> result = accessedFiles;
+    accessedFiles = new HashSet<>();
+    return result;
+  }
+
+  /**
+   * Discards the annotations inferred for the given source files, as if no annotation had been
+   * inferred for them. The wrappers for their classes are created again, from the source files,
+   * when they are next needed.
+   *
+   * @param paths the source files whose inferred annotations to discard
+   */
+  public void discardInferredAnnotations(Set<String> paths) {
+    for (String path : paths) {
+      CompilationUnitAnnos sourceAnnos = sourceToAnnos.remove(path);
+      if (sourceAnnos != null) {
+        // This includes the wrappers for anonymous classes, which are not in classToSource.
+        for (ClassOrInterfaceAnnos classAnnos : sourceAnnos.types) {
+          classToAnnos.remove(classAnnos.className);
+        }
+      }
+    }
+    classToSource.values().removeIf(paths::contains);
+    modifiedFiles.removeAll(paths);
   }
 
   @Override
@@ -1083,6 +1127,29 @@ public class WholeProgramInferenceJavaParserStorage
     modifiedFiles.clear();
   }
 
+  /**
+   * Returns the ajava file that {@link #writeResultsToFile} would write for each source file that
+   * contains an element for which an annotation has been inferred, without writing anything to
+   * disk. Used by the {@code -AinferFixpoint} command-line option, which feeds the annotations
+   * inferred in one round of type-checking to the next round, and which compares the results of
+   * consecutive rounds.
+   *
+   * @param checker the checker whose annotations are printed
+   * @return a map from the path of each source file to the contents of its ajava file
+   */
+  public Map<String, String> printAjavaFiles(BaseTypeChecker checker) {
+    Map<String, String> result = new HashMap<>(CollectionsPlume.mapCapacity(sourceToAnnos.size()));
+    for (Map.Entry<String, CompilationUnitAnnos> entry : sourceToAnnos.entrySet()) {
+      // This calls deepCopy() because wpiPrepareCompilationUnitForWriting performs side
+      // effects that we don't want to be persistent.
+      CompilationUnitAnnos root = entry.getValue().deepCopy();
+      wpiPrepareCompilationUnitForWriting(root);
+      root.transferAnnotations(checker);
+      result.put(entry.getKey(), printAjava(root));
+    }
+    return result;
+  }
+
   /**
    * Write an ajava file to disk.
    *
@@ -1091,76 +1158,85 @@ public class WholeProgramInferenceJavaParserStorage
    */
   private void writeAjavaFile(File outputPath, CompilationUnitAnnos root) {
     try (Writer writer = Files.newBufferedWriter(outputPath.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(printAjava(root));
+    } catch (IOException e) {
+      throw new BugInCF("Error while writing ajava file " + outputPath, e);
+    }
+  }
 
-      // This commented implementation uses JavaParser's lexical preserving printing, which
-      // writes the file such that its formatting is close to the original source file it was
-      // parsed from as possible. It is commented out because this feature is very buggy and
-      // crashes when adding annotations in certain locations.
-      // LexicalPreservingPrinter.print(root.declaration, writer);
-
-      // Do not print invisible qualifiers, to avoid cluttering the output.
-      Set<String> invisibleQualifierNames = getInvisibleQualifierNames(this.atypeFactory);
-      DefaultPrettyPrinter prettyPrinter =
-          new DefaultPrettyPrinter() {
-            @Override
-            public String print(Node node) {
-              VoidVisitor<Void> visitor =
-                  new DefaultPrettyPrinterVisitor(getConfiguration()) {
-                    @Override
-                    public void visit(MarkerAnnotationExpr n, Void arg) {
-                      if (invisibleQualifierNames.contains(n.getName().toString())) {
-                        return;
-                      }
-                      super.visit(n, arg);
+  /**
+   * Returns the contents of the ajava file for a compilation unit.
+   *
+   * @param root the compilation unit to be printed
+   * @return the contents of the ajava file for {@code root}
+   */
+  private String printAjava(CompilationUnitAnnos root) {
+    // This commented implementation uses JavaParser's lexical preserving printing, which
+    // writes the file such that its formatting is close to the original source file it was
+    // parsed from as possible. It is commented out because this feature is very buggy and
+    // crashes when adding annotations in certain locations.
+    // LexicalPreservingPrinter.print(root.declaration, writer);
+
+    // Do not print invisible qualifiers, to avoid cluttering the output.
+    Set<String> invisibleQualifierNames = getInvisibleQualifierNames(this.atypeFactory);
+    DefaultPrettyPrinter prettyPrinter =
+        new DefaultPrettyPrinter() {
+          @Override
+          public String print(Node node) {
+            VoidVisitor<Void> visitor =
+                new DefaultPrettyPrinterVisitor(getConfiguration()) {
+                  @Override
+                  public void visit(MarkerAnnotationExpr n, Void arg) {
+                    if (invisibleQualifierNames.contains(n.getName().toString())) {
+                      return;
                     }
+                    super.visit(n, arg);
+                  }
 
-                    @Override
-                    public void visit(SingleMemberAnnotationExpr n, Void arg) {
-                      if (invisibleQualifierNames.contains(n.getName().toString())) {
-                        return;
-                      }
-                      super.visit(n, arg);
+                  @Override
+                  public void visit(SingleMemberAnnotationExpr n, Void arg) {
+                    if (invisibleQualifierNames.contains(n.getName().toString())) {
+                      return;
                     }
+                    super.visit(n, arg);
+                  }
 
-                    @Override
-                    public void visit(NormalAnnotationExpr n, Void arg) {
-                      if (invisibleQualifierNames.contains(n.getName().toString())) {
-                        return;
-                      }
-                      super.visit(n, arg);
+                  @Override
+                  public void visit(NormalAnnotationExpr n, Void arg) {
+                    if (invisibleQualifierNames.contains(n.getName().toString())) {
+                      return;
                     }
-
-                    // visit(CharLiteralExpr) and visit(StringLiteralExpr) work around bugs in
-                    // JavaParser, with respect to handling lonely surrogate characters.
-
-                    @Override
-                    public void visit(final CharLiteralExpr n, final Void arg) {
-                      String value = n.getValue();
-                      if (value.length() == 1) {
-                        char c = value.charAt(0);
-                        if (Character.isSurrogate(c)) {
-                          n.setValue(String.format("\\u%04X", (int) c));
-                        }
+                    super.visit(n, arg);
+                  }
+
+                  // visit(CharLiteralExpr) and visit(StringLiteralExpr) work around bugs in
+                  // JavaParser, with respect to handling lonely surrogate characters.
+
+                  @Override
+                  public void visit(final CharLiteralExpr n, final Void arg) {
+                    String value = n.getValue();
+                    if (value.length() == 1) {
+                      char c = value.charAt(0);
+                      if (Character.isSurrogate(c)) {
+                        n.setValue(String.format("\\u%04X", (int) c));
                       }
-                      super.visit(n, arg);
-                    }
-
-                    @Override
-                    public void visit(final StringLiteralExpr n, final Void arg) {
-                      n.setValue(escapeLonelySurrogates(n.getValue()));
-
-                      super.visit(n, arg);
                     }
-                  };
-              node.accept(visitor, null);
-              return visitor.toString();
-            }
-          };
+                    super.visit(n, arg);
+                  }
+
+                  @Override
+                  public void visit(final StringLiteralExpr n, final Void arg) {
+                    n.setValue(escapeLonelySurrogates(n.getValue()));
+
+                    super.visit(n, arg);
+                  }
+                };
+            node.accept(visitor, null);
+            return visitor.toString();
+          }
+        };
 
-      writer.write(prettyPrinter.print(root.compilationUnit));
-    } catch (IOException e) {
-      throw new BugInCF("Error while writing ajava file " + outputPath, e);
-    }
+    return prettyPrinter.print(root.compilationUnit);
   }
 
   // TODO: Move these two routines to StringUtils.
@@ -2,7 +2,6 @@ package org.checkerframework.framework.flow;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -69,14 +68,17 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
   /** The analysis class this store belongs to. */
   protected final CFAbstractAnalysis<V, S, ?> analysis;
 
+  // The maps are persistent, so that copying a store takes constant time and the maps of a store
+  // and of its copies share the entries that neither has changed.
+
   /** Information collected about local variables (including method parameters). */
-  protected final Map<LocalVariable, V> localVariableValues;
+  protected final PersistentHashMap<LocalVariable, V> localVariableValues;
 
   /** Information collected about the current object. */
   protected V thisValue;
 
   /** Information collected about fields, using the internal representation {@link FieldAccess}. */
-  protected Map<FieldAccess, V> fieldValues;
+  protected PersistentHashMap<FieldAccess, V> fieldValues;
 
   /**
    * Returns information about fields. Clients should not side-effect the returned value, which is
@@ -92,19 +94,19 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    * Information collected about array elements, using the internal representation {@link
    * ArrayAccess}.
    */
-  protected final Map<ArrayAccess, V> arrayValues;
+  protected final PersistentHashMap<ArrayAccess, V> arrayValues;
 
   /**
    * Information collected about the expressions to which method calls evaluate, using the internal
    * representation {@link MethodCall}.
    */
-  protected final Map<MethodCall, V> methodCallExpressions;
+  protected final PersistentHashMap<MethodCall, V> methodCallExpressions;
 
   /**
    * Information collected about <i>classname</i>.class values, using the internal representation
    * {@link ClassName}.
    */
-  protected final Map<ClassName, V> classValues;
+  protected final PersistentHashMap<ClassName, V> classValues;
 
   /**
    * Should the analysis use sequential Java semantics (i.e., assume that only one thread is running
@@ -141,12 +143,12 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    */
   protected CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis, boolean sequentialSemantics) {
     this.analysis = analysis;
-    this.localVariableValues = new HashMap<>();
+    this.localVariableValues = new PersistentHashMap<>();
     this.thisValue = null;
-    this.fieldValues = new HashMap<>();
-    this.methodCallExpressions = new HashMap<>();
-    this.arrayValues = new HashMap<>();
-    this.classValues = new HashMap<>();
+    this.fieldValues = new PersistentHashMap<>();
+    this.methodCallExpressions = new PersistentHashMap<>();
+    this.arrayValues = new PersistentHashMap<>();
+    this.classValues = new PersistentHashMap<>();
     this.sequentialSemantics = sequentialSemantics;
     this.assumeSideEffectFree =
         analysis.checker.hasOption("assumeSideEffectFree")
@@ -161,12 +163,12 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    */
   protected CFAbstractStore(CFAbstractStore<V, S> other) {
     this.analysis = other.analysis;
-    this.localVariableValues = new HashMap<>(other.localVariableValues);
+    this.localVariableValues = other.localVariableValues.copy();
     this.thisValue = other.thisValue;
-    this.fieldValues = new HashMap<>(other.fieldValues);
-    this.methodCallExpressions = new HashMap<>(other.methodCallExpressions);
-    this.arrayValues = new HashMap<>(other.arrayValues);
-    this.classValues = new HashMap<>(other.classValues);
+    this.fieldValues = other.fieldValues.copy();
+    this.methodCallExpressions = other.methodCallExpressions.copy();
+    this.arrayValues = other.arrayValues.copy();
+    this.classValues = other.classValues.copy();
     this.sequentialSemantics = other.sequentialSemantics;
     this.assumeSideEffectFree = other.assumeSideEffectFree;
     this.assumePureGetters = other.assumePureGetters;
@@ -376,7 +378,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    */
   private void updateFieldValuesForMethodCall(
       GenericAnnotatedTypeFactory<V, S, ?, ?> atypeFactory) {
-    Map<FieldAccess, V> newFieldValues = new HashMap<>(CollectionsPlume.mapCapacity(fieldValues));
+    PersistentHashMap<FieldAccess, V> newFieldValues = new PersistentHashMap<>();
     for (Map.Entry<FieldAccess, V> e : fieldValues.entrySet()) {
       FieldAccess fieldAccess = e.getKey();
       V previousValue = e.getValue();
@@ -1178,21 +1180,15 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
 
   private S upperBound(S other, boolean shouldWiden) {
     S newStore = analysis.createEmptyStore(sequentialSemantics);
+    // Information about expressions that are only part of one store, but not the other, is
+    // discarded, as one store implicitly contains 'top' for that expression.  The entries that
+    // the stores share are kept as they are, because the upper bound of a value and itself is
+    // the value.
+    BinaryOperator<V> merge =
+        (thisVal, otherVal) -> upperBoundOfValues(otherVal, thisVal, shouldWiden);
 
-    for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-      // local variables that are only part of one store, but not the other are discarded, as
-      // one of store implicitly contains 'top' for that variable.
-      LocalVariable localVar = e.getKey();
-      V thisVal = localVariableValues.get(localVar);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-
-        if (mergedVal != null) {
-          newStore.localVariableValues.put(localVar, mergedVal);
-        }
-      }
-    }
+    newStore.localVariableValues.setToIntersection(
+        localVariableValues, other.localVariableValues, merge);
 
     // information about the current object
     {
@@ -1205,56 +1201,11 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
       }
     }
 
-    for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-      // information about fields that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that field.
-      FieldAccess el = e.getKey();
-      V thisVal = fieldValues.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.fieldValues.put(el, mergedVal);
-        }
-      }
-    }
-    for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-      // information about arrays that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that array access.
-      ArrayAccess el = e.getKey();
-      V thisVal = arrayValues.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.arrayValues.put(el, mergedVal);
-        }
-      }
-    }
-    for (Map.Entry<MethodCall, V> e : other.methodCallExpressions.entrySet()) {
-      // information about methods that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that field.
-      MethodCall el = e.getKey();
-      V thisVal = methodCallExpressions.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.methodCallExpressions.put(el, mergedVal);
-        }
-      }
-    }
-    for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-      ClassName el = e.getKey();
-      V thisVal = classValues.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.classValues.put(el, mergedVal);
-        }
-      }
-    }
+    newStore.fieldValues.setToIntersection(fieldValues, other.fieldValues, merge);
+    newStore.arrayValues.setToIntersection(arrayValues, other.arrayValues, merge);
+    newStore.methodCallExpressions.setToIntersection(
+        methodCallExpressions, other.methodCallExpressions, merge);
+    newStore.classValues.setToIntersection(classValues, other.classValues, merge);
     return newStore;
   }
 
@@ -1269,45 +1220,12 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    * predicate.
    */
   protected boolean supersetOf(CFAbstractStore<V, S> other) {
-    for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-      LocalVariable key = e.getKey();
-      V value = localVariableValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    if (!Objects.equals(thisValue, other.thisValue)) {
-      return false;
-    }
-    for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-      FieldAccess key = e.getKey();
-      V value = fieldValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-      ArrayAccess key = e.getKey();
-      V value = arrayValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    for (Map.Entry<MethodCall, V> e : other.methodCallExpressions.entrySet()) {
-      MethodCall key = e.getKey();
-      V value = methodCallExpressions.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-      ClassName key = e.getKey();
-      V value = classValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    return true;
+    return localVariableValues.containsAllEntriesOf(other.localVariableValues)
+        && Objects.equals(thisValue, other.thisValue)
+        && fieldValues.containsAllEntriesOf(other.fieldValues)
+        && arrayValues.containsAllEntriesOf(other.arrayValues)
+        && methodCallExpressions.containsAllEntriesOf(other.methodCallExpressions)
+        && classValues.containsAllEntriesOf(other.classValues);
   }
 
   @Override
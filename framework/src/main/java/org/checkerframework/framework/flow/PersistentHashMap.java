@@ -0,0 +1,701 @@
+package org.checkerframework.framework.flow;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A map whose entries are stored in a persistent hash array mapped trie. The trie is never mutated:
+ * an update creates new nodes along the path to the updated entry and shares every other node with
+ * the previous version. Therefore {@link #copy()} takes constant time, and a map and its copies
+ * share the subtrees that have not been updated since the copy was made. The operations that
+ * compare or combine two maps, {@link #containsAllEntriesOf} and {@link #setToIntersection}, skip
+ * the shared subtrees.
+ *
+ * <p>Null keys are not permitted. An iterator returns the entries that were in the map when the
+ * iterator was created, even if the map is modified during the iteration; {@link Iterator#remove}
+ * and {@link Map.Entry#setValue} write through to the map.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  /** The number of bits of the hash code that select a child of a {@link Branch}. */
+  private static final int BITS = 5;
+
+  /** Mask for {@link #BITS} bits. */
+  private static final int MASK = (1 << BITS) - 1;
+
+  /** The root of the trie: null if the map is empty, and otherwise a node. */
+  private @Nullable Object root;
+
+  /** Creates an empty map. */
+  public PersistentHashMap() {
+    this.root = null;
+  }
+
+  /**
+   * Creates a map with the given trie.
+   *
+   * @param root the root of the trie
+   */
+  private PersistentHashMap(@Nullable Object root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns a copy of this map. Takes constant time.
+   *
+   * @return a copy of this map
+   */
+  public PersistentHashMap<K, V> copy() {
+    return new PersistentHashMap<>(root);
+  }
+
+  /**
+   * Returns true if this map contains every entry of {@code other}, where values are compared by
+   * {@code equals}. Does not examine the subtrees that the maps share.
+   *
+   * @param other another map
+   * @return true if this map contains every entry of {@code other}
+   */
+  public boolean containsAllEntriesOf(PersistentHashMap<K, V> other) {
+    return includes(root, other.root, 0);
+  }
+
+  /**
+   * Replaces the contents of this map by the keys that are mapped to a non-null value in both
+   * {@code a} and {@code b}. The value for such a key is {@code merge} applied to its value in
+   * {@code a} and its value in {@code b}; if the result is null, the key is omitted.
+   *
+   * <p>A key that {@code a} and {@code b} map to the same value object is mapped to that value
+   * without calling {@code merge}. So are all keys of a subtree that {@code a} and {@code b} share,
+   * which is not examined. Therefore, {@code merge} must satisfy {@code merge(v, v).equals(v)}.
+   *
+   * @param a a map
+   * @param b another map
+   * @param merge the function that combines the value of a key in {@code a} and in {@code b}
+   */
+  @SuppressWarnings("unchecked") // The trie stores keys of type K and values of type V.
+  public void setToIntersection(
+      PersistentHashMap<K, V> a, PersistentHashMap<K, V> b, BinaryOperator<V> merge) {
+    root = intersect(a.root, b.root, 0, (BinaryOperator<Object>) merge);
+  }
+
+  /* --------------------------------------------------------- */
+  /* Map operations */
+  /* --------------------------------------------------------- */
+
+  @Override
+  public int size() {
+    return size(root);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // The trie stores values of type V.
+  public @Nullable V get(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    Leaf leaf = findLeaf(root, key.hashCode(), key, 0);
+    return leaf == null ? null : (V) leaf.value;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return key != null && findLeaf(root, key.hashCode(), key, 0) != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // The trie stores values of type V.
+  public @Nullable V put(K key, V value) {
+    int hash = key.hashCode();
+    Leaf old = findLeaf(root, hash, key, 0);
+    root = put(root, new Leaf(hash, key, value), 0);
+    return old == null ? null : (V) old.value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // The trie stores values of type V.
+  public @Nullable V remove(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    int hash = key.hashCode();
+    Leaf old = findLeaf(root, hash, key, 0);
+    if (old == null) {
+      return null;
+    }
+    root = remove(root, hash, key, 0);
+    return (V) old.value;
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return PersistentHashMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        PersistentHashMap.this.clear();
+      }
+    };
+  }
+
+  /** Iterates over the entries of the map when the iterator was created. */
+  private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+    /** The leaves of the trie. */
+    private final LeafIterator leaves = new LeafIterator(root);
+
+    /** The leaf returned by the last call to {@link #next}, or null. */
+    private @Nullable Leaf last = null;
+
+    /** Creates an EntryIterator. */
+    EntryIterator() {}
+
+    @Override
+    public boolean hasNext() {
+      return leaves.hasNext();
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      last = leaves.next();
+      return new WriteThroughEntry(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      PersistentHashMap.this.remove(last.key);
+      last = null;
+    }
+  }
+
+  /** An entry whose {@link #setValue} updates the map. */
+  private final class WriteThroughEntry extends AbstractMap.SimpleEntry<K, V> {
+
+    /** The serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a WriteThroughEntry.
+     *
+     * @param leaf the leaf of the entry
+     */
+    @SuppressWarnings("unchecked") // The trie stores keys of type K and values of type V.
+    WriteThroughEntry(Leaf leaf) {
+      super((K) leaf.key, (V) leaf.value);
+    }
+
+    @Override
+    public V setValue(V value) {
+      V old = super.setValue(value);
+      put(getKey(), value);
+      return old;
+    }
+  }
+
+  /* --------------------------------------------------------- */
+  /* Nodes of the trie */
+  /* --------------------------------------------------------- */
+
+  // A node is a Leaf, a Collision, or a Branch.  Nodes are immutable.
+
+  /** A single entry of the map. */
+  private static final class Leaf {
+    /** The hash code of the key. */
+    final int hash;
+
+    /** The key. */
+    final Object key;
+
+    /** The value. */
+    final @Nullable Object value;
+
+    /**
+     * Creates a Leaf.
+     *
+     * @param hash the hash code of {@code key}
+     * @param key the key
+     * @param value the value
+     */
+    Leaf(int hash, Object key, @Nullable Object value) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /** The entries for two or more keys that have the same hash code. */
+  private static final class Collision {
+    /** The hash code of the keys. */
+    final int hash;
+
+    /** The entries, whose keys are distinct. */
+    final Leaf[] leaves;
+
+    /**
+     * Creates a Collision.
+     *
+     * @param hash the hash code of the keys
+     * @param leaves the entries; at least two
+     */
+    Collision(int hash, Leaf[] leaves) {
+      this.hash = hash;
+      this.leaves = leaves;
+    }
+  }
+
+  /**
+   * An interior node. Child number i, for 0 &le; i &lt; 32, exists if bit i of {@link #bitmap} is
+   * set. It contains the entries whose hash codes have value i in the bits that this node examines.
+   */
+  private static final class Branch {
+    /** Which children exist. */
+    final int bitmap;
+
+    /** The children that exist, in increasing order of their numbers. */
+    final Object[] children;
+
+    /** The number of entries in this subtree. */
+    final int size;
+
+    /**
+     * Creates a Branch.
+     *
+     * @param bitmap which children exist
+     * @param children the children
+     * @param size the number of entries in the subtree
+     */
+    Branch(int bitmap, Object[] children, int size) {
+      this.bitmap = bitmap;
+      this.children = children;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Returns a node with the given children. Returns the child itself, rather than a new Branch, if
+   * there is just one child and it is not a Branch.
+   *
+   * @param bitmap which children exist
+   * @param children the children
+   * @param size the number of entries in the children
+   * @return a node with the given children
+   */
+  private static Object branch(int bitmap, Object[] children, int size) {
+    if (children.length == 1 && !(children[0] instanceof Branch)) {
+      return children[0];
+    }
+    return new Branch(bitmap, children, size);
+  }
+
+  /**
+   * Returns the number of entries in a subtree.
+   *
+   * @param node a node, or null
+   * @return the number of entries in the subtree
+   */
+  private static int size(@Nullable Object node) {
+    if (node == null) {
+      return 0;
+    } else if (node instanceof Leaf) {
+      return 1;
+    } else if (node instanceof Collision) {
+      return ((Collision) node).leaves.length;
+    } else {
+      return ((Branch) node).size;
+    }
+  }
+
+  /**
+   * Returns the bit for the child of a Branch that examines the bits starting at {@code shift} and
+   * that contains {@code hash}.
+   *
+   * @param hash a hash code
+   * @param shift the position of the lowest bit examined by the Branch
+   * @return the bit for the child that contains {@code hash}
+   */
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * Returns the index in {@link Branch#children} of the child with the given bit.
+   *
+   * @param bitmap the bitmap of a Branch
+   * @param bit the bit of a child
+   * @return the index of the child
+   */
+  private static int index(int bitmap, int bit) {
+    return Integer.bitCount(bitmap & (bit - 1));
+  }
+
+  /**
+   * Returns the entry for {@code key} in a subtree.
+   *
+   * @param node a node, or null
+   * @param hash the hash code of {@code key}
+   * @param key a key
+   * @param shift the position of the lowest bit examined by {@code node}, if it is a Branch
+   * @return the entry for {@code key}, or null if there is none
+   */
+  private static @Nullable Leaf findLeaf(
+      @Nullable Object node, int hash, Object key, int shift) {
+    while (node instanceof Branch) {
+      Branch branch = (Branch) node;
+      int bit = bit(hash, shift);
+      if ((branch.bitmap & bit) == 0) {
+        return null;
+      }
+      node = branch.children[index(branch.bitmap, bit)];
+      shift += BITS;
+    }
+    if (node instanceof Leaf) {
+      Leaf leaf = (Leaf) node;
+      return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+    } else if (node instanceof Collision) {
+      Collision collision = (Collision) node;
+      if (collision.hash == hash) {
+        for (Leaf leaf : collision.leaves) {
+          if (leaf.key.equals(key)) {
+            return leaf;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a subtree that is like {@code node}, but contains the entry {@code leaf}. Returns
+   * {@code node} itself if it already contains that entry.
+   *
+   * @param node a node, or null
+   * @param leaf the entry to put
+   * @param shift the position of the lowest bit examined by {@code node}, if it is a Branch
+   * @return the updated subtree
+   */
+  private static Object put(@Nullable Object node, Leaf leaf, int shift) {
+    if (node == null) {
+      return leaf;
+    } else if (node instanceof Leaf) {
+      Leaf old = (Leaf) node;
+      if (old.hash != leaf.hash) {
+        return join(old, old.hash, leaf, leaf.hash, shift);
+      } else if (old.key.equals(leaf.key)) {
+        return old.value == leaf.value ? old : leaf;
+      } else {
+        return new Collision(leaf.hash, new Leaf[] {old, leaf});
+      }
+    } else if (node instanceof Collision) {
+      Collision collision = (Collision) node;
+      if (collision.hash != leaf.hash) {
+        return join(collision, collision.hash, leaf, leaf.hash, shift);
+      }
+      Leaf[] leaves = collision.leaves;
+      for (int i = 0; i < leaves.length; i++) {
+        if (leaves[i].key.equals(leaf.key)) {
+          if (leaves[i].value == leaf.value) {
+            return collision;
+          }
+          leaves = leaves.clone();
+          leaves[i] = leaf;
+          return new Collision(leaf.hash, leaves);
+        }
+      }
+      leaves = Arrays.copyOf(leaves, leaves.length + 1);
+      leaves[leaves.length - 1] = leaf;
+      return new Collision(leaf.hash, leaves);
+    } else {
+      Branch branch = (Branch) node;
+      int bit = bit(leaf.hash, shift);
+      int index = index(branch.bitmap, bit);
+      Object[] children;
+      if ((branch.bitmap & bit) == 0) {
+        children = new Object[branch.children.length + 1];
+        System.arraycopy(branch.children, 0, children, 0, index);
+        children[index] = leaf;
+        System.arraycopy(
+            branch.children, index, children, index + 1, branch.children.length - index);
+        return new Branch(branch.bitmap | bit, children, branch.size + 1);
+      }
+      Object child = branch.children[index];
+      Object newChild = put(child, leaf, shift + BITS);
+      if (newChild == child) {
+        return branch;
+      }
+      children = branch.children.clone();
+      children[index] = newChild;
+      return new Branch(branch.bitmap, children, branch.size - size(child) + size(newChild));
+    }
+  }
+
+  /**
+   * Returns a Branch that contains two Leaf or Collision nodes with different hash codes.
+   *
+   * @param node1 a Leaf or Collision
+   * @param hash1 the hash code of the keys of {@code node1}
+   * @param node2 another Leaf or Collision
+   * @param hash2 the hash code of the keys of {@code node2}; different from {@code hash1}
+   * @param shift the position of the lowest bit examined by the result
+   * @return a Branch that contains both nodes
+   */
+  private static Branch join(Object node1, int hash1, Object node2, int hash2, int shift) {
+    int bit1 = bit(hash1, shift);
+    int bit2 = bit(hash2, shift);
+    int size = size(node1) + size(node2);
+    if (bit1 == bit2) {
+      return new Branch(bit1, new Object[] {join(node1, hash1, node2, hash2, shift + BITS)}, size);
+    }
+    Object[] children = bit1 < bit2 ? new Object[] {node1, node2} : new Object[] {node2, node1};
+    return new Branch(bit1 | bit2, children, size);
+  }
+
+  /**
+   * Returns a subtree that is like {@code node}, but does not contain {@code key}.
+   *
+   * @param node a node, or null
+   * @param hash the hash code of {@code key}
+   * @param key the key to remove
+   * @param shift the position of the lowest bit examined by {@code node}, if it is a Branch
+   * @return the updated subtree, or null if it is empty
+   */
+  private static @Nullable Object remove(@Nullable Object node, int hash, Object key, int shift) {
+    if (node == null) {
+      return null;
+    } else if (node instanceof Leaf) {
+      Leaf leaf = (Leaf) node;
+      return leaf.hash == hash && leaf.key.equals(key) ? null : leaf;
+    } else if (node instanceof Collision) {
+      Collision collision = (Collision) node;
+      if (collision.hash != hash) {
+        return collision;
+      }
+      Leaf[] leaves = collision.leaves;
+      for (int i = 0; i < leaves.length; i++) {
+        if (leaves[i].key.equals(key)) {
+          if (leaves.length == 2) {
+            return leaves[1 - i];
+          }
+          Leaf[] newLeaves = new Leaf[leaves.length - 1];
+          System.arraycopy(leaves, 0, newLeaves, 0, i);
+          System.arraycopy(leaves, i + 1, newLeaves, i, leaves.length - i - 1);
+          return new Collision(hash, newLeaves);
+        }
+      }
+      return collision;
+    } else {
+      Branch branch = (Branch) node;
+      int bit = bit(hash, shift);
+      if ((branch.bitmap & bit) == 0) {
+        return branch;
+      }
+      int index = index(branch.bitmap, bit);
+      Object child = branch.children[index];
+      Object newChild = remove(child, hash, key, shift + BITS);
+      if (newChild == child) {
+        return branch;
+      }
+      int size = branch.size - size(child) + size(newChild);
+      if (newChild != null) {
+        Object[] children = branch.children.clone();
+        children[index] = newChild;
+        return branch(branch.bitmap, children, size);
+      }
+      if (branch.children.length == 1) {
+        return null;
+      }
+      Object[] children = new Object[branch.children.length - 1];
+      System.arraycopy(branch.children, 0, children, 0, index);
+      System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+      return branch(branch.bitmap & ~bit, children, size);
+    }
+  }
+
+  /**
+   * Returns true if the subtree {@code a} contains every entry of the subtree {@code b}.
+   *
+   * @param a a node, or null
+   * @param b a node, or null
+   * @param shift the position of the lowest bit examined by {@code a} and {@code b}, if they are
+   *     Branches
+   * @return true if {@code a} contains every entry of {@code b}
+   */
+  private static boolean includes(@Nullable Object a, @Nullable Object b, int shift) {
+    if (a == b || b == null) {
+      return true;
+    } else if (a == null || size(a) < size(b)) {
+      return false;
+    } else if (a instanceof Branch && b instanceof Branch) {
+      Branch branchA = (Branch) a;
+      Branch branchB = (Branch) b;
+      if ((branchB.bitmap & ~branchA.bitmap) != 0) {
+        return false;
+      }
+      for (int bits = branchB.bitmap; bits != 0; bits &= bits - 1) {
+        int bit = Integer.lowestOneBit(bits);
+        if (!includes(
+            branchA.children[index(branchA.bitmap, bit)],
+            branchB.children[index(branchB.bitmap, bit)],
+            shift + BITS)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (LeafIterator leaves = new LeafIterator(b); leaves.hasNext(); ) {
+      Leaf leaf = leaves.next();
+      Leaf match = findLeaf(a, leaf.hash, leaf.key, shift);
+      if (match == null || !Objects.equals(match.value, leaf.value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the subtree for {@link #setToIntersection}.
+   *
+   * @param a a node, or null
+   * @param b a node, or null
+   * @param shift the position of the lowest bit examined by {@code a} and {@code b}, if they are
+   *     Branches
+   * @param merge the function that combines a value in {@code a} and a value in {@code b}
+   * @return the intersection of {@code a} and {@code b}, or null if it is empty
+   */
+  private static @Nullable Object intersect(
+      @Nullable Object a, @Nullable Object b, int shift, BinaryOperator<Object> merge) {
+    if (a == b) {
+      return a;
+    } else if (a == null || b == null) {
+      return null;
+    } else if (a instanceof Branch && b instanceof Branch) {
+      Branch branchA = (Branch) a;
+      Branch branchB = (Branch) b;
+      int common = branchA.bitmap & branchB.bitmap;
+      Object[] children = new Object[Integer.bitCount(common)];
+      int bitmap = 0;
+      int count = 0;
+      int size = 0;
+      for (int bits = common; bits != 0; bits &= bits - 1) {
+        int bit = Integer.lowestOneBit(bits);
+        Object child =
+            intersect(
+                branchA.children[index(branchA.bitmap, bit)],
+                branchB.children[index(branchB.bitmap, bit)],
+                shift + BITS,
+                merge);
+        if (child != null) {
+          children[count++] = child;
+          bitmap |= bit;
+          size += size(child);
+        }
+      }
+      if (count == 0) {
+        return null;
+      }
+      if (count < children.length) {
+        children = Arrays.copyOf(children, count);
+      }
+      return branch(bitmap, children, size);
+    }
+    // At least one of the nodes is a Leaf or a Collision, so it has few entries.  Look them up in
+    // the other node.
+    boolean aIsSmall = !(a instanceof Branch);
+    Object small = aIsSmall ? a : b;
+    Object large = aIsSmall ? b : a;
+    Object result = null;
+    for (LeafIterator leaves = new LeafIterator(small); leaves.hasNext(); ) {
+      Leaf leaf = leaves.next();
+      Leaf match = findLeaf(large, leaf.hash, leaf.key, shift);
+      if (match == null || match.value == null || leaf.value == null) {
+        continue;
+      }
+      Leaf leafA = aIsSmall ? leaf : match;
+      Leaf leafB = aIsSmall ? match : leaf;
+      if (leafA.value == leafB.value) {
+        result = put(result, leafA, shift);
+      } else {
+        Object value = merge.apply(leafA.value, leafB.value);
+        if (value != null) {
+          result = put(result, new Leaf(leafA.hash, leafA.key, value), shift);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Iterates over the entries of a subtree. */
+  private static final class LeafIterator implements Iterator<Leaf> {
+
+    /**
+     * The nodes whose entries have not been returned yet. No node is empty, so the iteration is
+     * finished when this is empty.
+     */
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+    /**
+     * Creates a LeafIterator.
+     *
+     * @param node the subtree whose entries to iterate over, or null
+     */
+    LeafIterator(@Nullable Object node) {
+      if (node != null) {
+        pending.push(node);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !pending.isEmpty();
+    }
+
+    @Override
+    public Leaf next() {
+      while (!pending.isEmpty()) {
+        Object node = pending.pop();
+        if (node instanceof Leaf) {
+          return (Leaf) node;
+        }
+        Object[] children =
+            node instanceof Collision ? ((Collision) node).leaves : ((Branch) node).children;
+        for (int i = children.length - 1; i >= 0; i--) {
+          pending.push(children[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+  }
+}
@@ -0,0 +1,532 @@
+package org.checkerframework.framework.source;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.code.Symbol;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.interning.qual.InternedDistinct;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * Remembers, between runs of a checker, the diagnostics that the checker issued for each class and
+ * the declarations outside the class's compilation unit whose annotated types the checker read
+ * while type-checking the class. Used for the {@code -AincrementalCache} command-line option.
+ *
+ * <p>A class is not type-checked again, and its recorded diagnostics are issued instead, if:
+ *
+ * <ul>
+ *   <li>the checker, its version, its command-line options, and the {@code -Astubs} and {@code
+ *       -Aajava} files are the same as when the diagnostics were recorded;
+ *   <li>the source file that contains the class is unchanged; and
+ *   <li>each declaration that the class depended on still exists and has the same annotated type
+ *       and declaration annotations, and, if it is a class, the same annotated supertypes
+ *       throughout its class hierarchy, according to {@link SourceChecker#getSignatureFingerprint}.
+ * </ul>
+ *
+ * A checker reads the annotated type of a declaration via {@link
+ * org.checkerframework.framework.type.AnnotatedTypeFactory#fromElement} and {@link
+ * org.checkerframework.framework.type.AnnotatedTypeFactory#getDeclAnnotations}, which call {@link
+ * SourceChecker#recordDependency}.
+ *
+ * <p>Only those reads are recorded, so the cache can replay out-of-date diagnostics. It does not
+ * notice a change to another compilation unit that affects a class only through:
+ *
+ * <ul>
+ *   <li>javac's own attribution of the class, such as which overload of a method a call resolves
+ *       to, which inherited or imported member a name refers to, or the value of a constant that
+ *       javac inlines; or
+ *   <li>queries that the checker makes directly on {@code Element}s or {@code TypeMirror}s, for
+ *       example via {@link javax.lang.model.util.Elements}, {@link javax.lang.model.util.Types},
+ *       or {@code Element.getEnclosedElements()}, rather than via the type factory.
+ * </ul>
+ *
+ * For example, adding a more specific overload of a method in another class does not cause the
+ * callers of the method to be type-checked again. Delete the cache directory after such a change.
+ */
+final class IncrementalTypecheckCache {
+
+  /** The version of the format of the cache file. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** The checker whose results are cached. */
+  private final SourceChecker checker;
+
+  /** The file that stores the cache between runs. */
+  private final Path file;
+
+  /**
+   * A description of everything, other than source code, that affects the checker's diagnostics.
+   * The cache file is ignored if it was written with a different configuration.
+   */
+  private final String configuration;
+
+  /** Maps the fully-qualified name of a top-level class to what was recorded for it. */
+  private final Map<String, ClassRecord> records;
+
+  /** The class whose dependencies and diagnostics are being recorded, or null. */
+  private @Nullable TypeElement recordingClass = null;
+
+  /** The compilation unit that contains {@link #recordingClass}. */
+  private @Nullable @InternedDistinct CompilationUnitTree recordingRoot = null;
+
+  /** The dependencies of {@link #recordingClass} so far. */
+  private final Set<Element> recordedDependencies = new LinkedHashSet<>();
+
+  /** The diagnostics issued for {@link #recordingClass} so far. */
+  private final List<MessageRecord> recordedMessages = new ArrayList<>();
+
+  /** The compilation unit whose hash is {@link #sourceHash}. */
+  private @Nullable @InternedDistinct CompilationUnitTree hashedRoot = null;
+
+  /** The hash of the source code of {@link #hashedRoot}. */
+  private @Nullable String sourceHash = null;
+
+  /** The number of classes whose diagnostics were replayed from the cache. */
+  private int replayed = 0;
+
+  /** The number of classes that were type-checked. */
+  private int typechecked = 0;
+
+  /**
+   * Creates an IncrementalTypecheckCache, reading the cache file if it exists and was written with
+   * the same configuration.
+   *
+   * @param checker the checker whose results are cached
+   * @param directory the directory that contains the cache file
+   * @param configuration a description of everything, other than source code, that affects the
+   *     checker's diagnostics
+   */
+  IncrementalTypecheckCache(SourceChecker checker, Path directory, String configuration) {
+    this.checker = checker;
+    this.file = directory.resolve(checker.getClass().getName() + ".cache");
+    this.configuration = configuration;
+    this.records = read();
+  }
+
+  /**
+   * Reads the cache file.
+   *
+   * @return the records in the cache file, or an empty map if the file does not exist, cannot be
+   *     read, or was written with a different configuration
+   */
+  @SuppressWarnings("unchecked") // the cache file is only written by save()
+  private Map<String, ClassRecord> read() {
+    try (ObjectInputStream in =
+        new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() == FORMAT_VERSION && configuration.equals(in.readUTF())) {
+        return (Map<String, ClassRecord>) in.readObject();
+      }
+    } catch (NoSuchFileException e) {
+      // This is the first run.
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // The cache file is corrupt or was written by a different version of the Checker
+      // Framework. Start over.
+    }
+    return new HashMap<>();
+  }
+
+  /**
+   * Writes the cache file.
+   *
+   * @throws UserError if the file cannot be written
+   */
+  void save() {
+    try {
+      Files.createDirectories(file.getParent());
+      try (ObjectOutputStream out =
+          new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(configuration);
+        out.writeObject(records);
+      }
+    } catch (IOException e) {
+      throw new UserError("Cannot write -AincrementalCache file %s: %s", file, e.getMessage());
+    }
+  }
+
+  /**
+   * If the diagnostics for the given class are in the cache and are still valid, issues them and
+   * returns true. Otherwise, returns false; the caller should type-check the class.
+   *
+   * @param e a top-level class
+   * @param root the compilation unit that contains {@code e}
+   * @return true if the class need not be type-checked
+   */
+  boolean replay(TypeElement e, CompilationUnitTree root) {
+    ClassRecord record = records.get(e.getQualifiedName().toString());
+    if (record == null || !record.sourceHash.equals(getSourceHash(root))) {
+      return false;
+    }
+    for (Map.Entry<String, String> dependency : record.dependencies.entrySet()) {
+      Element elt = resolve(dependency.getKey());
+      if (elt == null || !dependency.getValue().equals(checker.getSignatureFingerprint(elt))) {
+        return false;
+      }
+    }
+    List<Tree> trees = findTrees(root, record.messages);
+    if (trees == null) {
+      return false;
+    }
+    for (int i = 0; i < trees.size(); i++) {
+      MessageRecord message = record.messages.get(i);
+      checker.printOrStoreMessage(message.kind, message.message, trees.get(i), root);
+    }
+    replayed++;
+    return true;
+  }
+
+  /**
+   * Starts recording the dependencies and diagnostics of the given class.
+   *
+   * @param e a top-level class that is about to be type-checked
+   * @param root the compilation unit that contains {@code e}
+   */
+  @SuppressWarnings("interning:assignment") // used in == tests
+  void startRecording(TypeElement e, CompilationUnitTree root) {
+    recordingClass = e;
+    recordingRoot = root;
+    recordedDependencies.clear();
+    recordedMessages.clear();
+  }
+
+  /**
+   * Records that the class being type-checked depends on the annotated type of the given
+   * declaration. Does nothing if no class is being recorded or if the declaration is in the same
+   * compilation unit as the class.
+   *
+   * @param elt a declaration whose annotated type was read
+   */
+  void recordDependency(Element elt) {
+    if (recordingRoot == null || keyFor(elt) == null) {
+      return;
+    }
+    TypeElement topLevel = ElementUtils.toplevelEnclosingTypeElement(elt);
+    JavaFileObject sourceFile = ((Symbol.ClassSymbol) topLevel).sourcefile;
+    if (sourceFile != null && sourceFile.toUri().equals(recordingRoot.getSourceFile().toUri())) {
+      // The source hash covers this declaration.
+      return;
+    }
+    recordedDependencies.add(elt);
+  }
+
+  /**
+   * Records a diagnostic issued for the class being type-checked. Does nothing if no class is being
+   * recorded.
+   *
+   * @param kind the kind of diagnostic
+   * @param message the text of the diagnostic
+   * @param source the tree that the diagnostic is about
+   */
+  void recordMessage(Diagnostic.Kind kind, String message, Tree source) {
+    if (recordingRoot == null) {
+      return;
+    }
+    SourcePositions positions =
+        Trees.instance(checker.getProcessingEnvironment()).getSourcePositions();
+    recordedMessages.add(
+        new MessageRecord(
+            kind,
+            message,
+            source.getKind(),
+            positions.getStartPosition(recordingRoot, source),
+            positions.getEndPosition(recordingRoot, source)));
+  }
+
+  /**
+   * Stops recording, and stores what was recorded in the cache.
+   *
+   * @param completedNormally false if the checker crashed, in which case nothing is stored
+   */
+  void finishRecording(boolean completedNormally) {
+    TypeElement e = recordingClass;
+    CompilationUnitTree root = recordingRoot;
+    // Stop recording before computing fingerprints, which reads more annotated types.
+    recordingClass = null;
+    recordingRoot = null;
+    if (e == null || root == null) {
+      return;
+    }
+    typechecked++;
+    String name = e.getQualifiedName().toString();
+    if (!completedNormally) {
+      records.remove(name);
+      return;
+    }
+    Map<String, String> dependencies = new LinkedHashMap<>();
+    for (Element elt : recordedDependencies) {
+      String key = keyFor(elt);
+      if (key != null) {
+        dependencies.put(key, checker.getSignatureFingerprint(elt));
+      }
+    }
+    records.put(
+        name,
+        new ClassRecord(getSourceHash(root), dependencies, new ArrayList<>(recordedMessages)));
+  }
+
+  /**
+   * Returns a human-readable summary of the use of this cache, for {@code -AresourceStats}.
+   *
+   * @return a summary of the use of this cache
+   */
+  String getStatistics() {
+    return String.format(
+        "Incremental type-checking: %d classes replayed from the cache, %d type-checked",
+        replayed, typechecked);
+  }
+
+  /**
+   * Returns a string that identifies the given declaration across runs of the compiler, or null if
+   * this class does not track dependencies on such declarations.
+   *
+   * @param elt a declaration
+   * @return a string that identifies {@code elt}, or null
+   */
+  private static @Nullable String keyFor(Element elt) {
+    if (elt instanceof TypeElement) {
+      String name = ((TypeElement) elt).getQualifiedName().toString();
+      // Local and anonymous classes have no name, but are never in another compilation unit.
+      return name.isEmpty() ? null : "T " + name;
+    }
+    switch (elt.getKind()) {
+      case FIELD:
+      case ENUM_CONSTANT:
+      case METHOD:
+      case CONSTRUCTOR:
+        Element enclosing = elt.getEnclosingElement();
+        if (!(enclosing instanceof TypeElement)) {
+          return null;
+        }
+        String enclosingKey = keyFor(enclosing);
+        if (enclosingKey == null) {
+          return null;
+        }
+        return "M " + enclosingKey.substring(2) + " " + elt.getKind() + " " + elt;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the declaration identified by the given key, or null if it no longer exists.
+   *
+   * @param key a string returned by {@link #keyFor}
+   * @return the declaration identified by {@code key}, or null
+   */
+  private @Nullable Element resolve(String key) {
+    String[] parts = key.split(" ", 4);
+    TypeElement type = checker.getElementUtils().getTypeElement(parts[1]);
+    if (type == null || parts[0].equals("T")) {
+      return type;
+    }
+    if (parts.length != 4) {
+      throw new BugInCF("Malformed key in -AincrementalCache file: " + key);
+    }
+    for (Element member : type.getEnclosedElements()) {
+      if (member.getKind().name().equals(parts[2]) && member.toString().equals(parts[3])) {
+        return member;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the trees in the given compilation unit that the recorded messages are about, in the
+   * same order, or null if any of them cannot be found.
+   *
+   * @param root a compilation unit whose source code is unchanged since the messages were recorded
+   * @param messages the recorded messages
+   * @return the trees that {@code messages} are about, or null
+   */
+  private @Nullable List<Tree> findTrees(CompilationUnitTree root, List<MessageRecord> messages) {
+    if (messages.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Map<String, @Nullable Tree> found = new HashMap<>();
+    for (MessageRecord message : messages) {
+      found.put(message.treeKey(), null);
+    }
+    SourcePositions positions =
+        Trees.instance(checker.getProcessingEnvironment()).getSourcePositions();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void scan(@Nullable Tree tree, Void p) {
+        if (tree != null) {
+          String key =
+              MessageRecord.treeKey(
+                  tree.getKind(),
+                  positions.getStartPosition(root, tree),
+                  positions.getEndPosition(root, tree));
+          if (found.containsKey(key) && found.get(key) == null) {
+            found.put(key, tree);
+          }
+        }
+        return super.scan(tree, p);
+      }
+    }.scan(root, null);
+
+    List<Tree> result = new ArrayList<>(messages.size());
+    for (MessageRecord message : messages) {
+      Tree tree = found.get(message.treeKey());
+      if (tree == null) {
+        return null;
+      }
+      result.add(tree);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a hash of the source code of the given compilation unit.
+   *
+   * @param root a compilation unit
+   * @return a hash of the source code of {@code root}
+   */
+  @SuppressWarnings("interning:assignment") // used in == tests
+  private String getSourceHash(CompilationUnitTree root) {
+    if (root != hashedRoot || sourceHash == null) {
+      try {
+        CharSequence source = root.getSourceFile().getCharContent(true);
+        sourceHash = hash(source.toString().getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new BugInCF("Cannot hash " + root.getSourceFile().getName(), e);
+      }
+      hashedRoot = root;
+    }
+    return sourceHash;
+  }
+
+  /**
+   * Returns a hash of the given bytes.
+   *
+   * @param contents the bytes to hash
+   * @return a hash of {@code contents}
+   */
+  static String hash(byte[] contents) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder().encodeToString(digest.digest(contents));
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF("SHA-256 is not supported", e);
+    }
+  }
+
+  /** What was recorded for one top-level class. */
+  private static final class ClassRecord implements Serializable {
+
+    /** Unique identifier for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** The hash of the source code of the compilation unit that contains the class. */
+    final String sourceHash;
+
+    /** Maps the key of each dependency, from {@link #keyFor}, to its fingerprint. */
+    final Map<String, String> dependencies;
+
+    /** The diagnostics issued for the class, in the order they were issued. */
+    final List<MessageRecord> messages;
+
+    /**
+     * Creates a ClassRecord.
+     *
+     * @param sourceHash the hash of the source code of the compilation unit
+     * @param dependencies maps the key of each dependency to its fingerprint
+     * @param messages the diagnostics issued for the class
+     */
+    ClassRecord(String sourceHash, Map<String, String> dependencies, List<MessageRecord> messages) {
+      this.sourceHash = sourceHash;
+      this.dependencies = dependencies;
+      this.messages = messages;
+    }
+  }
+
+  /** A recorded diagnostic. */
+  private static final class MessageRecord implements Serializable {
+
+    /** Unique identifier for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** The kind of diagnostic. */
+    final Diagnostic.Kind kind;
+
+    /** The text of the diagnostic. */
+    final String message;
+
+    /** The kind of the tree that the diagnostic is about. */
+    final Tree.Kind treeKind;
+
+    /** The start position of the tree that the diagnostic is about. */
+    final long start;
+
+    /** The end position of the tree that the diagnostic is about. */
+    final long end;
+
+    /**
+     * Creates a MessageRecord.
+     *
+     * @param kind the kind of diagnostic
+     * @param message the text of the diagnostic
+     * @param treeKind the kind of the tree that the diagnostic is about
+     * @param start the start position of the tree
+     * @param end the end position of the tree
+     */
+    MessageRecord(Diagnostic.Kind kind, String message, Tree.Kind treeKind, long start, long end) {
+      this.kind = kind;
+      this.message = message;
+      this.treeKind = treeKind;
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     * Returns a string that identifies the tree that this diagnostic is about.
+     *
+     * @return a string that identifies the tree that this diagnostic is about
+     */
+    String treeKey() {
+      return treeKey(treeKind, start, end);
+    }
+
+    /**
+     * Returns a string that identifies a tree within its compilation unit.
+     *
+     * @param treeKind the kind of the tree
+     * @param start the start position of the tree
+     * @param end the end position of the tree
+     * @return a string that identifies the tree
+     */
+    static String treeKey(Tree.Kind treeKind, long start, long end) {
+      return treeKind + " " + start + " " + end;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package org.checkerframework.framework.source;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Counts and times the main phases of type-checking for one checker, in total and per compilation
+ * unit, as requested by the {@code -AphaseStats} command-line option. It also records the methods
+ * that took longest to type-check. At the end of the compilation, the checker writes the statistics
+ * of itself and its subcheckers as JSON; see {@link #toJson}.
+ *
+ * <p>Times are wall-clock times, in nanoseconds. The time of a phase includes the time of the
+ * phases nested in it: for example, the visitor phase includes every phase but stub parsing, and
+ * dataflow analysis calls {@code getAnnotatedType}. A phase that is entered while it is already
+ * running, as when {@code getAnnotatedType} of an expression calls {@code getAnnotatedType} of its
+ * subexpressions, is counted each time but timed only for the outermost call.
+ */
+public final class PhaseStatistics {
+
+  /** A phase of type-checking. */
+  public enum Phase {
+    /** Parsing stub and ajava files. */
+    STUB_PARSING("stubParsing"),
+    /** Building control flow graphs. */
+    CFG_CONSTRUCTION("cfgConstruction"),
+    /** Running dataflow analysis to a fixpoint over a control flow graph. */
+    DATAFLOW("dataflow"),
+    /** {@code AnnotatedTypeFactory.getAnnotatedType(Tree)}. */
+    GET_ANNOTATED_TYPE("getAnnotatedType"),
+    /** Subtyping checks between two annotated types. */
+    SUBTYPING("subtyping"),
+    /** Type argument inference for a method invocation, constructor call, or method reference. */
+    TYPE_ARGUMENT_INFERENCE("typeArgumentInference"),
+    /** Visiting a class with the checker's visitor. */
+    VISITOR("visitor");
+
+    /** The name of the phase in the JSON output. */
+    private final String jsonName;
+
+    /**
+     * Creates a Phase.
+     *
+     * @param jsonName the name of the phase in the JSON output
+     */
+    Phase(String jsonName) {
+      this.jsonName = jsonName;
+    }
+  }
+
+  /** An event that is counted but not timed. */
+  public enum Counter {
+    /** A lookup in one of the tree caches of {@code getAnnotatedType} found the tree. */
+    TREE_CACHE_HIT("treeCacheHits"),
+    /** A lookup in one of the tree caches of {@code getAnnotatedType} did not find the tree. */
+    TREE_CACHE_MISS("treeCacheMisses");
+
+    /** The name of the counter in the JSON output. */
+    private final String jsonName;
+
+    /**
+     * Creates a Counter.
+     *
+     * @param jsonName the name of the counter in the JSON output
+     */
+    Counter(String jsonName) {
+      this.jsonName = jsonName;
+    }
+  }
+
+  /** The number of phases. */
+  private static final int NUM_PHASES = Phase.values().length;
+
+  /** The number of counters. */
+  private static final int NUM_COUNTERS = Counter.values().length;
+
+  /** How many of the slowest methods are reported. */
+  private static final int NUM_SLOWEST_METHODS = 20;
+
+  /** The fully-qualified name of the checker. */
+  private final String checkerName;
+
+  /** For each phase, how many calls of the phase are currently running. */
+  private final int[] depth = new int[NUM_PHASES];
+
+  /** The statistics of the whole compilation. */
+  private final Totals total = new Totals();
+
+  /** The statistics of each compilation unit, by file name, in the order they were checked. */
+  private final Map<String, Totals> units = new LinkedHashMap<>();
+
+  /** The statistics of the compilation unit being type-checked, or null if there is none. */
+  private @Nullable Totals currentUnit = null;
+
+  /** The slowest methods so far; the head is the fastest of them. */
+  private final PriorityQueue<MethodTime> slowestMethods =
+      new PriorityQueue<>(Comparator.comparingLong(m -> m.nanos));
+
+  /**
+   * Creates a PhaseStatistics.
+   *
+   * @param checkerName the fully-qualified name of the checker
+   */
+  public PhaseStatistics(String checkerName) {
+    this.checkerName = checkerName;
+  }
+
+  /**
+   * Attributes the phases that run from now on to the given compilation unit, in addition to the
+   * total.
+   *
+   * @param fileName the file name of the compilation unit
+   */
+  public void setCompilationUnit(String fileName) {
+    currentUnit = units.computeIfAbsent(fileName, f -> new Totals());
+  }
+
+  /**
+   * Records the start of a call of a phase. Every call to this method must be followed by a call to
+   * {@link #exit}, usually in a {@code finally} block.
+   *
+   * @param phase the phase
+   * @return the value to pass to {@link #exit}
+   */
+  public long enter(Phase phase) {
+    return depth[phase.ordinal()]++ == 0 ? System.nanoTime() : -1;
+  }
+
+  /**
+   * Records the end of a call of a phase.
+   *
+   * @param phase the phase
+   * @param start the value returned by the corresponding call to {@link #enter}
+   */
+  public void exit(Phase phase, long start) {
+    int i = phase.ordinal();
+    depth[i]--;
+    long nanos = start < 0 ? 0 : System.nanoTime() - start;
+    total.add(i, nanos);
+    if (currentUnit != null) {
+      currentUnit.add(i, nanos);
+    }
+  }
+
+  /**
+   * Counts an event.
+   *
+   * @param counter the kind of the event
+   */
+  public void count(Counter counter) {
+    int i = counter.ordinal();
+    total.counters[i]++;
+    if (currentUnit != null) {
+      currentUnit.counters[i]++;
+    }
+  }
+
+  /**
+   * Records the time it took to type-check a method, if it is among the slowest so far.
+   *
+   * @param method the name of the method, including its class
+   * @param fileName the file that contains the method
+   * @param line the line number of the method in the file
+   * @param nanos the time it took to type-check the method
+   */
+  public void recordMethod(String method, String fileName, long line, long nanos) {
+    if (slowestMethods.size() < NUM_SLOWEST_METHODS) {
+      slowestMethods.add(new MethodTime(method, fileName, line, nanos));
+    } else if (nanos > slowestMethods.element().nanos) {
+      slowestMethods.remove();
+      slowestMethods.add(new MethodTime(method, fileName, line, nanos));
+    }
+  }
+
+  /**
+   * Returns the given statistics as a JSON object with a single field, {@code checkers}, whose
+   * value is an array with one element per checker.
+   *
+   * @param statistics the statistics of some checkers
+   * @return the statistics as JSON
+   */
+  public static String toJson(Collection<PhaseStatistics> statistics) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"checkers\": [");
+    String separator = "\n";
+    for (PhaseStatistics checkerStatistics : statistics) {
+      json.append(separator);
+      separator = ",\n";
+      checkerStatistics.appendJson(json);
+    }
+    json.append("\n  ]\n}\n");
+    return json.toString();
+  }
+
+  /**
+   * Appends the JSON representation of this to {@code json}.
+   *
+   * @param json where to append the JSON representation
+   */
+  private void appendJson(StringBuilder json) {
+    json.append("    {\n      \"checker\": ");
+    appendString(json, checkerName);
+    json.append(",\n      ");
+    total.appendJson(json);
+    json.append(",\n      \"compilationUnits\": [");
+    String separator = "\n";
+    for (Map.Entry<String, Totals> unit : units.entrySet()) {
+      json.append(separator).append("        {\"file\": ");
+      separator = ",\n";
+      appendString(json, unit.getKey());
+      json.append(", ");
+      unit.getValue().appendJson(json);
+      json.append('}');
+    }
+    json.append("\n      ],\n      \"slowestMethods\": [");
+    List<MethodTime> methods = new ArrayList<>(slowestMethods);
+    methods.sort(Comparator.comparingLong((MethodTime m) -> m.nanos).reversed());
+    separator = "\n";
+    for (MethodTime method : methods) {
+      json.append(separator).append("        {\"method\": ");
+      separator = ",\n";
+      appendString(json, method.method);
+      json.append(", \"file\": ");
+      appendString(json, method.fileName);
+      json.append(", \"line\": ").append(method.line);
+      json.append(", \"nanos\": ").append(method.nanos).append('}');
+    }
+    json.append("\n      ]\n    }");
+  }
+
+  /**
+   * Appends a JSON string literal.
+   *
+   * @param json where to append the string literal
+   * @param s the string
+   */
+  private static void appendString(StringBuilder json, String s) {
+    json.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  /** The counts and times of the phases, and the counters, of a compilation or compilation unit. */
+  private static final class Totals {
+
+    /** For each phase, how many times it was called. */
+    final long[] counts = new long[NUM_PHASES];
+
+    /** For each phase, the time spent in it. */
+    final long[] nanos = new long[NUM_PHASES];
+
+    /** For each counter, its value. */
+    final long[] counters = new long[NUM_COUNTERS];
+
+    /**
+     * Records a call of a phase.
+     *
+     * @param phase the ordinal of the phase
+     * @param time the time spent in the call, excluding the time already recorded for an enclosing
+     *     call of the same phase
+     */
+    void add(int phase, long time) {
+      counts[phase]++;
+      nanos[phase] += time;
+    }
+
+    /**
+     * Appends the {@code phases} and {@code counters} fields of a JSON object to {@code json}.
+     *
+     * @param json where to append the fields
+     */
+    void appendJson(StringBuilder json) {
+      json.append("\"phases\": {");
+      String separator = "";
+      for (Phase phase : Phase.values()) {
+        int i = phase.ordinal();
+        json.append(separator).append('"').append(phase.jsonName).append("\": {\"count\": ");
+        separator = ", ";
+        json.append(counts[i]).append(", \"nanos\": ").append(nanos[i]).append('}');
+      }
+      json.append("}, \"counters\": {");
+      separator = "";
+      for (Counter counter : Counter.values()) {
+        json.append(separator).append('"').append(counter.jsonName).append("\": ");
+        separator = ", ";
+        json.append(counters[counter.ordinal()]);
+      }
+      json.append('}');
+    }
+  }
+
+  /** The time it took to type-check a method. */
+  private static final class MethodTime {
+
+    /** The name of the method, including its class. */
+    final String method;
+
+    /** The file that contains the method. */
+    final String fileName;
+
+    /** The line number of the method in the file. */
+    final long line;
+
+    /** The time it took to type-check the method. */
+    final long nanos;
+
+    /**
+     * Creates a MethodTime.
+     *
+     * @param method the name of the method, including its class
+     * @param fileName the file that contains the method
+     * @param line the line number of the method in the file
+     * @param nanos the time it took to type-check the method
+     */
+    MethodTime(String method, String fileName, long line, long nanos) {
+      this.method = method;
+      this.fileName = fileName;
+      this.line = line;
+      this.nanos = nanos;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 import com.sun.tools.javac.util.Log;
 import io.github.classgraph.ClassGraph;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -29,15 +30,19 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -47,6 +52,7 @@ import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -59,6 +65,7 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -75,9 +82,12 @@ import org.checkerframework.checker.signature.qual.ClassGetName;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.reflection.MethodValChecker;
+import org.checkerframework.dataflow.expression.JavaExpressionParseUtil;
 import org.checkerframework.framework.qual.AnnotatedFor;
+import org.checkerframework.framework.stub.ParsedAnnotationFileCache;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.CheckerMain;
+import org.checkerframework.framework.util.JavaExpressionCache;
 import org.checkerframework.framework.util.OptionConfiguration;
 import org.checkerframework.framework.util.TreePathCacher;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
@@ -94,6 +104,7 @@ import org.checkerframework.javacutil.UserError;
 import org.plumelib.util.ArrayMap;
 import org.plumelib.util.ArraySet;
 import org.plumelib.util.CollectionsPlume;
+import org.plumelib.util.IPair;
 import org.plumelib.util.SystemPlume;
 import org.plumelib.util.UtilPlume;
 
@@ -224,6 +235,12 @@ import org.plumelib.util.UtilPlume;
   // as an ajava file. Can only be used with -Ainfer=ajava
   "inferOutputOriginal",
 
+  // Run whole-program inference to a fixpoint within this javac invocation: type-check all
+  // classes repeatedly, keeping the inferred annotations in memory, until they stop changing.
+  // Takes an optional argument: the maximum number of rounds.  Requires -Ainfer=ajava.
+  // org.checkerframework.framework.source.SourceChecker.typeProcessToInferenceFixpoint()
+  "inferFixpoint",
+
   // With each warning, in addition to the concrete error key,
   // output the SuppressWarnings strings that can be used to
   // suppress that warning.
@@ -408,6 +425,24 @@ import org.plumelib.util.UtilPlume;
   // Sets AnnotatedTypeFactory shouldCache to false
   "atfDoNotCache",
 
+  // Save the dataflow transfer result for every Nth node of a basic block, and for each node whose
+  // store is queried, rather than for every node. 0 saves only the queried nodes.
+  // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.getFlowCheckpointInterval()
+  "flowCheckpointInterval",
+
+  // Analyze each method with dataflow only when a result within it is first requested, and
+  // discard the results once the method has been type-checked.
+  // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.shouldAnalyzeMethodsLazily()
+  "lazyFlow",
+
+  // Performance
+
+  // Reuse the diagnostics of a previous run, stored in the given directory, for classes whose
+  // source and dependencies have not changed. Experimental; only has an effect for checkers that
+  // permit it.
+  // org.checkerframework.framework.source.SourceChecker.isIncrementalTypecheckSafe()
+  "incrementalCache",
+
   // Language Server Protocol (LSP) Support
 
   // TODO: document `-AlspTypeInfo` in manual, as a debugging option.
@@ -421,6 +456,11 @@ import org.plumelib.util.UtilPlume;
   // org.checkerframework.framework.source.SourceChecker.shutdownHook()
   "resourceStats",
 
+  // Count and time the phases of type-checking, per checker and per compilation unit, and write
+  // them as JSON to the given file, or to standard output if no file is given.
+  // org.checkerframework.framework.source.PhaseStatistics
+  "phaseStats",
+
   // Run checks that test ajava files.
   //
   // Whenever processing a source file, parse it with JavaParser and check that the AST can be
@@ -663,6 +703,54 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
    */
   protected TreePathCacher treePathCacher = null;
 
+  /**
+   * The Java expression strings that have been parsed at declarations in the current compilation
+   * unit.
+   */
+  private final JavaExpressionCache javaExpressionCache = new JavaExpressionCache();
+
+  /**
+   * The maximum number of rounds of type-checking to run, as requested by the {@code
+   * -AinferFixpoint} command-line option. 0 means that each class is type-checked once, as javac
+   * supplies it. Is set in {@link #initChecker}.
+   */
+  private int inferFixpointRounds = 0;
+
+  /** The maximum number of rounds of type-checking if {@code -AinferFixpoint} has no argument. */
+  private static final int DEFAULT_INFER_FIXPOINT_ROUNDS = 10;
+
+  /**
+   * The paths of the source files that declare the elements that the class being type-checked
+   * depends on, for the {@code -AinferFixpoint} command-line option. Null if the dependencies are
+   * not being recorded. See {@link #recordDependency}.
+   */
+  private @Nullable Set<String> inferenceDependencies = null;
+
+  /**
+   * The classes whose type-checking has been deferred until {@link #typeProcessingOver}, in the
+   * order that javac supplied them. Only non-empty if {@link #inferFixpointRounds} is positive.
+   */
+  private final List<IPair<TypeElement, TreePath>> deferredUnits = new ArrayList<>();
+
+  /**
+   * Non-null while {@link #typeProcessToInferenceFixpoint} runs. Then, this checker does not print
+   * messages. Instead, it appends them to this list, in the order in which they would have been
+   * printed, and prints those of the last round once the fixpoint is reached.
+   */
+  private @Nullable List<CheckerMessage> deferredMessages = null;
+
+  /**
+   * The diagnostics of previous runs, if the {@code -AincrementalCache} command-line option was
+   * passed and this checker supports it. Is set in {@link #initChecker}.
+   */
+  private @Nullable IncrementalTypecheckCache incrementalCache = null;
+
+  /**
+   * The counts and times of the phases of type-checking, as requested by the {@code -AphaseStats}
+   * command-line option, or null if the option was not given.
+   */
+  private @Nullable PhaseStatistics phaseStatistics = null;
+
   /** Creates a source checker. */
   protected SourceChecker() {}
 
@@ -745,6 +833,10 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
   public void setRoot(CompilationUnitTree newRoot) {
     currentRoot = newRoot;
     visitor.setRoot(currentRoot);
+    javaExpressionCache.clear();
+    if (phaseStatistics != null) {
+      phaseStatistics.setCompilationUnit(currentRoot.getSourceFile().getName());
+    }
     if (parentChecker == null) {
       // Only clear the path cache if this is the main checker.
       treePathCacher.clear();
@@ -1053,13 +1145,75 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
 
   @Override
   public void typeProcessingOver() {
+    if (!deferredUnits.isEmpty()) {
+      typeProcessToInferenceFixpoint();
+    }
+    if (incrementalCache != null) {
+      incrementalCache.save();
+    }
+
     for (SourceChecker checker : getSubcheckers()) {
       checker.typeProcessingOver();
     }
+    if (phaseStatistics != null && parentChecker == null) {
+      writePhaseStatistics();
+    }
 
     super.typeProcessingOver();
   }
 
+  /**
+   * Returns the counts and times of the phases of type-checking, as requested by the {@code
+   * -AphaseStats} command-line option.
+   *
+   * @return the counts and times of the phases of type-checking, or null if they are not recorded
+   */
+  public @Nullable PhaseStatistics getPhaseStatistics() {
+    return phaseStatistics;
+  }
+
+  /**
+   * Writes the statistics of this checker and all its subcheckers as JSON, to the file given by the
+   * {@code -AphaseStats} command-line option or to standard output.
+   */
+  private void writePhaseStatistics() {
+    Set<SourceChecker> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<PhaseStatistics> statistics = new ArrayList<>();
+    collectPhaseStatistics(this, visited, statistics);
+    String json = PhaseStatistics.toJson(statistics);
+
+    String file = getOption("phaseStats");
+    if (file == null || file.isEmpty() || file.equals("-")) {
+      System.out.print(json);
+      return;
+    }
+    try {
+      Files.write(Paths.get(file), json.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UserError("Cannot write -AphaseStats file %s: %s", file, e.getMessage());
+    }
+  }
+
+  /**
+   * Adds the statistics of a checker and its subcheckers to {@code statistics}, subcheckers first.
+   *
+   * @param checker a checker
+   * @param visited the checkers whose statistics have been added
+   * @param statistics where to add the statistics
+   */
+  private static void collectPhaseStatistics(
+      SourceChecker checker, Set<SourceChecker> visited, List<PhaseStatistics> statistics) {
+    if (!visited.add(checker)) {
+      return;
+    }
+    for (SourceChecker subchecker : checker.getSubcheckers()) {
+      collectPhaseStatistics(subchecker, visited, statistics);
+    }
+    if (checker.phaseStatistics != null) {
+      statistics.add(checker.phaseStatistics);
+    }
+  }
+
   /**
    * Initialize the checker.
    *
@@ -1078,6 +1232,11 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     // Set the active options for this checker and all subcheckers.
     getOptions();
 
+    if (hasOption("phaseStats")) {
+      // Must happen before the type factory reads stub files.
+      phaseStatistics = new PhaseStatistics(getClass().getName());
+    }
+
     // Initialize all checkers and share supported lint options.
     for (SourceChecker checker : getSubcheckers()) {
       // Each checker should "support" all possible lint options - otherwise
@@ -1106,6 +1265,161 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     requirePrefixInWarningSuppressions = hasOption("requirePrefixInWarningSuppressions");
     showPrefixInWarningMessages = hasOption("showPrefixInWarningMessages");
     warnUnneededSuppressions = hasOption("warnUnneededSuppressions");
+
+    if (parentChecker == null && hasOption("incrementalCache")) {
+      incrementalCache = createIncrementalTypecheckCache();
+    }
+    if (parentChecker == null && hasOption("inferFixpoint")) {
+      inferFixpointRounds = getInferFixpointRounds();
+    }
+  }
+
+  /**
+   * Returns the maximum number of rounds of type-checking requested by the {@code -AinferFixpoint}
+   * command-line option.
+   *
+   * @return the maximum number of rounds of type-checking
+   */
+  private int getInferFixpointRounds() {
+    if (!hasOption("infer")) {
+      throw new UserError("-AinferFixpoint requires -Ainfer=ajava");
+    }
+    String option = getOption("inferFixpoint");
+    if (option == null) {
+      return DEFAULT_INFER_FIXPOINT_ROUNDS;
+    }
+    int rounds;
+    try {
+      rounds = Integer.parseInt(option);
+    } catch (NumberFormatException e) {
+      throw new UserError("-AinferFixpoint was not an integer: " + option);
+    }
+    if (rounds < 1) {
+      throw new UserError("-AinferFixpoint must be positive: " + option);
+    }
+    return rounds;
+  }
+
+  /**
+   * Returns the cache requested by the {@code -AincrementalCache} command-line option, or null if
+   * this checker must type-check every class.
+   *
+   * @return the cache of diagnostics of previous runs, or null
+   */
+  private @Nullable IncrementalTypecheckCache createIncrementalTypecheckCache() {
+    String directory = getOption("incrementalCache");
+    if (directory == null || directory.isEmpty()) {
+      throw new UserError("-AincrementalCache requires a directory, as in -AincrementalCache=DIR");
+    }
+
+    String unsupported = null;
+    if (!isIncrementalTypecheckSafe() || !getSubcheckers().isEmpty()) {
+      unsupported = getClass().getSimpleName();
+    } else if (hasOption("infer")) {
+      unsupported = "-Ainfer";
+    }
+    if (unsupported != null) {
+      message(
+          Diagnostic.Kind.NOTE,
+          "%s does not support -AincrementalCache; type-checking every class",
+          unsupported);
+      return null;
+    }
+
+    StringJoiner configuration = new StringJoiner("\n");
+    configuration.add(getClass().getName());
+    try {
+      configuration.add(getCheckerVersion());
+    } catch (Exception ex) {
+      // getCheckerVersion() throws an exception when invoked during Junit tests.
+    }
+    new TreeMap<>(getOptions()).forEach((key, value) -> configuration.add(key + "=" + value));
+    for (String option : new String[] {"stubs", "ajava"}) {
+      String paths = getOption(option);
+      if (paths != null) {
+        for (String path : SystemUtil.pathSeparatorSplitter.split(paths)) {
+          addFileFingerprints(new File(path), configuration);
+        }
+      }
+    }
+    return new IncrementalTypecheckCache(this, Paths.get(directory), configuration.toString());
+  }
+
+  /**
+   * Adds the name and a hash of the contents of the given file, or of each file in the given
+   * directory, to {@code fingerprints}. A file's size and modification time are not enough: a
+   * build tool may rewrite a file with the same size within the resolution of the file system's
+   * timestamps.
+   *
+   * @param file a file or directory
+   * @param fingerprints where to add the fingerprints
+   */
+  private static void addFileFingerprints(File file, StringJoiner fingerprints) {
+    File[] children = file.listFiles();
+    if (children == null) {
+      String hash;
+      try {
+        hash = IncrementalTypecheckCache.hash(Files.readAllBytes(file.toPath()));
+      } catch (IOException e) {
+        // The file does not exist or cannot be read; the stub file parser reports that.
+        hash = "unreadable";
+      }
+      fingerprints.add(file.getPath() + " " + hash);
+    } else {
+      Arrays.sort(children);
+      for (File child : children) {
+        addFileFingerprints(child, fingerprints);
+      }
+    }
+  }
+
+  /**
+   * Returns true if this checker may reuse the diagnostics of a previous run for a class whose
+   * source and dependencies have not changed, as requested by the {@code -AincrementalCache}
+   * command-line option. Aggregate and compound checkers never do.
+   *
+   * <p>A checker should only return true if the diagnostics it issues for a class depend only on
+   * the class's compilation unit and on the types that its type factory computes, via {@link
+   * org.checkerframework.framework.type.AnnotatedTypeFactory#fromElement} or {@link
+   * org.checkerframework.framework.type.AnnotatedTypeFactory#getDeclAnnotations}, for declarations
+   * in other compilation units. A checker that accumulates information across compilation units,
+   * or that reads declarations in some other way, must return false.
+   *
+   * @return true if this checker may reuse the diagnostics of a previous run
+   */
+  protected boolean isIncrementalTypecheckSafe() {
+    return false;
+  }
+
+  /**
+   * Records that the class being type-checked depends on the declaration {@code elt}, for the
+   * {@code -AincrementalCache} and {@code -AinferFixpoint} command-line options. Does nothing if
+   * neither option was passed.
+   *
+   * @param elt a declaration whose annotated type or declaration annotations were read
+   */
+  public void recordDependency(Element elt) {
+    if (incrementalCache != null) {
+      incrementalCache.recordDependency(elt);
+    }
+    if (inferenceDependencies != null
+        && elt.getKind() != ElementKind.PACKAGE
+        && elt.getKind() != ElementKind.MODULE
+        && ElementUtils.isElementFromSourceCode(elt)) {
+      inferenceDependencies.add(
+          ElementUtils.getSourceFilePath(ElementUtils.toplevelEnclosingTypeElement(elt)));
+    }
+  }
+
+  /**
+   * Returns a string that changes whenever the diagnostics issued for code that uses {@code elt}
+   * might change. Used for the {@code -AincrementalCache} command-line option.
+   *
+   * @param elt a declaration
+   * @return a string that describes the parts of {@code elt} that this checker depends on
+   */
+  protected String getSignatureFingerprint(Element elt) {
+    return elt.asType().toString();
   }
 
   /** Output the warning about source level at most once. */
@@ -1238,6 +1552,16 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     return treePathCacher;
   }
 
+  /**
+   * Returns the cache of Java expression strings that have been parsed at declarations in the
+   * current compilation unit.
+   *
+   * @return the cache of Java expression strings parsed at declarations
+   */
+  public JavaExpressionCache getJavaExpressionCache() {
+    return javaExpressionCache;
+  }
+
   /**
    * Type-check the code using this checker's visitor.
    *
@@ -1245,6 +1569,12 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
    */
   @Override
   public void typeProcess(TypeElement e, TreePath p) {
+    if (inferFixpointRounds > 0 && deferredMessages == null && e != null && p != null) {
+      // Type-check this class, together with all others, in typeProcessingOver().
+      deferredUnits.add(IPair.of(e, p));
+      return;
+    }
+
     if (messageStore != null && parentChecker == null) {
       messageStore.clear();
     }
@@ -1344,10 +1674,22 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
       }
     }
 
+    if (incrementalCache != null) {
+      if (incrementalCache.replay(e, currentRoot)) {
+        this.errsOnLastExit = log.nerrors;
+        return;
+      }
+      incrementalCache.startRecording(e, currentRoot);
+    }
+
     // Visit the attributed tree.
+    boolean completedNormally = false;
+    long visitorStart =
+        phaseStatistics == null ? 0 : phaseStatistics.enter(PhaseStatistics.Phase.VISITOR);
     try {
       visitor.visit(p);
       warnUnneededSuppressions();
+      completedNormally = true;
     } catch (UserError ce) {
       logUserError(ce);
     } catch (TypeSystemError ce) {
@@ -1357,9 +1699,15 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     } catch (Throwable t) {
       logBugInCF(wrapThrowableAsBugInCF("SourceChecker.typeProcess", t, p));
     } finally {
+      if (phaseStatistics != null) {
+        phaseStatistics.exit(PhaseStatistics.Phase.VISITOR, visitorStart);
+      }
       // Also add possibly deferred diagnostics, which will get published back in
       // AbstractTypeProcessor.
       this.errsOnLastExit = log.nerrors;
+      if (incrementalCache != null) {
+        incrementalCache.finishRecording(completedNormally);
+      }
       printStoredMessages(p.getCompilationUnit());
       if (!getSubcheckers().isEmpty()) {
         // Update errsOnLastExit to reflect the errors issued.
@@ -1368,6 +1716,237 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     }
   }
 
+  /**
+   * Type-checks the classes in {@link #deferredUnits} repeatedly, as requested by the {@code
+   * -AinferFixpoint} command-line option, until whole-program inference infers no new annotations
+   * or {@link #inferFixpointRounds} rounds have run. Every round type-checks the same attributed
+   * trees, and the inferred annotations are kept in memory between rounds. They are written to disk
+   * once, after the last round.
+   *
+   * <p>The first round type-checks every class. Whenever a class is type-checked, each checker
+   * records the source files that declare the elements the class depends on; see {@link
+   * #recordDependency}. Each later round type-checks only the classes that depended, when they were
+   * last type-checked, on a source file whose inferred annotations changed in the previous round.
+   * Every class depends on its own source file.
+   *
+   * <p>The result is the same as that of running javac repeatedly, each time with the ajava files
+   * of the previous run, as the {@code wpi.sh} script does. Each such run infers annotations only
+   * from what it observes, so an annotation can become more precise from one run to the next. To
+   * achieve the same here, before a round re-checks a class, the annotations inferred for the files
+   * whose inferred annotations the class read or updated are discarded, and every class that read
+   * or updated them is re-checked as well.
+   *
+   * <p>For each class, only the messages issued the last time it was type-checked are printed, in
+   * the order that javac supplied the classes.
+   */
+  private void typeProcessToInferenceFixpoint() {
+    List<IPair<TypeElement, TreePath>> units = new ArrayList<>(deferredUnits);
+    deferredUnits.clear();
+
+    if (getCompilerLog().nerrors > this.errsOnLastExit) {
+      // As in typeProcess(): don't type-check code that javac could not compile.
+      javacErrored = true;
+      return;
+    }
+
+    List<SourceChecker> checkers = new ArrayList<>(getSubcheckers());
+    checkers.add(this);
+    CheckerMessage[][] messagesPerUnit = new CheckerMessage[units.size()][];
+    // For each class, the files that declare the elements it depended on when it was last
+    // type-checked.
+    List<Set<String>> dependencies =
+        new ArrayList<>(Collections.nCopies(units.size(), Collections.emptySet()));
+    // For each class, the files whose inferred annotations were read or updated when it was last
+    // type-checked.
+    List<Set<String>> accessedFiles =
+        new ArrayList<>(Collections.nCopies(units.size(), Collections.emptySet()));
+    BitSet toCheck = new BitSet(units.size());
+    toCheck.set(0, units.size());
+    List<CheckerMessage> roundMessages = new ArrayList<>();
+    boolean printFilenamesOption = printFilenames;
+    // This method prints the file names, in order, after the last round.
+    printFilenames = false;
+    deferredMessages = roundMessages;
+    int round = 0;
+    try {
+      do {
+        round++;
+        for (SourceChecker checker : checkers) {
+          checker.startInferenceRound();
+        }
+        for (int i = toCheck.nextSetBit(0); i >= 0; i = toCheck.nextSetBit(i + 1)) {
+          IPair<TypeElement, TreePath> unit = units.get(i);
+          // Record the dependencies afresh, because the class can depend on other elements once
+          // more annotations have been inferred.
+          CompilationUnitTree root = unit.second.getCompilationUnit();
+          Set<String> unitDependencies = new HashSet<>();
+          unitDependencies.add(root.getSourceFile().toUri().getPath());
+          for (SourceChecker checker : checkers) {
+            checker.inferenceDependencies = unitDependencies;
+          }
+          dependencies.set(i, unitDependencies);
+          typeProcess(unit.first, unit.second);
+          messagesPerUnit[i] = roundMessages.toArray(new CheckerMessage[0]);
+          roundMessages.clear();
+          Set<String> unitAccessedFiles = new HashSet<>();
+          for (SourceChecker checker : checkers) {
+            unitAccessedFiles.addAll(checker.finishInferenceClass());
+          }
+          accessedFiles.set(i, unitAccessedFiles);
+        }
+        for (SourceChecker checker : checkers) {
+          checker.inferenceDependencies = null;
+        }
+
+        Set<String> changedFiles = new HashSet<>();
+        for (SourceChecker checker : checkers) {
+          changedFiles.addAll(checker.finishInferenceRound());
+        }
+        toCheck.clear();
+        if (!changedFiles.isEmpty()) {
+          for (int i = 0; i < units.size(); i++) {
+            if (!Collections.disjoint(dependencies.get(i), changedFiles)) {
+              toCheck.set(i);
+            }
+          }
+        }
+        if (!toCheck.isEmpty() && round < inferFixpointRounds) {
+          Set<String> discardedFiles = discardedFiles(toCheck, accessedFiles);
+          for (SourceChecker checker : checkers) {
+            checker.discardInferences(discardedFiles);
+          }
+        }
+      } while (!toCheck.isEmpty() && round < inferFixpointRounds);
+    } finally {
+      deferredMessages = null;
+      printFilenames = printFilenamesOption;
+      for (SourceChecker checker : checkers) {
+        checker.inferenceDependencies = null;
+      }
+    }
+
+    for (SourceChecker checker : checkers) {
+      checker.finishInferenceFixpoint();
+    }
+    if (!toCheck.isEmpty()) {
+      message(
+          Diagnostic.Kind.NOTE,
+          "Whole-program inference did not reach a fixpoint in %d rounds",
+          inferFixpointRounds);
+    }
+    printDeferredMessages(units, messagesPerUnit);
+  }
+
+  /**
+   * Returns the files whose inferred annotations must be discarded before the classes in {@code
+   * toCheck} are type-checked again, for {@link #typeProcessToInferenceFixpoint}: those that any of
+   * them read or updated. Adds to {@code toCheck} every other class that read or updated one of
+   * those files, because its contribution to them must be inferred again, too.
+   *
+   * @param toCheck the indexes of the classes to type-check in the next round; is side-effected
+   * @param accessedFiles for each class, the files whose inferred annotations were read or updated
+   *     when it was last type-checked
+   * @return the files whose inferred annotations must be discarded
+   */
+  private static Set<String> discardedFiles(BitSet toCheck, List<Set<String>> accessedFiles) {
+    Set<String> result = new HashSet<>();
+    boolean changed = true;
+    while (changed) {
+      for (int i = toCheck.nextSetBit(0); i >= 0; i = toCheck.nextSetBit(i + 1)) {
+        result.addAll(accessedFiles.get(i));
+      }
+      changed = false;
+      for (int i = toCheck.nextClearBit(0);
+          i < accessedFiles.size();
+          i = toCheck.nextClearBit(i + 1)) {
+        if (!Collections.disjoint(accessedFiles.get(i), result)) {
+          toCheck.set(i);
+          changed = true;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Called before each round of type-checking when the {@code -AinferFixpoint} command-line option
+   * was passed. Makes the annotations inferred in the previous round visible to this checker.
+   *
+   * <p>This implementation sets the current compilation unit again, because the next class to be
+   * type-checked may belong to it.
+   */
+  protected void startInferenceRound() {
+    if (currentRoot != null) {
+      setRoot(currentRoot);
+    }
+  }
+
+  /**
+   * Called after each round of type-checking when the {@code -AinferFixpoint} command-line option
+   * was passed.
+   *
+   * @return the paths of the source files for which this checker inferred annotations in this round
+   *     that differ from those at the end of the previous round; the classes that depend on them
+   *     are type-checked again in the next round
+   */
+  protected Set<String> finishInferenceRound() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Called after each class is type-checked when the {@code -AinferFixpoint} command-line option
+   * was passed.
+   *
+   * @return the paths of the source files whose inferred annotations this checker read or updated
+   *     while type-checking the class
+   */
+  protected Set<String> finishInferenceClass() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Called between rounds of type-checking when the {@code -AinferFixpoint} command-line option was
+   * passed. Discards the annotations that this checker inferred for the given source files, so that
+   * the next round infers them afresh.
+   *
+   * @param paths the paths of the source files whose inferred annotations to discard
+   */
+  protected void discardInferences(Set<String> paths) {}
+
+  /**
+   * Called after the last round of type-checking when the {@code -AinferFixpoint} command-line
+   * option was passed. Writes the inferred annotations to disk.
+   */
+  protected void finishInferenceFixpoint() {}
+
+  /**
+   * Prints the messages issued for classes whose type-checking was deferred, in the order that
+   * javac supplied the classes.
+   *
+   * @param units the classes, in the order that javac supplied them
+   * @param messagesPerUnit the messages issued for each element of {@code units}
+   */
+  @SuppressWarnings("interning:not.interned") // AST node comparison
+  private void printDeferredMessages(
+      List<IPair<TypeElement, TreePath>> units, CheckerMessage[][] messagesPerUnit) {
+    CompilationUnitTree previousUnit = null;
+    for (int i = 0; i < units.size(); i++) {
+      CompilationUnitTree unit = units.get(i).second.getCompilationUnit();
+      if (printFilenames && unit != previousUnit) {
+        message(
+            Diagnostic.Kind.NOTE,
+            "%s is type-checking %s",
+            (Object) this.getClass().getSimpleName(),
+            unit.getSourceFile().getName());
+      }
+      previousUnit = unit;
+      for (CheckerMessage msg : messagesPerUnit[i]) {
+        printOrStoreMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
+      }
+    }
+    this.errsOnLastExit = getCompilerLog().nerrors;
+  }
+
   // ///////////////////////////////////////////////////////////////////////////
   // Reporting type-checking errors; most clients use reportError() or reportWarning()
   //
@@ -1559,8 +2138,14 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
   protected void printOrStoreMessage(
       javax.tools.Diagnostic.Kind kind, String message, Tree source, CompilationUnitTree root) {
     assert this.currentRoot == root;
+    if (incrementalCache != null) {
+      incrementalCache.recordMessage(kind, message, source);
+    }
     StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-    if (messageStore == null) {
+    if (messageStore == null && deferredMessages != null) {
+      // -AinferFixpoint prints the messages of the last round once the fixpoint is reached.
+      deferredMessages.add(new CheckerMessage(kind, message, source, this, trace));
+    } else if (messageStore == null) {
       printOrStoreMessage(kind, message, source, root, trace);
     } else {
       CheckerMessage checkerMessage = new CheckerMessage(kind, message, source, this, trace);
@@ -2264,6 +2849,11 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     if (messageStore == null || parentChecker != null) {
       return;
     }
+    if (deferredMessages != null) {
+      // -AinferFixpoint prints the messages of the last round once the fixpoint is reached.
+      deferredMessages.addAll(messageStore);
+      return;
+    }
     for (CheckerMessage msg : messageStore) {
       printOrStoreMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
     }
@@ -3260,6 +3850,12 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
       System.out.println("  Pool type: " + memoryPool.getType());
       System.out.println("  Peak usage: " + memoryPool.getPeakUsage());
     }
+    System.out.println(ParsedAnnotationFileCache.getStatistics());
+    System.out.println(javaExpressionCache.getStatistics());
+    System.out.println(JavaExpressionParseUtil.getParseCacheStatistics(processingEnv));
+    if (incrementalCache != null) {
+      System.out.println(incrementalCache.getStatistics());
+    }
   }
 
   // ///////////////////////////////////////////////////////////////////////////
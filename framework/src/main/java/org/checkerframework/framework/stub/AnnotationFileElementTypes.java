@@ -1,32 +1,24 @@
 package org.checkerframework.framework.stub;
 
+import com.github.javaparser.ParseProblemException;
 import com.sun.source.tree.CompilationUnitTree;
 import io.github.classgraph.ClassGraph;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ProcessBuilder.Redirect;
-import java.net.JarURLConnection;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
@@ -51,9 +43,7 @@ import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.SystemUtil;
 import org.checkerframework.javacutil.TypesUtils;
-import org.plumelib.util.CollectionsPlume;
 import org.plumelib.util.IPair;
-import org.plumelib.util.SystemPlume;
 
 /**
  * Holds information about types parsed from annotation files (stub files or ajava files). When
@@ -72,20 +62,13 @@ public class AnnotationFileElementTypes {
   private final AnnotatedTypeFactory factory;
 
   /**
-   * Mapping from fully-qualified class name to corresponding JDK stub file from the file system
-   * that have not yet been read. When a file is read, its mapping is removed from this map.
-   *
-   * <p>By contrast, {@link #remainingJdkStubFilesJar} contains JDK stub files from checker.jar.
+   * Fully-qualified names of the classes whose entries in {@link #jdkStubArchive} have not yet been
+   * read. When an entry is read, its name is removed from this set.
    */
-  private final Map<String, Path> remainingJdkStubFiles = new HashMap<>();
+  private final Set<String> remainingJdkStubFilesArchive = new HashSet<>();
 
-  /**
-   * Mapping from fully-qualified class name to corresponding JDK stub files from checker.jar that
-   * have not yet been read. When a file is read, its mapping is removed from this map.
-   *
-   * <p>By contrast, {@link #remainingJdkStubFiles} contains JDK stub files from the file system.
-   */
-  private final Map<String, String> remainingJdkStubFilesJar = new HashMap<>();
+  /** The annotated JDK archive, or null if it was not read. Is set in {@link #prepJdkStubs}. */
+  private @Nullable JdkStubArchive jdkStubArchive = null;
 
   /** Which version number of the annotated JDK should be used? */
   private final String annotatedJdkVersion;
@@ -291,6 +274,53 @@ public class AnnotationFileElementTypes {
     }
   }
 
+  /**
+   * Parses an ajava file that is held in memory rather than on disk, like {@link
+   * #parseAjavaFileWithTree(String, CompilationUnitTree)}.
+   *
+   * @param description a description of the ajava file, used in messages
+   * @param contents the contents of the ajava file
+   * @param root javac tree for the compilation unit stored in {@code contents}
+   */
+  public void parseAjavaFileWithTree(
+      String description, String contents, CompilationUnitTree root) {
+    parsing = true;
+    try {
+      AnnotationFileParser.parseAjavaFile(
+          description,
+          new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)),
+          root,
+          factory,
+          factory.getProcessingEnv(),
+          annotationFileAnnos);
+    } finally {
+      parsing = false;
+    }
+  }
+
+  /**
+   * Parses an ajava file that is held in memory rather than on disk, as the files passed through
+   * the -Aajava command-line option are parsed: only the annotations on public elements are
+   * stored. Annotations from this file replace those from files parsed earlier.
+   *
+   * @param description a description of the ajava file, used in messages
+   * @param contents the contents of the ajava file
+   */
+  public void parseAjavaFileAsStub(String description, String contents) {
+    parsing = true;
+    try {
+      AnnotationFileParser.parseStubFile(
+          description,
+          new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)),
+          factory,
+          factory.getProcessingEnv(),
+          annotationFileAnnos,
+          AnnotationFileType.AJAVA_AS_STUB);
+    } finally {
+      parsing = false;
+    }
+  }
+
   /**
    * Parses the files in {@code annotationFiles} of the given file type. This includes files listed
    * directly in {@code annotationFiles} and for each listed directory, also includes all files
@@ -688,10 +718,8 @@ public class AnnotationFileElementTypes {
     if (className == null || className.isEmpty()) {
       return;
     }
-    if (remainingJdkStubFiles.containsKey(className)) {
-      parseJdkStubFile(remainingJdkStubFiles.remove(className));
-    } else if (remainingJdkStubFilesJar.containsKey(className)) {
-      parseJdkJarEntry(remainingJdkStubFilesJar.remove(className));
+    if (remainingJdkStubFilesArchive.remove(className)) {
+      parseJdkArchiveEntry(className);
     } else {
       if (stubDebug) {
         System.out.printf("  not in remaining JDK stub files: %s%n", className);
@@ -731,101 +759,47 @@ public class AnnotationFileElementTypes {
   }
 
   /**
-   * Parses the stub file in {@code path}.
+   * Parses the given entry of {@link #jdkStubArchive}.
    *
-   * @param path path to file to parse
+   * @param entryName name of the archive entry to parse
    */
-  private void parseJdkStubFile(Path path) {
-    parsing = true;
-    try (FileInputStream jdkStub = new FileInputStream(path.toFile())) {
-      AnnotationFileParser.parseJdkFileAsStub(
-          path.toFile().getName(),
-          jdkStub,
-          factory,
-          factory.getProcessingEnv(),
-          annotationFileAnnos);
-    } catch (IOException e) {
-      throw new BugInCF("cannot open the jdk stub file " + path, e);
-    } finally {
-      parsing = false;
-    }
-  }
-
-  /**
-   * Parses the stub file in the given jar entry.
-   *
-   * @param jarEntryName name of the jar entry to parse
-   */
-  private void parseJdkJarEntry(String jarEntryName) {
+  private void parseJdkArchiveEntry(String entryName) {
     if (stubDebug) {
-      System.out.printf("entered parseJdkJarEntry(%s)%n", jarEntryName);
+      System.out.printf("entered parseJdkArchiveEntry(%s)%n", entryName);
     }
 
-    JarURLConnection connection = getJarURLConnectionToJdk();
+    assert jdkStubArchive != null : "@AssumeAssertion(nullness): set along with the entries";
     parsing = true;
-    try (JarFile jarFile = connection.getJarFile()) {
-      try (InputStream jdkStub = jarFile.getInputStream(jarFile.getJarEntry(jarEntryName))) {
-        AnnotationFileParser.parseJdkFileAsStub(
-            jarEntryName, jdkStub, factory, factory.getProcessingEnv(), annotationFileAnnos);
-      } catch (IOException e) {
-        throw new BugInCF("cannot open the jdk stub file " + jarEntryName, e);
-      }
-    } catch (IOException e) {
-      throw new BugInCF("cannot open the Jar file " + connection.getEntryName(), e);
+    try {
+      AnnotationFileParser.parseJdkStubUnitAsStub(
+          entryName,
+          jdkStubArchive.getStubUnit(entryName),
+          factory,
+          factory.getProcessingEnv(),
+          annotationFileAnnos);
+    } catch (ParseProblemException e) {
+      throw new BugInCF("Cannot parse " + entryName + " in the annotated JDK archive", e);
     } catch (BugInCF e) {
-      throw new BugInCF("Exception while parsing " + jarEntryName + ": " + e.getMessage(), e);
+      throw new BugInCF("Exception while parsing " + entryName + ": " + e.getMessage(), e);
     } finally {
       parsing = false;
     }
 
     if (stubDebug) {
-      System.out.printf("exited parseJdkJarEntry(%s)%n", jarEntryName);
+      System.out.printf("exited parseJdkArchiveEntry(%s)%n", entryName);
     }
   }
 
   /**
-   * Returns a JarURLConnection to "/jdk*".
-   *
-   * @return a JarURLConnection to "/jdk*"
-   */
-  private JarURLConnection getJarURLConnectionToJdk() {
-    URL resourceURL = factory.getClass().getResource("/annotated-jdk");
-    JarURLConnection connection;
-    try {
-      connection = (JarURLConnection) resourceURL.openConnection();
-
-      // disable caching / connection sharing of the low level URLConnection to the Jarfile
-      connection.setDefaultUseCaches(false);
-      connection.setUseCaches(false);
-
-      connection.connect();
-    } catch (IOException e) {
-      throw new BugInCF("cannot open a connection to the Jar file " + resourceURL.getFile(), e);
-    }
-    return connection;
-  }
-
-  /**
-   * Walk through the JDK directory and create a mapping, {@link #remainingJdkStubFiles}, from file
-   * name to the class contained with in it. Also, parses all package-info.java files.
+   * Read the annotated JDK archive and record, in {@link #remainingJdkStubFilesArchive}, the
+   * classes in it. Also, parses all package-info.java files.
    */
   private void prepJdkStubs() {
     if (!shouldParseJdk) {
       return;
     }
-    URL resourceURL = factory.getClass().getResource("/annotated-jdk");
-    if (resourceURL == null) {
-      if (permitMissingJdk
-          // temporary, for backward compatibility
-          || factory.getChecker().hasOption("nocheckjdk")) {
-        return;
-      }
-      throw new BugInCF("JDK not found");
-    } else if (resourceURL.getProtocol().contentEquals("jar")) {
-      prepJdkFromJar(resourceURL);
-    } else if (resourceURL.getProtocol().contentEquals("file")) {
-      prepJdkFromFile(resourceURL);
-    } else {
+    JdkStubArchive archive = JdkStubArchive.getInstance();
+    if (archive == null) {
       if (permitMissingJdk
           // temporary, for backward compatibility
           || factory.getChecker().hasOption("nocheckjdk")) {
@@ -833,124 +807,29 @@ public class AnnotationFileElementTypes {
       }
       throw new BugInCF("JDK not found");
     }
+    prepJdkFromArchive(archive);
   }
 
   /**
-   * Walk through the JDK directory and create a mapping, {@link #remainingJdkStubFiles}, from file
-   * name to the class contained with in it. Also, parses all package-info.java files.
+   * Record, in {@link #remainingJdkStubFilesArchive}, the classes in the annotated JDK archive.
+   * Also, parses all package-info.java files.
    *
-   * @param jdkDirectory the URL pointing to the JDK directory
+   * @param archive the annotated JDK archive
    */
-  private void prepJdkFromFile(URL jdkDirectory) {
-    Path root;
-    try {
-      root = Paths.get(jdkDirectory.toURI());
-    } catch (URISyntaxException e) {
-      throw new BugInCF("Cannot parse URL: " + jdkDirectory.toString(), e);
-    }
-
-    try (Stream<Path> walk = Files.walk(root)) {
-      List<Path> paths =
-          walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
-              .collect(Collectors.toList());
-      paths.sort(Path::compareTo);
-      for (Path path : paths) {
-        if (path.getFileName().toString().equals("package-info.java")) {
-          parseJdkStubFile(path);
-          continue;
-        }
-        if (path.getFileName().toString().equals("module-info.java")) {
-          // JavaParser can't parse module-info files, so skip them.
-          continue;
-        }
-        if (parseAllJdkFiles) {
-          parseJdkStubFile(path);
-          continue;
-        }
-        Path relativePath = root.relativize(path);
-        // The number 4 is to strip off "/src/<module>/share/classes".
-        Path savepath = relativePath.subpath(4, relativePath.getNameCount());
-        String savepathString = savepath.toString();
-        // The number 5 is to remove trailing ".java".
-        String savepathWithoutExtension = savepathString.substring(0, savepathString.length() - 5);
-        String fqName = savepathWithoutExtension.replace(File.separatorChar, '.');
-        remainingJdkStubFiles.put(fqName, path);
-      }
-      if (stubDebug) {
-        System.out.printf(
-            "Contents of remainingJdkStubFiles for %s from %s:%n",
-            factory.getClass().getSimpleName(), jdkDirectory);
-        printSortedIndented(remainingJdkStubFiles.keySet());
-        System.out.printf(
-            "End of remainingJdkStubFiles for %s from %s.%n",
-            factory.getClass().getSimpleName(), jdkDirectory);
+  private void prepJdkFromArchive(JdkStubArchive archive) {
+    jdkStubArchive = archive;
+    for (String entryName : archive.getEntryNames()) {
+      if (parseAllJdkFiles || entryName.endsWith(".package-info")) {
+        parseJdkArchiveEntry(entryName);
+        continue;
       }
-    } catch (IOException e) {
-      throw new BugInCF("prepJdkFromFile(" + jdkDirectory + ")", e);
+      remainingJdkStubFilesArchive.add(entryName);
     }
-  }
-
-  /**
-   * Walk through the JDK directory and create a mapping, {@link #remainingJdkStubFilesJar}, from
-   * file name to the class contained with in it. Also, parses all package-info.java files.
-   *
-   * @param jdkJarfile the URL pointing to the JDK jarfile
-   */
-  private void prepJdkFromJar(@SuppressWarnings("UnusedVariable") URL jdkJarfile) {
-    JarURLConnection connection = getJarURLConnectionToJdk();
-
-    try (JarFile jarFile = connection.getJarFile()) {
-      ArrayList<JarEntry> entries = CollectionsPlume.makeArrayList(jarFile.entries());
-      entries.sort(Comparator.comparing(Object::toString));
-      for (JarEntry jarEntry : entries) {
-        // filter out directories and non-Java files
-        if (jarEntry.isDirectory()) {
-          continue;
-        }
-        String jarEntryName = jarEntry.getName();
-        if (!(jarEntryName.startsWith("annotated-jdk") && jarEntryName.endsWith(".java"))
-            // JavaParser can't parse module-info files, so skip them.
-            || jarEntryName.endsWith("module-info.java")) {
-          continue;
-        }
-        if (parseAllJdkFiles || jarEntryName.endsWith("package-info.java")) {
-          parseJdkJarEntry(jarEntryName);
-          continue;
-        }
-        int index = jarEntryName.indexOf("/share/classes/") + "/share/classes/".length();
-        // "-5" is to remove ".java" from end of file name
-        String fqClassName =
-            jarEntryName.substring(index, jarEntryName.length() - 5).replace('/', '.');
-        remainingJdkStubFilesJar.put(fqClassName, jarEntryName);
-      }
-      if (stubDebug) {
-        String factoryClass = factory.getClass().getSimpleName().toString();
-        String jarFileURL = connection.getJarFileURL().toString();
-        System.out.printf(
-            "Contents of remainingJdkStubFilesJar for %s from %s:%n", factoryClass, jarFileURL);
-        printSortedIndented(remainingJdkStubFilesJar.keySet());
-        System.out.printf(
-            "End of remainingJdkStubFilesJar for %s from %s.%n", factoryClass, jarFileURL);
-
-        System.out.printf("Contents of %s:%n", jarFileURL);
-        assert jarFileURL.startsWith("file:");
-        ProcessBuilder pb =
-            new ProcessBuilder(
-                "/bin/sh", "-c", "jar tf '" + jarFileURL.substring(5) + "' | LC_ALL=C sort");
-        pb.redirectOutput(Redirect.INHERIT);
-        pb.redirectError(Redirect.INHERIT);
-        Process p = pb.start();
-        try {
-          p.waitFor();
-        } catch (InterruptedException e) {
-          // do nothing
-        }
-        System.out.flush();
-        SystemPlume.sleep(1);
-        System.out.printf("End of %s.%n", jarFileURL);
-      }
-    } catch (IOException e) {
-      throw new BugInCF("Cannot open the jar file " + connection.getJarFileURL(), e);
+    if (stubDebug) {
+      String factoryClass = factory.getClass().getSimpleName();
+      System.out.printf("Contents of remainingJdkStubFilesArchive for %s:%n", factoryClass);
+      printSortedIndented(remainingJdkStubFilesArchive);
+      System.out.printf("End of remainingJdkStubFilesArchive for %s.%n", factoryClass);
     }
   }
 
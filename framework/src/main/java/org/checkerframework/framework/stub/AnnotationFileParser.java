@@ -730,10 +730,34 @@ public class AnnotationFileParser {
         filename, inputStream, atypeFactory, processingEnv, stubAnnos, AnnotationFileType.JDK_STUB);
   }
 
+  /**
+   * Like {@link #parseJdkFileAsStub}, but for a stub file of the annotated JDK that has already
+   * been parsed, for example by {@link JdkStubArchive}.
+   *
+   * @param filename name of stub file, used only for diagnostic messages
+   * @param stubUnit the parsed stub file
+   * @param atypeFactory the type factory
+   * @param processingEnv the processing environment
+   * @param stubAnnos annotations from the stub file; side-effected by this method
+   */
+  public static void parseJdkStubUnitAsStub(
+      String filename,
+      StubUnit stubUnit,
+      AnnotatedTypeFactory atypeFactory,
+      ProcessingEnvironment processingEnv,
+      AnnotationFileAnnotations stubAnnos) {
+    AnnotationFileParser afp =
+        new AnnotationFileParser(
+            filename, atypeFactory, processingEnv, AnnotationFileType.JDK_STUB);
+    afp.setStubUnit(stubUnit);
+    afp.process(stubAnnos);
+  }
+
   /**
    * Delegate to the Stub Parser to parse the annotation file to an AST, and save it in {@link
-   * #stubUnit}. Also sets {@link #allAnnotations}. Does not copy annotations out of {@link
-   * #stubUnit}; that is done by the {@code process*} methods.
+   * #stubUnit}. The AST is a copy of one cached by {@link ParsedAnnotationFileCache}. Also sets
+   * {@link #allAnnotations}. Does not copy annotations out of {@link #stubUnit}; that is done by
+   * the {@code process*} methods.
    *
    * <p>Subsequently, all work uses the AST.
    *
@@ -743,7 +767,17 @@ public class AnnotationFileParser {
     stubDebug(
         "started parsing annotation file %s for %s",
         filename, atypeFactory.getClass().getSimpleName());
-    stubUnit = JavaParserUtil.parseStubUnit(inputStream);
+    setStubUnit(ParsedAnnotationFileCache.parseStubUnit(inputStream));
+  }
+
+  /**
+   * Sets {@link #stubUnit} to the given AST, and sets {@link #allAnnotations}. Does not copy
+   * annotations out of {@link #stubUnit}; that is done by the {@code process*} methods.
+   *
+   * @param stubUnit the AST of an annotation file
+   */
+  private void setStubUnit(StubUnit stubUnit) {
+    this.stubUnit = stubUnit;
 
     // getImportedAnnotations() also modifies importedConstants and importedTypes. This should
     // be refactored to be nicer.
@@ -2989,6 +3023,14 @@ public class AnnotationFileParser {
   /** The warnings that have been issued so far. */
   private static final Set<String> warnings = new HashSet<>();
 
+  /**
+   * Forgets the warnings that have been issued so far. Called between compilations that run in the
+   * same JVM, so that each compilation issues every warning once.
+   */
+  public static void clearIssuedWarnings() {
+    warnings.clear();
+  }
+
   /**
    * Issues the given warning about missing elements, only if it has not been previously issued and
    * the -AstubWarnIfNotFound command-line argument was passed.
@@ -0,0 +1,240 @@
+package org.checkerframework.framework.stub;
+
+import com.github.javaparser.ast.StubUnit;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.stubifier.JdkStubArchiveWriter;
+import org.checkerframework.framework.util.JavaParserUtil;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * The annotated JDK, packed at build time into a single indexed archive by {@link
+ * JdkStubArchiveWriter}. See that class for the format.
+ *
+ * <p>The archive is read at most once per JVM and is shared by all type factories. If the archive
+ * is a file, it is memory-mapped; if it is inside a jar file, it is read into memory. Each stub
+ * file in the archive is parsed at most once, as long as memory permits, no matter how many type
+ * factories (for example, subcheckers) use it.
+ */
+public final class JdkStubArchive {
+
+  /** The name of the resource that contains the archive. */
+  public static final String RESOURCE_NAME = "/annotated-jdk.archive";
+
+  /** The archive, or null if it has not been loaded or does not exist. */
+  private static @MonotonicNonNull JdkStubArchive instance = null;
+
+  /** True if {@link #instance} has been computed. */
+  private static boolean loaded = false;
+
+  /** The names of the entries, in sorted order. */
+  private final String[] names;
+
+  /** The offsets of the entries in {@link #contents}, parallel to {@link #names}. */
+  private final int[] offsets;
+
+  /** The lengths of the entries, parallel to {@link #names}. */
+  private final int[] lengths;
+
+  /** The contents of all the entries. */
+  private final ByteBuffer contents;
+
+  /** The stub files that have already been parsed, by entry name. */
+  private final Map<String, SoftReference<StubUnit>> parsedEntries = new HashMap<>();
+
+  /**
+   * Creates a JdkStubArchive from the bytes of an archive.
+   *
+   * @param buffer the archive
+   * @param source where the archive came from, for diagnostic messages
+   */
+  private JdkStubArchive(ByteBuffer buffer, URL source) {
+    if (buffer.getInt() != JdkStubArchiveWriter.MAGIC
+        || buffer.getInt() != JdkStubArchiveWriter.VERSION) {
+      throw new BugInCF("Not an annotated JDK archive, or wrong version: " + source);
+    }
+    int size = buffer.getInt();
+    names = new String[size];
+    offsets = new int[size];
+    lengths = new int[size];
+    for (int i = 0; i < size; i++) {
+      names[i] = readUTF(buffer);
+      offsets[i] = buffer.getInt();
+      lengths[i] = buffer.getInt();
+    }
+    contents = buffer.slice();
+  }
+
+  /**
+   * Returns the annotated JDK archive, reading it the first time this method is called.
+   *
+   * @return the annotated JDK archive, or null if this build of the Checker Framework does not
+   *     contain one
+   */
+  public static synchronized @Nullable JdkStubArchive getInstance() {
+    if (!loaded) {
+      loaded = true;
+      URL url = JdkStubArchive.class.getResource(RESOURCE_NAME);
+      if (url != null) {
+        instance = open(url);
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Reads the archive at the given URL. Most clients should use {@link #getInstance} instead.
+   *
+   * @param url the location of an archive written by {@link JdkStubArchiveWriter}
+   * @return the archive
+   */
+  public static JdkStubArchive open(URL url) {
+    return new JdkStubArchive(read(url), url);
+  }
+
+  /**
+   * Returns the names of all the entries in this archive, in sorted order. The name of an entry is
+   * the fully-qualified name of the class that it defines, or the package name followed by
+   * ".package-info".
+   *
+   * @return the names of all the entries in this archive
+   */
+  public List<String> getEntryNames() {
+    return Collections.unmodifiableList(Arrays.asList(names));
+  }
+
+  /**
+   * Returns the parsed stub file for the given entry. The result is a copy of the cached AST, so
+   * the caller may modify it.
+   *
+   * @param name the name of an entry
+   * @return the parsed stub file for the entry, which is not shared with any other caller
+   */
+  public synchronized StubUnit getStubUnit(String name) {
+    SoftReference<StubUnit> ref = parsedEntries.get(name);
+    StubUnit result = (ref == null) ? null : ref.get();
+    if (result == null) {
+      result = JavaParserUtil.parseStubUnit(openEntry(name));
+      parsedEntries.put(name, new SoftReference<>(result));
+    }
+    return (StubUnit) result.clone();
+  }
+
+  /**
+   * Returns the contents of the given entry.
+   *
+   * @param name the name of an entry
+   * @return the contents of the entry
+   */
+  private InputStream openEntry(String name) {
+    int index = Arrays.binarySearch(names, name);
+    if (index < 0) {
+      throw new BugInCF("No entry %s in the annotated JDK archive", name);
+    }
+    ByteBuffer entry = contents.duplicate();
+    // The casts to Buffer let this code run on Java 8, where ByteBuffer does not override these
+    // methods.
+    ((Buffer) entry).position(offsets[index]);
+    ((Buffer) entry).limit(offsets[index] + lengths[index]);
+    return new ByteBufferInputStream(entry.slice());
+  }
+
+  /**
+   * Reads the archive at the given URL. Memory-maps it if it is a file.
+   *
+   * @param url the location of the archive
+   * @return the contents of the archive
+   */
+  private static ByteBuffer read(URL url) {
+    try {
+      if (url.getProtocol().equals("file")) {
+        try (FileChannel channel =
+            FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+          return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+      }
+      try (InputStream in = url.openStream()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1 << 16];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+          out.write(chunk, 0, n);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+      }
+    } catch (IOException | URISyntaxException e) {
+      throw new BugInCF("Cannot read the annotated JDK archive " + url, e);
+    }
+  }
+
+  /**
+   * Reads a string in the format written by {@link java.io.DataOutputStream#writeUTF}, which is
+   * sufficient for class names.
+   *
+   * @param buffer the buffer to read from
+   * @return the string
+   */
+  private static String readUTF(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    // Class names in the JDK are ASCII, for which modified UTF-8 and UTF-8 agree.
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** An InputStream that reads the remaining bytes of a ByteBuffer. */
+  private static class ByteBufferInputStream extends InputStream {
+
+    /** The buffer to read from. */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a ByteBufferInputStream.
+     *
+     * @param buffer the buffer to read from
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.checkerframework.framework.stub;
+
+import com.github.javaparser.ast.StubUnit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import org.checkerframework.framework.util.JavaParserUtil;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A cache of parsed annotation files (stub files and ajava files), shared by all type factories in
+ * the JVM. Without it, every type factory -- in particular, every subchecker of a compound checker
+ * -- parses the same {@code -Astubs} files, and every ajava file, again.
+ *
+ * <p>Entries are keyed by a hash of the file contents, so a file that has changed is parsed again.
+ * Entries are softly referenced, so the cache never causes an out-of-memory error.
+ *
+ * <p>The cache lives as long as the JVM. When {@code javac} runs in a daemon (see {@link
+ * org.checkerframework.framework.util.CheckerDaemon}), it therefore persists across builds, and a
+ * build that recompiles a few files does not parse the unchanged annotation files again. The
+ * cache is in memory only: a new JVM parses every annotation file again. The daemon serves only
+ * the {@code checker.jar} that it was started from, so there is no need to include the version of
+ * the Checker Framework in the key.
+ *
+ * <p>The cached ASTs are never handed out. Each lookup returns a copy, which the caller owns and
+ * may modify.
+ */
+public final class ParsedAnnotationFileCache {
+
+  /** Maps the hash of the contents of an annotation file to the parsed file. */
+  private static final Map<String, SoftReference<StubUnit>> cache = new HashMap<>();
+
+  /** The number of lookups that found a parsed file in the cache. */
+  private static int hits = 0;
+
+  /** The number of lookups that had to parse the file. */
+  private static int misses = 0;
+
+  /** Do not instantiate. */
+  private ParsedAnnotationFileCache() {
+    throw new Error("Do not instantiate");
+  }
+
+  /**
+   * Returns the parsed annotation file with the given contents, parsing it if it is not in the
+   * cache.
+   *
+   * @param inputStream the contents of an annotation file
+   * @return the parsed annotation file, which is not shared with any other caller
+   * @throws com.github.javaparser.ParseProblemException if the file cannot be parsed
+   */
+  public static StubUnit parseStubUnit(InputStream inputStream) {
+    byte[] contents = readContents(inputStream);
+    String key = hash(contents);
+    synchronized (cache) {
+      SoftReference<StubUnit> ref = cache.get(key);
+      StubUnit result = (ref == null) ? null : ref.get();
+      if (result != null) {
+        hits++;
+        return (StubUnit) result.clone();
+      }
+      misses++;
+    }
+    // Parse without holding the lock, so that threads that parse different files do not wait for
+    // one another.  The cache holds a copy, so that the caller may modify the result.
+    StubUnit parsed = JavaParserUtil.parseStubUnit(new ByteArrayInputStream(contents));
+    StubUnit cached = (StubUnit) parsed.clone();
+    synchronized (cache) {
+      cache.put(key, new SoftReference<>(cached));
+    }
+    return parsed;
+  }
+
+  /**
+   * Reads the remaining contents of the given stream.
+   *
+   * @param inputStream a stream
+   * @return the remaining contents of {@code inputStream}
+   */
+  private static byte[] readContents(InputStream inputStream) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    try {
+      int n;
+      while ((n = inputStream.read(chunk)) != -1) {
+        out.write(chunk, 0, n);
+      }
+    } catch (IOException e) {
+      throw new BugInCF("Cannot read annotation file", e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns a human-readable summary of the use of this cache, for {@code -AresourceStats}.
+   *
+   * @return a summary of the use of this cache
+   */
+  public static String getStatistics() {
+    synchronized (cache) {
+      return String.format(
+          "Parsed annotation file cache: %d hits, %d misses, %d entries",
+          hits, misses, cache.size());
+    }
+  }
+
+  /**
+   * Returns a hash of the given bytes.
+   *
+   * @param contents the bytes to hash
+   * @return a hash of {@code contents}
+   */
+  private static String hash(byte[] contents) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder().encodeToString(digest.digest(contents));
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF("SHA-256 is not supported", e);
+    }
+  }
+}
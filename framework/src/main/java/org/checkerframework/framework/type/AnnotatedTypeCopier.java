@@ -115,11 +115,12 @@ public class AnnotatedTypeCopier
       copy.setIsUnderlyingTypeRaw();
     }
 
-    if (original.enclosingType != null) {
-      copy.enclosingType = (AnnotatedDeclaredType) visit(original.enclosingType, originalToCopy);
+    if (original.getEnclosingType() != null) {
+      copy.setEnclosingType(
+          (AnnotatedDeclaredType) visit(original.getEnclosingType(), originalToCopy));
     }
 
-    if (original.typeArgs != null) {
+    if (original.getTypeArgumentsField() != null) {
       List<AnnotatedTypeMirror> copyTypeArgs =
           CollectionsPlume.mapList(
               (AnnotatedTypeMirror typeArg) -> visit(typeArg, originalToCopy),
@@ -140,11 +141,12 @@ public class AnnotatedTypeCopier
 
     AnnotatedIntersectionType copy = makeOrReturnCopy(original, originalToCopy);
 
-    if (original.bounds != null) {
+    List<AnnotatedTypeMirror> originalBounds = original.getBoundsField();
+    if (originalBounds != null) {
       List<AnnotatedTypeMirror> copySupertypes =
           CollectionsPlume.mapList(
-              (AnnotatedTypeMirror bound) -> visit(bound, originalToCopy), original.bounds);
-      copy.bounds = Collections.unmodifiableList(copySupertypes);
+              (AnnotatedTypeMirror bound) -> visit(bound, originalToCopy), originalBounds);
+      copy.setBounds(Collections.unmodifiableList(copySupertypes));
     }
 
     return copy;
@@ -160,13 +162,14 @@ public class AnnotatedTypeCopier
 
     AnnotatedUnionType copy = makeOrReturnCopy(original, originalToCopy);
 
-    if (original.alternatives != null) {
+    List<AnnotatedDeclaredType> originalAlternatives = original.getAlternativesField();
+    if (originalAlternatives != null) {
       List<AnnotatedDeclaredType> copyAlternatives =
           CollectionsPlume.mapList(
               (AnnotatedDeclaredType supertype) ->
                   (AnnotatedDeclaredType) visit(supertype, originalToCopy),
-              original.alternatives);
-      copy.alternatives = Collections.unmodifiableList(copyAlternatives);
+              originalAlternatives);
+      copy.setAlternatives(Collections.unmodifiableList(copyAlternatives));
     }
 
     return copy;
@@ -106,6 +106,9 @@ import org.checkerframework.framework.qual.HasQualifierParameter;
 import org.checkerframework.framework.qual.InheritedAnnotation;
 import org.checkerframework.framework.qual.NoQualifierParameter;
 import org.checkerframework.framework.qual.RequiresQualifier;
+import org.checkerframework.framework.source.PhaseStatistics;
+import org.checkerframework.framework.source.PhaseStatistics.Counter;
+import org.checkerframework.framework.source.PhaseStatistics.Phase;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.stub.AnnotationFileElementTypes;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
@@ -293,6 +296,27 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
   /** Performs whole-program inference. If null, whole-program inference is disabled. */
   private final @Nullable WholeProgramInference wholeProgramInference;
 
+  /**
+   * True if the {@code -AinferFixpoint} command-line option was passed. Then the results of
+   * whole-program inference are written once, by {@link #wpiWriteFixpointResults}, rather than
+   * after each class.
+   */
+  private final boolean inferFixpoint;
+
+  /**
+   * If the {@code -AinferFixpoint} command-line option was passed, maps the path of each source
+   * file to the ajava file inferred for it in the previous round of type-checking. Empty during the
+   * first round.
+   */
+  private Map<String, String> wpiFixpointAjava = Collections.emptyMap();
+
+  /**
+   * If the {@code -AinferFixpoint} command-line option was passed, stores the annotations on public
+   * elements that were inferred in the previous round of type-checking, as {@link #ajavaTypes}
+   * stores those read from ajava files. Null during the first round.
+   */
+  private @Nullable AnnotationFileElementTypes wpiFixpointTypes = null;
+
   /**
    * This formatter is used for converting AnnotatedTypeMirrors to Strings. This formatter will be
    * used by all AnnotatedTypeMirrors created by this factory in their toString methods.
@@ -618,6 +642,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     this.annotationFormatter = createAnnotationFormatter();
     this.typeInformationPresenter = createTypeInformationPresenter();
 
+    this.inferFixpoint = checker.hasOption("inferFixpoint");
     if (checker.hasOption("infer")) {
       checkInvalidOptionsInferSignatures();
       String inferArg = checker.getOption("infer");
@@ -641,6 +666,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                   + inferArg
                   + " should be one of: -Ainfer=jaifs, -Ainfer=stubs, -Ainfer=ajava");
       }
+      if (inferFixpoint && wpiOutputFormat != WholeProgramInference.OutputFormat.AJAVA) {
+        throw new UserError("-AinferFixpoint requires -Ainfer=ajava");
+      }
       boolean showWpiFailedInferences = checker.hasOption("showWpiFailedInferences");
       boolean inferOutputOriginal = checker.hasOption("inferOutputOriginal");
       if (inferOutputOriginal && wpiOutputFormat != WholeProgramInference.OutputFormat.AJAVA) {
@@ -885,6 +913,118 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     return wholeProgramInference;
   }
 
+  /**
+   * Prepares this factory for a round of type-checking, when the {@code -AinferFixpoint}
+   * command-line option was passed. Makes the annotations inferred in the previous round visible,
+   * as if they had been read from ajava files passed through the {@code -Aajava} command-line
+   * option.
+   *
+   * <p>The annotations are read into a new {@link #wpiFixpointTypes} in each round. Reading them
+   * into the existing one would keep annotations that were inferred in an earlier round but not in
+   * the previous one: the annotation file parser adds declaration annotations to those already
+   * stored, and replaces a type annotation only where the new file has one.
+   */
+  public void wpiStartFixpointRound() {
+    // The type and the declaration annotations of an element depend on the annotations inferred
+    // in the previous round.
+    if (shouldCache) {
+      elementCache.clear();
+    }
+    cacheDeclAnnos.clear();
+    if (wpiFixpointAjava.isEmpty()) {
+      wpiFixpointTypes = null;
+      return;
+    }
+    // Set the field before parsing, so that the types computed while parsing are not cached.
+    AnnotationFileElementTypes types = new AnnotationFileElementTypes(this);
+    wpiFixpointTypes = types;
+    for (Map.Entry<String, String> entry : wpiFixpointAjava.entrySet()) {
+      types.parseAjavaFileAsStub(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Finishes a round of type-checking, when the {@code -AinferFixpoint} command-line option was
+   * passed. The annotations inferred so far are kept in memory for the next round.
+   *
+   * @return the paths of the source files whose inferred annotations differ from those at the end
+   *     of the previous round
+   */
+  public Set<String> wpiFinishFixpointRound() {
+    if (wholeProgramInference == null) {
+      return Collections.emptySet();
+    }
+    Map<String, String> ajava =
+        getWpiFixpointStorage(wholeProgramInference).printAjavaFiles(checker);
+    Set<String> changedFiles = new HashSet<>();
+    for (Map.Entry<String, String> entry : ajava.entrySet()) {
+      if (!entry.getValue().equals(wpiFixpointAjava.get(entry.getKey()))) {
+        changedFiles.add(entry.getKey());
+      }
+    }
+    for (String path : wpiFixpointAjava.keySet()) {
+      if (!ajava.containsKey(path)) {
+        changedFiles.add(path);
+      }
+    }
+    wpiFixpointAjava = ajava;
+    return changedFiles;
+  }
+
+  /**
+   * Returns the source files whose inferred annotations whole-program inference has read or updated
+   * since the last call to this method, when the {@code -AinferFixpoint} command-line option was
+   * passed. Is called after each class is type-checked.
+   *
+   * @return the source files whose inferred annotations have been read or updated since the last
+   *     call to this method
+   */
+  public Set<String> wpiTakeAccessedFiles() {
+    if (wholeProgramInference == null) {
+      return Collections.emptySet();
+    }
+    return getWpiFixpointStorage(wholeProgramInference).takeAccessedFiles();
+  }
+
+  /**
+   * Discards the annotations inferred for the given source files, when the {@code -AinferFixpoint}
+   * command-line option was passed. Is called between rounds of type-checking, so that the next
+   * round infers the annotations for these files afresh from the classes that it type-checks.
+   *
+   * @param paths the source files whose inferred annotations to discard
+   */
+  public void wpiDiscardInferredAnnotations(Set<String> paths) {
+    if (wholeProgramInference != null) {
+      getWpiFixpointStorage(wholeProgramInference).discardInferredAnnotations(paths);
+    }
+  }
+
+  /**
+   * Returns the storage of the given whole-program inference, which is a {@link
+   * WholeProgramInferenceJavaParserStorage} when the {@code -AinferFixpoint} command-line option
+   * was passed.
+   *
+   * @param wpi the whole-program inference of this factory
+   * @return the storage of {@code wpi}
+   */
+  private static WholeProgramInferenceJavaParserStorage getWpiFixpointStorage(
+      WholeProgramInference wpi) {
+    return (WholeProgramInferenceJavaParserStorage)
+        ((WholeProgramInferenceImplementation<?>) wpi).getStorage();
+  }
+
+  /**
+   * Writes the results of whole-program inference to disk, when the {@code -AinferFixpoint}
+   * command-line option was passed. Is called once, after the last round of type-checking.
+   */
+  public void wpiWriteFixpointResults() {
+    if (wholeProgramInference != null) {
+      wholeProgramInference.writeResultsToFile(wpiOutputFormat, this.checker);
+    }
+    wpiFixpointAjava = Collections.emptyMap();
+    wpiFixpointTypes = null;
+  }
+
   /** Initialize reflection resolution. */
   protected void initializeReflectionResolution() {
     if (checker.shouldResolveReflection()) {
@@ -934,13 +1074,21 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
       fromMemberTreeCache.clear();
       fromTypeTreeCache.clear();
       classAndMethodTreeCache.clear();
+      typeArgumentInference.clearCache();
 
       // There is no need to clear the following cache, it is limited by cache size and it
       // contents won't change between compilation units.
       // elementCache.clear();
     }
 
-    if (root != null && checker.hasOption("ajava")) {
+    String fixpointAjava =
+        root == null ? null : wpiFixpointAjava.get(root.getSourceFile().toUri().getPath());
+    if (fixpointAjava != null) {
+      // With -AinferFixpoint, use the annotations inferred for this file in the previous round.
+      currentFileAjavaTypes = new AnnotationFileElementTypes(this);
+      currentFileAjavaTypes.parseAjavaFileWithTree(
+          root.getSourceFile().getName(), fixpointAjava, root);
+    } else if (root != null && checker.hasOption("ajava")) {
       // Search for an ajava file with annotations for the current source file and the current
       // checker. It will be in a directory specified by the "ajava" option in a subdirectory
       // corresponding to this file's package. For example, a file in package a.b would be in
@@ -1110,6 +1258,18 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     return typeArgumentInference;
   }
 
+  /**
+   * Returns true if results that are computed from the types of the expressions at {@code path}
+   * may be cached for the rest of the compilation unit, because those types will not change.
+   *
+   * @param path a path to code in the current compilation unit
+   * @return true if results computed from the types of the expressions at {@code path} may be
+   *     cached
+   */
+  public boolean shouldCacheResultsAt(TreePath path) {
+    return shouldCache;
+  }
+
   /**
    * Factory method to easily change what {@link AnnotationClassLoader} is created to load type
    * annotation classes. Subclasses can override this method and return a custom
@@ -1390,13 +1550,34 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * @return the annotated type of {@code tree}
    */
   public AnnotatedTypeMirror getAnnotatedType(Tree tree) {
+    PhaseStatistics stats = checker.getPhaseStatistics();
+    if (stats == null) {
+      return computeAnnotatedType(tree);
+    }
+    long start = stats.enter(Phase.GET_ANNOTATED_TYPE);
+    try {
+      return computeAnnotatedType(tree);
+    } finally {
+      stats.exit(Phase.GET_ANNOTATED_TYPE, start);
+    }
+  }
+
+  /**
+   * Computes the annotated type of {@code tree}; the implementation of {@link
+   * #getAnnotatedType(Tree)}.
+   *
+   * @param tree the AST node
+   * @return the annotated type of {@code tree}
+   */
+  private AnnotatedTypeMirror computeAnnotatedType(Tree tree) {
     logGat("getAnnotatedType(%s)%n", tree);
 
     if (tree == null) {
       throw new BugInCF("AnnotatedTypeFactory.getAnnotatedType: null tree");
     }
     if (shouldCache && classAndMethodTreeCache.containsKey(tree)) {
-      return classAndMethodTreeCache.get(tree).deepCopy();
+      countTreeCacheLookup(true);
+      return LazyAnnotatedTypeCopier.copy(classAndMethodTreeCache.get(tree));
     }
 
     AnnotatedTypeMirror type;
@@ -1424,6 +1605,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     if (TreeUtils.isClassTree(tree) || tree instanceof MethodTree) {
       // Don't cache VARIABLE
       if (shouldCache) {
+        countTreeCacheLookup(false);
         classAndMethodTreeCache.put(tree, type.deepCopy());
       }
     } else {
@@ -1433,6 +1615,18 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     return type;
   }
 
+  /**
+   * Counts a lookup in one of the tree caches, for the {@code -AphaseStats} command-line option.
+   *
+   * @param hit true if the cache contained the tree
+   */
+  private void countTreeCacheLookup(boolean hit) {
+    PhaseStatistics stats = checker.getPhaseStatistics();
+    if (stats != null) {
+      stats.count(hit ? Counter.TREE_CACHE_HIT : Counter.TREE_CACHE_MISS);
+    }
+  }
+
   /**
    * Called by {@link BaseTypeVisitor#visitClass(ClassTree, Void)} before the classTree is type
    * checked.
@@ -1457,7 +1651,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
       typeInformationPresenter.process(tree);
     }
 
-    if (wholeProgramInference != null) {
+    if (wholeProgramInference != null && !inferFixpoint) {
       // Write out the results of whole-program inference, just once for each class.  As soon
       // as any class is finished processing, all modified scenes are written to files, in
       // case this was the last class to be processed.  Post-processing of subsequent classes
@@ -1545,8 +1739,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations
    */
   public AnnotatedTypeMirror fromElement(Element elt) {
+    checker.recordDependency(elt);
     if (shouldCache && elementCache.containsKey(elt)) {
-      return elementCache.get(elt).deepCopy();
+      return LazyAnnotatedTypeCopier.copy(elementCache.get(elt));
     }
     if (elt.getKind() == ElementKind.PACKAGE) {
       return toAnnotatedType(elt.asType(), false);
@@ -1583,6 +1778,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     }
 
     type = mergeAnnotationFileAnnosIntoType(type, elt, ajavaTypes);
+    if (wpiFixpointTypes != null) {
+      type = mergeAnnotationFileAnnosIntoType(type, elt, wpiFixpointTypes);
+    }
     if (currentFileAjavaTypes != null) {
       type = mergeAnnotationFileAnnosIntoType(type, elt, currentFileAjavaTypes);
     }
@@ -1601,6 +1799,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     if (shouldCache
         && !stubTypes.isParsing()
         && !ajavaTypes.isParsing()
+        && (wpiFixpointTypes == null || !wpiFixpointTypes.isParsing())
         && (currentFileAjavaTypes == null || !currentFileAjavaTypes.isParsing())) {
       elementCache.put(elt, type.deepCopy());
     }
@@ -1638,11 +1837,18 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
           "AnnotatedTypeFactory.fromMember: not a method or variable declaration: " + tree);
     }
     if (shouldCache && fromMemberTreeCache.containsKey(tree)) {
-      return fromMemberTreeCache.get(tree).deepCopy();
+      countTreeCacheLookup(true);
+      return LazyAnnotatedTypeCopier.copy(fromMemberTreeCache.get(tree));
+    }
+    if (shouldCache) {
+      countTreeCacheLookup(false);
     }
     AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
 
     result = mergeAnnotationFileAnnosIntoType(result, tree, ajavaTypes);
+    if (wpiFixpointTypes != null) {
+      result = mergeAnnotationFileAnnosIntoType(result, tree, wpiFixpointTypes);
+    }
     if (currentFileAjavaTypes != null) {
       result = mergeAnnotationFileAnnosIntoType(result, tree, currentFileAjavaTypes);
     }
@@ -1733,7 +1939,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     logGat("fromExpression(%s) of kind %s%n", tree, tree.getKind());
     if (shouldCache && fromExpressionTreeCache.containsKey(tree)) {
       logGat("fromExpression(%s) => [cached] %s%n", tree, fromExpressionTreeCache.get(tree));
-      return fromExpressionTreeCache.get(tree).deepCopy();
+      countTreeCacheLookup(true);
+      return LazyAnnotatedTypeCopier.copy(fromExpressionTreeCache.get(tree));
+    }
+    if (shouldCache) {
+      countTreeCacheLookup(false);
     }
 
     AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
@@ -1764,7 +1974,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    */
   /*package-private*/ final AnnotatedTypeMirror fromTypeTree(Tree tree) {
     if (shouldCache && fromTypeTreeCache.containsKey(tree)) {
-      return fromTypeTreeCache.get(tree).deepCopy();
+      return LazyAnnotatedTypeCopier.copy(fromTypeTreeCache.get(tree));
     }
 
     AnnotatedTypeMirror result = TypeFromTree.fromTypeTree(this, tree);
@@ -3862,8 +4072,16 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * <p>The annotations are stored by side-effecting {@link #stubTypes} and {@link #ajavaTypes}.
    */
   protected void parseAnnotationFiles() {
-    stubTypes.parseStubFiles();
-    ajavaTypes.parseAjavaFiles();
+    PhaseStatistics stats = checker.getPhaseStatistics();
+    long start = stats == null ? 0 : stats.enter(Phase.STUB_PARSING);
+    try {
+      stubTypes.parseStubFiles();
+      ajavaTypes.parseAjavaFiles();
+    } finally {
+      if (stats != null) {
+        stats.exit(Phase.STUB_PARSING, start);
+      }
+    }
   }
 
   /**
@@ -4017,6 +4235,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * @return all of the declaration annotations on this element, written in stub files, or inherited
    */
   public AnnotationMirrorSet getDeclAnnotations(Element elt) {
+    checker.recordDependency(elt);
     AnnotationMirrorSet cachedValue = cacheDeclAnnos.get(elt);
     if (cachedValue != null) {
       // Found in cache, return result.
@@ -4044,6 +4263,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     // If parsing annotation files, return only the annotations in the element.
     if (stubTypes.isParsing()
         || ajavaTypes.isParsing()
+        || (wpiFixpointTypes != null && wpiFixpointTypes.isParsing())
         || (currentFileAjavaTypes != null && currentFileAjavaTypes.isParsing())) {
       return results;
     }
@@ -4051,6 +4271,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     // Add annotations from annotation files.
     results.addAll(stubTypes.getDeclAnnotations(elt));
     results.addAll(ajavaTypes.getDeclAnnotations(elt));
+    if (wpiFixpointTypes != null) {
+      results.addAll(wpiFixpointTypes.getDeclAnnotations(elt));
+    }
     if (currentFileAjavaTypes != null) {
       results.addAll(currentFileAjavaTypes.getDeclAnnotations(elt));
     }
@@ -88,6 +88,19 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
   // Caution: Assumes that a type can have at most one AnnotationMirror for any Annotation type.
   protected final AnnotationMirrorSet primaryAnnotations = new AnnotationMirrorSet();
 
+  /**
+   * If non-null, this type is a copy-on-access copy of {@code snapshotSource}, made by {@link
+   * LazyAnnotatedTypeCopier}: its primary annotations have been copied, but its component types
+   * have not been copied yet. Every method that reads or writes a component field must call {@link
+   * #materialize()} first. The component fields are private, so code outside this file reads them
+   * only through such methods, such as {@code getUpperBoundField()} and {@code
+   * getTypeArgumentsField()}.
+   */
+  private @Nullable AnnotatedTypeMirror snapshotSource;
+
+  /** The copier that made this copy-on-access copy; non-null iff {@link #snapshotSource} is. */
+  private @Nullable LazyAnnotatedTypeCopier snapshotCopier;
+
   // /** The explicitly written annotations on this type. */
   // TODO: use this to cache the result once computed? For generic types?
   // protected final AnnotationMirrorSet explicitannotations =
@@ -110,6 +123,34 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
   // @Override
   // public AnnotatedTypeMirror clone() { ... }
 
+  /**
+   * Makes this a copy-on-access copy of {@code source}. Only {@link LazyAnnotatedTypeCopier} calls
+   * this method, on a type it has just created.
+   *
+   * @param source the type of which this is a copy
+   * @param copier the copier that will copy the component types of {@code source}
+   */
+  /*package-private*/ final void setSnapshotSource(
+      AnnotatedTypeMirror source, LazyAnnotatedTypeCopier copier) {
+    this.snapshotSource = source;
+    this.snapshotCopier = copier;
+  }
+
+  /**
+   * If this is a copy-on-access copy whose component types have not been copied yet, copies them
+   * now. Otherwise, does nothing.
+   */
+  /*package-private*/ final void materialize() {
+    if (snapshotSource != null) {
+      AnnotatedTypeMirror source = snapshotSource;
+      LazyAnnotatedTypeCopier copier = snapshotCopier;
+      // Clear the fields first: the copier calls setters on this, which call this method.
+      snapshotSource = null;
+      snapshotCopier = null;
+      copier.materialize(source, this);
+    }
+  }
+
   /**
    * Creates an AnnotatedTypeMirror for the provided type. The result contains no annotations.
    *
@@ -948,7 +989,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
   public static class AnnotatedDeclaredType extends AnnotatedTypeMirror {
 
     /** Parametrized Type Arguments. */
-    protected @MonotonicNonNull List<AnnotatedTypeMirror> typeArgs;
+    private @MonotonicNonNull List<AnnotatedTypeMirror> typeArgs;
 
     /**
      * True if the type was initially raw, i.e. the user did not provide the type arguments.
@@ -960,7 +1001,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
     private boolean isUnderlyingTypeRaw;
 
     /** The enclosing type. May be null. May be changed. */
-    protected @Nullable AnnotatedDeclaredType enclosingType;
+    private @Nullable AnnotatedDeclaredType enclosingType;
 
     /** True if this represents a declaration, rather than a use, of a type. */
     private boolean declaration;
@@ -1016,10 +1057,11 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       if (!this.isDeclaration()) {
         return this;
       }
+      materialize();
       AnnotatedDeclaredType result = this.shallowCopy(true);
       result.declaration = false;
       if (this.enclosingType != null) {
-        result.enclosingType = this.enclosingType.asUse();
+        result.setEnclosingType(this.enclosingType.asUse());
       }
       // setTypeArguments calls asUse on all the new type arguments.
       result.setTypeArguments(typeArgs);
@@ -1057,6 +1099,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param ts a list of type arguments to be captured by this method
      */
     public void setTypeArguments(List<? extends AnnotatedTypeMirror> ts) {
+      materialize();
       if (ts == null || ts.isEmpty()) {
         typeArgs = Collections.emptyList();
       } else if (isDeclaration()) {
@@ -1084,6 +1127,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the type arguments for this type
      */
     public List<AnnotatedTypeMirror> getTypeArguments() {
+      materialize();
       if (typeArgs != null) {
         return typeArgs;
       }
@@ -1129,6 +1173,16 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return typeArgs;
     }
 
+    /**
+     * Returns the type arguments field directly, bypassing any lazy initialization.
+     *
+     * @return the type arguments, or null if they have not been initialized
+     */
+    /*package-private*/ @Nullable List<AnnotatedTypeMirror> getTypeArgumentsField() {
+      materialize();
+      return typeArgs;
+    }
+
     /**
      * Returns true if the underlying type is raw. The receiver of this method is not raw, however;
      * its annotated type arguments have been inferred.
@@ -1136,6 +1190,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return true iff the type was raw
      */
     public boolean isUnderlyingTypeRaw() {
+      materialize();
       return isUnderlyingTypeRaw;
     }
 
@@ -1144,6 +1199,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * supertypes of a raw type.
      */
     protected void setIsUnderlyingTypeRaw() {
+      materialize();
       this.isUnderlyingTypeRaw = true;
     }
 
@@ -1203,6 +1259,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param enclosingType the new enclosing type
      */
     public void setEnclosingType(@Nullable AnnotatedDeclaredType enclosingType) {
+      materialize();
       this.enclosingType = enclosingType;
     }
 
@@ -1213,6 +1270,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return enclosingType the enclosing type, or null if this is a top-level type
      */
     public @Nullable AnnotatedDeclaredType getEnclosingType() {
+      materialize();
       return enclosingType;
     }
 
@@ -1262,7 +1320,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
   public static class AnnotatedExecutableType extends AnnotatedTypeMirror {
 
     /** The element of the method. */
-    /*package-private*/ @MonotonicNonNull ExecutableElement element;
+    private @MonotonicNonNull ExecutableElement element;
 
     /**
      * Creates an {@link AnnotatedExecutableType}.
@@ -1275,7 +1333,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
     }
 
     /** The parameter types; an unmodifiable list. */
-    /*package-private*/ @MonotonicNonNull List<AnnotatedTypeMirror> paramTypes = null;
+    private @MonotonicNonNull List<AnnotatedTypeMirror> paramTypes = null;
 
     /** True if {@link paramTypes} has been computed. */
     private boolean paramTypesComputed = false;
@@ -1284,25 +1342,25 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * The receiver type of this executable type; null for static methods and constructors of
      * top-level classes.
      */
-    /*package-private*/ @Nullable AnnotatedDeclaredType receiverType;
+    private @Nullable AnnotatedDeclaredType receiverType;
 
     /** True if {@link receiverType} has been computed. */
     private boolean receiverTypeComputed = false;
 
     /** The return type. */
-    /*package-private*/ @MonotonicNonNull AnnotatedTypeMirror returnType;
+    private @MonotonicNonNull AnnotatedTypeMirror returnType;
 
     /** True if {@link returnType} has been computed. */
     private boolean returnTypeComputed = false;
 
     /** The thrown types; an unmodifiable list. */
-    /*package-private*/ @MonotonicNonNull List<AnnotatedTypeMirror> thrownTypes;
+    private @MonotonicNonNull List<AnnotatedTypeMirror> thrownTypes;
 
     /** True if {@link thrownTypes} has been computed. */
     private boolean thrownTypesComputed = false;
 
     /** The type variables; an unmodifiable list. */
-    /*package-private*/ @MonotonicNonNull List<AnnotatedTypeVariable> typeVarTypes;
+    private @MonotonicNonNull List<AnnotatedTypeVariable> typeVarTypes;
 
     /** True if {@link typeVarTypes} has been computed. */
     private boolean typeVarTypesComputed = false;
@@ -1313,6 +1371,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return true if this type represents a varargs method
      */
     public boolean isVarargs() {
+      materialize();
       return this.element.isVarArgs();
     }
 
@@ -1344,6 +1403,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param params the parameter types, excluding the receiver
      */
     /*package-private*/ void setParameterTypes(List<? extends AnnotatedTypeMirror> params) {
+      materialize();
       paramTypes =
           params.isEmpty()
               ? Collections.emptyList()
@@ -1357,6 +1417,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the parameter types of this executable type, excluding the receiver
      */
     public List<AnnotatedTypeMirror> getParameterTypes() {
+      materialize();
       if (!paramTypesComputed) {
         assert paramTypes == null;
         List<? extends TypeMirror> underlyingParameterTypes =
@@ -1371,18 +1432,30 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return paramTypes;
     }
 
+    /**
+     * Returns the parameter types field directly, bypassing any lazy initialization.
+     *
+     * @return the parameter types, or null if they have not been computed
+     */
+    /*package-private*/ @Nullable List<AnnotatedTypeMirror> getParameterTypesField() {
+      materialize();
+      return paramTypes;
+    }
+
     /**
      * Sets the return type of this executable type.
      *
      * @param returnType the new return type
      */
     /*package-private*/ void setReturnType(AnnotatedTypeMirror returnType) {
+      materialize();
       this.returnType = returnType;
       returnTypeComputed = true;
     }
 
     /** Replaces the return type by a shallow copy of itself. */
     public void shallowCopyReturnType() {
+      materialize();
       setReturnType(returnType.shallowCopy());
     }
 
@@ -1393,6 +1466,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the return type of this executable type
      */
     public AnnotatedTypeMirror getReturnType() {
+      materialize();
       if (!returnTypeComputed) {
         assert returnType == null : "returnType = " + returnType;
         if (element != null && ((ExecutableType) underlyingType).getReturnType() != null) {
@@ -1427,12 +1501,23 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return returnType;
     }
 
+    /**
+     * Returns the return type field directly, bypassing any lazy initialization.
+     *
+     * @return the return type, or null if it has not been computed
+     */
+    /*package-private*/ @Nullable AnnotatedTypeMirror getReturnTypeField() {
+      materialize();
+      return returnType;
+    }
+
     /**
      * Sets the receiver type on this executable type.
      *
      * @param receiverType the receiver type
      */
     public void setReceiverType(@Nullable AnnotatedDeclaredType receiverType) {
+      materialize();
       this.receiverType = receiverType;
       receiverTypeComputed = true;
     }
@@ -1445,6 +1530,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      *     of top-level classes
      */
     public @Nullable AnnotatedDeclaredType getReceiverType() {
+      materialize();
       if (!receiverTypeComputed) {
         assert receiverType == null;
         Element element = getElement();
@@ -1464,12 +1550,23 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return receiverType;
     }
 
+    /**
+     * Returns the receiver type field directly, bypassing any lazy initialization.
+     *
+     * @return the receiver type, or null if it has not been computed or there is none
+     */
+    /*package-private*/ @Nullable AnnotatedDeclaredType getReceiverTypeField() {
+      materialize();
+      return receiverType;
+    }
+
     /**
      * Sets the thrown types of this executable type.
      *
      * @param thrownTypes the thrown types
      */
     /*package-private*/ void setThrownTypes(List<? extends AnnotatedTypeMirror> thrownTypes) {
+      materialize();
       this.thrownTypes =
           thrownTypes.isEmpty()
               ? Collections.emptyList()
@@ -1483,6 +1580,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the thrown types of this executable type
      */
     public List<AnnotatedTypeMirror> getThrownTypes() {
+      materialize();
       if (!thrownTypesComputed) {
         assert thrownTypes == null;
         List<? extends TypeMirror> underlyingThrownTypes =
@@ -1497,12 +1595,23 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return thrownTypes;
     }
 
+    /**
+     * Returns the thrown types field directly, bypassing any lazy initialization.
+     *
+     * @return the thrown types, or null if they have not been computed
+     */
+    /*package-private*/ @Nullable List<AnnotatedTypeMirror> getThrownTypesField() {
+      materialize();
+      return thrownTypes;
+    }
+
     /**
      * Sets the type variables associated with this executable type.
      *
      * @param types the type variables of this executable type
      */
     /*package-private*/ void setTypeVariables(List<AnnotatedTypeVariable> types) {
+      materialize();
       typeVarTypes =
           types.isEmpty()
               ? Collections.emptyList()
@@ -1516,6 +1625,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the type variables of this executable type, if any
      */
     public List<AnnotatedTypeVariable> getTypeVariables() {
+      materialize();
       if (!typeVarTypesComputed) {
         assert typeVarTypes == null;
         List<? extends TypeVariable> underlyingTypeVariables =
@@ -1531,6 +1641,31 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return typeVarTypes;
     }
 
+    /**
+     * Returns the type variables field directly, bypassing any lazy initialization.
+     *
+     * @return the type variables, or null if they have not been computed
+     */
+    /*package-private*/ @Nullable List<AnnotatedTypeVariable> getTypeVariablesField() {
+      materialize();
+      return typeVarTypes;
+    }
+
+    /**
+     * Returns true if every component of this has been computed, so that no getter of this will
+     * modify it.
+     *
+     * @return true if every component of this has been computed
+     */
+    /*package-private*/ boolean isComputed() {
+      materialize();
+      return paramTypesComputed
+          && receiverTypeComputed
+          && returnTypeComputed
+          && thrownTypesComputed
+          && typeVarTypesComputed;
+    }
+
     @Override
     public AnnotatedExecutableType deepCopy(boolean copyAnnotations) {
       return (AnnotatedExecutableType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
@@ -1566,6 +1701,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the element of this AnnotatedExecutableType
      */
     public ExecutableElement getElement() {
+      materialize();
       return element;
     }
 
@@ -1575,6 +1711,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param elem the new element for this AnnotatedExecutableType
      */
     public void setElement(ExecutableElement elem) {
+      materialize();
       this.element = elem;
     }
 
@@ -1618,7 +1755,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
     }
 
     /** The component type of this array type. */
-    /*package-private*/ @MonotonicNonNull AnnotatedTypeMirror componentType;
+    private @MonotonicNonNull AnnotatedTypeMirror componentType;
 
     @Override
     public <R, P> R accept(AnnotatedTypeVisitor<R, P> v, P p) {
@@ -1636,6 +1773,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the component type
      */
     public void setComponentType(AnnotatedTypeMirror type) {
+      materialize();
       this.componentType = type;
     }
 
@@ -1645,6 +1783,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the component type of this array
      */
     public AnnotatedTypeMirror getComponentType() {
+      materialize();
       if (componentType == null) { // lazy init
         setComponentType(
             createType(((ArrayType) underlyingType).getComponentType(), atypeFactory, false));
@@ -1652,6 +1791,16 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return componentType;
     }
 
+    /**
+     * Returns the component type field directly, bypassing any lazy initialization.
+     *
+     * @return the component type, or null if it has not been initialized
+     */
+    /*package-private*/ @Nullable AnnotatedTypeMirror getComponentTypeField() {
+      materialize();
+      return componentType;
+    }
+
     @Override
     public AnnotatedArrayType deepCopy(boolean copyAnnotations) {
       return (AnnotatedArrayType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
@@ -1788,6 +1937,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the lower bound type
      */
     public void setLowerBound(AnnotatedTypeMirror type) {
+      materialize();
       checkBound("Lower", type, this);
       this.lowerBound = type;
       fixupBoundAnnotations();
@@ -1800,6 +1950,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the lower bound field
      */
     public AnnotatedTypeMirror getLowerBoundField() {
+      materialize();
       return lowerBound;
     }
 
@@ -1809,6 +1960,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the lower bound type of this type variable
      */
     public AnnotatedTypeMirror getLowerBound() {
+      materialize();
       if (lowerBound == null) { // lazy init
         BoundsInitializer.initializeBounds(this);
         fixupBoundAnnotations();
@@ -1854,6 +2006,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the upper bound type
      */
     public void setUpperBound(AnnotatedTypeMirror type) {
+      materialize();
       checkBound("Upper", type, this);
       this.upperBound = type;
       fixupBoundAnnotations();
@@ -1866,6 +2019,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the upper bound field
      */
     public AnnotatedTypeMirror getUpperBoundField() {
+      materialize();
       return upperBound;
     }
 
@@ -1877,6 +2031,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the upper bound type of this type variable
      */
     public AnnotatedTypeMirror getUpperBound() {
+      materialize();
       if (upperBound == null) { // lazy init
         BoundsInitializer.initializeBounds(this);
         fixupBoundAnnotations();
@@ -2126,12 +2281,14 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the type of the lower bound
      */
     public void setSuperBound(AnnotatedTypeMirror type) {
+      materialize();
       checkBound("Super", type, this);
       this.superBound = type;
       fixupBoundAnnotations();
     }
 
     public AnnotatedTypeMirror getSuperBoundField() {
+      materialize();
       return superBound;
     }
 
@@ -2143,6 +2300,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      *     explicitly declared
      */
     public AnnotatedTypeMirror getSuperBound() {
+      materialize();
       if (superBound == null) {
         BoundsInitializer.initializeBounds(this);
         fixupBoundAnnotations();
@@ -2156,12 +2314,14 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the type of the upper bound
      */
     public void setExtendsBound(AnnotatedTypeMirror type) {
+      materialize();
       checkBound("Extends", type, this);
       this.extendsBound = type;
       fixupBoundAnnotations();
     }
 
     public AnnotatedTypeMirror getExtendsBoundField() {
+      materialize();
       return extendsBound;
     }
 
@@ -2173,6 +2333,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      *     the upper bound of the type variable to which the wildcard is bound.
      */
     public AnnotatedTypeMirror getExtendsBound() {
+      materialize();
       if (extendsBound == null) {
         BoundsInitializer.initializeBounds(this);
         fixupBoundAnnotations();
@@ -2198,6 +2359,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param typeParameterElement the type variable to which this wildcard is an argument
      */
     /*package-private*/ void setTypeVariable(TypeParameterElement typeParameterElement) {
+      materialize();
       this.typeVariable = (TypeVariable) typeParameterElement.asType();
     }
 
@@ -2208,6 +2370,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param typeVariable the type variable to which this wildcard is an argument
      */
     /*package-private*/ void setTypeVariable(TypeVariable typeVariable) {
+      materialize();
       this.typeVariable = typeVariable;
     }
 
@@ -2218,6 +2381,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the type variable to which this wildcard is an argument
      */
     public TypeVariable getTypeVariable() {
+      materialize();
       return typeVariable;
     }
 
@@ -2269,6 +2433,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
 
     /** Set that this wildcard is a type argument of a raw type. */
     public void setTypeArgOfRawType() {
+      materialize();
       typeArgOfRawType = true;
     }
 
@@ -2280,6 +2445,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return true if this is a type argument to a type whose {@code #underlyingType} is raw
      */
     public boolean isTypeArgOfRawType() {
+      materialize();
       return typeArgOfRawType;
     }
   }
@@ -2296,7 +2462,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      *
      * <p>Is set by {@link #shallowCopy}.
      */
-    protected List<AnnotatedTypeMirror> bounds;
+    private List<AnnotatedTypeMirror> bounds;
 
     /**
      * Creates an {@code AnnotatedIntersectionType} with the underlying type {@code type}. The
@@ -2328,6 +2494,9 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      */
     private void fixupBoundAnnotations() {
       if (!this.getPrimaryAnnotationsField().isEmpty()) {
+        // Unlike the bounds of a type variable or wildcard, the bounds of an intersection are
+        // copied without a call to fixupBoundAnnotations, so they must exist before this runs.
+        materialize();
         AnnotationMirrorSet newAnnos = this.getPrimaryAnnotationsField();
         if (bounds != null) {
           for (AnnotatedTypeMirror bound : bounds) {
@@ -2361,12 +2530,13 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
 
     @Override
     public AnnotatedIntersectionType shallowCopy(boolean copyAnnotations) {
+      materialize();
       AnnotatedIntersectionType type =
           new AnnotatedIntersectionType((IntersectionType) underlyingType, atypeFactory);
       if (copyAnnotations) {
         type.addAnnotations(this.getPrimaryAnnotationsField());
       }
-      type.bounds = this.bounds;
+      type.setBounds(this.bounds);
       return type;
     }
 
@@ -2397,6 +2567,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the bounds of this, which are also the direct super types of this
      */
     public List<AnnotatedTypeMirror> getBounds() {
+      materialize();
       if (bounds == null) {
         List<? extends TypeMirror> ubounds = ((IntersectionType) underlyingType).getBounds();
         List<AnnotatedTypeMirror> res =
@@ -2408,12 +2579,23 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       return bounds;
     }
 
+    /**
+     * Returns the bounds field directly, bypassing any lazy initialization.
+     *
+     * @return the bounds, or null if they have not been initialized
+     */
+    /*package-private*/ @Nullable List<AnnotatedTypeMirror> getBoundsField() {
+      materialize();
+      return bounds;
+    }
+
     /**
      * Sets the bounds.
      *
      * @param bounds a list of bounds to be captured by this method
      */
     public void setBounds(List<AnnotatedTypeMirror> bounds) {
+      materialize();
       this.bounds = bounds;
     }
 
@@ -2469,6 +2651,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
 
     @Override
     public AnnotatedUnionType shallowCopy(boolean copyAnnotations) {
+      materialize();
       AnnotatedUnionType type = new AnnotatedUnionType((UnionType) underlyingType, atypeFactory);
       if (copyAnnotations) {
         type.addAnnotations(this.getPrimaryAnnotationsField());
@@ -2487,7 +2670,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      *
      * <p>Is set by {@link #getAlternatives} and {@link #shallowCopy}.
      */
-    protected @MonotonicNonNull List<AnnotatedDeclaredType> alternatives;
+    private @MonotonicNonNull List<AnnotatedDeclaredType> alternatives;
 
     /**
      * Returns the types that are unioned to form this AnnotatedUnionType.
@@ -2495,6 +2678,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @return the types that are unioned to form this AnnotatedUnionType
      */
     public List<AnnotatedDeclaredType> getAlternatives() {
+      materialize();
       if (alternatives == null) {
         List<? extends TypeMirror> ualts = ((UnionType) underlyingType).getAlternatives();
         List<AnnotatedDeclaredType> res =
@@ -2505,6 +2689,26 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
       }
       return alternatives;
     }
+
+    /**
+     * Returns the alternatives field directly, bypassing any lazy initialization.
+     *
+     * @return the alternatives, or null if they have not been initialized
+     */
+    /*package-private*/ @Nullable List<AnnotatedDeclaredType> getAlternativesField() {
+      materialize();
+      return alternatives;
+    }
+
+    /**
+     * Sets the alternatives.
+     *
+     * @param alternatives a list of alternatives to be captured by this method
+     */
+    /*package-private*/ void setAlternatives(List<AnnotatedDeclaredType> alternatives) {
+      materialize();
+      this.alternatives = alternatives;
+    }
   }
 
   /**
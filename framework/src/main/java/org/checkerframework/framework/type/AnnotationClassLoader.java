@@ -1,8 +1,10 @@
 package org.checkerframework.framework.type;
 
+import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Target;
@@ -12,10 +14,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -55,6 +60,11 @@ import org.plumelib.reflection.Signatures;
  * <p>To load annotations using this class, their directory structure and package structure must be
  * identical.
  *
+ * <p>The annotations in a checker's qual directory are found by reading the qualifier index for
+ * the qual package, which the build writes to the resource {@code
+ * META-INF/checkerframework/qualifiers/<package name>}. Only if there is no index is the
+ * classpath scanned for the qual package.
+ *
  * <p>Only annotation classes that have the {@link Target} meta-annotation with the value of {@link
  * ElementType#TYPE_USE} (and optionally {@link ElementType#TYPE_PARAMETER}) are loaded. If it has
  * other {@link ElementType} values, it won't be loaded. Other annotation classes must be manually
@@ -108,8 +118,14 @@ public class AnnotationClassLoader implements Closeable {
    */
   protected final ProcessingEnvironment processingEnv;
 
-  /** The resource URL of the qual directory of a checker class. */
-  private final URL resourceURL;
+  /** The directory of the qualifier index resources. */
+  private static final String QUALIFIER_INDEX_DIR = "META-INF/checkerframework/qualifiers";
+
+  /**
+   * The resource URL of the qual directory of a checker class, or null if it was not found or was
+   * not needed because the qual package has a qualifier index.
+   */
+  private final @Nullable URL resourceURL;
 
   /** The class loader used to load annotation classes. */
   @SuppressWarnings("builder:required.method.not.called") // this class is @MustCall({})
@@ -157,8 +173,13 @@ public class AnnotationClassLoader implements Closeable {
 
     classLoader = getClassLoader();
 
+    Set<@BinaryName String> indexedAnnotationNames = readQualifierIndex();
+
     URL localResourceURL;
-    if (classLoader != null) {
+    if (indexedAnnotationNames != null) {
+      // The qualifier index lists the annotations, so there is no need to find the qual package.
+      localResourceURL = null;
+    } else if (classLoader != null) {
       // if the application classloader is accessible, then directly retrieve the resource URL
       // of the qual package resource URLs must use slashes
       localResourceURL = classLoader.getResource(packageNameWithSlashes);
@@ -171,7 +192,7 @@ public class AnnotationClassLoader implements Closeable {
       localResourceURL = null;
     }
 
-    if (localResourceURL == null) {
+    if (localResourceURL == null && indexedAnnotationNames == null) {
       // if the application classloader is not accessible (which means the checker class was
       // loaded using the bootstrap classloader) or if the classloader didn't find the
       // package, then scan the classpaths to find a jar or directory which contains the qual
@@ -182,7 +203,7 @@ public class AnnotationClassLoader implements Closeable {
 
     supportedBundledAnnotationClasses = new LinkedHashSet<>();
 
-    loadBundledAnnotationClasses();
+    loadBundledAnnotationClasses(indexedAnnotationNames);
   }
 
   @EnsuresCalledMethods(value = "classLoader", methods = "close")
@@ -195,6 +216,65 @@ public class AnnotationClassLoader implements Closeable {
     }
   }
 
+  /**
+   * Reads the qualifier index of the qual package, which lists the annotations in the package
+   * together with the values of their {@code @Target} meta-annotations. Every index for the package
+   * on the classpath is read. Annotations that cannot be type qualifiers, according to {@link
+   * #mayHaveWellDefinedTargetMetaAnnotation}, are omitted from the result.
+   *
+   * @return the binary names of the annotations in the qual package that might be type qualifiers,
+   *     or null if there is no qualifier index for the package or it cannot be read
+   */
+  @SuppressWarnings("signature:assignment") // the index contains binary names
+  private @Nullable Set<@BinaryName String> readQualifierIndex() {
+    String resourceName = QUALIFIER_INDEX_DIR + SLASH + packageName;
+    ClassLoader loader = InternalUtils.getClassLoaderForClass(checker.getClass());
+    Set<@BinaryName String> result = new LinkedHashSet<>();
+    try {
+      Enumeration<URL> indexes =
+          loader != null
+              ? loader.getResources(resourceName)
+              : ClassLoader.getSystemResources(resourceName);
+      if (!indexes.hasMoreElements()) {
+        return null;
+      }
+      while (indexes.hasMoreElements()) {
+        URLConnection connection = indexes.nextElement().openConnection();
+        // As in loadBundledAnnotationClasses, don't share the connection to a jar file.
+        connection.setUseCaches(false);
+        try (BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+              continue;
+            }
+            int space = line.indexOf(' ');
+            @BinaryName String className = space == -1 ? line : line.substring(0, space);
+            Set<ElementType> targets = EnumSet.noneOf(ElementType.class);
+            if (space != -1) {
+              for (String target : line.substring(space + 1).split(",")) {
+                try {
+                  targets.add(ElementType.valueOf(target));
+                } catch (IllegalArgumentException e) {
+                  // The index was written by a newer JDK; ignore element types unknown here.
+                }
+              }
+            }
+            if (mayHaveWellDefinedTargetMetaAnnotation(className, targets)) {
+              result.add(className);
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      // Fall back to scanning the classpath.
+      return null;
+    }
+    return result;
+  }
+
   /**
    * Scans all classpaths and returns the resource URL to the jar which contains the checker's qual
    * package, or the qual package directory if it exists, or null if no jar or directory contains
@@ -503,13 +583,19 @@ public class AnnotationClassLoader implements Closeable {
   /**
    * Loads the set of annotation classes in the qual directory of a checker shipped with the Checker
    * Framework.
+   *
+   * @param indexedAnnotationNames the annotations listed by the qualifier index of the qual
+   *     package, or null if it has no index
    */
   @SuppressWarnings("this-escape")
-  private void loadBundledAnnotationClasses() {
+  private void loadBundledAnnotationClasses(
+      @Nullable Set<@BinaryName String> indexedAnnotationNames) {
     // retrieve the fully qualified class names of the annotations
     Set<@BinaryName String> annotationNames;
     // see whether the resource URL has a protocol of jar or file
-    if (resourceURL != null && resourceURL.getProtocol().contentEquals("jar")) {
+    if (indexedAnnotationNames != null) {
+      annotationNames = indexedAnnotationNames;
+    } else if (resourceURL != null && resourceURL.getProtocol().contentEquals("jar")) {
       // if the checker class file is contained within a jar, then the resource URL for the
       // qual directory will have the protocol "jar". This means the whole checker is loaded
       // as a jar file.
@@ -831,6 +917,24 @@ public class AnnotationClassLoader implements Closeable {
             annoClass.getAnnotation(Target.class).value(), annoClass);
   }
 
+  /**
+   * Returns true if an annotation whose {@code @Target} meta-annotation has the given values might
+   * satisfy {@link #hasWellDefinedTargetMetaAnnotation(Class)}. This is used to avoid loading the
+   * classes of annotations, listed in a qualifier index, that cannot be type qualifiers. A subclass
+   * that overrides {@link #hasWellDefinedTargetMetaAnnotation(Class)} should override this method
+   * consistently.
+   *
+   * @param className the binary name of an annotation
+   * @param targets the values of the annotation's {@code @Target} meta-annotation; empty if it has
+   *     none
+   * @return false if the annotation certainly does not have a well-defined {@code @Target}
+   *     meta-annotation
+   */
+  protected boolean mayHaveWellDefinedTargetMetaAnnotation(
+      @BinaryName String className, Set<ElementType> targets) {
+    return targets.contains(ElementType.TYPE_USE);
+  }
+
   /**
    * Returns true if a particular annotation class is supported.
    *
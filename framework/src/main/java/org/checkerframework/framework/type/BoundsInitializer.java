@@ -277,9 +277,9 @@ public class BoundsInitializer {
     public AnnotatedTypeMirror visitUnion(UnionType t, Void unused) {
       AnnotatedUnionType annotatedUnionType = (AnnotatedUnionType) createAnnotatedType(t);
 
-      annotatedUnionType.alternatives =
+      annotatedUnionType.setAlternatives(
           CollectionsPlume.mapList(
-              alternative -> (AnnotatedDeclaredType) visit(alternative), t.getAlternatives());
+              alternative -> (AnnotatedDeclaredType) visit(alternative), t.getAlternatives()));
       return annotatedUnionType;
     }
 
@@ -287,7 +287,7 @@ public class BoundsInitializer {
     public AnnotatedTypeMirror visitIntersection(IntersectionType t, Void unused) {
       AnnotatedIntersectionType annotatedIntersectionType =
           (AnnotatedIntersectionType) createAnnotatedType(t);
-      annotatedIntersectionType.bounds = CollectionsPlume.mapList(this::visit, t.getBounds());
+      annotatedIntersectionType.setBounds(CollectionsPlume.mapList(this::visit, t.getBounds()));
       return annotatedIntersectionType;
     }
 
@@ -111,6 +111,15 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
     return captureConversionIds.computeIfAbsent(capturedType, key -> ++prevCaptureConversionId);
   }
 
+  /**
+   * Numbers capture-converted type variables from 1 again. Called between compilations that run in
+   * the same JVM, so that the numbers in a compilation's messages are the same as in a fresh JVM.
+   */
+  public static void resetCaptureConversionIds() {
+    captureConversionIds.clear();
+    prevCaptureConversionId = 0;
+  }
+
   @Override
   public String format(AnnotatedTypeMirror type) {
     formattingVisitor.resetPrintVerboseSettings();
@@ -234,8 +243,8 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
         sb.append("/*DECL*/ ");
       }
 
-      if (type.enclosingType != null) {
-        sb.append(this.visit(type.enclosingType, visiting));
+      if (type.getEnclosingType() != null) {
+        sb.append(this.visit(type.getEnclosingType(), visiting));
         sb.append('.');
       }
       Element typeElt = type.getUnderlyingType().asElement();
@@ -254,9 +263,9 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
       if (type.isUnderlyingTypeRaw()) {
         currentlyPrintingRaw = true;
       }
-      if (type.typeArgs != null) {
-        // getTypeArguments sets the field if it does not already exist.
-        List<AnnotatedTypeMirror> typeArgs = type.typeArgs;
+      // getTypeArguments sets the field if it does not already exist.
+      List<AnnotatedTypeMirror> typeArgs = type.getTypeArgumentsField();
+      if (typeArgs != null) {
         if (!typeArgs.isEmpty()) {
           StringJoiner sj = new StringJoiner(", ", "<", ">");
           if (!currentPrintVerboseGenerics && currentlyPrintingRaw) {
@@ -278,7 +287,7 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
     @Override
     public String visitIntersection(
         AnnotatedIntersectionType type, Set<AnnotatedTypeMirror> visiting) {
-      if (type.bounds == null) {
+      if (type.getBoundsField() == null) {
         return "/*Intersection not initialized*/";
       }
 
@@ -297,7 +306,7 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
 
     @Override
     public String visitUnion(AnnotatedUnionType type, Set<AnnotatedTypeMirror> visiting) {
-      if (type.alternatives == null) {
+      if (type.getAlternativesField() == null) {
         return "/*Union not initialized*/";
       }
 
@@ -317,9 +326,10 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
     @Override
     public String visitExecutable(AnnotatedExecutableType type, Set<AnnotatedTypeMirror> visiting) {
       StringBuilder sb = new StringBuilder();
-      if (type.typeVarTypes == null || !type.typeVarTypes.isEmpty()) {
+      List<AnnotatedTypeVariable> typeVarTypes = type.getTypeVariablesField();
+      if (typeVarTypes == null || !typeVarTypes.isEmpty()) {
         StringJoiner sj = new StringJoiner(", ", "<", "> ");
-        if (type.typeVarTypes == null) {
+        if (typeVarTypes == null) {
           sj.add("/*Type var not initialized*/");
         } else {
           for (AnnotatedTypeVariable atv : type.getTypeVariables()) {
@@ -328,7 +338,7 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
         }
         sb.append(sj);
       }
-      if (type.returnType != null) {
+      if (type.getReturnTypeField() != null) {
         sb.append(visit(type.getReturnType(), visiting));
       } else {
         sb.append("/*Return type not initialized*/");
@@ -340,16 +350,17 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
         sb.append("METHOD");
       }
       sb.append('(');
-      AnnotatedDeclaredType rcv = type.receiverType;
+      AnnotatedDeclaredType rcv = type.getReceiverTypeField();
       if (rcv != null) {
         sb.append(visit(rcv, visiting));
         sb.append(" this");
       }
-      if (type.paramTypes == null) {
+      List<AnnotatedTypeMirror> paramTypes = type.getParameterTypesField();
+      if (paramTypes == null) {
         sb.append("/*Parameters not initialized*/");
-      } else if (!type.paramTypes.isEmpty()) {
+      } else if (!paramTypes.isEmpty()) {
         int p = 0;
-        for (AnnotatedTypeMirror atm : type.paramTypes) {
+        for (AnnotatedTypeMirror atm : paramTypes) {
           if (rcv != null || p > 0) {
             sb.append(", ");
           }
@@ -361,9 +372,10 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
         }
       }
       sb.append(')');
-      if (type.thrownTypes == null) {
+      List<AnnotatedTypeMirror> thrownTypes = type.getThrownTypesField();
+      if (thrownTypes == null) {
         sb.append("/*Throws not initialized*/");
-      } else if (!type.thrownTypes.isEmpty()) {
+      } else if (!thrownTypes.isEmpty()) {
         sb.append(" throws ");
         for (AnnotatedTypeMirror atm : type.getThrownTypes()) {
           sb.append(visit(atm, visiting));
@@ -379,7 +391,7 @@ public class DefaultAnnotatedTypeFormatter implements AnnotatedTypeFormatter {
       AnnotatedArrayType array = type;
       AnnotatedTypeMirror component;
       while (true) {
-        component = array.componentType;
+        component = array.getComponentTypeField();
         if (!array.getPrimaryAnnotations().isEmpty()) {
           sb.append(' ');
           sb.append(
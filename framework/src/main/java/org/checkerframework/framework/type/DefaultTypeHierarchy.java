@@ -13,6 +13,8 @@ import javax.lang.model.util.Types;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.qual.Covariant;
+import org.checkerframework.framework.source.PhaseStatistics;
+import org.checkerframework.framework.source.PhaseStatistics.Phase;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedIntersectionType;
@@ -134,13 +136,21 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
    */
   @Override
   public boolean isSubtype(AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype) {
-    for (AnnotationMirror top : qualHierarchy.getTopAnnotations()) {
-      if (!isSubtype(subtype, supertype, top)) {
-        return false;
+    PhaseStatistics stats = checker.getPhaseStatistics();
+    long start = stats == null ? 0 : stats.enter(Phase.SUBTYPING);
+    try {
+      for (AnnotationMirror top : qualHierarchy.getTopAnnotations()) {
+        if (!isSubtype(subtype, supertype, top)) {
+          return false;
+        }
       }
-    }
 
-    return true;
+      return true;
+    } finally {
+      if (stats != null) {
+        stats.exit(Phase.SUBTYPING, start);
+      }
+    }
   }
 
   /** A set of annotations and a {@link TypeMirror}. */
@@ -91,6 +91,8 @@ import org.checkerframework.framework.qual.QualifierForLiterals;
 import org.checkerframework.framework.qual.RelevantJavaTypes;
 import org.checkerframework.framework.qual.RequiresQualifier;
 import org.checkerframework.framework.qual.TypeUseLocation;
+import org.checkerframework.framework.source.PhaseStatistics;
+import org.checkerframework.framework.source.PhaseStatistics.Phase;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
@@ -414,12 +416,38 @@ public abstract class GenericAnnotatedTypeFactory<
     this.poly = createQualifierPolymorphism();
 
     this.analysis = createFlowAnalysis();
+    this.analysis.setCheckpointInterval(getFlowCheckpointInterval());
+    this.analyzeMethodsLazily = shouldAnalyzeMethodsLazily();
     this.transfer = analysis.getTransferFunction();
     this.emptyStore = analysis.createEmptyStore(transfer.usesSequentialSemantics());
 
     this.parseAnnotationFiles();
   }
 
+  /**
+   * Returns which transfer results the flow analysis saves in {@link #flowResultAnalysisCaches}: it
+   * is either the value supplied via the {@code -AflowCheckpointInterval} option or 1, meaning the
+   * result for every node. See {@link
+   * org.checkerframework.dataflow.analysis.AbstractAnalysis#setCheckpointInterval(int)}.
+   *
+   * @return the checkpoint interval for the flow analysis
+   */
+  protected int getFlowCheckpointInterval() {
+    String option = checker.getOption("flowCheckpointInterval");
+    if (option == null) {
+      return 1;
+    }
+    try {
+      int result = Integer.parseInt(option);
+      if (result >= 0) {
+        return result;
+      }
+    } catch (NumberFormatException ex) {
+      // fall through
+    }
+    throw new UserError("flowCheckpointInterval was not a non-negative integer: " + option);
+  }
+
   /**
    * Performs flow-sensitive type refinement on {@code classTree} if this type factory is configured
    * to do so.
@@ -459,6 +487,8 @@ public abstract class GenericAnnotatedTypeFactory<
     this.returnStatementStores.clear();
     this.initializationStore = null;
     this.initializationStaticStore = null;
+    this.deferredMethods.clear();
+    this.pendingDeferredMethods = 0;
 
     if (shouldCache) {
       this.flowResultAnalysisCaches.clear();
@@ -1150,7 +1180,11 @@ public abstract class GenericAnnotatedTypeFactory<
       }
       throw new BugInCF("regularExitStores==null for [" + tree.getClass() + "]" + tree);
     }
-    return regularExitStores.get(tree);
+    Store store = regularExitStores.get(tree);
+    if (store == null && analyzeDeferredMethodContaining(tree)) {
+      store = regularExitStores.get(tree);
+    }
+    return store;
   }
 
   /**
@@ -1161,7 +1195,11 @@ public abstract class GenericAnnotatedTypeFactory<
    * @return the exceptional exit store, or {@code null}, if there is no such store
    */
   public @Nullable Store getExceptionalExitStore(Tree tree) {
-    return exceptionalExitStores.get(tree);
+    Store store = exceptionalExitStores.get(tree);
+    if (store == null && analyzeDeferredMethodContaining(tree)) {
+      store = exceptionalExitStores.get(tree);
+    }
+    return store;
   }
 
   /**
@@ -1175,6 +1213,9 @@ public abstract class GenericAnnotatedTypeFactory<
    */
   public List<IPair<ReturnNode, TransferResult<Value, Store>>> getReturnStatementStores(
       MethodTree methodTree) {
+    if (!returnStatementStores.containsKey(methodTree)) {
+      analyzeDeferredMethodContaining(methodTree);
+    }
     assert returnStatementStores.containsKey(methodTree);
     return returnStatementStores.get(methodTree);
   }
@@ -1186,6 +1227,7 @@ public abstract class GenericAnnotatedTypeFactory<
    */
   public Store getStoreBefore(Tree tree) {
     if (!analysis.isRunning()) {
+      analyzeDeferredMethodIfNeeded(tree);
       return flowResult.getStoreBefore(tree);
     }
     Set<Node> nodes = analysis.getNodesForTree(tree);
@@ -1248,6 +1290,7 @@ public abstract class GenericAnnotatedTypeFactory<
    */
   public @Nullable Store getStoreAfter(Tree tree) {
     if (!analysis.isRunning()) {
+      analyzeDeferredMethodIfNeeded(tree);
       return flowResult.getStoreAfter(tree);
     }
     Set<Node> nodes = analysis.getNodesForTree(tree);
@@ -1301,9 +1344,23 @@ public abstract class GenericAnnotatedTypeFactory<
    * @see org.checkerframework.dataflow.analysis.AnalysisResult#getNodesForTree(Tree)
    */
   public @Nullable Set<Node> getNodesForTree(Tree tree) {
+    analyzeDeferredMethodIfNeeded(tree);
     return flowResult.getNodesForTree(tree);
   }
 
+  /**
+   * Analyzes the deferred method that contains {@code tree}, if {@link #flowResult} has no nodes
+   * for {@code tree} and the method has not been analyzed.
+   *
+   * @param tree a tree whose flow-analysis result is about to be looked up
+   * @return true if a method was analyzed
+   */
+  private boolean analyzeDeferredMethodIfNeeded(Tree tree) {
+    return pendingDeferredMethods != 0
+        && flowResult.getNodesForTree(tree) == null
+        && analyzeDeferredMethodContaining(tree);
+  }
+
   /**
    * Returns the first {@link Node} for a given {@link Tree} that has class {@code kind}.
    *
@@ -1368,6 +1425,21 @@ public abstract class GenericAnnotatedTypeFactory<
     // No captured store for top-level classes.
     classQueue.add(IPair.of(classTree, null));
 
+    analyzeClassQueue(classQueue, fieldValues, classTree);
+  }
+
+  /**
+   * Analyzes the classes in {@code classQueue}, including the classes that are added to it during
+   * the analysis. Helper method for {@link #performFlowAnalysis}.
+   *
+   * @param classQueue the queue of class trees and their initial stores
+   * @param fieldValues the abstract values for all fields of the classes analyzed so far
+   * @param classTree the top-level class being analyzed
+   */
+  private void analyzeClassQueue(
+      Queue<IPair<ClassTree, Store>> classQueue,
+      List<FieldInitialValue<Value>> fieldValues,
+      ClassTree classTree) {
     while (!classQueue.isEmpty()) {
       IPair<ClassTree, Store> qel = classQueue.remove();
       ClassTree ct = qel.first;
@@ -1477,35 +1549,32 @@ public abstract class GenericAnnotatedTypeFactory<
         // Now analyze all methods.
         // TODO: at this point, we don't have any information about
         // fields of superclasses.
-        for (CFGMethod met : methods) {
-          analyze(
-              classQueue,
-              lambdaQueue,
-              met,
-              fieldValues,
-              classTree,
-              TreeUtils.isConstructor(met.getMethod()),
-              false,
-              false,
-              capturedStore);
+        if (analyzeMethodsLazily && analyzingDeferredMethod == null) {
+          // Methods within a deferred method, such as those of local classes, are analyzed
+          // together with it.
+          List<FieldInitialValue<Value>> methodFieldValues = new ArrayList<>(fieldValues);
+          for (CFGMethod met : methods) {
+            deferredMethods.put(
+                met.getMethod(),
+                new DeferredMethod(met, methodFieldValues, classTree, capturedStore));
+          }
+          pendingDeferredMethods += methods.size();
+        } else {
+          for (CFGMethod met : methods) {
+            analyze(
+                classQueue,
+                lambdaQueue,
+                met,
+                fieldValues,
+                classTree,
+                TreeUtils.isConstructor(met.getMethod()),
+                false,
+                false,
+                capturedStore);
+          }
         }
 
-        while (!lambdaQueue.isEmpty()) {
-          IPair<LambdaExpressionTree, @Nullable Store> lambdaPair = lambdaQueue.poll();
-          MethodTree mt =
-              (MethodTree)
-                  TreePathUtil.enclosingOfKind(getPath(lambdaPair.first), Tree.Kind.METHOD);
-          analyze(
-              classQueue,
-              lambdaQueue,
-              new CFGLambda(lambdaPair.first, classTree, mt),
-              fieldValues,
-              classTree,
-              false,
-              false,
-              false,
-              lambdaPair.second);
-        }
+        analyzeLambdaQueue(classQueue, lambdaQueue, fieldValues, classTree);
 
         // By convention we store the static initialization store as the regular exit
         // store of the class node, so that it can later be used to check
@@ -1524,6 +1593,236 @@ public abstract class GenericAnnotatedTypeFactory<
     }
   }
 
+  /**
+   * Analyzes the lambdas in {@code lambdaQueue}, including the lambdas that are added to it during
+   * the analysis. Helper method for {@link #performFlowAnalysis}.
+   *
+   * @param classQueue the queue for encountered class trees and their initial stores
+   * @param lambdaQueue the queue of lambda expression trees and their initial stores
+   * @param fieldValues the abstract values for all fields of the same class
+   * @param classTree the top-level class being analyzed
+   */
+  private void analyzeLambdaQueue(
+      Queue<IPair<ClassTree, Store>> classQueue,
+      Queue<IPair<LambdaExpressionTree, @Nullable Store>> lambdaQueue,
+      List<FieldInitialValue<Value>> fieldValues,
+      ClassTree classTree) {
+    while (!lambdaQueue.isEmpty()) {
+      IPair<LambdaExpressionTree, @Nullable Store> lambdaPair = lambdaQueue.poll();
+      MethodTree mt =
+          (MethodTree) TreePathUtil.enclosingOfKind(getPath(lambdaPair.first), Tree.Kind.METHOD);
+      analyze(
+          classQueue,
+          lambdaQueue,
+          new CFGLambda(lambdaPair.first, classTree, mt),
+          fieldValues,
+          classTree,
+          false,
+          false,
+          false,
+          lambdaPair.second);
+    }
+  }
+
+  /**
+   * If true, the flow analysis of each method is deferred until a result within the method is first
+   * requested, and {@link #releaseFlowResults} discards the results. Set from {@link
+   * #shouldAnalyzeMethodsLazily()}.
+   */
+  private boolean analyzeMethodsLazily;
+
+  /**
+   * Returns true if the flow analysis of each method should be deferred until a result within the
+   * method, such as the refined type of an expression or the exit store, is first requested. By
+   * default, this is true if the {@code -AlazyFlow} command-line option is supplied, unless whole
+   * program inference or CFG visualization is enabled, because both of those need every method to
+   * be analyzed.
+   *
+   * <p>A subclass whose {@link #postAnalyze} does work that is needed even if no result of the
+   * method is ever requested should override this to return false.
+   *
+   * @return true if the flow analysis of methods should be deferred
+   */
+  protected boolean shouldAnalyzeMethodsLazily() {
+    return checker.hasOption("lazyFlow") && getWholeProgramInference() == null && !handleCFGViz;
+  }
+
+  /** A method of the current compilation unit whose flow analysis has been deferred. */
+  private class DeferredMethod {
+    /** The method. */
+    final CFGMethod method;
+
+    /** The abstract values for the fields of the method's class and of the classes before it. */
+    final List<FieldInitialValue<Value>> fieldValues;
+
+    /** The top-level class that contains the method. */
+    final ClassTree topLevelClass;
+
+    /** The captured store of the method's class. */
+    final @Nullable Store capturedStore;
+
+    /** The value of {@link #initializationStore} when the method was deferred. */
+    final @Nullable Store initializationStore;
+
+    /** The value of {@link #initializationStaticStore} when the method was deferred. */
+    final @Nullable Store initializationStaticStore;
+
+    /**
+     * The combined results of the method and of the lambdas and classes within it, or null if the
+     * method has not been analyzed since it was deferred or since its results were released.
+     */
+    @Nullable AnalysisResult<Value, Store> result;
+
+    /** The methods, lambdas, and blocks within the method whose exit stores were recorded. */
+    final List<Tree> analyzedCode = new ArrayList<>();
+
+    /**
+     * Creates a DeferredMethod, remembering the current initialization stores.
+     *
+     * @param method the method
+     * @param fieldValues the abstract values for the fields of the method's class
+     * @param topLevelClass the top-level class that contains the method
+     * @param capturedStore the captured store of the method's class
+     */
+    DeferredMethod(
+        CFGMethod method,
+        List<FieldInitialValue<Value>> fieldValues,
+        ClassTree topLevelClass,
+        @Nullable Store capturedStore) {
+      this.method = method;
+      this.fieldValues = fieldValues;
+      this.topLevelClass = topLevelClass;
+      this.capturedStore = capturedStore;
+      this.initializationStore = GenericAnnotatedTypeFactory.this.initializationStore;
+      this.initializationStaticStore = GenericAnnotatedTypeFactory.this.initializationStaticStore;
+    }
+  }
+
+  /** The deferred methods of the current compilation unit. */
+  private final IdentityHashMap<MethodTree, DeferredMethod> deferredMethods =
+      new IdentityHashMap<>();
+
+  /** The number of deferred methods that currently have no analysis result. */
+  private int pendingDeferredMethods = 0;
+
+  /** The deferred method that is currently being analyzed, or null. */
+  private @Nullable DeferredMethod analyzingDeferredMethod = null;
+
+  /**
+   * If {@code tree} is within a deferred method that has not been analyzed, analyzes that method.
+   *
+   * @param tree a tree whose flow-analysis result was not found
+   * @return true if a method was analyzed, in which case the caller should look up the result again
+   */
+  private boolean analyzeDeferredMethodContaining(Tree tree) {
+    if (pendingDeferredMethods == 0 || analysis.isRunning() || analyzingDeferredMethod != null) {
+      return false;
+    }
+    for (TreePath path = getPath(tree); path != null; path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof MethodTree) {
+        DeferredMethod deferred = deferredMethods.get(leaf);
+        if (deferred != null) {
+          if (deferred.result != null) {
+            return false;
+          }
+          analyzeDeferredMethod(deferred);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Analyzes a deferred method, together with the lambdas and classes within it.
+   *
+   * @param deferred the method to analyze
+   */
+  private void analyzeDeferredMethod(DeferredMethod deferred) {
+    // Set before the analysis, so that lookups during the analysis do not analyze it again.
+    deferred.result = new AnalysisResult<>(new HashMap<>());
+    pendingDeferredMethods--;
+
+    TreePath preTreePath = getVisitorTreePath();
+    Store preInitializationStore = initializationStore;
+    Store preInitializationStaticStore = initializationStaticStore;
+    analyzingDeferredMethod = deferred;
+    // Don't call AnnotatedTypeFactory#getPath, because it uses visitorTreePath.
+    setVisitorTreePath(TreePath.getPath(this.root, deferred.method.getClassTree()));
+    initializationStore = deferred.initializationStore;
+    initializationStaticStore = deferred.initializationStaticStore;
+    try {
+      Queue<IPair<ClassTree, Store>> classQueue = new ArrayDeque<>();
+      Queue<IPair<LambdaExpressionTree, @Nullable Store>> lambdaQueue = new ArrayDeque<>();
+      List<FieldInitialValue<Value>> fieldValues = new ArrayList<>(deferred.fieldValues);
+      analyze(
+          classQueue,
+          lambdaQueue,
+          deferred.method,
+          fieldValues,
+          deferred.topLevelClass,
+          TreeUtils.isConstructor(deferred.method.getMethod()),
+          false,
+          false,
+          deferred.capturedStore);
+      analyzeLambdaQueue(classQueue, lambdaQueue, fieldValues, deferred.topLevelClass);
+      analyzeClassQueue(classQueue, fieldValues, deferred.topLevelClass);
+    } finally {
+      analyzingDeferredMethod = null;
+      initializationStore = preInitializationStore;
+      initializationStaticStore = preInitializationStaticStore;
+      setVisitorTreePath(preTreePath);
+    }
+  }
+
+  /**
+   * Discards the flow-analysis results for {@code method}, if its analysis was deferred. Call this
+   * when no more results within the method are needed, for example after the method has been
+   * type-checked. If a result is requested later, the method is analyzed again.
+   *
+   * <p>The subcheckers of a checker type-check a class before the checker does, and the checker
+   * may request their results for a method while it type-checks the method. So this method does
+   * nothing in the type factory of a subchecker. Instead, the type factory of the checker that
+   * runs all the subcheckers discards the results of every subchecker, too, once the checker has
+   * type-checked the method.
+   *
+   * @param method a method of the current compilation unit
+   */
+  public void releaseFlowResults(MethodTree method) {
+    if (checker.getParentChecker() != null) {
+      return;
+    }
+    releaseOwnFlowResults(method);
+    for (SourceChecker subchecker : checker.getSubcheckers()) {
+      if (subchecker instanceof BaseTypeChecker) {
+        ((BaseTypeChecker) subchecker).getTypeFactory().releaseOwnFlowResults(method);
+      }
+    }
+  }
+
+  /**
+   * Discards this type factory's flow-analysis results for {@code method}, if its analysis was
+   * deferred. Does the work of {@link #releaseFlowResults}.
+   *
+   * @param method a method of the current compilation unit
+   */
+  private void releaseOwnFlowResults(MethodTree method) {
+    DeferredMethod deferred = deferredMethods.get(method);
+    if (deferred == null || deferred.result == null || deferred == analyzingDeferredMethod) {
+      return;
+    }
+    flowResult.remove(deferred.result);
+    for (Tree code : deferred.analyzedCode) {
+      regularExitStores.remove(code);
+      exceptionalExitStores.remove(code);
+      returnStatementStores.remove(code);
+    }
+    deferred.analyzedCode.clear();
+    deferred.result = null;
+    pendingDeferredMethods++;
+  }
+
   /** Sorts a list of trees with the variables first. */
   private final Comparator<Tree> sortVariablesFirst =
       (t1, t2) -> {
@@ -1563,7 +1862,16 @@ public abstract class GenericAnnotatedTypeFactory<
       boolean updateInitializationStore,
       boolean isStatic,
       @Nullable Store capturedStore) {
-    ControlFlowGraph cfg = CFCFGBuilder.build(root, ast, checker, this, processingEnv);
+    PhaseStatistics stats = checker.getPhaseStatistics();
+    long cfgStart = stats == null ? 0 : stats.enter(Phase.CFG_CONSTRUCTION);
+    ControlFlowGraph cfg;
+    try {
+      cfg = CFCFGBuilder.build(root, ast, checker, this, processingEnv);
+    } finally {
+      if (stats != null) {
+        stats.exit(Phase.CFG_CONSTRUCTION, cfgStart);
+      }
+    }
     cfg.getAllNodes(this::isIgnoredExceptionType)
         .forEach(
             node -> {
@@ -1584,7 +1892,14 @@ public abstract class GenericAnnotatedTypeFactory<
     } else {
       transfer.setFixedInitialStore(capturedStore);
     }
-    analysis.performAnalysis(cfg, fieldValues);
+    long dataflowStart = stats == null ? 0 : stats.enter(Phase.DATAFLOW);
+    try {
+      analysis.performAnalysis(cfg, fieldValues);
+    } finally {
+      if (stats != null) {
+        stats.exit(Phase.DATAFLOW, dataflowStart);
+      }
+    }
     AnalysisResult<Value, Store> result = analysis.getResult();
 
     // store result
@@ -1627,6 +1942,12 @@ public abstract class GenericAnnotatedTypeFactory<
     } else {
       assert false : "Unexpected AST kind: " + ast.getKind();
     }
+    if (analyzingDeferredMethod != null) {
+      analyzingDeferredMethod.result.combine(result);
+      // The exit stores of methods are keyed by the method rather than by its body.
+      analyzingDeferredMethod.analyzedCode.add(
+          ast instanceof CFGMethod ? ((CFGMethod) ast).getMethod() : ast.getCode());
+    }
 
     if (isInitializationCode && updateInitializationStore) {
       Store newInitStore = analysis.getRegularExitStore();
@@ -1986,12 +2307,36 @@ public abstract class GenericAnnotatedTypeFactory<
     // triggers analysis.
     if (tree instanceof ClassTree) {
       ClassTree classTree = (ClassTree) tree;
-      if (!scannedClasses.containsKey(classTree)) {
+      // A class within a deferred method is analyzed together with the method.
+      if (!scannedClasses.containsKey(classTree)
+          && !(analyzeDeferredMethodContaining(classTree)
+              && scannedClasses.containsKey(classTree))) {
         performFlowAnalysis(classTree);
       }
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Flow-sensitive types are final once the dataflow analysis of the enclosing class has
+   * finished, and no analysis is running.
+   */
+  @Override
+  public boolean shouldCacheResultsAt(TreePath path) {
+    if (!super.shouldCacheResultsAt(path)) {
+      return false;
+    }
+    if (!useFlow) {
+      return true;
+    }
+    if (analysis.isRunning() || analyzingDeferredMethod != null) {
+      return false;
+    }
+    ClassTree classTree = TreePathUtil.enclosingClass(path);
+    return classTree != null && scannedClasses.get(classTree) == ScanState.FINISHED;
+  }
+
   /**
    * Returns the inferred value (by the org.checkerframework.dataflow analysis) for a given tree.
    *
@@ -2016,6 +2361,9 @@ public abstract class GenericAnnotatedTypeFactory<
     }
     if (as == null) {
       as = flowResult.getValue(tree);
+      if (as == null && analyzeDeferredMethodIfNeeded(tree)) {
+        as = flowResult.getValue(tree);
+      }
     }
     return as;
   }
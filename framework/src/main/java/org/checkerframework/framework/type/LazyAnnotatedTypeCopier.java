@@ -0,0 +1,150 @@
+package org.checkerframework.framework.type;
+
+import java.util.IdentityHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedNoType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedNullType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedPrimitiveType;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * Makes copy-on-access copies of annotated types. Like {@link AnnotatedTypeMirror#deepCopy()}, the
+ * result is equal to the original and shares no mutable state with it. Unlike deepCopy, the
+ * component types of a copy (type arguments, bounds, parameter types, etc.) are copied only when
+ * they are first read or written. A copy whose primary annotations are the only thing that is
+ * examined, which is common for the types handed out by the caches of {@link
+ * AnnotatedTypeFactory}, therefore costs one object rather than one object per component type.
+ *
+ * <p>The original must not be mutated while a copy of it is in use, because the copy reads the
+ * components of the original when they are needed. {@link AnnotatedTypeFactory} uses this class
+ * only for the types in its caches, which are themselves private deep copies that are never
+ * mutated.
+ *
+ * <p>Copying does not mutate the original either, so that any number of copies can read it. A
+ * component that the original has not initialized yet, such as the bounds of a type variable or
+ * the type arguments of a declared type, is left uninitialized in the copy, which initializes its
+ * own when it is first read. An executable type records which of its components, some of which may
+ * be null, it has computed; to keep copying simple, the original must have computed all of them, as
+ * every deep copy has.
+ *
+ * <p>All the copies of components made during one call to {@link #copy} share one map from
+ * originals to copies, so that the copy preserves the structure of the original, including cycles
+ * through type variables, just as {@link AnnotatedTypeCopier} does.
+ */
+/*package-private*/ final class LazyAnnotatedTypeCopier extends AnnotatedTypeCopier {
+
+  /** Maps each type in the original to its copy, for all the copies made by this copier. */
+  private final IdentityHashMap<AnnotatedTypeMirror, AnnotatedTypeMirror> originalToCopy =
+      new IdentityHashMap<>();
+
+  /**
+   * The original whose components are being copied by {@link #materialize}, or null. Reset to null
+   * as soon as {@link #makeOrReturnCopy} has returned {@link #materializingCopy} for it.
+   */
+  private @Nullable AnnotatedTypeMirror materializingOriginal;
+
+  /** The copy of {@link #materializingOriginal}, or null. */
+  private @Nullable AnnotatedTypeMirror materializingCopy;
+
+  /** Creates a LazyAnnotatedTypeCopier. Use {@link #copy} instead. */
+  private LazyAnnotatedTypeCopier() {
+    super(true);
+  }
+
+  /**
+   * Returns a copy-on-access copy of {@code original}.
+   *
+   * @param original the type to copy; must not be mutated while the copy is in use
+   * @return a copy of {@code original} whose components are copied on first access
+   */
+  /*package-private*/ static AnnotatedTypeMirror copy(AnnotatedTypeMirror original) {
+    LazyAnnotatedTypeCopier copier = new LazyAnnotatedTypeCopier();
+    return copier.visit(original, copier.originalToCopy);
+  }
+
+  /**
+   * Returns the copy of {@code type}, creating it if this is the first time {@code type} is
+   * encountered. A new copy has the primary annotations of {@code type} but no components.
+   */
+  @Override
+  public AnnotatedTypeMirror visit(
+      AnnotatedTypeMirror type,
+      IdentityHashMap<AnnotatedTypeMirror, AnnotatedTypeMirror> originalToCopy) {
+    AnnotatedTypeMirror copy = originalToCopy.get(type);
+    if (copy == null) {
+      copy = makeCopy(type);
+      // Primitive, null, and no types have no components, so makeCopy copied all of them.
+      if (!(type instanceof AnnotatedPrimitiveType
+          || type instanceof AnnotatedNullType
+          || type instanceof AnnotatedNoType)) {
+        copy.setSnapshotSource(type, this);
+      }
+      originalToCopy.put(type, copy);
+    }
+    return copy;
+  }
+
+  /**
+   * Copies the components of {@code original} into {@code copy}, which was made by {@link
+   * #visit(AnnotatedTypeMirror, IdentityHashMap)}. The components themselves are copied on access.
+   *
+   * @param original a type in the original
+   * @param copy the copy of {@code original}
+   */
+  /*package-private*/ void materialize(AnnotatedTypeMirror original, AnnotatedTypeMirror copy) {
+    // The visitXXX methods of the superclass return the existing copy without copying its
+    // components, if there is one.  Remove it, and let makeOrReturnCopy put it back.
+    originalToCopy.remove(original);
+    materializingOriginal = original;
+    materializingCopy = copy;
+    original.accept(this, originalToCopy);
+  }
+
+  @Override
+  public AnnotatedTypeMirror visitExecutable(
+      AnnotatedExecutableType original,
+      IdentityHashMap<AnnotatedTypeMirror, AnnotatedTypeMirror> originalToCopy) {
+    if (!original.isComputed()) {
+      // The getters of original would compute the missing components, mutating original.
+      throw new BugInCF("Copy-on-access copy of an incompletely computed type: %s", original);
+    }
+    return super.visitExecutable(original, originalToCopy);
+  }
+
+  @Override
+  public AnnotatedTypeMirror visitArray(
+      AnnotatedArrayType original,
+      IdentityHashMap<AnnotatedTypeMirror, AnnotatedTypeMirror> originalToCopy) {
+    if (originalToCopy.containsKey(original)) {
+      return originalToCopy.get(original);
+    }
+
+    AnnotatedArrayType copy = makeOrReturnCopy(original, originalToCopy);
+    // Unlike getComponentType, getComponentTypeField does not initialize the component of
+    // original.  If it is null, copy initializes its own component when it is first read.
+    AnnotatedTypeMirror component = original.getComponentTypeField();
+    if (component != null) {
+      copy.setComponentType(visit(component, originalToCopy));
+    }
+    return copy;
+  }
+
+  @Override
+  @SuppressWarnings({
+    "unchecked", // materializingCopy is a copy of original, so it has the same class.
+    "interning:not.interned" // Checking for exact object.
+  })
+  protected <T extends AnnotatedTypeMirror> T makeOrReturnCopy(
+      T original, IdentityHashMap<AnnotatedTypeMirror, AnnotatedTypeMirror> originalToCopy) {
+    if (original == materializingOriginal) {
+      T copy = (T) materializingCopy;
+      materializingOriginal = null;
+      materializingCopy = null;
+      originalToCopy.put(original, copy);
+      return copy;
+    }
+    return super.makeOrReturnCopy(original, originalToCopy);
+  }
+}
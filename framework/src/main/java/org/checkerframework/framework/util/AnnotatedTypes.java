@@ -36,6 +36,8 @@ import javax.lang.model.util.Types;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.CanonicalName;
+import org.checkerframework.framework.source.PhaseStatistics;
+import org.checkerframework.framework.source.PhaseStatistics.Phase;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
@@ -734,8 +736,7 @@ public class AnnotatedTypes {
     } else if (expr instanceof MemberReferenceTree) {
       MemberReferenceTree memRef = ((MemberReferenceTree) expr);
       if (inferTypeArgs && TreeUtils.needsTypeArgInference(memRef)) {
-        InferenceResult inferenceResult =
-            atypeFactory.getTypeArgumentInference().inferTypeArgs(atypeFactory, expr, preType);
+        InferenceResult inferenceResult = inferTypeArgs(atypeFactory, expr, preType);
         return new TypeArguments(
             inferenceResult.getTypeArgumentsForExpression(expr),
             inferenceResult.isUncheckedConversion(),
@@ -777,8 +778,7 @@ public class AnnotatedTypes {
       return new TypeArguments(typeArguments, false, false);
     } else {
       if (inferTypeArgs) {
-        InferenceResult inferenceResult =
-            atypeFactory.getTypeArgumentInference().inferTypeArgs(atypeFactory, expr, preType);
+        InferenceResult inferenceResult = inferTypeArgs(atypeFactory, expr, preType);
         return new TypeArguments(
             inferenceResult.getTypeArgumentsForExpression(expr),
             inferenceResult.isUncheckedConversion(),
@@ -789,6 +789,28 @@ public class AnnotatedTypes {
     }
   }
 
+  /**
+   * Infers the type arguments of a method invocation, constructor call, or method reference, using
+   * the type factory's type argument inference.
+   *
+   * @param atypeFactory the annotated type factory
+   * @param expr the expression whose type arguments to infer
+   * @param preType the (partially annotated) type of the invoked method or constructor
+   * @return the result of type argument inference
+   */
+  private static InferenceResult inferTypeArgs(
+      AnnotatedTypeFactory atypeFactory, ExpressionTree expr, AnnotatedExecutableType preType) {
+    PhaseStatistics stats = atypeFactory.getChecker().getPhaseStatistics();
+    long start = stats == null ? 0 : stats.enter(Phase.TYPE_ARGUMENT_INFERENCE);
+    try {
+      return atypeFactory.getTypeArgumentInference().inferTypeArgs(atypeFactory, expr, preType);
+    } finally {
+      if (stats != null) {
+        stats.exit(Phase.TYPE_ARGUMENT_INFERENCE, start);
+      }
+    }
+  }
+
   /**
    * Class representing type arguments for a method, constructor, or method reference expression.
    */
@@ -0,0 +1,600 @@
+package org.checkerframework.framework.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.stub.AnnotationFileParser;
+import org.checkerframework.framework.type.DefaultAnnotatedTypeFormatter;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A long-lived JVM that runs javac with the Checker Framework on behalf of {@link CheckerMain}, so
+ * that a sequence of compilations pays for JVM startup, class loading, and JIT compilation only
+ * once. {@code CheckerMain} uses it when given the {@code -daemon} command-line option.
+ *
+ * <p>The first such run starts a daemon; later runs with the same working directory, the same JVM
+ * arguments, and the same jars on the JVM's classpath reuse it. A jar counts as the same if its
+ * size and modification time are unchanged, so a rebuilt {@code checker.jar} gets a new daemon.
+ * The daemon listens on a loopback port. It writes the port and a random token to a state file in
+ * a directory that only the current user can read, and it ignores any request that does not start
+ * with the token. A request is the javac arguments of one compilation. The daemon streams the
+ * compiler's standard output and standard error back to the client, then sends javac's exit
+ * status.
+ *
+ * <p>The daemon runs one compilation at a time. Each compilation gets a fresh javac context and
+ * fresh checkers, so per-compilation state such as type factories and qualifier hierarchies is
+ * never shared between requests. What is shared is the state that does not depend on a javac
+ * context: loaded and JIT-compiled classes, the annotated JDK, and parsed stub and ajava files.
+ * After each compilation, the daemon clears the JVM-wide state that describes one compilation; see
+ * {@link #clearCompilationState}.
+ *
+ * <p>The daemon exits when it has been idle for a given time, or when, after a compilation, more
+ * than half of its maximum heap is still in use after garbage collection. The next client then
+ * starts a new daemon. Use {@code -J-Xmx} to limit the daemon's heap.
+ */
+public final class CheckerDaemon {
+
+  /** The type of a response frame that holds bytes of the compiler's standard output. */
+  private static final int STDOUT_FRAME = 1;
+
+  /** The type of a response frame that holds bytes of the compiler's standard error. */
+  private static final int STDERR_FRAME = 2;
+
+  /** The type of the last frame of a response, which holds the compiler's exit status. */
+  private static final int EXIT_FRAME = 3;
+
+  /** The exit status of javac when it fails abnormally. */
+  private static final int EXIT_ABNORMAL = 4;
+
+  /**
+   * The daemon exits if, after a compilation and a garbage collection, more than this fraction of
+   * its maximum heap is in use.
+   */
+  private static final double MAX_RETAINED_HEAP_FRACTION = 0.5;
+
+  /** How long a client waits for a new daemon to start, in milliseconds. */
+  private static final long STARTUP_TIMEOUT_MILLIS = 60_000;
+
+  /** Do not instantiate. */
+  private CheckerDaemon() {
+    throw new Error("Do not instantiate");
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Client
+  //
+
+  /**
+   * Runs javac in a daemon, starting the daemon first if necessary.
+   *
+   * @param jvmArgs the command that starts a JVM, up to but not including the main class; the JVM's
+   *     classpath must contain this class
+   * @param compilerArgs the javac arguments
+   * @param idleTimeoutSeconds if a new daemon is started, it exits after being idle this long
+   * @param out where to write the compiler's standard output
+   * @param err where to write the compiler's standard error
+   * @return the exit status of javac
+   * @throws IOException if the daemon cannot be started or reached; the compiler has not been run
+   */
+  public static int compile(
+      List<String> jvmArgs,
+      List<String> compilerArgs,
+      int idleTimeoutSeconds,
+      PrintStream out,
+      PrintStream err)
+      throws IOException {
+    File workingDir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+    File stateFile = stateFile(workingDir, jvmArgs);
+    Socket socket = connect(stateFile);
+    if (socket == null) {
+      // The lock prevents two clients from both starting a daemon.
+      File lockFile = new File(stateFile.getPath() + ".lock");
+      try (FileChannel lockChannel =
+              FileChannel.open(
+                  lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+          FileLock lock = lockChannel.lock()) {
+        socket = connect(stateFile);
+        if (socket == null) {
+          Files.deleteIfExists(stateFile.toPath());
+          startDaemon(jvmArgs, workingDir, stateFile, idleTimeoutSeconds);
+          socket = connect(stateFile);
+          if (socket == null) {
+            throw new IOException("Cannot connect to the new daemon; see " + logFile(stateFile));
+          }
+        }
+      }
+    }
+    try (Socket s = socket) {
+      return sendRequest(s, compilerArgs, stateFile, out, err);
+    }
+  }
+
+  /**
+   * Returns the state file of the daemon for the given working directory and JVM arguments, and the
+   * current version of the jars on the JVM's classpath.
+   *
+   * @param workingDir the working directory of the daemon
+   * @param jvmArgs the command that starts the daemon's JVM
+   * @return the state file of the daemon
+   * @throws IOException if the directory of the state file cannot be created
+   */
+  private static File stateFile(File workingDir, List<String> jvmArgs) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF("SHA-256 is not supported", e);
+    }
+    digest.update(workingDir.getPath().getBytes(StandardCharsets.UTF_8));
+    for (String jvmArg : jvmArgs) {
+      digest.update((byte) 0);
+      digest.update(jvmArg.getBytes(StandardCharsets.UTF_8));
+    }
+    int classpathIndex = jvmArgs.indexOf("-classpath") + 1;
+    if (classpathIndex > 0 && classpathIndex < jvmArgs.size()) {
+      for (String entry : jvmArgs.get(classpathIndex).split(File.pathSeparator)) {
+        File file = new File(entry);
+        // Hashing the contents of checker.jar would take longer than the daemon saves on a small
+        // compilation; the size and modification time change whenever the jar is rebuilt.
+        String stamp = file.isFile() ? file.length() + " " + file.lastModified() : "";
+        digest.update((byte) 0);
+        digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    byte[] hash = digest.digest();
+
+    File dir =
+        new File(
+            System.getProperty("java.io.tmpdir"),
+            "checkerframework-daemon-" + System.getProperty("user.name"));
+    Files.createDirectories(dir.toPath());
+    try {
+      // This fails if another user created the directory.
+      Files.setPosixFilePermissions(dir.toPath(), PosixFilePermissions.fromString("rwx------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system.  On Windows, the temporary directory is private to the user.
+    }
+    return new File(dir, toHex(hash, 16));
+  }
+
+  /**
+   * Returns the log file of the daemon with the given state file.
+   *
+   * @param stateFile the state file of a daemon
+   * @return the file that holds the daemon's own output
+   */
+  private static File logFile(File stateFile) {
+    return new File(stateFile.getPath() + ".log");
+  }
+
+  /**
+   * Connects to the daemon with the given state file, and sends the daemon's token.
+   *
+   * @param stateFile the state file of a daemon
+   * @return a connection to the daemon, or null if there is no running daemon
+   */
+  private static @Nullable Socket connect(File stateFile) {
+    String[] state;
+    try {
+      state = new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8).split(" ");
+    } catch (IOException e) {
+      return null;
+    }
+    if (state.length != 2) {
+      return null;
+    }
+    Socket socket = null;
+    try {
+      socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(state[0]));
+      writeString(new DataOutputStream(socket.getOutputStream()), state[1]);
+      return socket;
+    } catch (IOException | NumberFormatException e) {
+      // The daemon has exited without removing its state file.
+      if (socket != null) {
+        try {
+          socket.close();
+        } catch (IOException e2) {
+          // Nothing to do.
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Starts a daemon and waits until it has written its state file.
+   *
+   * @param jvmArgs the command that starts a JVM, up to but not including the main class
+   * @param workingDir the working directory of the daemon
+   * @param stateFile the state file of the daemon
+   * @param idleTimeoutSeconds the daemon exits after being idle this long
+   * @throws IOException if the daemon cannot be started
+   */
+  private static void startDaemon(
+      List<String> jvmArgs, File workingDir, File stateFile, int idleTimeoutSeconds)
+      throws IOException {
+    List<String> command = new ArrayList<>(jvmArgs.size() + 3);
+    command.addAll(jvmArgs);
+    command.add(CheckerDaemon.class.getName());
+    command.add(stateFile.getPath());
+    command.add(Integer.toString(idleTimeoutSeconds));
+    File logFile = logFile(stateFile);
+    Process process =
+        new ProcessBuilder(command)
+            .directory(workingDir)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.to(logFile))
+            .start();
+    process.getOutputStream().close();
+
+    long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+    while (!stateFile.exists()) {
+      if (!process.isAlive()) {
+        throw new IOException(
+            "The daemon exited with status " + process.exitValue() + "; see " + logFile);
+      }
+      if (System.currentTimeMillis() > deadline) {
+        process.destroy();
+        throw new IOException("The daemon did not start; see " + logFile);
+      }
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while starting the daemon", e);
+      }
+    }
+  }
+
+  /**
+   * Sends a compilation request to a daemon and copies the response to {@code out} and {@code
+   * err}.
+   *
+   * @param socket a connection to the daemon, to which the token has been sent
+   * @param compilerArgs the javac arguments
+   * @param stateFile the state file of the daemon
+   * @param out where to write the compiler's standard output
+   * @param err where to write the compiler's standard error
+   * @return the exit status of javac
+   * @throws IOException if the daemon closes the connection before the compilation starts
+   */
+  private static int sendRequest(
+      Socket socket, List<String> compilerArgs, File stateFile, PrintStream out, PrintStream err)
+      throws IOException {
+    DataOutputStream request =
+        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    request.writeInt(compilerArgs.size());
+    for (String arg : compilerArgs) {
+      writeString(request, arg);
+    }
+    request.flush();
+
+    DataInputStream response =
+        new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    boolean started = false;
+    byte[] buffer = new byte[ExecUtil.BLOCK_SIZE];
+    try {
+      while (true) {
+        int type = response.read();
+        if (type == -1) {
+          throw new EOFException();
+        }
+        started = true;
+        if (type == EXIT_FRAME) {
+          return response.readInt();
+        }
+        PrintStream dest = type == STDOUT_FRAME ? out : err;
+        int length = response.readInt();
+        while (length > 0) {
+          int n = response.read(buffer, 0, Math.min(length, buffer.length));
+          if (n == -1) {
+            throw new EOFException();
+          }
+          dest.write(buffer, 0, n);
+          length -= n;
+        }
+        dest.flush();
+      }
+    } catch (IOException e) {
+      if (!started) {
+        // For example, the daemon became idle and exited just as this client connected.
+        throw new IOException("The daemon closed the connection", e);
+      }
+      err.println("The daemon failed during the compilation; see " + logFile(stateFile));
+      return EXIT_ABNORMAL;
+    }
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Daemon
+  //
+
+  /**
+   * Runs a daemon. Clients start the daemon; it should not be run directly.
+   *
+   * @param args the state file and the idle timeout in seconds
+   * @throws IOException if the daemon cannot listen for connections or write its state file
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: CheckerDaemon <state file> <idle timeout in seconds>");
+      System.exit(1);
+    }
+    File stateFile = new File(args[0]);
+    int idleTimeoutSeconds = Integer.parseInt(args[1]);
+
+    byte[] tokenBytes = new byte[16];
+    new SecureRandom().nextBytes(tokenBytes);
+    String token = toHex(tokenBytes, tokenBytes.length);
+
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(Math.multiplyExact(idleTimeoutSeconds, 1000));
+      String state = server.getLocalPort() + " " + token;
+      File tmpFile = File.createTempFile("state", ".tmp", stateFile.getParentFile());
+      Files.write(tmpFile.toPath(), state.getBytes(StandardCharsets.UTF_8));
+      Files.move(
+          tmpFile.toPath(),
+          stateFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      try {
+        serve(server, token);
+      } finally {
+        // Another daemon may have replaced the state file.
+        try {
+          if (state.equals(
+              new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8))) {
+            Files.delete(stateFile.toPath());
+          }
+        } catch (IOException e) {
+          // The state file has already been removed.
+        }
+      }
+    }
+    // javac or a checker may have left non-daemon threads running.
+    System.exit(0);
+  }
+
+  /**
+   * Serves compilation requests until the daemon has been idle too long or uses too much memory.
+   *
+   * @param server the server socket, whose timeout is the idle timeout
+   * @param token the token that a client must send
+   * @throws IOException if the server socket fails
+   */
+  private static void serve(ServerSocket server, String token) throws IOException {
+    while (true) {
+      boolean exit;
+      try (Socket socket = server.accept()) {
+        exit = handle(socket, token);
+      } catch (SocketTimeoutException e) {
+        System.out.println("Exiting after being idle for " + server.getSoTimeout() + " ms");
+        return;
+      } catch (IOException e) {
+        // The client went away.  Serve the next one.
+        e.printStackTrace();
+        continue;
+      }
+      if (exit) {
+        return;
+      }
+      if (heapIsFull()) {
+        System.out.println("Exiting because too much of the heap is in use");
+        return;
+      }
+    }
+  }
+
+  /**
+   * Handles one compilation request.
+   *
+   * @param socket the connection to the client
+   * @param token the token that a client must send
+   * @return true if the daemon should exit, because the compiler threw an {@link Error}
+   * @throws IOException if communication with the client fails
+   */
+  @SuppressWarnings("CatchAndPrintStackTrace") // the stack trace goes to the client
+  private static boolean handle(Socket socket, String token) throws IOException {
+    DataInputStream request = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    byte[] expected = token.getBytes(StandardCharsets.UTF_8);
+    // Check the length first, so that a bad request cannot make the daemon allocate a huge array.
+    if (request.readInt() != expected.length) {
+      return false;
+    }
+    byte[] actual = new byte[expected.length];
+    request.readFully(actual);
+    if (!MessageDigest.isEqual(expected, actual)) {
+      return false;
+    }
+    String[] compilerArgs = new String[request.readInt()];
+    for (int i = 0; i < compilerArgs.length; i++) {
+      compilerArgs[i] = readString(request);
+    }
+
+    DataOutputStream response =
+        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    PrintStream out = new PrintStream(new FrameOutputStream(response, STDOUT_FRAME), true, "UTF-8");
+    PrintStream err = new PrintStream(new FrameOutputStream(response, STDERR_FRAME), true, "UTF-8");
+    PrintStream systemOut = System.out;
+    PrintStream systemErr = System.err;
+    System.setOut(out);
+    System.setErr(err);
+    int status;
+    boolean exit = false;
+    try {
+      status =
+          com.sun.tools.javac.Main.compile(
+              compilerArgs,
+              new PrintWriter(new OutputStreamWriter(err, StandardCharsets.UTF_8), true));
+    } catch (Throwable t) {
+      t.printStackTrace(err);
+      status = EXIT_ABNORMAL;
+      // For example, an OutOfMemoryError.  Let the next client start a fresh daemon.
+      exit = t instanceof Error;
+    } finally {
+      System.setOut(systemOut);
+      System.setErr(systemErr);
+      clearCompilationState();
+    }
+    out.flush();
+    err.flush();
+    synchronized (response) {
+      response.writeByte(EXIT_FRAME);
+      response.writeInt(status);
+      response.flush();
+    }
+    return exit;
+  }
+
+  /**
+   * Clears the JVM-wide state that describes one compilation, so that it neither leaks into the
+   * next compilation nor keeps the previous one's javac context alive.
+   *
+   * <p>Caches whose entries are determined by their keys alone, and that do not refer to a javac
+   * context, are kept, because reusing them is the point of the daemon. These are the annotated
+   * JDK, the {@link org.checkerframework.framework.stub.ParsedAnnotationFileCache}, which is keyed
+   * by the contents of each file, and the caches of parsed format strings, regular expressions,
+   * and Index Checker offset equations.
+   */
+  private static void clearCompilationState() {
+    // Otherwise, a later compilation does not repeat a stub file warning.
+    AnnotationFileParser.clearIssuedWarnings();
+    // Holds javac types of the compilation, and would keep numbering them where it left off.
+    DefaultAnnotatedTypeFormatter.resetCaptureConversionIds();
+  }
+
+  /**
+   * Returns true if more than {@link #MAX_RETAINED_HEAP_FRACTION} of the maximum heap is in use,
+   * even after a garbage collection.
+   *
+   * @return true if the daemon should exit to release its memory
+   */
+  private static boolean heapIsFull() {
+    Runtime runtime = Runtime.getRuntime();
+    long limit = (long) (runtime.maxMemory() * MAX_RETAINED_HEAP_FRACTION);
+    if (runtime.totalMemory() - runtime.freeMemory() <= limit) {
+      return false;
+    }
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory() > limit;
+  }
+
+  /**
+   * An output stream that sends each write to a client as one response frame. Writes from
+   * different threads, and to different frame streams over the same connection, do not interleave.
+   */
+  private static class FrameOutputStream extends OutputStream {
+
+    /** The connection to the client. */
+    private final DataOutputStream response;
+
+    /** The type of the frames written by this stream. */
+    private final int type;
+
+    /**
+     * Creates a FrameOutputStream.
+     *
+     * @param response the connection to the client
+     * @param type the type of the frames written by this stream
+     */
+    FrameOutputStream(DataOutputStream response, int type) {
+      this.response = response;
+      this.type = type;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return;
+      }
+      synchronized (response) {
+        response.writeByte(type);
+        response.writeInt(len);
+        response.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (response) {
+        response.flush();
+      }
+    }
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Utilities
+  //
+
+  /**
+   * Writes a string of any length, in UTF-8.
+   *
+   * @param out the stream to write to
+   * @param s the string to write
+   * @throws IOException if writing fails
+   */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @param in the stream to read from
+   * @return the string
+   * @throws IOException if reading fails
+   */
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the hexadecimal representation of a prefix of a byte array.
+   *
+   * @param bytes a byte array
+   * @param length the length of the prefix
+   * @return the hexadecimal representation of the first {@code length} bytes of {@code bytes}
+   */
+  private static String toHex(byte[] bytes, int length) {
+    StringBuilder result = new StringBuilder(2 * length);
+    for (int i = 0; i < length; i++) {
+      result.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+      result.append(Character.forDigit(bytes[i] & 0xF, 16));
+    }
+    return result.toString();
+  }
+}
@@ -106,6 +106,12 @@ public class CheckerMain {
   /** Command-line argument files (specified with @ on the command line). */
   private final List<File> argListFiles;
 
+  /** True if javac should run in a {@link CheckerDaemon}. */
+  private final boolean useDaemon;
+
+  /** If a new daemon is started, it exits after being idle this many seconds. */
+  private final int daemonIdleTimeoutSeconds;
+
   /**
    * Option name for specifying an alternative checker-qual.jar location. The accompanying value
    * MUST be the path to the jar file (NOT the path to its encompassing directory)
@@ -130,6 +136,21 @@ public class CheckerMain {
    */
   public static final String JDK_PATH_OPT = "-jdkJar";
 
+  /**
+   * Option name for running javac in a long-lived {@link CheckerDaemon} instead of in a new JVM.
+   * The option takes no value.
+   */
+  public static final String DAEMON_OPT = "-daemon";
+
+  /**
+   * Option name for specifying how long a new daemon waits for a request before it exits. The
+   * accompanying value is a number of seconds.
+   */
+  public static final String DAEMON_IDLE_TIMEOUT_OPT = "-daemonIdleTimeout";
+
+  /** The default idle timeout of a daemon, in seconds. */
+  private static final int DEFAULT_DAEMON_IDLE_TIMEOUT_SECONDS = 30 * 60;
+
   /**
    * Construct all the relevant file locations and Java version given the path to this jar and a set
    * of directories in which to search for jars.
@@ -151,6 +172,16 @@ public class CheckerMain {
 
     this.javacJar = extractFileArg(JAVAC_PATH_OPT, new File(searchPath, "javac.jar"), args);
 
+    this.useDaemon = args.remove(DAEMON_OPT);
+    String idleTimeout = extractArg(DAEMON_IDLE_TIMEOUT_OPT, null, args);
+    try {
+      this.daemonIdleTimeoutSeconds =
+          idleTimeout == null ? DEFAULT_DAEMON_IDLE_TIMEOUT_SECONDS : Integer.parseInt(idleTimeout);
+    } catch (NumberFormatException e) {
+      throw new UserError(
+          DAEMON_IDLE_TIMEOUT_OPT + " requires a number of seconds: " + idleTimeout);
+    }
+
     this.compilationBootclasspath = createCompilationBootclasspath(args);
     this.runtimeClasspath = createRuntimeClasspath(args);
     this.jvmOpts = extractJvmOpts(args);
@@ -432,7 +463,21 @@ public class CheckerMain {
 
   /** Invoke the compiler with all relevant jars on its classpath and/or bootclasspath. */
   public List<String> getExecArguments() {
-    List<String> args = new ArrayList<>(jvmOpts.size() + cpOpts.size() + toolOpts.size() + 7);
+    List<String> args = getJvmArguments(runtimeClasspath);
+    addMainToArgs(args);
+    args.addAll(getCompilerArguments(true));
+    return args;
+  }
+
+  /**
+   * Returns the command that starts the JVM that runs the compiler, up to but not including the
+   * main class.
+   *
+   * @param classpath the classpath of the JVM
+   * @return the command that starts the JVM that runs the compiler
+   */
+  private List<String> getJvmArguments(List<String> classpath) {
+    List<String> args = new ArrayList<>(jvmOpts.size() + toolOpts.size() + 32);
 
     // TODO: do we need java.exe on Windows?
     String java = "java";
@@ -475,22 +520,33 @@ public class CheckerMain {
     }
 
     args.add("-classpath");
-    args.add(String.join(File.pathSeparator, runtimeClasspath));
+    args.add(String.join(File.pathSeparator, classpath));
     args.add("-ea");
     // com.sun.tools needs to be enabled separately
     args.add("-ea:com.sun.tools...");
 
     args.addAll(jvmOpts);
+    return args;
+  }
 
-    addMainToArgs(args);
-
+  /**
+   * Returns the arguments to the compiler.
+   *
+   * @param quotePaths true if paths that contain spaces should be quoted, because the arguments are
+   *     passed to a new process
+   * @return the arguments to the compiler
+   */
+  private List<String> getCompilerArguments(boolean quotePaths) {
+    List<String> args = new ArrayList<>(toolOpts.size() + 5);
     if (!argsListHasClassPath(argListFiles)) {
+      String classpath = concatenatePaths(cpOpts);
       args.add("-classpath");
-      args.add(quote(concatenatePaths(cpOpts)));
+      args.add(quotePaths ? quote(classpath) : classpath);
     }
     if (!argsListHasProcessorPath(argListFiles)) {
+      String processorpath = concatenatePaths(ppOpts);
       args.add("-processorpath");
-      args.add(quote(concatenatePaths(ppOpts)));
+      args.add(quotePaths ? quote(processorpath) : processorpath);
     }
 
     if (SystemUtil.jreVersion == 8) {
@@ -575,6 +631,26 @@ public class CheckerMain {
       }
     }
 
+    if (useDaemon) {
+      // The daemon's own classpath contains checker.jar, so that the Checker Framework's classes
+      // are loaded once for all compilations rather than once per compilation.
+      List<String> daemonClasspath = new ArrayList<>(runtimeClasspath);
+      daemonClasspath.add(checkerJar.getAbsolutePath());
+      List<String> compilerArgs = getCompilerArguments(false);
+      compilerArgs.removeIf(arg -> arg.startsWith("-AoutputArgsToFile="));
+      try {
+        return CheckerDaemon.compile(
+            getJvmArguments(daemonClasspath),
+            compilerArgs,
+            daemonIdleTimeoutSeconds,
+            System.out,
+            System.err);
+      } catch (IOException e) {
+        System.err.println(
+            "Cannot use the daemon, so running javac in a new JVM: " + e.getMessage());
+      }
+    }
+
     // Actually invoke the compiler
     return ExecUtil.execute(args.toArray(new String[0]), System.out, System.err);
   }
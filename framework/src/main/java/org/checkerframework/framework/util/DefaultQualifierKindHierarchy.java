@@ -3,6 +3,7 @@ package org.checkerframework.framework.util;
 import java.lang.annotation.Annotation;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -71,16 +72,18 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
   private final Set<DefaultQualifierKind> bottoms;
 
   /**
-   * Holds the lub of qualifier kinds. {@code lubs.get(kind1).get(kind2)} returns the lub of kind1
-   * and kind2.
+   * Holds the lub of qualifier kinds, indexed by {@link DefaultQualifierKind#index}. {@code
+   * lubs[kind1.index][kind2.index]} is the lub of kind1 and kind2, or null if they are in different
+   * hierarchies.
    */
-  private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> lubs;
+  private final @Nullable QualifierKind[][] lubs;
 
   /**
-   * Holds the glb of qualifier kinds. {@code glbs.get(kind1).get(kind2)} returns the glb of kind1
-   * and kind2.
+   * Holds the glb of qualifier kinds, indexed by {@link DefaultQualifierKind#index}. {@code
+   * glbs[kind1.index][kind2.index]} is the glb of kind1 and kind2, or null if they are in different
+   * hierarchies.
    */
-  private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> glbs;
+  private final @Nullable QualifierKind[][] glbs;
 
   @Override
   public Set<? extends QualifierKind> getTops() {
@@ -94,16 +97,30 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
   @Override
   public @Nullable QualifierKind leastUpperBound(QualifierKind q1, QualifierKind q2) {
-    @SuppressWarnings("nullness:dereference.of.nullable") // All QualifierKinds are keys in lubs.
-    QualifierKind result = lubs.get(q1).get(q2);
-    return result;
+    return lubs[indexOf(q1)][indexOf(q2)];
   }
 
   @Override
   public @Nullable QualifierKind greatestLowerBound(QualifierKind q1, QualifierKind q2) {
-    @SuppressWarnings("nullness:dereference.of.nullable") // All QualifierKinds are keys in glbs.
-    QualifierKind result = glbs.get(q1).get(q2);
-    return result;
+    return glbs[indexOf(q1)][indexOf(q2)];
+  }
+
+  /**
+   * Returns the index of the given qualifier kind in {@link #qualifierKinds}.
+   *
+   * @param qualifierKind a qualifier kind of this hierarchy
+   * @return the index of {@code qualifierKind} in {@link #qualifierKinds}
+   */
+  private int indexOf(QualifierKind qualifierKind) {
+    if (qualifierKind instanceof DefaultQualifierKind) {
+      int index = ((DefaultQualifierKind) qualifierKind).index;
+      if (index >= 0
+          && index < qualifierKinds.size()
+          && qualifierKinds.get(index) == qualifierKind) {
+        return index;
+      }
+    }
+    throw new BugInCF("QualifierKind %s is not in this hierarchy", qualifierKind);
   }
 
   @Override
@@ -169,6 +186,9 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     this.nameToQualifierKind = createQualifierKinds(qualifierClasses);
     this.qualifierKinds = new ArrayList<>(nameToQualifierKind.values());
     Collections.sort(qualifierKinds);
+    for (int i = 0; i < qualifierKinds.size(); i++) {
+      qualifierKinds.get(i).index = i;
+    }
 
     Map<DefaultQualifierKind, Set<DefaultQualifierKind>> directSuperMap = createDirectSuperMap();
     if (bottom != null) {
@@ -178,8 +198,9 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     this.bottoms = createBottomsSet(directSuperMap);
     initializePolymorphicQualifiers();
     initializeQualifierKindFields(directSuperMap);
-    this.lubs = createLubsMap();
-    this.glbs = createGlbsMap();
+    initializeStrictSuperTypeIndexes();
+    this.lubs = createTable(createLubsMap());
+    this.glbs = createTable(createGlbsMap());
 
     verifyHierarchy(directSuperMap);
   }
@@ -480,6 +501,58 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     }
   }
 
+  /**
+   * Sets {@link DefaultQualifierKind#strictSuperTypeIndexes} for each qualifier kind, so that
+   * {@link DefaultQualifierKind#isSubtypeOf} is a bit test. Requires that {@link
+   * DefaultQualifierKind#strictSuperTypes} has been initialized and will not change.
+   */
+  @RequiresNonNull("this.qualifierKinds")
+  private void initializeStrictSuperTypeIndexes(
+      @UnderInitialization DefaultQualifierKindHierarchy this) {
+    for (DefaultQualifierKind qualifierKind : qualifierKinds) {
+      qualifierKind.hierarchyKinds = qualifierKinds;
+      if (qualifierKind.strictSuperTypes == null) {
+        // verifyHierarchy() reports this error.
+        continue;
+      }
+      BitSet indexes = new BitSet(qualifierKinds.size());
+      for (QualifierKind superKind : qualifierKind.strictSuperTypes) {
+        if (superKind instanceof DefaultQualifierKind) {
+          int index = ((DefaultQualifierKind) superKind).index;
+          if (index >= 0 && qualifierKinds.get(index) == superKind) {
+            indexes.set(index);
+          }
+        }
+      }
+      qualifierKind.strictSuperTypeIndexes = indexes;
+    }
+  }
+
+  /**
+   * Converts a map of maps, such as one returned by {@link #createLubsMap()}, to a table indexed by
+   * {@link DefaultQualifierKind#index}.
+   *
+   * @param map a mapping from two qualifier kinds to a qualifier kind
+   * @return a table such that {@code table[kind1.index][kind2.index] == map.get(kind1).get(kind2)}
+   */
+  @RequiresNonNull("this.qualifierKinds")
+  private @Nullable QualifierKind[][] createTable(
+      @UnderInitialization DefaultQualifierKindHierarchy this,
+      Map<QualifierKind, Map<QualifierKind, QualifierKind>> map) {
+    int size = qualifierKinds.size();
+    @Nullable QualifierKind[][] table = new QualifierKind[size][size];
+    for (int i = 0; i < size; i++) {
+      Map<QualifierKind, QualifierKind> row = map.get(qualifierKinds.get(i));
+      if (row == null) {
+        continue;
+      }
+      for (int j = 0; j < size; j++) {
+        table[i][j] = row.get(qualifierKinds.get(j));
+      }
+    }
+    return table;
+  }
+
   /**
    * Returns the set of all qualifier kinds that are a strict supertype of {@code qualifierKind}.
    *
@@ -725,6 +798,13 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     // Set while creating the QualifierKindHierarchy.
     protected @Nullable DefaultQualifierKind poly;
 
+    /**
+     * The index of this in the sorted list of all qualifier kinds of its hierarchy. Used to index
+     * the lub and glb tables and {@link #strictSuperTypeIndexes}.
+     */
+    // Set while creating the QualifierKindHierarchy.
+    int index = -1;
+
     /**
      * All the qualifier kinds that are a strict super qualifier kind of this. Does not include this
      * qualifier kind itself.
@@ -732,6 +812,21 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     // Set while creating the QualifierKindHierarchy.
     protected @MonotonicNonNull Set<QualifierKind> strictSuperTypes;
 
+    /**
+     * The indexes of the qualifier kinds in {@link #strictSuperTypes}. Null while the hierarchy is
+     * being created, when {@link #strictSuperTypes} may still change.
+     */
+    // Set while creating the QualifierKindHierarchy.
+    private @MonotonicNonNull BitSet strictSuperTypeIndexes;
+
+    /**
+     * The list of all qualifier kinds of the {@link DefaultQualifierKindHierarchy} that this
+     * belongs to. Two qualifier kinds belong to the same hierarchy object if and only if these
+     * lists are the same object.
+     */
+    // Set while creating the QualifierKindHierarchy.
+    private @MonotonicNonNull List<DefaultQualifierKind> hierarchyKinds;
+
     /**
      * Creates a {@link DefaultQualifierKind} for the given annotation class.
      *
@@ -818,13 +913,24 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     }
 
     @Override
+    @SuppressWarnings("interning:not.interned") // hierarchyKinds identifies a hierarchy object
     public boolean isSubtypeOf(QualifierKind superQualKind) {
       if (strictSuperTypes == null) {
         throw new BugInCF(
             "DefaultQualifierKind#isSubtypeOf: strictSuperTypes was null. Don't call this method"
                 + " during initialization of DefaultQualifierKindHierarchy.");
       }
-      return this == superQualKind || strictSuperTypes.contains(superQualKind);
+      if (this == superQualKind) {
+        return true;
+      }
+      if (strictSuperTypeIndexes != null && superQualKind instanceof DefaultQualifierKind) {
+        DefaultQualifierKind superKind = (DefaultQualifierKind) superQualKind;
+        if (superKind.hierarchyKinds == hierarchyKinds) {
+          return strictSuperTypeIndexes.get(superKind.index);
+        }
+      }
+      // A qualifier kind of another hierarchy object, which may have the same name.
+      return strictSuperTypes.contains(superQualKind);
     }
 
     @Override
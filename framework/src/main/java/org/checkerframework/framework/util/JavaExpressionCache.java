@@ -0,0 +1,101 @@
+package org.checkerframework.framework.util;
+
+import java.util.Map;
+import javax.lang.model.element.Element;
+import org.checkerframework.dataflow.expression.JavaExpression;
+import org.checkerframework.dataflow.expression.JavaExpressionParseException;
+import org.checkerframework.dataflow.expression.JavaExpressionParseUtil;
+import org.plumelib.util.CollectionsPlume;
+import org.plumelib.util.IPair;
+
+/**
+ * Caches the {@link JavaExpression}s that {@link StringToJavaExpression} parses at a declaration,
+ * such as a method whose contract or parameter type contains a Java expression string. The same
+ * expression string at the same declaration is otherwise parsed and resolved again every time an
+ * annotated type that contains it is created, for example at every call to the method.
+ *
+ * <p>Name resolution depends on the current compilation unit, so the cache must be cleared whenever
+ * the compilation unit changes. Each checker has its own cache; see {@link
+ * org.checkerframework.framework.source.SourceChecker#getJavaExpressionCache()}.
+ */
+public class JavaExpressionCache {
+
+  /** The maximum number of entries in the cache. */
+  private static final int CACHE_SIZE = 500;
+
+  /**
+   * Maps an expression string and the declaration at which it is parsed to the result of parsing
+   * it: either a {@link JavaExpression} or a {@link JavaExpressionParseException}.
+   */
+  private final Map<IPair<String, Element>, Object> cache =
+      CollectionsPlume.createLruCache(CACHE_SIZE);
+
+  /** The number of lookups that found an entry. */
+  private long hits = 0;
+
+  /** The number of lookups that had to parse the expression. */
+  private long misses = 0;
+
+  /** A function that parses an expression string at a declaration. */
+  @FunctionalInterface
+  public interface Parser {
+    /**
+     * Parses the given expression string.
+     *
+     * @param expression a Java expression string
+     * @return the parsed expression
+     * @throws JavaExpressionParseException if {@code expression} cannot be parsed
+     */
+    JavaExpression parse(String expression) throws JavaExpressionParseException;
+  }
+
+  /** Creates an empty JavaExpressionCache. */
+  public JavaExpressionCache() {}
+
+  /**
+   * Returns the result of parsing {@code expression} at {@code declaration}, using {@code parser}
+   * if the result is not in the cache.
+   *
+   * @param expression a Java expression string
+   * @param declaration the declaration at which {@code expression} is parsed
+   * @param parser parses {@code expression} at {@code declaration}
+   * @return the parsed expression
+   * @throws JavaExpressionParseException if {@code expression} cannot be parsed
+   */
+  public JavaExpression get(String expression, Element declaration, Parser parser)
+      throws JavaExpressionParseException {
+    IPair<String, Element> key = IPair.of(expression, declaration);
+    Object result = cache.get(key);
+    if (result == null) {
+      misses++;
+      try {
+        result = parser.parse(expression);
+      } catch (JavaExpressionParseException e) {
+        result = e;
+      }
+      cache.put(key, result);
+    } else {
+      hits++;
+    }
+    if (result instanceof JavaExpressionParseException) {
+      throw (JavaExpressionParseException) result;
+    }
+    return (JavaExpression) result;
+  }
+
+  /** Removes all entries from the cache. Call this when the current compilation unit changes. */
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Returns a human-readable summary of the use of this cache, for {@code -AresourceStats}. See
+   * {@link JavaExpressionParseUtil#getParseCacheStatistics} for the shared cache of parsed
+   * expression strings.
+   *
+   * @return a summary of the use of this cache
+   */
+  public String getStatistics() {
+    return String.format("Java expression cache: %d hits, %d misses", hits, misses);
+  }
+}
@@ -72,16 +72,23 @@ public interface StringToJavaExpression {
   static JavaExpression atTypeDecl(
       String expression, TypeElement typeElement, SourceChecker checker)
       throws JavaExpressionParseException {
-    ThisReference thisReference = new ThisReference(typeElement.asType());
-    List<FormalParameter> parameters = null;
-    return JavaExpressionParseUtil.parse(
-        expression,
-        typeElement.asType(),
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    return checker
+        .getJavaExpressionCache()
+        .get(
+            expression,
+            typeElement,
+            expr -> {
+              ThisReference thisReference = new ThisReference(typeElement.asType());
+              List<FormalParameter> parameters = null;
+              return JavaExpressionParseUtil.parse(
+                  expr,
+                  typeElement.asType(),
+                  thisReference,
+                  parameters,
+                  null,
+                  checker.getPathToCompilationUnit(),
+                  checker.getProcessingEnvironment());
+            });
   }
 
   /**
@@ -98,23 +105,30 @@ public interface StringToJavaExpression {
   static JavaExpression atFieldDecl(
       String expression, VariableElement fieldElement, SourceChecker checker)
       throws JavaExpressionParseException {
-    TypeMirror enclosingType = ElementUtils.enclosingTypeElement(fieldElement).asType();
-    ThisReference thisReference;
-    if (ElementUtils.isStatic(fieldElement)) {
-      // Can't use "this" on a static fieldElement
-      thisReference = null;
-    } else {
-      thisReference = new ThisReference(enclosingType);
-    }
-    List<FormalParameter> parameters = null;
-    return JavaExpressionParseUtil.parse(
-        expression,
-        enclosingType,
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    return checker
+        .getJavaExpressionCache()
+        .get(
+            expression,
+            fieldElement,
+            expr -> {
+              TypeMirror enclosingType = ElementUtils.enclosingTypeElement(fieldElement).asType();
+              ThisReference thisReference;
+              if (ElementUtils.isStatic(fieldElement)) {
+                // Can't use "this" on a static fieldElement
+                thisReference = null;
+              } else {
+                thisReference = new ThisReference(enclosingType);
+              }
+              List<FormalParameter> parameters = null;
+              return JavaExpressionParseUtil.parse(
+                  expr,
+                  enclosingType,
+                  thisReference,
+                  parameters,
+                  null,
+                  checker.getPathToCompilationUnit(),
+                  checker.getProcessingEnvironment());
+            });
   }
 
   /**
@@ -134,23 +148,30 @@ public interface StringToJavaExpression {
   static JavaExpression atMethodDecl(
       String expression, ExecutableElement method, SourceChecker checker)
       throws JavaExpressionParseException {
-    TypeMirror enclosingType = ElementUtils.enclosingTypeElement(method).asType();
-    ThisReference thisReference;
-    if (ElementUtils.isStatic(method)) {
-      // Can't use "this" on a static method
-      thisReference = null;
-    } else {
-      thisReference = new ThisReference(enclosingType);
-    }
-    List<FormalParameter> parameters = JavaExpression.getFormalParameters(method);
-    return JavaExpressionParseUtil.parse(
-        expression,
-        enclosingType,
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    return checker
+        .getJavaExpressionCache()
+        .get(
+            expression,
+            method,
+            expr -> {
+              TypeMirror enclosingType = ElementUtils.enclosingTypeElement(method).asType();
+              ThisReference thisReference;
+              if (ElementUtils.isStatic(method)) {
+                // Can't use "this" on a static method
+                thisReference = null;
+              } else {
+                thisReference = new ThisReference(enclosingType);
+              }
+              List<FormalParameter> parameters = JavaExpression.getFormalParameters(method);
+              return JavaExpressionParseUtil.parse(
+                  expr,
+                  enclosingType,
+                  thisReference,
+                  parameters,
+                  null,
+                  checker.getPathToCompilationUnit(),
+                  checker.getProcessingEnvironment());
+            });
   }
 
   /**
@@ -10,7 +10,9 @@ import com.sun.source.util.TreePath;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.type.DeclaredType;
@@ -35,9 +37,44 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
   /** Stack of all inference problems currently being solved. */
   private final ArrayDeque<InvocationTypeInference> java8InferenceStack = new ArrayDeque<>();
 
+  /**
+   * Maps an outermost invocation in the current compilation unit to the result of inferring its
+   * type arguments, which include the type arguments of every invocation nested within it. Without
+   * this cache, inferring the type arguments of each invocation in a chain such as {@code
+   * stream.map(...).filter(...).collect(...)} would infer the whole chain again. The assignment
+   * context of an outermost invocation is determined by its location, so the tree is the key.
+   */
+  private final Map<ExpressionTree, CachedInference> outerResults = new HashMap<>();
+
+  /** The type of an outermost invocation and the result of inferring its type arguments. */
+  private static class CachedInference {
+    /** The type of the outermost invocation, before type arguments are substituted. */
+    final AnnotatedExecutableType methodType;
+
+    /** The result of inference; copied before it is returned to a client. */
+    final InferenceResult result;
+
+    /**
+     * Creates a CachedInference.
+     *
+     * @param methodType the type of the outermost invocation, before type arguments are
+     *     substituted
+     * @param result the result of inference
+     */
+    CachedInference(AnnotatedExecutableType methodType, InferenceResult result) {
+      this.methodType = methodType;
+      this.result = result;
+    }
+  }
+
   /** Creates a DefaultTypeArgumentInference. */
   public DefaultTypeArgumentInference() {}
 
+  @Override
+  public void clearCache() {
+    outerResults.clear();
+  }
+
   @SuppressWarnings("interning:not.interned")
   @Override
   public InferenceResult inferTypeArgs(
@@ -75,6 +112,27 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
         return new InferenceResult(instantiated, false, false, "");
       }
     }
+
+    // Only reuse a result computed from final types, and never while another inference is
+    // running, because then some types are not yet known.
+    boolean cacheable =
+        java8Inference == null
+            && !(outerTree instanceof MemberReferenceTree)
+            && typeFactory.shouldCacheResultsAt(pathToExpression);
+    if (cacheable) {
+      CachedInference cached = outerResults.get(outerTree);
+      if (cached != null
+          && (outerTree != expressionTree || cached.methodType.equals(methodType))
+          && (cached.result.getResults().containsKey(expressionTree)
+              || !(expressionTree instanceof MemberReferenceTree))) {
+        try {
+          return cached.result.copy().swapTypeVariables(methodType, expressionTree);
+        } catch (Exception ex) {
+          return inferenceCrashed(typeFactory, outerTree, ex);
+        }
+      }
+    }
+
     AnnotatedExecutableType outerMethodType;
     if (outerTree != expressionTree) {
       if (outerTree instanceof MethodInvocationTree) {
@@ -106,6 +164,10 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
         return java8Inference.infer((MemberReferenceTree) outerTree);
       } else {
         InferenceResult result = java8Inference.infer(outerTree, outerMethodType);
+        if (cacheable) {
+          outerResults.put(
+              outerTree, new CachedInference(outerMethodType.deepCopy(), result.copy()));
+        }
         if (!result.getResults().containsKey(expressionTree)
             && expressionTree instanceof MemberReferenceTree) {
           java8Inference.context.pathToExpression = typeFactory.getPath(expressionTree);
@@ -114,20 +176,7 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
         return result.swapTypeVariables(methodType, expressionTree);
       }
     } catch (Exception ex) {
-      if (typeFactory
-          .getChecker()
-          .getBooleanOption("convertTypeArgInferenceCrashToWarning", true)) {
-        // This should never happen, if javac infers type arguments so should the Checker
-        // Framework. However, given how buggy javac inference is, this probably will, so
-        // deal with it gracefully.
-        return new InferenceResult(
-            Collections.emptyList(),
-            false,
-            true,
-            true,
-            "An exception occurred: " + ex.getLocalizedMessage());
-      }
-      throw BugInCF.addLocation(outerTree, ex);
+      return inferenceCrashed(typeFactory, outerTree, ex);
     } finally {
       if (!java8InferenceStack.isEmpty()) {
         java8Inference = java8InferenceStack.pop();
@@ -137,6 +186,33 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
     }
   }
 
+  /**
+   * Handles an exception thrown by type argument inference: returns a result that records the
+   * crash, or rethrows the exception if crashes should not be converted to warnings.
+   *
+   * @param typeFactory the type factory
+   * @param outerTree the outermost tree whose type arguments were being inferred
+   * @param ex the exception
+   * @return a result that records the crash
+   */
+  private static InferenceResult inferenceCrashed(
+      AnnotatedTypeFactory typeFactory, ExpressionTree outerTree, Exception ex) {
+    if (typeFactory
+        .getChecker()
+        .getBooleanOption("convertTypeArgInferenceCrashToWarning", true)) {
+      // This should never happen, if javac infers type arguments so should the Checker
+      // Framework. However, given how buggy javac inference is, this probably will, so
+      // deal with it gracefully.
+      return new InferenceResult(
+          Collections.emptyList(),
+          false,
+          true,
+          true,
+          "An exception occurred: " + ex.getLocalizedMessage());
+    }
+    throw BugInCF.addLocation(outerTree, ex);
+  }
+
   /**
    * Returns the outermost tree required to find the type of {@code tree}.
    *
@@ -14,6 +14,7 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutab
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVariable;
 import org.checkerframework.framework.util.typeinference8.types.Variable;
 import org.checkerframework.javacutil.TypesUtils;
+import org.plumelib.util.CollectionsPlume;
 
 /** The result of type argument inferrece. */
 public class InferenceResult {
@@ -83,13 +84,56 @@ public class InferenceResult {
       boolean annoInferenceFailed,
       boolean inferenceCrashed,
       String errorMsg) {
-    this.results = convert(variables);
+    this(convert(variables), uncheckedConversion, annoInferenceFailed, inferenceCrashed, errorMsg);
+  }
+
+  /**
+   * Creates an inference result from the map representation of the instantiated variables.
+   *
+   * @param results a mapping from a tree that needs type argument inference to a map from type
+   *     parameter to its inferred annotated type argument
+   * @param uncheckedConversion where unchecked conversion was required to infer the type arguments
+   * @param annoInferenceFailed true if inference failed because of annotations
+   * @param inferenceCrashed the type argument inference code crashed
+   * @param errorMsg message to report to users if inference failed
+   */
+  private InferenceResult(
+      Map<Tree, Map<TypeVariable, AnnotatedTypeMirror>> results,
+      boolean uncheckedConversion,
+      boolean annoInferenceFailed,
+      boolean inferenceCrashed,
+      String errorMsg) {
+    this.results = results;
     this.uncheckedConversion = uncheckedConversion;
     this.annoInferenceFailed = annoInferenceFailed;
     this.errorMsg = errorMsg;
     this.inferenceCrashed = inferenceCrashed;
   }
 
+  /**
+   * Returns a deep copy of this, which can be side-effected (for example, by {@link
+   * #swapTypeVariables}) without affecting this.
+   *
+   * @return a deep copy of this
+   */
+  /* package-private */ InferenceResult copy() {
+    if (this == emptyResult) {
+      return this;
+    }
+    Map<Tree, Map<TypeVariable, AnnotatedTypeMirror>> resultsCopy =
+        new HashMap<>(CollectionsPlume.mapCapacity(results));
+    for (Map.Entry<Tree, Map<TypeVariable, AnnotatedTypeMirror>> entry : results.entrySet()) {
+      Map<TypeVariable, AnnotatedTypeMirror> typeMap =
+          new HashMap<>(CollectionsPlume.mapCapacity(entry.getValue()));
+      for (Map.Entry<TypeVariable, AnnotatedTypeMirror> typeEntry : entry.getValue().entrySet()) {
+        typeMap.put(typeEntry.getKey(), typeEntry.getValue().deepCopy());
+      }
+      resultsCopy.put(entry.getKey(), typeMap);
+    }
+    return new InferenceResult(
+        resultsCopy, uncheckedConversion, annoInferenceFailed, inferenceCrashed, errorMsg);
+  }
+
   /**
    * A mapping from a tree that needs type argument inference to a map from type parameter to its
    * inferred annotated type argument. If inference failed, this map will be empty.
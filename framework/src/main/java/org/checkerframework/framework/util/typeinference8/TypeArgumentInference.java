@@ -43,4 +43,10 @@ public interface TypeArgumentInference {
       AnnotatedTypeFactory typeFactory,
       ExpressionTree invocation,
       AnnotatedExecutableType methodType);
+
+  /**
+   * Discards any inference results that were cached for the current compilation unit. The type
+   * factory calls this when its compilation unit changes.
+   */
+  default void clearCache() {}
 }
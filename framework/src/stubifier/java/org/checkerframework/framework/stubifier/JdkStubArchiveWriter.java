@@ -0,0 +1,132 @@
+package org.checkerframework.framework.stubifier;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Packs the minimized annotated JDK (the output of {@link JavaStubifier}) into a single archive, so
+ * that a type-checker can read it with one file access and look up the stub file for a class by
+ * name, rather than opening the jar file once per class.
+ *
+ * <p>The archive format is:
+ *
+ * <ol>
+ *   <li>the int {@link #MAGIC}, then the int {@link #VERSION},
+ *   <li>the number of entries, as an int,
+ *   <li>for each entry, in increasing order of name: the name (in modified UTF-8, as written by
+ *       {@link DataOutputStream#writeUTF}), then the offset and the length of its contents, as
+ *       ints; offsets are relative to the start of the contents,
+ *   <li>the contents of all the entries.
+ * </ol>
+ *
+ * The name of an entry is the fully-qualified name of the class it defines, or the package name
+ * followed by ".package-info".
+ */
+public class JdkStubArchiveWriter {
+
+  /** The first four bytes of an archive. */
+  public static final int MAGIC = 0xCAFEFACE;
+
+  /** The version of the archive format. */
+  public static final int VERSION = 1;
+
+  /** The directory, within each module of the annotated JDK, that contains the source files. */
+  private static final String CLASSES_DIR = File.separator + "share" + File.separator + "classes";
+
+  /** Do not instantiate. */
+  private JdkStubArchiveWriter() {
+    throw new Error("Do not instantiate");
+  }
+
+  /**
+   * Writes an archive of the annotated JDK.
+   *
+   * @param args command-line arguments: the directory containing the minimized annotated JDK, and
+   *     the archive file to write
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: JdkStubArchiveWriter <annotated-jdk directory> <archive file>");
+      System.exit(1);
+    }
+    write(JavaStubifier.dirnameToPath(args[0]), Path.of(args[1]));
+  }
+
+  /**
+   * Writes an archive of the annotated JDK.
+   *
+   * @param root the directory containing the minimized annotated JDK
+   * @param archive the archive file to write
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void write(Path root, Path archive) throws IOException {
+    Map<String, Path> entries = collectEntries(root);
+
+    List<byte[]> contents = new ArrayList<>(entries.size());
+    for (Path path : entries.values()) {
+      contents.add(Files.readAllBytes(path));
+    }
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      int offset = 0;
+      int i = 0;
+      for (String name : entries.keySet()) {
+        int length = contents.get(i++).length;
+        out.writeUTF(name);
+        out.writeInt(offset);
+        out.writeInt(length);
+        offset += length;
+      }
+      for (byte[] content : contents) {
+        out.write(content);
+      }
+    }
+  }
+
+  /**
+   * Returns a map from entry name to the file that contains its contents, sorted by entry name.
+   *
+   * @param root the directory containing the minimized annotated JDK
+   * @return a map from entry name to stub file
+   * @throws IOException if the directory cannot be read
+   */
+  private static Map<String, Path> collectEntries(Path root) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(root)) {
+      paths =
+          walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
+              // JavaParser can't parse module-info files, so skip them.
+              .filter(p -> !p.getFileName().toString().equals("module-info.java"))
+              .collect(Collectors.toList());
+    }
+
+    Map<String, Path> result = new TreeMap<>();
+    for (Path path : paths) {
+      String pathString = path.toString();
+      int index = pathString.indexOf(CLASSES_DIR + File.separator);
+      if (index == -1) {
+        continue;
+      }
+      String relative = pathString.substring(index + CLASSES_DIR.length() + 1);
+      // "-5" is to remove ".java" from end of file name
+      String name = relative.substring(0, relative.length() - 5).replace(File.separatorChar, '.');
+      result.put(name, path);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,171 @@
+package org.checkerframework.framework.stubifier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a qualifier index for each {@code qual} package in some directories of compiled classes,
+ * so that a type-checker can find the annotations in its {@code qual} package without scanning the
+ * classpath. The index for package {@code p} is the resource {@code
+ * META-INF/checkerframework/qualifiers/p}. {@code
+ * org.checkerframework.framework.type.AnnotationClassLoader} reads it.
+ *
+ * <p>The index has one line per annotation type in the package, in increasing order of name. Each
+ * line is the binary name of the annotation, a space, and the values of its {@code @Target}
+ * meta-annotation, separated by commas. If the annotation has no {@code @Target} meta-annotation or
+ * an empty one, the line is just the binary name.
+ */
+public class QualifierIndexWriter {
+
+  /** The directory, relative to the output directory, that contains the index files. */
+  public static final String INDEX_DIR = "META-INF/checkerframework/qualifiers";
+
+  /** The suffix for a .class file. */
+  private static final String CLASS_SUFFIX = ".class";
+
+  /** Do not instantiate. */
+  private QualifierIndexWriter() {
+    throw new Error("Do not instantiate");
+  }
+
+  /**
+   * Writes the qualifier indexes.
+   *
+   * @param args command-line arguments: the output directory, then the directories of compiled
+   *     classes to index, then optionally "--classpath" followed by additional classpath entries
+   *     that are needed to load the classes
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: QualifierIndexWriter <output directory> <classes directory>..."
+              + " [--classpath <entry>...]");
+      System.exit(1);
+    }
+    Path outputDir = Path.of(args[0]);
+    List<Path> classesDirs = new ArrayList<>();
+    List<URL> classpath = new ArrayList<>();
+    boolean inClasspath = false;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals("--classpath")) {
+        inClasspath = true;
+        continue;
+      }
+      Path path = Path.of(args[i]);
+      if (!inClasspath) {
+        classesDirs.add(path);
+      }
+      classpath.add(path.toUri().toURL());
+    }
+
+    Map<String, Map<String, String>> index;
+    try (URLClassLoader loader =
+        new URLClassLoader(classpath.toArray(new URL[0]), ClassLoader.getPlatformClassLoader())) {
+      index = collectQualifiers(classesDirs, loader);
+    }
+
+    Path indexDir = outputDir.resolve(INDEX_DIR);
+    Files.createDirectories(indexDir);
+    // Remove the indexes of packages that no longer exist.
+    try (Stream<Path> oldIndexes = Files.list(indexDir)) {
+      for (Path oldIndex : (Iterable<Path>) oldIndexes::iterator) {
+        Files.delete(oldIndex);
+      }
+    }
+    for (Map.Entry<String, Map<String, String>> pkg : index.entrySet()) {
+      try (Writer out =
+          Files.newBufferedWriter(indexDir.resolve(pkg.getKey()), StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, String> anno : pkg.getValue().entrySet()) {
+          out.write(anno.getKey());
+          if (!anno.getValue().isEmpty()) {
+            out.write(' ');
+            out.write(anno.getValue());
+          }
+          out.write('\n');
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the annotation types in the {@code qual} packages of the given directories.
+   *
+   * @param classesDirs directories of compiled classes
+   * @param loader a class loader that can load the classes in {@code classesDirs}
+   * @return a map from package name to a map from the binary name of each annotation type in the
+   *     package to the comma-separated values of its {@code @Target} meta-annotation
+   * @throws IOException if a directory cannot be read
+   */
+  private static Map<String, Map<String, String>> collectQualifiers(
+      List<Path> classesDirs, ClassLoader loader) throws IOException {
+    Map<String, Map<String, String>> result = new TreeMap<>();
+    for (Path classesDir : classesDirs) {
+      if (!Files.isDirectory(classesDir)) {
+        continue;
+      }
+      List<Path> classFiles;
+      try (Stream<Path> walk = Files.walk(classesDir)) {
+        classFiles =
+            walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(CLASS_SUFFIX))
+                .filter(p -> p.getParent().getFileName().toString().equals("qual"))
+                .collect(Collectors.toList());
+      }
+      for (Path classFile : classFiles) {
+        String relative = classesDir.relativize(classFile).toString();
+        String className =
+            relative
+                .substring(0, relative.length() - CLASS_SUFFIX.length())
+                .replace(classFile.getFileSystem().getSeparator(), ".");
+        if (className.endsWith(".package-info") || className.endsWith(".module-info")) {
+          continue;
+        }
+        Class<?> cls;
+        try {
+          cls = Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+          throw new Error("Cannot load " + className, e);
+        }
+        if (!cls.isAnnotation()) {
+          continue;
+        }
+        String pkg = className.substring(0, className.lastIndexOf('.'));
+        result.computeIfAbsent(pkg, p -> new TreeMap<>()).put(className, targets(cls));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the values of the {@code @Target} meta-annotation of an annotation type.
+   *
+   * @param annoClass an annotation type
+   * @return the comma-separated values of the {@code @Target} meta-annotation of {@code
+   *     annoClass}, or the empty string if it has none or an empty one
+   */
+  private static String targets(Class<?> annoClass) {
+    Target target = annoClass.getAnnotation(Target.class);
+    if (target == null) {
+      return "";
+    }
+    StringJoiner result = new StringJoiner(",");
+    for (ElementType elementType : target.value()) {
+      result.add(elementType.name());
+    }
+    return result.toString();
+  }
+}
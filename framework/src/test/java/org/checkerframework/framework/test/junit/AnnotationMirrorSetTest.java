@@ -0,0 +1,236 @@
+package org.checkerframework.framework.test.junit;
+
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.main.Option;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Options;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.framework.testchecker.util.AnnoWithStringArg;
+import org.checkerframework.framework.testchecker.util.Encrypted;
+import org.checkerframework.framework.testchecker.util.Even;
+import org.checkerframework.framework.testchecker.util.Odd;
+import org.checkerframework.framework.testchecker.util.SubQual;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationMirrorSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests AnnotationMirrorSet, in particular the ordering of its elements and the lookups that rely
+ * on it.
+ */
+public class AnnotationMirrorSetTest {
+
+  /** The processing environment used to create annotations. */
+  private final ProcessingEnvironment env;
+
+  /** {@code @AnnoWithStringArg("a")}, the least annotation used by the tests. */
+  private final AnnotationMirror stringA;
+
+  /** {@code @AnnoWithStringArg("b")}. */
+  private final AnnotationMirror stringB;
+
+  /** {@code @Encrypted}. */
+  private final AnnotationMirror encrypted;
+
+  /** {@code @Even}. */
+  private final AnnotationMirror even;
+
+  /** {@code @Odd}, the greatest annotation in {@link #newSet}. */
+  private final AnnotationMirror odd;
+
+  /** Creates an AnnotationMirrorSetTest. */
+  public AnnotationMirrorSetTest() {
+    Context context = new Context();
+    Options options = Options.instance(context);
+    options.put(Option.SOURCE, "8");
+    options.put(Option.TARGET, "8");
+
+    env = JavacProcessingEnvironment.instance(context);
+    JavaCompiler javac = JavaCompiler.instance(context);
+    javac.initModules(List.nil());
+    javac.enterDone();
+
+    stringA = stringArg("a");
+    stringB = stringArg("b");
+    encrypted = AnnotationBuilder.fromClass(env.getElementUtils(), Encrypted.class);
+    even = AnnotationBuilder.fromClass(env.getElementUtils(), Even.class);
+    odd = AnnotationBuilder.fromClass(env.getElementUtils(), Odd.class);
+  }
+
+  /**
+   * Returns a new {@code @AnnoWithStringArg} annotation.
+   *
+   * @param value the value of the annotation
+   * @return {@code @AnnoWithStringArg(value)}
+   */
+  private AnnotationMirror stringArg(String value) {
+    AnnotationBuilder builder = new AnnotationBuilder(env, AnnoWithStringArg.class);
+    builder.setValue("value", value);
+    return builder.build();
+  }
+
+  /**
+   * Returns a new set that contains {@link #stringA}, {@link #stringB}, {@link #encrypted}, {@link
+   * #even}, and {@link #odd}, added in an order different from their sorted order.
+   *
+   * @return a new set
+   */
+  private AnnotationMirrorSet newSet() {
+    AnnotationMirrorSet set = new AnnotationMirrorSet();
+    for (AnnotationMirror anno : Arrays.asList(odd, stringB, even, stringA, encrypted)) {
+      Assert.assertTrue(set.add(anno));
+    }
+    return set;
+  }
+
+  /**
+   * Asserts that the given set contains exactly the given annotations, in the given order.
+   *
+   * @param expected the expected elements, in order
+   * @param set the set to check
+   */
+  private static void assertElements(
+      java.util.List<AnnotationMirror> expected, AnnotationMirrorSet set) {
+    Assert.assertEquals(expected, new ArrayList<>(set));
+    Assert.assertEquals(expected.size(), set.size());
+  }
+
+  @Test
+  public void testOrder() {
+    AnnotationMirrorSet set = newSet();
+    assertElements(Arrays.asList(stringA, stringB, encrypted, even, odd), set);
+    Assert.assertSame(stringA, set.first());
+    Assert.assertSame(odd, set.last());
+  }
+
+  @Test
+  public void testLookup() {
+    AnnotationMirrorSet set = newSet();
+    // Equal to an element, but not the same object, so the lookup must compare values.
+    Assert.assertTrue(set.contains(stringArg("b")));
+    Assert.assertTrue(set.contains(AnnotationBuilder.fromClass(env.getElementUtils(), Even.class)));
+    // Same name as elements, but a different value.
+    Assert.assertFalse(set.contains(stringArg("c")));
+    // Sorts before every element, and after every element.
+    Assert.assertFalse(set.contains(stringArg("0")));
+    Assert.assertFalse(
+        set.contains(AnnotationBuilder.fromClass(env.getElementUtils(), SubQual.class)));
+    Assert.assertFalse(set.contains("not an annotation"));
+
+    Assert.assertFalse(set.add(stringArg("a")));
+    Assert.assertEquals(5, set.size());
+  }
+
+  @Test
+  public void testNavigation() {
+    AnnotationMirrorSet set = newSet();
+
+    // An element of the set.
+    Assert.assertSame(stringB, set.lower(encrypted));
+    Assert.assertSame(encrypted, set.floor(encrypted));
+    Assert.assertSame(encrypted, set.ceiling(encrypted));
+    Assert.assertSame(even, set.higher(encrypted));
+
+    // Not an element of the set: sorts between stringB and encrypted.
+    AnnotationMirror stringC = stringArg("c");
+    Assert.assertSame(stringB, set.lower(stringC));
+    Assert.assertSame(stringB, set.floor(stringC));
+    Assert.assertSame(encrypted, set.ceiling(stringC));
+    Assert.assertSame(encrypted, set.higher(stringC));
+
+    // The ends of the set.
+    Assert.assertNull(set.lower(stringA));
+    Assert.assertSame(stringA, set.floor(stringA));
+    Assert.assertSame(odd, set.ceiling(odd));
+    Assert.assertNull(set.higher(odd));
+    AnnotationMirror stringZero = stringArg("0");
+    Assert.assertNull(set.lower(stringZero));
+    Assert.assertNull(set.floor(stringZero));
+    Assert.assertSame(stringA, set.ceiling(stringZero));
+    AnnotationMirror subQual = AnnotationBuilder.fromClass(env.getElementUtils(), SubQual.class);
+    Assert.assertSame(odd, set.floor(subQual));
+    Assert.assertNull(set.ceiling(subQual));
+
+    Assert.assertSame(stringA, set.pollFirst());
+    Assert.assertSame(odd, set.pollLast());
+    assertElements(Arrays.asList(stringB, encrypted, even), set);
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    AnnotationMirrorSet set = newSet();
+    Iterator<AnnotationMirror> it = set.iterator();
+    Assert.assertSame(stringA, it.next());
+    it.remove();
+    Assert.assertSame(stringB, it.next());
+    Assert.assertSame(encrypted, it.next());
+    it.remove();
+    try {
+      it.remove();
+      Assert.fail("removed the same element twice");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    Assert.assertSame(even, it.next());
+    Assert.assertSame(odd, it.next());
+    it.remove();
+    Assert.assertFalse(it.hasNext());
+    assertElements(Arrays.asList(stringB, even), set);
+
+    Iterator<AnnotationMirror> stale = set.iterator();
+    stale.next();
+    set.remove(even);
+    try {
+      stale.next();
+      Assert.fail("no ConcurrentModificationException");
+    } catch (ConcurrentModificationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnmodifiable() {
+    AnnotationMirrorSet set = newSet().makeUnmodifiable();
+
+    // Operations that do not change the set succeed.
+    Assert.assertFalse(set.add(stringArg("a")));
+    Assert.assertFalse(set.remove(stringArg("c")));
+    Assert.assertFalse(set.retainAll(newSet()));
+    AnnotationMirrorSet.emptySet().clear();
+
+    try {
+      set.add(stringArg("c"));
+      Assert.fail("added to an unmodifiable set");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      set.remove(even);
+      Assert.fail("removed from an unmodifiable set");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      set.retainAll(Collections.singleton(even));
+      Assert.fail("retained in an unmodifiable set");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      set.clear();
+      Assert.fail("cleared an unmodifiable set");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    assertElements(Arrays.asList(stringA, stringB, encrypted, even, odd), set);
+  }
+}
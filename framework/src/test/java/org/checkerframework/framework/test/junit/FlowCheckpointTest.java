@@ -0,0 +1,32 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.testchecker.util.FlowTestChecker;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the same tests as {@link FlowTest}, but with {@code -AflowCheckpointInterval}, to check
+ * that saving only some of the transfer results within a block yields the same stores as saving
+ * all of them.
+ */
+public class FlowCheckpointTest extends CheckerFrameworkPerDirectoryTest {
+
+  /**
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public FlowCheckpointTest(List<File> testFiles) {
+    super(
+        testFiles,
+        FlowTestChecker.class,
+        "flow",
+        "-AcheckPurityAnnotations",
+        "-AflowCheckpointInterval=3");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"flow"};
+  }
+}
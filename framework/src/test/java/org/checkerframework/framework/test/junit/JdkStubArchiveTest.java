@@ -0,0 +1,144 @@
+package org.checkerframework.framework.test.junit;
+
+import com.github.javaparser.ast.StubUnit;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import org.checkerframework.framework.stub.JdkStubArchive;
+import org.checkerframework.framework.stubifier.JdkStubArchiveWriter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests the annotated JDK archive: the format JdkStubArchiveWriter writes and JdkStubArchive. */
+public class JdkStubArchiveTest {
+
+  /** The directory for the annotated JDK and the archive. */
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  /** The contents of java/lang/Foo.java. */
+  private static final String FOO = "package java.lang;\n\npublic class Foo {}\n";
+
+  /** The contents of java/lang/package-info.java. */
+  private static final String PACKAGE_INFO = "package java.lang;\n";
+
+  /** The contents of java/util/Bar.java. */
+  private static final String BAR = "package java.util;\n\npublic class Bar {}\n";
+
+  /**
+   * Creates a minimized annotated JDK in the temporary folder and writes its archive.
+   *
+   * @return the archive file
+   * @throws IOException if a file cannot be written
+   */
+  private Path writeArchive() throws IOException {
+    Path root = tmp.newFolder("annotated-jdk").toPath();
+    Path classes = root.resolve("java.base").resolve("share").resolve("classes");
+    writeFile(classes.resolve("java/util/Bar.java"), BAR);
+    writeFile(classes.resolve("java/lang/Foo.java"), FOO);
+    writeFile(classes.resolve("java/lang/package-info.java"), PACKAGE_INFO);
+    writeFile(classes.resolve("module-info.java"), "module java.base {}\n");
+    // Not under share/classes, so not part of the archive.
+    writeFile(root.resolve("java.base/unix/Other.java"), "class Other {}\n");
+
+    Path archive = tmp.getRoot().toPath().resolve("annotated-jdk.archive");
+    JdkStubArchiveWriter.write(root, archive);
+    return archive;
+  }
+
+  /**
+   * Writes a file, creating its parent directories.
+   *
+   * @param file the file to write
+   * @param contents the contents of the file
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeFile(Path file, String contents) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFormat() throws IOException {
+    Path archive = writeArchive();
+    String[] expectedNames = {"java.lang.Foo", "java.lang.package-info", "java.util.Bar"};
+    String[] expectedContents = {FOO, PACKAGE_INFO, BAR};
+
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(archive))) {
+      Assert.assertEquals(JdkStubArchiveWriter.MAGIC, in.readInt());
+      Assert.assertEquals(JdkStubArchiveWriter.VERSION, in.readInt());
+      int size = in.readInt();
+      Assert.assertEquals(expectedNames.length, size);
+
+      int[] offsets = new int[size];
+      int[] lengths = new int[size];
+      int expectedOffset = 0;
+      for (int i = 0; i < size; i++) {
+        Assert.assertEquals(expectedNames[i], in.readUTF());
+        offsets[i] = in.readInt();
+        lengths[i] = in.readInt();
+        Assert.assertEquals(expectedOffset, offsets[i]);
+        expectedOffset += lengths[i];
+      }
+
+      byte[] contents = new byte[expectedOffset];
+      in.readFully(contents);
+      Assert.assertEquals(-1, in.read());
+      for (int i = 0; i < size; i++) {
+        String entry = new String(contents, offsets[i], lengths[i], StandardCharsets.UTF_8);
+        Assert.assertEquals(expectedContents[i], entry);
+      }
+    }
+  }
+
+  @Test
+  public void testLookupFromFile() throws IOException {
+    checkLookup(JdkStubArchive.open(writeArchive().toUri().toURL()));
+  }
+
+  @Test
+  public void testLookupFromJar() throws IOException {
+    Path archive = writeArchive();
+    Path jar = tmp.getRoot().toPath().resolve("checker.jar");
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out);
+        InputStream in = Files.newInputStream(archive)) {
+      jarOut.putNextEntry(new ZipEntry(JdkStubArchive.RESOURCE_NAME.substring(1)));
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        jarOut.write(buffer, 0, n);
+      }
+      jarOut.closeEntry();
+    }
+    URL url = URI.create("jar:" + jar.toUri() + "!" + JdkStubArchive.RESOURCE_NAME).toURL();
+    checkLookup(JdkStubArchive.open(url));
+  }
+
+  /**
+   * Checks that the archive written by {@link #writeArchive} has the expected entries.
+   *
+   * @param archive the archive
+   */
+  private static void checkLookup(JdkStubArchive archive) {
+    Assert.assertEquals(
+        Arrays.asList("java.lang.Foo", "java.lang.package-info", "java.util.Bar"),
+        archive.getEntryNames());
+
+    StubUnit foo = archive.getStubUnit("java.lang.Foo");
+    Assert.assertEquals(1, foo.getCompilationUnits().size());
+    Assert.assertEquals("Foo", foo.getCompilationUnits().get(0).getType(0).getNameAsString());
+    StubUnit bar = archive.getStubUnit("java.util.Bar");
+    Assert.assertEquals("Bar", bar.getCompilationUnits().get(0).getType(0).getNameAsString());
+  }
+}
@@ -0,0 +1,23 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.testchecker.lazycopy.LazyCopyChecker;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Tests that the copies of cached types that AnnotatedTypeFactory returns are independent. */
+public class LazyCopyTest extends CheckerFrameworkPerDirectoryTest {
+
+  /**
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public LazyCopyTest(List<File> testFiles) {
+    super(testFiles, LazyCopyChecker.class, "lazycopy");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"lazycopy", "all-systems"};
+  }
+}
@@ -0,0 +1,26 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.testchecker.util.FlowTestChecker;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the same tests as {@link FlowTest}, but with {@code -AlazyFlow}, to check that analyzing
+ * each method on demand yields the same results as analyzing all methods up front.
+ */
+public class LazyFlowTest extends CheckerFrameworkPerDirectoryTest {
+
+  /**
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public LazyFlowTest(List<File> testFiles) {
+    super(testFiles, FlowTestChecker.class, "flow", "-AcheckPurityAnnotations", "-AlazyFlow");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"flow"};
+  }
+}
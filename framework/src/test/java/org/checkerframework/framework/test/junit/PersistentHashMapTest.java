@@ -0,0 +1,156 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import org.checkerframework.framework.flow.PersistentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** This class tests the PersistentHashMap class, by comparing it to HashMap. */
+public class PersistentHashMapTest {
+
+  /** A key whose hash code is chosen by the test, so that keys can collide. */
+  private static final class Key {
+    /** The identity of the key. */
+    final int id;
+
+    /** The hash code of the key. */
+    final int hash;
+
+    /**
+     * Creates a Key.
+     *
+     * @param id the identity of the key
+     * @param hash the hash code of the key
+     */
+    Key(int id, int hash) {
+      this.id = id;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return "Key" + id;
+    }
+  }
+
+  /**
+   * Returns a key. Many keys share a hash code, and many hash codes share their low bits.
+   *
+   * @param id the identity of the key
+   * @return a key
+   */
+  private static Key key(int id) {
+    return new Key(id, (id % 50) * 1024 + (id % 7));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(42);
+    PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+    Map<Key, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      Key key = key(random.nextInt(400));
+      switch (random.nextInt(3)) {
+        case 0:
+          Assert.assertEquals(expected.remove(key), map.remove(key));
+          break;
+        default:
+          int value = random.nextInt(5);
+          Assert.assertEquals(expected.put(key, value), map.put(key, value));
+          break;
+      }
+      Assert.assertEquals(expected.size(), map.size());
+      Assert.assertEquals(expected.get(key), map.get(key));
+      Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(map, expected);
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+    for (int i = 0; i < 300; i++) {
+      map.put(key(i), i);
+    }
+    PersistentHashMap<Key, Integer> copy = map.copy();
+    Map<Key, Integer> before = new HashMap<>(map);
+    for (int i = 0; i < 300; i += 3) {
+      copy.remove(key(i));
+      copy.put(key(i + 1), -i);
+    }
+    Assert.assertEquals(before, map);
+    Assert.assertEquals(200, copy.size());
+    Assert.assertTrue(map.containsAllEntriesOf(map.copy()));
+    Assert.assertFalse(map.containsAllEntriesOf(copy));
+    Assert.assertFalse(copy.containsAllEntriesOf(map));
+  }
+
+  @Test
+  public void testIteratorWritesThrough() {
+    PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+    for (int i = 0; i < 300; i++) {
+      map.put(key(i), i);
+    }
+    Iterator<Map.Entry<Key, Integer>> iterator = map.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Integer> entry = iterator.next();
+      if (entry.getValue() % 2 == 0) {
+        iterator.remove();
+      } else {
+        entry.setValue(-entry.getValue());
+      }
+    }
+    Assert.assertEquals(150, map.size());
+    for (int i = 0; i < 300; i++) {
+      Assert.assertEquals(i % 2 == 0 ? null : -i, map.get(key(i)));
+    }
+    map.keySet().removeIf(k -> k.id < 100);
+    Assert.assertEquals(100, map.size());
+  }
+
+  @Test
+  public void testIntersection() {
+    Random random = new Random(7);
+    PersistentHashMap<Key, Integer> base = new PersistentHashMap<>();
+    for (int i = 0; i < 300; i++) {
+      base.put(key(i), random.nextInt(10));
+    }
+    PersistentHashMap<Key, Integer> a = base.copy();
+    PersistentHashMap<Key, Integer> b = base.copy();
+    for (int i = 0; i < 100; i++) {
+      a.put(key(random.nextInt(400)), random.nextInt(10));
+      b.remove(key(random.nextInt(400)));
+      b.put(key(random.nextInt(400)), random.nextInt(10));
+    }
+
+    PersistentHashMap<Key, Integer> result = new PersistentHashMap<>();
+    result.setToIntersection(a, b, (x, y) -> Math.max(x, y) == 9 ? null : Math.max(x, y));
+
+    Map<Key, Integer> expected = new HashMap<>();
+    for (Map.Entry<Key, Integer> entry : a.entrySet()) {
+      Integer other = b.get(entry.getKey());
+      if (other != null) {
+        int max = Math.max(entry.getValue(), other);
+        if (entry.getValue().equals(other) || max != 9) {
+          expected.put(entry.getKey(), max);
+        }
+      }
+    }
+    Assert.assertEquals(expected, result);
+    Assert.assertEquals(expected.size(), result.size());
+  }
+}
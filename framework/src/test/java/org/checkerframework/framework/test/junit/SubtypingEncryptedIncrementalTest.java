@@ -0,0 +1,173 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.checkerframework.framework.test.CompilationResult;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the same tests as {@link SubtypingEncryptedTest}, but with {@code -AincrementalCache}, to
+ * check that recording diagnostics, and replaying them when the tests are run again, issues exactly
+ * the same diagnostics as type-checking every class.
+ */
+public class SubtypingEncryptedIncrementalTest extends CheckerFrameworkPerDirectoryTest {
+
+  /** The option that makes the checker record and replay diagnostics. */
+  private static final String INCREMENTAL_OPTION =
+      "-AincrementalCache=build/tmp/incremental-typecheck-test";
+
+  /**
+   * @param testFiles the files containing test code, which will be type-checked
+   */
+  public SubtypingEncryptedIncrementalTest(List<File> testFiles) {
+    super(
+        testFiles,
+        org.checkerframework.common.subtyping.SubtypingChecker.class,
+        "subtyping",
+        "-Aquals=org.checkerframework.framework.testchecker.util.Encrypted,org.checkerframework.framework.testchecker.util.PolyEncrypted,org.checkerframework.common.subtyping.qual.Unqualified",
+        INCREMENTAL_OPTION);
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"subtyping", "all-systems"};
+  }
+
+  /**
+   * Compiles the test files twice with an empty cache at first. Checks that the first compilation
+   * type-checks the classes, that the second one type-checks none of them because it replays the
+   * diagnostics of the first one, and that both issue the same diagnostics.
+   */
+  @Test
+  public void secondRunReplays() throws IOException {
+    if (testFiles.isEmpty()) {
+      return;
+    }
+    Path cacheDir = Files.createTempDirectory("incremental-typecheck-test");
+    try {
+      // -Ashowchecks prints a line for each check that the visitor performs, so it prints nothing
+      // for a class whose diagnostics are replayed.
+      List<String> options = new ArrayList<>(checkerOptions);
+      options.remove(INCREMENTAL_OPTION);
+      options.add("-AincrementalCache=" + cacheDir);
+      options.add("-Ashowchecks");
+
+      ByteArrayOutputStream firstChecks = new ByteArrayOutputStream();
+      List<String> firstOutput = compileCapturingStdout(options, firstChecks);
+      ByteArrayOutputStream secondChecks = new ByteArrayOutputStream();
+      List<String> secondOutput = compileCapturingStdout(options, secondChecks);
+
+      Assert.assertNotEquals("The first run performed no checks", 0, firstChecks.size());
+      Assert.assertEquals(
+          "The second run type-checked classes instead of replaying them",
+          "",
+          secondChecks.toString("UTF-8"));
+      Assert.assertEquals(firstOutput, secondOutput);
+    } finally {
+      try (Stream<Path> files = Files.walk(cacheDir)) {
+        files.sorted((p1, p2) -> p2.compareTo(p1)).forEach(p -> p.toFile().delete());
+      }
+    }
+  }
+
+  /**
+   * Checks that rewriting a stub file invalidates the cache, even if the file keeps its size and
+   * modification time.
+   */
+  @Test
+  public void changedStubFileInvalidates() throws IOException {
+    if (testFiles.isEmpty()) {
+      return;
+    }
+    Path cacheDir = Files.createTempDirectory("incremental-typecheck-test");
+    try {
+      Path stubFile = cacheDir.resolve("Changing.astub");
+      String stubPrefix = "import org.checkerframework.framework.testchecker.util.Encrypted;\n";
+      Files.write(stubFile, (stubPrefix + "// version 1\n").getBytes(StandardCharsets.UTF_8));
+      FileTime modified = Files.getLastModifiedTime(stubFile);
+
+      List<String> options = new ArrayList<>(checkerOptions);
+      options.remove(INCREMENTAL_OPTION);
+      options.add("-AincrementalCache=" + cacheDir.resolve("cache"));
+      options.add("-Astubs=" + stubFile);
+      options.add("-Ashowchecks");
+
+      compileCapturingStdout(options, new ByteArrayOutputStream());
+      Files.write(stubFile, (stubPrefix + "// version 2\n").getBytes(StandardCharsets.UTF_8));
+      Files.setLastModifiedTime(stubFile, modified);
+      ByteArrayOutputStream secondChecks = new ByteArrayOutputStream();
+      compileCapturingStdout(options, secondChecks);
+
+      Assert.assertNotEquals(
+          "The second run replayed diagnostics recorded with a different stub file",
+          0,
+          secondChecks.size());
+    } finally {
+      try (Stream<Path> files = Files.walk(cacheDir)) {
+        files.sorted((p1, p2) -> p2.compareTo(p1)).forEach(p -> p.toFile().delete());
+      }
+    }
+  }
+
+  /**
+   * Compiles the test files, and captures what the checker prints to standard output.
+   *
+   * @param options the options to the compiler
+   * @param stdout where to store what the checker prints to standard output
+   * @return the diagnostics and the output of the compiler
+   */
+  private List<String> compileCapturingStdout(List<String> options, ByteArrayOutputStream stdout)
+      throws UnsupportedEncodingException {
+    PrintStream systemOut = System.out;
+    System.setOut(new PrintStream(stdout, true, "UTF-8"));
+    try {
+      return compileAndGetOutput(options);
+    } finally {
+      System.setOut(systemOut);
+    }
+  }
+
+  /**
+   * Type-checks {@link #testFiles} with the given options, and returns what the compiler output.
+   *
+   * @param options the options to pass to the compiler
+   * @return the diagnostics, in the order that javac issued them, followed by everything else that
+   *     javac printed
+   */
+  private List<String> compileAndGetOutput(List<String> options) {
+    TestConfiguration config =
+        TestConfigurationBuilder.buildDefaultConfiguration(
+            new File(resolveTestDirectory(), testDir).getPath(),
+            testFiles,
+            classpathExtra,
+            checkerNames,
+            options,
+            TestUtilities.getShouldEmitDebugInfo());
+    CompilationResult result = new TypecheckExecutor().compile(config);
+    List<String> output = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : result.getDiagnostics()) {
+      output.add(diagnostic.toString());
+    }
+    output.add(result.getJavacOutput());
+    return output;
+  }
+}
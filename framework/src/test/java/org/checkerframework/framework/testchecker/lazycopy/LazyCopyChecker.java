@@ -0,0 +1,17 @@
+package org.checkerframework.framework.testchecker.lazycopy;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+
+/**
+ * Tests that the types that {@code AnnotatedTypeFactory} returns from its caches are independent
+ * copies: mutating one of them changes neither the cached type nor any other copy of it. See {@link
+ * LazyCopyVisitor}.
+ *
+ * <pre>
+ * Hierarchy:
+ *   LazyCopyTop (default)
+ *        |
+ *   LazyCopyBottom
+ * </pre>
+ */
+public class LazyCopyChecker extends BaseTypeChecker {}
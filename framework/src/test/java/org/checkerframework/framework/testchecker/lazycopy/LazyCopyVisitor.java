@@ -0,0 +1,138 @@
+package org.checkerframework.framework.testchecker.lazycopy;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.type.TypeKind;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.basetype.BaseAnnotatedTypeFactory;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.framework.testchecker.lazycopy.qual.LazyCopyBottom;
+import org.checkerframework.framework.testchecker.lazycopy.qual.LazyCopyTop;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * For each declaration and each invoked method or constructor, obtains several copies of its type
+ * from the element cache of the type factory, mutates every component of one copy, and throws an
+ * exception if the cached type or another copy changed. Some of the other copies are read before
+ * the mutation and some after, so that their components are copied before or after it.
+ */
+public class LazyCopyVisitor extends BaseTypeVisitor<BaseAnnotatedTypeFactory> {
+
+  /** {@code @LazyCopyTop}. */
+  private final AnnotationMirror TOP;
+
+  /** {@code @LazyCopyBottom}. */
+  private final AnnotationMirror BOTTOM;
+
+  /** Replaces the annotations on a type and all its components by the given annotation. */
+  private final SimpleAnnotatedTypeScanner<Void, AnnotationMirror> mutator;
+
+  /**
+   * Creates a LazyCopyVisitor.
+   *
+   * @param checker the checker
+   */
+  public LazyCopyVisitor(BaseTypeChecker checker) {
+    super(checker);
+    TOP = AnnotationBuilder.fromClass(elements, LazyCopyTop.class);
+    BOTTOM = AnnotationBuilder.fromClass(elements, LazyCopyBottom.class);
+    mutator =
+        new SimpleAnnotatedTypeScanner<>(
+            (type, anno) -> {
+              if (type.getKind() != TypeKind.EXECUTABLE) {
+                type.replaceAnnotation(anno);
+              }
+              return null;
+            });
+  }
+
+  @Override
+  public void processClassTree(ClassTree tree) {
+    checkCopies(TreeUtils.elementFromDeclaration(tree));
+    super.processClassTree(tree);
+  }
+
+  @Override
+  public void processMethodTree(String className, MethodTree tree) {
+    checkCopies(TreeUtils.elementFromDeclaration(tree));
+    super.processMethodTree(className, tree);
+  }
+
+  @Override
+  public Void visitVariable(VariableTree tree, Void p) {
+    checkCopies(TreeUtils.elementFromDeclaration(tree));
+    return super.visitVariable(tree, p);
+  }
+
+  @Override
+  public Void visitMethodInvocation(MethodInvocationTree tree, Void p) {
+    checkCopies(TreeUtils.elementFromUse(tree));
+    return super.visitMethodInvocation(tree, p);
+  }
+
+  @Override
+  public Void visitNewClass(NewClassTree tree, Void p) {
+    checkCopies(TreeUtils.elementFromUse(tree));
+    return super.visitNewClass(tree, p);
+  }
+
+  /**
+   * Throws an exception if mutating a copy of the cached type of {@code elt} changes the cached
+   * type or another copy.
+   *
+   * @param elt an element, or null
+   */
+  private void checkCopies(@Nullable Element elt) {
+    if (elt == null) {
+      return;
+    }
+    // The first call puts the type of elt in the cache, if it is not there already.
+    AnnotatedTypeMirror expected = atypeFactory.fromElement(elt).deepCopy();
+
+    AnnotatedTypeMirror mutated = atypeFactory.fromElement(elt);
+    // A copy whose components are all copied before the mutation.
+    AnnotatedTypeMirror readBefore = atypeFactory.fromElement(elt);
+    assertEquals(expected, readBefore, elt, "before the mutation");
+    // A copy whose components are all copied after the mutation.
+    AnnotatedTypeMirror readAfter = atypeFactory.fromElement(elt);
+
+    mutator.visit(mutated, BOTTOM);
+
+    assertEquals(expected, readBefore, elt, "read before the mutation");
+    assertEquals(expected, readAfter, elt, "read after the mutation");
+    assertEquals(expected, atypeFactory.fromElement(elt), elt, "made after the mutation");
+    assertEquals(
+        expected, atypeFactory.fromElement(elt).deepCopy(), elt, "deep copied after the mutation");
+
+    // Mutating another copy does not change the mutated copy.
+    AnnotatedTypeMirror expectedMutated = mutated.deepCopy();
+    mutator.visit(atypeFactory.fromElement(elt), TOP);
+    assertEquals(expectedMutated, mutated, elt, "mutated");
+  }
+
+  /**
+   * Throws an exception if {@code actual} is not equal to {@code expected}.
+   *
+   * @param expected the expected type
+   * @param actual a copy of the type of {@code elt}
+   * @param elt the element whose type is being tested
+   * @param which a description of {@code actual}
+   */
+  private static void assertEquals(
+      AnnotatedTypeMirror expected, AnnotatedTypeMirror actual, Element elt, String which) {
+    if (!expected.equals(actual)) {
+      throw new AssertionError(
+          String.format(
+              "Copy of the type of %s %s is %s, but should be %s", elt, which, actual, expected));
+    }
+  }
+}
@@ -0,0 +1,59 @@
+// The LazyCopyChecker checks copies of the type of each declaration and of each invoked method
+// or constructor, so this file declares and uses each kind of annotated type.
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.framework.testchecker.lazycopy.qual.LazyCopyBottom;
+
+public class LazyCopy<T extends Comparable<T>, U extends Number & Serializable> {
+
+  @LazyCopyBottom String annotated;
+
+  List<? extends T>[] arrayOfLists;
+
+  Map<String, List<? super @LazyCopyBottom Integer>> nested;
+
+  int @LazyCopyBottom [][] ints;
+
+  U intersectionBound;
+
+  Inner inner;
+
+  class Inner {
+    Map.Entry<T, U> entry;
+  }
+
+  static class Recursive<E extends Enum<E>> {
+    @SuppressWarnings("rawtypes")
+    List raw;
+
+    E e;
+  }
+
+  LazyCopy(List<? extends T> list) {}
+
+  <V extends T> V generic(V v, List<? extends V> list, String... rest) throws IOException {
+    return v;
+  }
+
+  void invocations(List<String> strings, T t) throws IOException {
+    Collections.sort(strings);
+    String max = Collections.max(strings);
+    String[] array = strings.toArray(new String[0]);
+    List<Integer> list = Arrays.asList(1, 2, 3);
+    List<T> ts = new ArrayList<>();
+    ts.add(t);
+    LazyCopy<T, U> copy = new LazyCopy<>(ts);
+    T result = copy.generic(t, ts, "a", "b");
+    try {
+      strings.get(0);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      e.printStackTrace();
+    }
+  }
+}
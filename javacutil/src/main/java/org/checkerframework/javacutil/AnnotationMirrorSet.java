@@ -1,11 +1,14 @@
 package org.checkerframework.javacutil;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
 import javax.lang.model.element.AnnotationMirror;
 import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.nullness.qual.KeyFor;
@@ -28,15 +31,37 @@ import org.plumelib.util.DeepCopyable;
  *
  * <p>AnnotationMirror is an interface and not all implementing classes provide a correct equals
  * method; therefore, the existing implementations of Set cannot be used.
+ *
+ * <p>The elements are kept in an array, sorted by {@link AnnotationUtils#compareAnnotationMirrors}.
+ * Almost every set contains only one to three annotations, for which a linear search of an array
+ * is faster, and allocates less, than a search tree.
  */
 // TODO: Could extend AbstractSet to eliminate the need to implement a few methods.
 public class AnnotationMirrorSet
     implements NavigableSet<@KeyFor("this") AnnotationMirror>, DeepCopyable<AnnotationMirrorSet> {
 
-  /** Backing set. */
-  // Not final because makeUnmodifiable() can reassign it.
-  private NavigableSet<@KeyFor("this") AnnotationMirror> shadowSet =
-      new TreeSet<>(AnnotationUtils::compareAnnotationMirrors);
+  /** The comparator that determines the order of the elements. */
+  private static final Comparator<AnnotationMirror> comparator =
+      AnnotationUtils::compareAnnotationMirrors;
+
+  /** An empty array, shared by all empty sets that have never had an element. */
+  private static final AnnotationMirror[] NO_ANNOTATIONS = new AnnotationMirror[0];
+
+  /**
+   * The elements of this set, in increasing order, in indices 0 (inclusive) to {@link #size}
+   * (exclusive). The remaining indices contain null, though the type does not say so, because the
+   * code only reads indices less than {@link #size}.
+   */
+  private AnnotationMirror[] elements = NO_ANNOTATIONS;
+
+  /** The number of elements in this set. */
+  private int size = 0;
+
+  /** The number of structural modifications to this set, used to detect concurrent modification. */
+  private int modCount = 0;
+
+  /** True if this set is unmodifiable. */
+  private boolean unmodifiable = false;
 
   /** The canonical unmodifiable empty set. */
   private static AnnotationMirrorSet emptySet = unmodifiableSet(Collections.emptySet());
@@ -67,11 +92,13 @@ public class AnnotationMirrorSet
     this.addAll(annos);
   }
 
-  @SuppressWarnings("keyfor:argument") // transferring keys from one map to another
   @Override
   public AnnotationMirrorSet deepCopy() {
     AnnotationMirrorSet result = new AnnotationMirrorSet();
-    result.shadowSet.addAll(shadowSet);
+    if (size != 0) {
+      result.elements = Arrays.copyOf(elements, size);
+      result.size = size;
+    }
     return result;
   }
 
@@ -81,7 +108,7 @@ public class AnnotationMirrorSet
    * @return this set
    */
   public @This AnnotationMirrorSet makeUnmodifiable() {
-    shadowSet = Collections.unmodifiableNavigableSet(shadowSet);
+    unmodifiable = true;
     return this;
   }
 
@@ -92,10 +119,9 @@ public class AnnotationMirrorSet
    * @return a new unmodifiable {@link AnnotationMirrorSet} that contains only {@code value}
    */
   public static AnnotationMirrorSet singleton(AnnotationMirror value) {
-    // The implementation could be more efficient if Collections.singleton returned a
-    // NavigableSet.
     AnnotationMirrorSet result = new AnnotationMirrorSet();
-    result.add(value);
+    result.elements = new AnnotationMirror[] {value};
+    result.size = 1;
     result.makeUnmodifiable();
     return result;
   }
@@ -121,43 +147,188 @@ public class AnnotationMirrorSet
     return emptySet;
   }
 
+  // Helper methods
+
+  /**
+   * Returns the index of the element that is the same as {@code anno}, according to {@link
+   * AnnotationUtils#areSame}, or -1 if there is none.
+   *
+   * <p>Compares names first; {@link AnnotationUtils#compareByName} is an identity test for
+   * annotations created by {@link AnnotationBuilder}, whose names are interned.
+   *
+   * @param anno the annotation to search for
+   * @return the index of {@code anno} in {@link #elements}, or -1
+   */
+  private int indexOf(
+      @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
+      AnnotationMirror anno) {
+    for (int i = 0; i < size; i++) {
+      AnnotationMirror element = elements[i];
+      if (element == anno) {
+        return i;
+      }
+      int nameComparison = AnnotationUtils.compareByName(element, anno);
+      if (nameComparison > 0) {
+        // The elements are sorted by name, so no later element has the same name as anno.
+        return -1;
+      }
+      if (nameComparison == 0 && AnnotationUtils.areSame(element, anno)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the first element that is greater than {@code anno} (or greater than or
+   * equal to it, if {@code inclusive} is true), or {@link #size} if there is none.
+   *
+   * @param anno an annotation
+   * @param inclusive whether to return the index of an element that is equal to {@code anno}
+   * @return the index of the first element that is greater than {@code anno}
+   */
+  private int indexAfter(
+      @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
+      AnnotationMirror anno,
+      boolean inclusive) {
+    for (int i = 0; i < size; i++) {
+      int comparison = comparator.compare(elements[i], anno);
+      if (comparison > 0 || (inclusive && comparison == 0)) {
+        return i;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Throws an exception if this set is unmodifiable. Called only by operations that would change
+   * this set, so that, for example, adding an element that an unmodifiable set already contains
+   * returns false rather than throwing.
+   *
+   * @throws UnsupportedOperationException if this set is unmodifiable
+   */
+  private void checkModifiable(
+      @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this) {
+    if (unmodifiable) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Removes the element at the given index.
+   *
+   * @param index the index of the element to remove
+   * @return the removed element
+   */
+  @SuppressWarnings("nullness:assignment") // indices at or above size contain null
+  private AnnotationMirror removeAt(int index) {
+    checkModifiable();
+    AnnotationMirror result = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    elements[--size] = null;
+    modCount++;
+    return result;
+  }
+
+  /**
+   * Returns the element at the given index, or null if the index is out of range.
+   *
+   * @param index an index, possibly out of range
+   * @return the element at {@code index}, or null
+   */
+  @SuppressWarnings("keyfor:return") // every element is a key for this
+  private @Nullable @KeyFor("this") AnnotationMirror elementAtOrNull(int index) {
+    return (index >= 0 && index < size) ? elements[index] : null;
+  }
+
   // Set methods
 
   @Override
   public int size() {
-    return shadowSet.size();
+    return size;
   }
 
   @Override
   public boolean isEmpty() {
-    return shadowSet.isEmpty();
+    return size == 0;
   }
 
   @Override
   public boolean contains(
       @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
       @Nullable Object o) {
-    return o instanceof AnnotationMirror
-        && AnnotationUtils.containsSame(shadowSet, (AnnotationMirror) o);
+    return o instanceof AnnotationMirror && indexOf((AnnotationMirror) o) != -1;
   }
 
   @Override
   public Iterator<@KeyFor("this") AnnotationMirror> iterator() {
-    return shadowSet.iterator();
+    return new Iterator<@KeyFor("this") AnnotationMirror>() {
+
+      /** The index of the next element to return. */
+      private int next = 0;
+
+      /** The index of the element most recently returned, or -1. */
+      private int lastReturned = -1;
+
+      /** The value of {@link #modCount} that this iterator expects. */
+      private int expectedModCount = modCount;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @SuppressWarnings("keyfor:return") // every element is a key for this
+      @Override
+      public @KeyFor("this") AnnotationMirror next() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        lastReturned = next++;
+        return elements[lastReturned];
+      }
+
+      @Override
+      public void remove() {
+        if (lastReturned == -1) {
+          throw new IllegalStateException();
+        }
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        removeAt(lastReturned);
+        next = lastReturned;
+        lastReturned = -1;
+        expectedModCount = modCount;
+      }
+    };
   }
 
   @Override
   public Object[] toArray() {
-    return shadowSet.toArray();
+    return Arrays.copyOf(elements, size, Object[].class);
   }
 
-  @SuppressWarnings("nullness:toarray.nullable.elements.not.newarray") // delegation
+  @SuppressWarnings({
+    "nullness:toarray.nullable.elements.not.newarray", // same behavior as Collection.toArray
+    "unchecked" // the elements are AnnotationMirrors
+  })
   @Override
   public <@KeyForBottom T> @Nullable T[] toArray(@PolyNull T[] a) {
-    return shadowSet.toArray(a);
+    if (a.length < size) {
+      return (T[]) Arrays.copyOf(elements, size, a.getClass());
+    }
+    System.arraycopy(elements, 0, a, 0, size);
+    if (a.length > size) {
+      a[size] = null;
+    }
+    return a;
   }
 
-  @SuppressWarnings("keyfor:argument") // delegation
+  @SuppressWarnings("nullness:assignment") // indices at or above size contain null
   @Override
   public boolean add(
       @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
@@ -165,15 +336,30 @@ public class AnnotationMirrorSet
     if (contains(annotationMirror)) {
       return false;
     }
-    shadowSet.add(annotationMirror);
+    int index = indexAfter(annotationMirror, true);
+    if (index < size && comparator.compare(elements[index], annotationMirror) == 0) {
+      // Not the same according to areSame(), but equal according to the comparator.
+      return false;
+    }
+    checkModifiable();
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(2, size * 2));
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = annotationMirror;
+    size++;
+    modCount++;
     return true;
   }
 
   @Override
   public boolean remove(@Nullable Object o) {
     if (o instanceof AnnotationMirror) {
-      AnnotationMirror found = AnnotationUtils.getSame(shadowSet, (AnnotationMirror) o);
-      return found != null && shadowSet.remove(found);
+      int index = indexOf((AnnotationMirror) o);
+      if (index != -1) {
+        removeAt(index);
+        return true;
+      }
     }
     return false;
   }
@@ -201,22 +387,34 @@ public class AnnotationMirrorSet
     return result;
   }
 
+  @SuppressWarnings("nullness:argument") // indices at or above size contain null
   @Override
   public boolean retainAll(Collection<?> c) {
-    AnnotationMirrorSet newSet = new AnnotationMirrorSet();
-    for (Object o : c) {
-      if (contains(o)) {
-        assert o != null
-            : "@AssumeAssertion(nullness): after contains, the argument should have"
-                + " the element type of the set";
-        newSet.add((AnnotationMirror) o);
+    AnnotationMirrorSet other =
+        (c instanceof AnnotationMirrorSet) ? (AnnotationMirrorSet) c : new AnnotationMirrorSet();
+    if (other != c) {
+      for (Object o : c) {
+        if (o instanceof AnnotationMirror) {
+          other.add((AnnotationMirror) o);
+        }
       }
     }
-    if (newSet.size() != shadowSet.size()) {
-      shadowSet = newSet;
-      return true;
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (other.contains(elements[i])) {
+        elements[newSize++] = elements[i];
+      } else if (newSize == i) {
+        // The first element to be removed.  No element has been moved yet.
+        checkModifiable();
+      }
     }
-    return false;
+    if (newSize == size) {
+      return false;
+    }
+    Arrays.fill(elements, newSize, size, null);
+    size = newSize;
+    modCount++;
+    return true;
   }
 
   @Override
@@ -230,14 +428,24 @@ public class AnnotationMirrorSet
     return result;
   }
 
+  @SuppressWarnings("nullness:argument") // indices at or above size contain null
   @Override
   public void clear() {
-    shadowSet.clear();
+    if (size != 0) {
+      checkModifiable();
+      Arrays.fill(elements, 0, size, null);
+      size = 0;
+      modCount++;
+    }
   }
 
   @Override
   public String toString() {
-    return shadowSet.toString();
+    StringJoiner result = new StringJoiner(", ", "[", "]");
+    for (int i = 0; i < size; i++) {
+      result.add(String.valueOf(elements[i]));
+    }
+    return result.toString();
   }
 
   @Override
@@ -258,12 +466,8 @@ public class AnnotationMirrorSet
   @Override
   public int hashCode() {
     int result = 0;
-    Iterator<AnnotationMirror> i = iterator();
-    while (i.hasNext()) {
-      AnnotationMirror am = i.next();
-      if (am != null) {
-        result += am.hashCode();
-      }
+    for (int i = 0; i < size; i++) {
+      result += elements[i].hashCode();
     }
     return result;
   }
@@ -278,51 +482,63 @@ public class AnnotationMirrorSet
   })
   @Override
   public Comparator<? super AnnotationMirror> comparator() {
-    return shadowSet.comparator();
+    return comparator;
   }
 
+  @SuppressWarnings("keyfor:return") // every element is a key for this
   @Override
   public @KeyFor("this") AnnotationMirror first() {
-    return shadowSet.first();
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return elements[0];
   }
 
+  @SuppressWarnings("keyfor:return") // every element is a key for this
   @Override
   public @KeyFor("this") AnnotationMirror last() {
-    return shadowSet.last();
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return elements[size - 1];
   }
 
-  @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror lower(AnnotationMirror e) {
-    return shadowSet.lower(e);
+    return elementAtOrNull(indexAfter(e, true) - 1);
   }
 
-  @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror floor(AnnotationMirror e) {
-    return shadowSet.floor(e);
+    return elementAtOrNull(indexAfter(e, false) - 1);
   }
 
-  @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror ceiling(AnnotationMirror e) {
-    return shadowSet.ceiling(e);
+    return elementAtOrNull(indexAfter(e, true));
   }
 
-  @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror higher(AnnotationMirror e) {
-    return shadowSet.higher(e);
+    return elementAtOrNull(indexAfter(e, false));
   }
 
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror pollFirst() {
-    return shadowSet.pollFirst();
+    @Nullable @KeyFor("this") AnnotationMirror result = elementAtOrNull(0);
+    if (result != null) {
+      removeAt(0);
+    }
+    return result;
   }
 
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror pollLast() {
-    return shadowSet.pollLast();
+    @Nullable @KeyFor("this") AnnotationMirror result = elementAtOrNull(size - 1);
+    if (result != null) {
+      removeAt(size - 1);
+    }
+    return result;
   }
 
   @Override